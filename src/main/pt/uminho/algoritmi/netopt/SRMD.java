@@ -36,12 +36,12 @@ import pt.uminho.algoritmi.netopt.ospf.optimization.Params.AlgorithmSecondObject
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.JecoliOSPF;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.JecoliPValueInteger;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
-import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkLoads;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NondominatedPopulation;
 import pt.uminho.algoritmi.netopt.ospf.simulation.OSPFWeights;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Population;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.TrafficMatricesEvaluator;
 import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
 import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.PDEFTSimul;
 import pt.uminho.algoritmi.netopt.ospf.simulation.solution.IntegerSolution;
@@ -195,6 +195,9 @@ public class SRMD {
 		
 		
 		int nthreads = SystemConf.getPropertyInt("threads.number", 1);
+		double[][] ckm= new double[100][4]; 
+		evaluate(w, allDemands, ckm, nthreads);
+
 		CMTComputeUnit[] runnables = new CMTComputeUnit[nthreads];
 		int n=100/nthreads;
 		int t = 100%nthreads;
@@ -202,8 +205,6 @@ public class SRMD {
 		ExecutorService exec = Executors.newFixedThreadPool(nthreads);
 		CountDownLatch latch = new CountDownLatch(nthreads);
 		
-		double[][] ckm= new double[100][4]; 
-		
 		int from=0;
 		for(int i=0;i<nthreads;i++){	
 			int to= from+n-1;
@@ -236,10 +237,8 @@ public class SRMD {
 			CMTComputeUnit unit =runnables[i];
 			double[][] cs=unit.getCongestions();
 			for(int j=0;j<cs.length;j++){
-				ckm[count][0]=cs[j][0];
-				ckm[count][1]=cs[j][1];
-				ckm[count][2]=cs[j][2];
-				ckm[count][3]=cs[j][3];
+				ckm[count][2]=cs[j][0];
+				ckm[count][3]=cs[j][1];
 				count++;
 			}
 		}
@@ -267,6 +266,7 @@ public class SRMD {
 
 		
 		double[][] cav= new double[100][4]; 
+		evaluate(w, allDemands, cav, nthreads);
 		
 		
 		runnables = new CMTComputeUnit[nthreads];
@@ -308,10 +308,8 @@ public class SRMD {
 			CMTComputeUnit unit =runnables[i];
 			double[][] cs=unit.getCongestions();
 			for(int j=0;j<cs.length;j++){
-				cav[count][0]=cs[j][0];
-				cav[count][1]=cs[j][1];
-				cav[count][2]=cs[j][2];
-				cav[count][3]=cs[j][3];
+				cav[count][2]=cs[j][0];
+				cav[count][3]=cs[j][1];
 				count++;
 			}
 		}
@@ -358,6 +356,22 @@ public class SRMD {
 
 	
 
+	/**
+	 * Sets the congestion and MLU of the DEFT routing of the weights for each
+	 * TM, in the first two columns of res, evaluating all TMs in batches
+	 */
+	private void evaluate(OSPFWeights w, ArrayList<Demands> allDemands, double[][] res, int nthreads)
+			throws DimensionErrorException {
+		TrafficMatricesEvaluator evaluator = new TrafficMatricesEvaluator(new PDEFTSimul(topology.copy(), true), w);
+		TrafficMatricesEvaluator.Result r = evaluator.evaluate(allDemands.toArray(new Demands[allDemands.size()]),
+				nthreads);
+		for (int i = 0; i < r.size(); i++) {
+			res[i][0] = r.getCongestion(i);
+			res[i][1] = r.getMLU(i);
+		}
+		LOGGER.info("DEFT routing over " + r.size() + " TMs: " + r);
+	}
+
 	private double distance(Demands d1, Demands d2) throws DimensionErrorException {
 		if (d1.getDimension() != d2.getDimension())
 			throw new DimensionErrorException();
@@ -460,7 +474,7 @@ public class SRMD {
 			this.topology = topology;
 			this.w = weights;
 			this.demands = demands;
-			this.cgs = new double[demands.length][4];
+			this.cgs = new double[demands.length][2];
 			parameters = new Params();
 			parameters.setArchiveSize(100);
 			parameters.setPopulationSize(100);
@@ -478,21 +492,17 @@ public class SRMD {
 		@Override
 		public void run() {
 			try {
+				// the congestion and MLU of the weights alone are evaluated
+				// for all TMs at once
 				for (int i = 0; i < demands.length; i++) {
-					PDEFTSimul simul = new PDEFTSimul(topology, true);
-					simul.computeLoads(w, demands[i]);
-					NetworkLoads loads = simul.getLoads();
-					cgs[i][0] = loads.getCongestion();
-					cgs[i][1] = loads.getMLU();
-
 					JecoliPValueInteger j = new JecoliPValueInteger(topology, demands[i], w);
 					IntegerSolution sol;
 					j.setMinMaxPvalues(-100, 100, 10);
 					j.configureNSGAIIAlgorithm(parameters);
 					j.run();
 					sol = j.getPolulation().getLowestValuedSolutions(0, 1).get(0);
-					cgs[i][2] = sol.getFitnessValue(0);
-					cgs[i][3] = sol.getFitnessValue(1);
+					cgs[i][0] = sol.getFitnessValue(0);
+					cgs[i][1] = sol.getFitnessValue(1);
 				}
 
 			} catch (Exception e1) {
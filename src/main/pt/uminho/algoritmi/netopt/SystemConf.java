@@ -1,138 +1,295 @@
-/*******************************************************************************
- * Copyright 2012-2017,
- *  Centro Algoritmi - University of Minho
- * 
- *  This is free software: you can redistribute it and/or modify
- *  it under the terms of the GNU Public License as published by
- *  the Free Software Foundation, either version 3 of the License, or
- *  (at your option) any later version.
- * 
- *  This code is distributed in the hope that it will be useful,
- *  but WITHOUT ANY WARRANTY; without even the implied warranty of
- *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- *  GNU Public License for more details.
- * 
- *  You should have received a copy of the GNU Public License
- *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
- *  
- *  @author Vtor Pereira
- ******************************************************************************/
-package pt.uminho.algoritmi.netopt;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.util.Properties;
-
-public class SystemConf {
-
-	private SystemConf() {
-	}
-
-	public static SystemConf getInstance() {
-		return _instance;
-	}
-
-	public static Properties getProperties(String s) {
-		Properties properties = new Properties();
-		try {
-			FileInputStream fileinputstream = new FileInputStream(s);
-			properties.load(fileinputstream);
-			fileinputstream.close();
-		} catch (Exception exception) {
-			exception.printStackTrace();
-		}
-		return properties;
-	}
-
-	public static Properties getProperties() {
-		System.out.println(CONFFILE);
-		return SystemConf.getProperties(CONFFILE);
-	}
-
-	public static void setProperties(Properties properties, String s) {
-		try {
-			File file = new File(s);
-			FileOutputStream fileoutputstream = new FileOutputStream(file);
-			properties.store(fileoutputstream, "");
-			fileoutputstream.close();
-		} catch (Exception exception) {
-		}
-	}
-	
-	public static void setProperties(Properties properties) {
-		try {
-			File file = new File(CONFFILE);
-			FileOutputStream fileoutputstream = new FileOutputStream(file);
-			properties.store(fileoutputstream, "");
-			fileoutputstream.close();
-		} catch (Exception exception) {
-		}
-	}
-
-	public static String getProperty(String s) {
-		Properties properties = new Properties();
-		try {
-			FileInputStream fileinputstream = new FileInputStream(
-					SystemConf.CONFFILE);
-			
-			properties.load(fileinputstream);
-			fileinputstream.close();
-		} catch (Exception exception) {
-			//exception.printStackTrace();
-		}
-		return properties.getProperty(s);
-	}
-
-	private static SystemConf _instance = new SystemConf();
-	private static final String CONFFILE;
-
-	static {
-		CONFFILE = System.getProperty("user.dir") + File.separator + "conf"
-				+ File.separator + "netopt.conf";
-	}
-
-	public static int getPropertyInt(String name, int def) {
-		int r = def;
-		try {
-			r = Integer.parseInt(SystemConf.getProperty(name));
-		} catch (Exception e) {
-			//e.printStackTrace();
-		}
-		return r;
-	}
-	
-	
-	public static double getPropertyDouble(String name, double def) {
-		double r = def;
-		try {
-			r = Double.parseDouble(SystemConf.getProperty(name));
-		} catch (Exception e) {
-		}
-		return r;
-	}
-	
-	
-	public static String getPropertyString(String name, String def) {
-		String r = def;
-		try {
-			String s = SystemConf.getProperty(name);
-			if(s!=null)
-				r=s;
-		} catch (Exception e) {
-		}
-		return r;
-	}
-
-	public static boolean getPropertyBoolean(String name, boolean def) {
-		boolean r = def;
-		try {
-			String s = SystemConf.getProperty(name);
-			if(s!=null)
-				r=Boolean.valueOf(s);
-		} catch (Exception e) {
-		}
-		return r;
-	}
-
-}
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ * 
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ * 
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Access to the configuration file (conf/netopt.conf).
+ * 
+ * The file is read once and kept as an immutable snapshot, which is reloaded
+ * when the file modification time changes (checked at most every
+ * RELOAD_CHECK_INTERVAL ms) or on reload(). Typed values are parsed once per
+ * snapshot.
+ * 
+ * Overrides, e.g. given by the optimization Params of a run, take precedence
+ * over the file within a scope: they apply to the thread that entered the
+ * scope until it is closed. Tasks handed to worker threads capture current()
+ * and enter it while they run.
+ */
+public class SystemConf {
+
+	public static final long RELOAD_CHECK_INTERVAL = 5000;
+
+	private SystemConf() {
+	}
+
+	public static SystemConf getInstance() {
+		return _instance;
+	}
+
+	public static Properties getProperties(String s) {
+		Properties properties = new Properties();
+		try {
+			FileInputStream fileinputstream = new FileInputStream(s);
+			properties.load(fileinputstream);
+			fileinputstream.close();
+		} catch (Exception exception) {
+			exception.printStackTrace();
+		}
+		return properties;
+	}
+
+	public static Properties getProperties() {
+		System.out.println(CONFFILE);
+		return SystemConf.getProperties(CONFFILE);
+	}
+
+	public static void setProperties(Properties properties, String s) {
+		try {
+			File file = new File(s);
+			FileOutputStream fileoutputstream = new FileOutputStream(file);
+			properties.store(fileoutputstream, "");
+			fileoutputstream.close();
+		} catch (Exception exception) {
+		}
+	}
+	
+	public static void setProperties(Properties properties) {
+		try {
+			File file = new File(CONFFILE);
+			FileOutputStream fileoutputstream = new FileOutputStream(file);
+			properties.store(fileoutputstream, "");
+			fileoutputstream.close();
+		} catch (Exception exception) {
+		}
+		reload();
+	}
+
+	public static String getProperty(String s) {
+		return values(s).get(s);
+	}
+
+	// the overrides of the current thread if they set the property, or the file
+	private static Values values(String name) {
+		Values overrides = scope.get();
+		if (overrides != null && overrides.contains(name))
+			return overrides;
+		return snapshot();
+	}
+
+	/**
+	 * Forces the configuration file to be read again
+	 */
+	public static synchronized void reload() {
+		Properties properties = new Properties();
+		File file = new File(CONFFILE);
+		long modified = file.lastModified();
+		try {
+			FileInputStream fileinputstream = new FileInputStream(file);
+			properties.load(fileinputstream);
+			fileinputstream.close();
+		} catch (Exception exception) {
+			//exception.printStackTrace();
+		}
+		lastModified = modified;
+		lastCheck = System.currentTimeMillis();
+		snapshot = new Values(properties);
+	}
+
+	private static Values snapshot() {
+		Values values = snapshot;
+		if (values == null) {
+			reload();
+			return snapshot;
+		}
+		long now = System.currentTimeMillis();
+		if (now - lastCheck > RELOAD_CHECK_INTERVAL) {
+			synchronized (SystemConf.class) {
+				if (now - lastCheck > RELOAD_CHECK_INTERVAL) {
+					lastCheck = now;
+					if (new File(CONFFILE).lastModified() != lastModified)
+						reload();
+				}
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Values that take precedence over the configuration file
+	 * 
+	 * @param properties
+	 *            null or empty for none
+	 */
+	public static Overrides overrides(Properties properties) {
+		if (properties == null || properties.isEmpty())
+			return null;
+		return new Overrides(properties);
+	}
+
+	/**
+	 * @return the overrides of the current thread, or null
+	 */
+	public static Overrides current() {
+		return scope.get();
+	}
+
+	/**
+	 * Applies overrides to the current thread until the scope is closed
+	 * 
+	 * @param overrides
+	 *            null to read the configuration file only
+	 */
+	public static Scope enter(Overrides overrides) {
+		Scope s = new Scope(scope.get());
+		if (overrides == null)
+			scope.remove();
+		else
+			scope.set(overrides);
+		return s;
+	}
+
+	public static Scope enter(Properties properties) {
+		return enter(overrides(properties));
+	}
+
+	/**
+	 * Restores the overrides the thread had when the scope was entered
+	 */
+	public static final class Scope implements AutoCloseable {
+
+		private final Overrides previous;
+
+		private Scope(Overrides previous) {
+			this.previous = previous;
+		}
+
+		@Override
+		public void close() {
+			if (previous == null)
+				scope.remove();
+			else
+				scope.set(previous);
+		}
+	}
+
+	/**
+	 * Property values, with the typed values parsed on first use
+	 */
+	private static class Values {
+
+		// marks values that are missing or could not be parsed
+		private static final Object NONE = new Object();
+
+		private final Map<String, String> values = new HashMap<String, String>();
+		private final Map<String, Object> ints = new ConcurrentHashMap<String, Object>();
+		private final Map<String, Object> doubles = new ConcurrentHashMap<String, Object>();
+		private final Map<String, Object> booleans = new ConcurrentHashMap<String, Object>();
+
+		Values(Properties properties) {
+			for (String name : properties.stringPropertyNames())
+				values.put(name, properties.getProperty(name));
+		}
+
+		boolean contains(String name) {
+			return values.containsKey(name);
+		}
+
+		String get(String name) {
+			return values.get(name);
+		}
+
+		Object parse(Map<String, Object> parsed, String name, Function<String, Object> parser) {
+			Object v = parsed.get(name);
+			if (v == null) {
+				String s = values.get(name);
+				try {
+					v = s != null ? parser.apply(s) : NONE;
+				} catch (Exception e) {
+					v = NONE;
+				}
+				parsed.put(name, v);
+			}
+			return v;
+		}
+	}
+
+	/**
+	 * An immutable set of overriding values, e.g. those of a run
+	 */
+	public static final class Overrides extends Values {
+
+		private Overrides(Properties properties) {
+			super(properties);
+		}
+	}
+
+	private static SystemConf _instance = new SystemConf();
+	private static final String CONFFILE;
+	private static volatile Values snapshot;
+	private static volatile long lastCheck;
+	private static long lastModified;
+	private static final ThreadLocal<Overrides> scope = new ThreadLocal<Overrides>();
+
+	static {
+		CONFFILE = System.getProperty("user.dir") + File.separator + "conf"
+				+ File.separator + "netopt.conf";
+	}
+
+	public static int getPropertyInt(String name, int def) {
+		Values values = values(name);
+		Object r = values.parse(values.ints, name, Integer::valueOf);
+		return r != Values.NONE ? (Integer) r : def;
+	}
+	
+	
+	public static double getPropertyDouble(String name, double def) {
+		Values values = values(name);
+		Object r = values.parse(values.doubles, name, Double::valueOf);
+		return r != Values.NONE ? (Double) r : def;
+	}
+	
+	
+	public static String getPropertyString(String name, String def) {
+		String r = def;
+		try {
+			String s = SystemConf.getProperty(name);
+			if(s!=null)
+				r=s;
+		} catch (Exception e) {
+		}
+		return r;
+	}
+
+	public static boolean getPropertyBoolean(String name, boolean def) {
+		Values values = values(name);
+		Object r = values.parse(values.booleans, name, Boolean::valueOf);
+		return r != Values.NONE ? (Boolean) r : def;
+	}
+
+}
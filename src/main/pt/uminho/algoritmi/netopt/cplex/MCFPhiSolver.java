@@ -81,8 +81,7 @@ public class MCFPhiSolver {
 		double[][] cp = topology.getNetGraph().createGraph().getCapacitie();
 		double[][] d = demands.getDemands();
 		double res = optimize(cp, d);
-		Simul s = new Simul(topology);
-		double uncap = s.phiUncap(demands);
+		double uncap = topology.phiUncap(demands);
 		double normalized = res / uncap;
 		return normalized;
 	}
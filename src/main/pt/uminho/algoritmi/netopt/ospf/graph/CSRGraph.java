@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compressed sparse row view of the arcs of a WGraph.
+ *
+ * Arcs leaving node i are numbered offsets[i]..offsets[i+1]-1, with targets in
+ * increasing order, and include every connected pair (UP or DOWN), so the arc
+ * numbering follows the order of the OSPF weight vector. The structure is
+ * immutable, link status is still read from the graph. Arc weights are kept in
+ * sync by WGraph.setWeight.
+ */
+@SuppressWarnings("serial")
+public class CSRGraph implements Serializable {
+
+	private final int dimension;
+	private final int[] offsets;
+	private final int[] sources;
+	private final int[] targets;
+	private final int[] edgeIndexes; // position of the link in NetGraph, -1 if unknown
+	private final int[] reverses; // arc in the opposite direction, -1 if none
+	private final double[] capacities;
+	private final double[] weights;
+
+	public CSRGraph(WGraph g) {
+		this(g, null, null);
+	}
+
+	/**
+	 * @param g
+	 * @param edgeFrom,edgeTo
+	 *            end points of the undirected link at each position; both arcs
+	 *            of a link share its position
+	 */
+	public CSRGraph(WGraph g, int[] edgeFrom, int[] edgeTo) {
+		this.dimension = g.getDimension();
+		this.offsets = new int[dimension + 1];
+		int count = 0;
+		for (int i = 0; i < dimension; i++)
+			for (int j = 0; j < dimension; j++)
+				if (!g.getConnection(i, j).equals(Graph.Status.NOCONNECTION))
+					count++;
+		this.sources = new int[count];
+		this.targets = new int[count];
+		this.edgeIndexes = new int[count];
+		this.reverses = new int[count];
+		this.capacities = new double[count];
+		this.weights = new double[count];
+		Arrays.fill(edgeIndexes, -1);
+		int k = 0;
+		for (int i = 0; i < dimension; i++) {
+			offsets[i] = k;
+			for (int j = 0; j < dimension; j++)
+				if (!g.getConnection(i, j).equals(Graph.Status.NOCONNECTION)) {
+					sources[k] = i;
+					targets[k] = j;
+					weights[k] = g.getWeight(i, j);
+					if (g instanceof CapWGraph)
+						capacities[k] = ((CapWGraph) g).getCapacity(i, j);
+					k++;
+				}
+		}
+		offsets[dimension] = k;
+		for (int a = 0; a < count; a++)
+			reverses[a] = getArc(targets[a], sources[a]);
+		if (edgeFrom != null)
+			for (int e = 0; e < edgeFrom.length; e++) {
+				if (edgeFrom[e] < 0 || edgeFrom[e] >= dimension || edgeTo[e] < 0 || edgeTo[e] >= dimension)
+					continue;
+				// the first link joining two nodes is the one used, as in NetGraph.getEdge
+				int a = getArc(edgeFrom[e], edgeTo[e]);
+				if (a != -1 && edgeIndexes[a] == -1)
+					edgeIndexes[a] = e;
+				a = getArc(edgeTo[e], edgeFrom[e]);
+				if (a != -1 && edgeIndexes[a] == -1)
+					edgeIndexes[a] = e;
+			}
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getNumberOfArcs() {
+		return targets.length;
+	}
+
+	/** first arc leaving node */
+	public int getStart(int node) {
+		return offsets[node];
+	}
+
+	/** one past the last arc leaving node */
+	public int getEnd(int node) {
+		return offsets[node + 1];
+	}
+
+	public int getSource(int arc) {
+		return sources[arc];
+	}
+
+	public int getTarget(int arc) {
+		return targets[arc];
+	}
+
+	/** position of the link in the NetGraph edges array, or -1 */
+	public int getEdgeIndex(int arc) {
+		return edgeIndexes[arc];
+	}
+
+	/** the arc from target to source, or -1 */
+	public int getReverse(int arc) {
+		return reverses[arc];
+	}
+
+	public double getCapacity(int arc) {
+		return capacities[arc];
+	}
+
+	public double getWeight(int arc) {
+		return weights[arc];
+	}
+
+	/** number of connected arcs leaving node, regardless of status */
+	public int degree(int node) {
+		return offsets[node + 1] - offsets[node];
+	}
+
+	/**
+	 * @return the arc from n1 to n2 or -1 if the nodes are not connected
+	 */
+	public int getArc(int n1, int n2) {
+		int lo = offsets[n1], hi = offsets[n1 + 1] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (targets[mid] < n2)
+				lo = mid + 1;
+			else if (targets[mid] > n2)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * Copy sharing the immutable structure, with its own arc weights.
+	 */
+	CSRGraph copy() {
+		return new CSRGraph(this);
+	}
+
+	private CSRGraph(CSRGraph g) {
+		this.dimension = g.dimension;
+		this.offsets = g.offsets;
+		this.sources = g.sources;
+		this.targets = g.targets;
+		this.edgeIndexes = g.edgeIndexes;
+		this.reverses = g.reverses;
+		this.capacities = g.capacities;
+		this.weights = g.weights.clone();
+	}
+
+	void setWeight(int n1, int n2, double w) {
+		int a = getArc(n1, n2);
+		if (a != -1)
+			weights[a] = w;
+	}
+}
@@ -35,6 +35,9 @@ public class CapWGraph extends WGraph implements Serializable
 /** capacities of the edges */
  double[][] capacities;
 
+/** the capacities matrix is shared with copies of the graph, and is copied before it is changed */
+ transient boolean sharedCapacities;
+
  public CapWGraph()
  {}
 
@@ -72,6 +75,7 @@ public class CapWGraph extends WGraph implements Serializable
  public void allocate (int d)
  {
  	super.allocate(d);
+	sharedCapacities = false;
 	if(oriented)
 		capacities = new double [dimension][dimension]; 
 	else
@@ -95,8 +99,39 @@ public class CapWGraph extends WGraph implements Serializable
 	return res;
  }
 
+/** Copy of the graph: the connections, weights and capacities matrices are
+ * shared until either graph changes them, and the structure of the sparse
+ * view is shared, as it is never changed once the graph is built */
+ public synchronized CapWGraph copy()
+ {
+	CapWGraph g = new CapWGraph();
+	g.dimension = dimension;
+	g.oriented = oriented;
+	g.complete = complete;
+	g.connections = connections;
+	g.weights = weights;
+	g.capacities = capacities;
+	sharedConnections = g.sharedConnections = true;
+	sharedWeights = g.sharedWeights = true;
+	sharedCapacities = g.sharedCapacities = true;
+	if(csr != null) g.csr = csr.copy();
+	return g;
+ }
+
+/** Copies the capacities matrix if it is shared with a copy of the graph */
+ void ownCapacities()
+ {
+	if(!sharedCapacities) return;
+	double[][] c = new double[capacities.length][];
+	for(int i=0; i<capacities.length; i++)
+		c[i] = capacities[i].clone();
+	capacities = c;
+	sharedCapacities = false;
+ }
+
  public void setCapacity(int n1, int n2, double w)
  {
+	ownCapacities();
 	if(oriented) capacities[n1][n2] = w;
 	else
 	{
@@ -276,7 +311,9 @@ public class CapWGraph extends WGraph implements Serializable
  }
 
  
+/** The capacities matrix of this graph, which may be changed by the caller */
  public double[][] getCapacitie(){
+	 ownCapacities();
 	 return this.capacities;
  }
 
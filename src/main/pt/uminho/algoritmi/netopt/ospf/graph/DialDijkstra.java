@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.graph;
+
+import java.util.Arrays;
+
+/**
+ * Shortest path algorithm specialised for integer OSPF weights (Dial's
+ * algorithm). Distances are kept as int and nodes are settled from a circular
+ * bucket queue with Wmax+1 buckets, which costs O(E + N.Wmax) per source, and
+ * ECMP ties are detected exactly.
+ *
+ * When some UP arc has a non integer weight, or a weight outside
+ * [1,MAX_WEIGHT], the heap implementation is used instead.
+ */
+@SuppressWarnings("serial")
+public class DialDijkstra extends HeapDijkstra {
+
+	public static final int MAX_WEIGHT = 65535;
+
+	int[][] intDists;
+	private int[] arcWeights; // integer weight of each arc in adjNodes
+	private int maxWeight;
+	private boolean integral;
+	private int[][] buckets;
+	private int[] bucketSize;
+
+	public DialDijkstra(WGraph g) {
+		super(g);
+	}
+
+	public DialDijkstra(WGraph g, boolean SSP) {
+		super(g, SSP);
+	}
+
+	public DialDijkstra(Graph gr) {
+		super(gr);
+	}
+
+	public DialDijkstra(Graph gr, boolean SSP) {
+		super(gr, SSP);
+	}
+
+	/**
+	 * true if the last execution used integer distances
+	 */
+	public boolean isIntegral() {
+		return integral;
+	}
+
+	/**
+	 * Integer shortest distances of the last execution, null if the weights
+	 * were not integral
+	 */
+	public int[][] getIntegerDistances() {
+		return integral ? intDists : null;
+	}
+
+	@Override
+	void buildAdjacency() {
+		super.buildAdjacency();
+		int dim = graph.getDimension();
+		if (arcWeights == null || arcWeights.length < adjNodes.length)
+			arcWeights = new int[adjNodes.length];
+		maxWeight = 1;
+		integral = true;
+		for (int i = 0; i < dim && integral; i++)
+			for (int k = adjStart[i]; k < adjStart[i + 1]; k++) {
+				double w = graph.getWeight(i, adjNodes[k]);
+				if (w < 1 || w > MAX_WEIGHT || w != Math.rint(w)) {
+					integral = false;
+					break;
+				}
+				arcWeights[k] = (int) w;
+				if (arcWeights[k] > maxWeight)
+					maxWeight = arcWeights[k];
+			}
+		if (integral) {
+			if (intDists == null)
+				intDists = new int[dim][dim];
+			if (buckets == null || buckets.length != maxWeight + 1) {
+				buckets = new int[maxWeight + 1][4];
+				bucketSize = new int[maxWeight + 1];
+			}
+		}
+	}
+
+	@Override
+	void refreshWeights() {
+		boolean wasIntegral = integral;
+		super.refreshWeights();
+		// trees that are not recomputed need their integer distances
+		if (integral && !wasIntegral)
+			for (int s = 0; s < dists.length; s++)
+				for (int t = 0; t < dists.length; t++)
+					intDists[s][t] = (int) dists[s][t];
+	}
+
+	@Override
+	public void execute() {
+		init();
+		buildAdjacency();
+		for (int i = 0; i < graph.getDimension(); i++)
+			executeAux(i);
+		setComplete();
+	}
+
+	@Override
+	public void execute(int st) {
+		init();
+		buildAdjacency();
+		executeAux(st);
+	}
+
+	@Override
+	public void executeAux(int st) {
+		if (adjStart == null)
+			buildAdjacency();
+		if (integral)
+			runDial(st);
+		else
+			super.executeAux(st);
+	}
+
+	private void runDial(int st) {
+		int[] dist = intDists[st];
+		int nb = maxWeight + 1;
+		Arrays.fill(settled, false);
+		preds[st].set(st, st);
+		dist[st] = 0;
+		push(0, st);
+		int pending = 1;
+		int d = 0;
+		while (pending > 0) {
+			int b = d % nb;
+			int size = bucketSize[b];
+			if (size > 0) {
+				int[] bucket = buckets[b];
+				// ties are settled by increasing node index, as in MatDijkstra
+				if (size > 1)
+					Arrays.sort(bucket, 0, size);
+				for (int p = 0; p < size; p++) {
+					int cur = bucket[p];
+					pending--;
+					if (settled[cur] || dist[cur] != d)
+						continue;
+					settled[cur] = true;
+					for (int k = adjStart[cur]; k < adjStart[cur + 1]; k++) {
+						int i = adjNodes[k];
+						if (!settled[i] && relax(st, cur, i, arcWeights[k])) {
+							push(dist[i] % nb, i);
+							pending++;
+						}
+					}
+				}
+				bucketSize[b] = 0;
+			}
+			d++;
+		}
+		for (int i = 0; i < dist.length; i++)
+			if (preds[st].reaches(i))
+				dists[st][i] = dist[i];
+	}
+
+	/**
+	 * Integer counterpart of MatDijkstra.relax. Returns true if the distance
+	 * to i was set or lowered.
+	 */
+	private boolean relax(int s, int node, int i, int w) {
+		int[] dist = intDists[s];
+		int d = dist[node] + w;
+		if (preds[s].reaches(i)) {
+			if (dist[i] > d) {
+				dist[i] = d;
+				preds[s].set(i, node);
+				return true;
+			} else if (dist[i] == d) {
+				if (!isSingleSP())
+					preds[s].add(i, node);
+				else
+					preds[s].set(i, node);
+			}
+			return false;
+		}
+		preds[s].set(i, node);
+		dist[i] = d;
+		return true;
+	}
+
+	private void push(int b, int node) {
+		if (bucketSize[b] == buckets[b].length)
+			buckets[b] = Arrays.copyOf(buckets[b], 2 * buckets[b].length);
+		buckets[b][bucketSize[b]++] = node;
+	}
+}
@@ -56,6 +56,12 @@ public class Graph implements Serializable
 /** defines if the graph is oriented */
  boolean oriented;
 
+/** incremented whenever a connection status is changed */
+ private transient int statusVersion;
+
+/** the connections matrix is shared with copies of the graph, and is copied before it is changed */
+ transient boolean sharedConnections;
+
 // graph formats
  public static final int ORIENTED = 0; // oriented graph (NxN 0/1 matrix)
  public static final int OR_DIMACS = 1; // DIMACS format (specify edges)
@@ -110,6 +116,7 @@ public class Graph implements Serializable
  public void allocate(int d)
  {
  	dimension = d;
+	sharedConnections = false;
 	if(oriented){
 		connections = new Status [dimension][dimension];
 		for(int i=0;i<dimension;i++)
@@ -125,6 +132,7 @@ public class Graph implements Serializable
 				connections[i][j]=Status.NOCONNECTION;
 		}
 	}
+	statusVersion++;
  }
  
 /** Returns the dimension (number of nodes) of the graph) */
@@ -150,24 +158,53 @@ public class Graph implements Serializable
 /* Sets a connection between nodes n1 and n2 to true or false */
  public void setConnection(int n1, int n2, Status v)
  {
+	ownConnections();
 	if(oriented) connections[n1][n2] = v;
 	else
 		if(n1>n2) connections[n1][n2] = v;
 		else connections[n2][n1]=v;
+	statusVersion++;
  }
 
  
  public void setConnections(Status[][] con)
  {
 	 this.connections=con;
+	 this.sharedConnections=false;
+	 statusVersion++;
+ }
+
+/** Copies the connections matrix if it is shared with a copy of the graph */
+ void ownConnections()
+ {
+	if(!sharedConnections) return;
+	Status[][] c = new Status[connections.length][];
+	for(int i=0; i<connections.length; i++)
+		c[i] = connections[i].clone();
+	connections = c;
+	sharedConnections = false;
+ }
+
+ public boolean isOriented()
+ {
+	return oriented;
+ }
+
+/** Returns a counter that changes whenever a connection status is set, allowing
+ * results that depend on the link status to be cached */
+ public int getStatusVersion()
+ {
+	return statusVersion;
  }
 
  public void setComplete()
  {
 	this.complete = true; 
+	ownConnections();
 	for(int i=0; i < connections.length; i++)
 		for(int j=0; j<connections[i].length; j++)
 			connections[i][j] = Status.UP;
+	statusVersion++;
  }
  
 /* Returns the number of connections = true */
@@ -566,6 +603,19 @@ public void printStatus(){
   */
  
  public boolean isConnected(){
+	 return isConnected(-1,-1);
+ }
+ 
+ 
+ /**
+  * Verify if the graph is connected when the arcs between two nodes are down,
+  * without changing their status
+  * 
+  * @param from
+  * @param to
+  * @return true if connected
+  */
+ public boolean isConnected(int from, int to){
 	 
 	 
 	 Queue<Integer> q =new LinkedList<Integer>();
@@ -580,7 +630,7 @@ public void printStatus(){
 	 
 	 while(!q.isEmpty()){
 		 int position= q.remove();
-	     df(position,q,result);	 
+	     df(position,q,result,from,to);	 
 	 }
 	 
 	 for(int i=0;i<dimension;i++)
@@ -600,11 +650,12 @@ public void printStatus(){
   * @param gaph 
   * @param allowBandWidthZero 
   */
- private void df(int position, Queue<Integer> q, Boolean[] r){
+ private void df(int position, Queue<Integer> q, Boolean[] r, int from, int to){
 	 
 	 for(int i=0;i<dimension;i++){
 		 if(  position!=i &&
-			  getConnection(position, i).equals(Graph.Status.UP) 
+			  getConnection(position, i).equals(Graph.Status.UP) &&
+			  !((position==from && i==to) || (position==to && i==from))
 		   ){
 				 if(!q.contains(i) && !r[i])
 				 {
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.graph;
+
+import java.util.Arrays;
+
+/**
+ * Shortest path algorithm (Dijkstra) with an indexed binary heap that only
+ * visits the UP arcs of each node.
+ *
+ * Produces the same predecessors, alternatives and distances as MatDijkstra,
+ * including the single shortest path tie breaking, at O((N+E)log N) per
+ * source instead of O(N^2).
+ */
+@SuppressWarnings("serial")
+public class HeapDijkstra extends MatDijkstra {
+
+	// adjacency of UP arcs, neighbours of node i are in
+	// adjNodes[adjStart[i]..adjStart[i+1]-1] in increasing order
+	int[] adjStart;
+	int[] adjNodes;
+	private NodeHeap heap;
+
+	public HeapDijkstra(WGraph g) {
+		super(g);
+	}
+
+	public HeapDijkstra(WGraph g, boolean SSP) {
+		super(g, SSP);
+	}
+
+	public HeapDijkstra(Graph gr) {
+		super(gr);
+	}
+
+	public HeapDijkstra(Graph gr, boolean SSP) {
+		super(gr, SSP);
+	}
+
+	/**
+	 * Builds the adjacency lists from the current link status. Called on
+	 * each execution as links may go UP or DOWN between runs. Uses the CSR
+	 * view of the graph, when available, to avoid scanning the N x N matrix.
+	 */
+	void buildAdjacency() {
+		int dim = graph.getDimension();
+		CSRGraph csr = graph.getCSR();
+		int count = 0;
+		if (csr != null && csr.getDimension() == dim)
+			count = csr.getNumberOfArcs();
+		else {
+			csr = null;
+			for (int i = 0; i < dim; i++)
+				for (int j = 0; j < dim; j++)
+					if (i != j && graph.getConnection(i, j).equals(Graph.Status.UP))
+						count++;
+		}
+		if (adjStart == null)
+			adjStart = new int[dim + 1];
+		if (adjNodes == null || adjNodes.length < count)
+			adjNodes = new int[count];
+		int k = 0;
+		for (int i = 0; i < dim; i++) {
+			adjStart[i] = k;
+			if (csr != null) {
+				for (int a = csr.getStart(i); a < csr.getEnd(i); a++) {
+					int j = csr.getTarget(a);
+					if (i != j && graph.getConnection(i, j).equals(Graph.Status.UP))
+						adjNodes[k++] = j;
+				}
+			} else
+				for (int j = 0; j < dim; j++)
+					if (i != j && graph.getConnection(i, j).equals(Graph.Status.UP))
+						adjNodes[k++] = j;
+		}
+		adjStart[dim] = k;
+		if (heap == null)
+			heap = new NodeHeap(dim);
+	}
+
+	@Override
+	public void execute() {
+		init();
+		buildAdjacency();
+		for (int i = 0; i < graph.getDimension(); i++)
+			run(i);
+		setComplete();
+	}
+
+	@Override
+	public void execute(int st) {
+		init();
+		buildAdjacency();
+		run(st);
+	}
+
+	@Override
+	void refreshWeights() {
+		buildAdjacency();
+	}
+
+	@Override
+	public void executeAux(int st) {
+		if (adjStart == null)
+			buildAdjacency();
+		run(st);
+	}
+
+	private void run(int st) {
+		Arrays.fill(settled, false);
+		preds[st].set(st, st);
+		heap.clear();
+		int cur = st;
+		while (cur != -1) {
+			settled[cur] = true;
+			for (int k = adjStart[cur]; k < adjStart[cur + 1]; k++) {
+				int i = adjNodes[k];
+				if (!settled[i]) {
+					relax(st, cur, i);
+					heap.update(i, dists[st][i]);
+				}
+			}
+			cur = heap.poll();
+		}
+	}
+}
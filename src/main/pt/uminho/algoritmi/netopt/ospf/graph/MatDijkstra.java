@@ -21,6 +21,7 @@ package pt.uminho.algoritmi.netopt.ospf.graph;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -42,10 +43,17 @@ public class MatDijkstra implements Serializable {
 	
 	//shortest distances between nodes
 	double[][] dists;
-	SPFElement[][] preds;
-	boolean[][] alternatives;
-	private boolean[][] settled;
+	// predecessors on the shortest paths from each source
+	SPFTree[] preds;
+	// nodes settled in the current execution from a source
+	boolean[] settled;
 	private boolean singleSP; 
+	// shortest path DAG of each destination, built on demand
+	private transient SPDag[] dags;
+	// graph status and weight versions of the last execution from all
+	// sources, plus one
+	private transient int completeStatus;
+	private transient int completeWeights;
 
 	
 	public MatDijkstra(WGraph g){
@@ -55,10 +63,7 @@ public class MatDijkstra implements Serializable {
 	public MatDijkstra(WGraph g, boolean SSP) {
 		this.graph = g;
 		this.singleSP=SSP;
-		preds = new SPFElement[graph.getDimension()][graph.getDimension()];
-		dists = new double[graph.getDimension()][graph.getDimension()];
-		settled = new boolean[graph.getDimension()][graph.getDimension()];
-		alternatives = new boolean[graph.getDimension()][graph.getDimension()];
+		allocate();
 		init();
 	}
 
@@ -80,10 +85,7 @@ public class MatDijkstra implements Serializable {
 					this.graph.setWeight(i, j, 1);
 				}
 
-		preds = new SPFElement[graph.getDimension()][graph.getDimension()];
-		dists = new double[graph.getDimension()][graph.getDimension()];
-		settled = new boolean[graph.getDimension()][graph.getDimension()];
-		alternatives = new boolean[graph.getDimension()][graph.getDimension()];
+		allocate();
 		init();
 	}
 
@@ -92,6 +94,15 @@ public class MatDijkstra implements Serializable {
 		this(gr,true);
 	}
 	
+	private void allocate() {
+		int n = graph.getDimension();
+		preds = new SPFTree[n];
+		for (int i = 0; i < n; i++)
+			preds[i] = new SPFTree(n);
+		dists = new double[n][n];
+		settled = new boolean[n];
+	}
+	
 	
 	public boolean isSingleSP(){
 		return this.singleSP;
@@ -103,16 +114,14 @@ public class MatDijkstra implements Serializable {
 	
 	public void printSettled() {
 		System.out.println("\n Settled");
-		for (int i = 0; i < graph.getDimension(); i++) {
-			for (int j = 0; j < graph.getDimension(); j++) {
-				String str = "0 ";
-				if (settled[i][j])
-					str = "1 ";
-				System.out.print(str);
-			}
-			System.out.println();
+		for (int j = 0; j < graph.getDimension(); j++) {
+			String str = "0 ";
+			if (settled[j])
+				str = "1 ";
+			System.out.print(str);
 		}
 		System.out.println();
+		System.out.println();
 	}
 
 	
@@ -121,33 +130,117 @@ public class MatDijkstra implements Serializable {
 		System.out.println("\n Predecessor");
 		for (int i = 0; i < graph.getDimension(); i++) {
 			for (int j = 0; j < graph.getDimension(); j++) {
-				System.out.println("(" + i + "," + j + ")" + preds[i][j]);
+				System.out.println("(" + i + "," + j + ")" + preds[i].toElement(j));
 			}
 			System.out.println();
 		}
 		System.out.println();
 	}
 
+	/**
+	 * Predecessors as SPFElement objects, null where there is no path. The
+	 * matrix is built on each call, use countHops and getNextHop instead.
+	 */
 	public SPFElement[][] getSolPreds() {
-		return preds;
+		int n = preds.length;
+		SPFElement[][] res = new SPFElement[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				res[i][j] = preds[i].toElement(j);
+		return res;
 	}
 
 	public double[][] getShortestPathDistances() {
 		return dists;
 	}
 
+	/**
+	 * Pairs with equal cost alternative routes. The matrix is built on each
+	 * call, use hasAlternatives instead.
+	 */
 	public boolean[][] getSolAlternatives() {
-		return alternatives;
+		int n = preds.length;
+		boolean[][] res = new boolean[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				res[i][j] = preds[i].countHops(j) > 1;
+		return res;
+	}
+
+	/**
+	 * @return true if dest is reached from source by equal cost paths that
+	 *         differ in the last hop
+	 */
+	public boolean hasAlternatives(int source, int dest) {
+		return preds[source].countHops(dest) > 1;
+	}
+
+	/**
+	 * @return the number of predecessors of dest on the shortest paths from
+	 *         source, 0 if there is no path
+	 */
+	public int countHops(int source, int dest) {
+		return preds[source].countHops(dest);
+	}
+
+	/**
+	 * @return the i-th predecessor of dest on the shortest paths from source
+	 */
+	public int getNextHop(int source, int dest, int i) {
+		return preds[source].getHop(dest, i);
 	}
 
 	public void init() {
-		for (int i = 0; i < this.graph.getDimension(); i++)
-			for (int j = 0; j < this.graph.getDimension(); j++) {
-				preds[i][j] = null;
-				settled[i][j] = false;
-				alternatives[i][j] = false;
-				dists[i][j] = 0.0;
-			}
+		for (int i = 0; i < preds.length; i++) {
+			preds[i].clear();
+			Arrays.fill(dists[i], 0.0);
+		}
+		invalidateDAGs();
+		completeStatus = 0;
+		completeWeights = 0;
+	}
+
+	/**
+	 * Marks the paths from all sources as computed for the current link
+	 * status and weights
+	 */
+	void setComplete() {
+		completeStatus = graph.getStatusVersion() + 1;
+		completeWeights = graph.getWeightVersion() + 1;
+	}
+
+	/**
+	 * @return true if the paths were computed from all sources and neither the
+	 *         link status nor the weights changed since
+	 */
+	public boolean isComplete() {
+		return completeStatus == graph.getStatusVersion() + 1 && completeWeights == graph.getWeightVersion() + 1;
+	}
+
+	/**
+	 * Discards the cached shortest path DAGs. Must be called when the link
+	 * status changes without a new execution.
+	 */
+	public void invalidateDAGs() {
+		if (dags != null)
+			Arrays.fill(dags, null);
+	}
+
+	/**
+	 * @return the shortest path DAG towards dest, computed once per execution
+	 */
+	public SPDag getDAG(int dest) {
+		SPDag[] d = dags;
+		if (d == null || d.length != graph.getDimension()) {
+			d = new SPDag[graph.getDimension()];
+			dags = d;
+		}
+		SPDag dag = d[dest];
+		if (dag == null) {
+			dag = new SPDag(this, dest);
+			d[dest] = dag;
+		}
+		return dag;
 	}
 
 	// finds pairs of shortest routes from all pairs of nodes
@@ -156,6 +249,147 @@ public class MatDijkstra implements Serializable {
 		init();
 		for (int i = 0; i < graph.getDimension(); i++)
 			executeAux(i);
+		setComplete();
+	}
+
+	/**
+	 * Sets the weights of some arcs and updates the shortest paths without a
+	 * full execution.
+	 * 
+	 * The SPF tree of a source is recomputed only if a changed arc leaves a
+	 * node it reaches and was on one of its shortest paths (weight increase)
+	 * or is now on one (weight decrease). Other trees keep their distances and
+	 * predecessors, which are the ones a full execution would produce, so the
+	 * result is the same as execute(). A full execution is done when the
+	 * paths are not up to date or the graph is not oriented.
+	 * 
+	 * @param from
+	 *            origin of each arc
+	 * @param to
+	 *            end of each arc
+	 * @param weights
+	 *            new weight of each arc
+	 * @return the destinations whose distances, predecessors or shortest path
+	 *         DAG changed; all of them when a full execution was needed
+	 */
+	public boolean[] updateWeights(int[] from, int[] to, double[] weights) {
+		boolean incremental = isComplete() && graph.isOriented();
+		double[] oldWeights = new double[from.length];
+		boolean[] wasUp = new boolean[from.length];
+		for (int k = 0; k < from.length; k++) {
+			oldWeights[k] = graph.getWeight(from[k], to[k]);
+			wasUp[k] = graph.getConnection(from[k], to[k]).equals(Graph.Status.UP);
+			graph.setWeight(from[k], to[k], weights[k]);
+		}
+		return repair(incremental, from, to, oldWeights, wasUp);
+	}
+
+	/**
+	 * Sets the status of some arcs and updates the shortest paths without a
+	 * full execution, as updateWeights. A failing arc only affects the trees
+	 * where it was on a shortest path, and a restored arc the trees where it
+	 * is now on one.
+	 * 
+	 * @return the destinations whose distances, predecessors or shortest path
+	 *         DAG changed; all of them when a full execution was needed
+	 */
+	public boolean[] updateStatus(int[] from, int[] to, Graph.Status status) {
+		boolean incremental = isComplete() && graph.isOriented();
+		double[] oldWeights = new double[from.length];
+		boolean[] wasUp = new boolean[from.length];
+		for (int k = 0; k < from.length; k++) {
+			oldWeights[k] = graph.getWeight(from[k], to[k]);
+			wasUp[k] = graph.getConnection(from[k], to[k]).equals(Graph.Status.UP);
+			graph.setConnection(from[k], to[k], status);
+		}
+		return repair(incremental, from, to, oldWeights, wasUp);
+	}
+
+	// recomputes the trees affected by changes of weight or status of arcs
+	private boolean[] repair(boolean incremental, int[] from, int[] to, double[] oldWeights, boolean[] wasUp) {
+		int dim = graph.getDimension();
+		boolean[] changed = new boolean[dim];
+		if (!incremental) {
+			execute();
+			Arrays.fill(changed, true);
+			return changed;
+		}
+		refreshWeights();
+
+		double[][] oldDists = new double[dim][];
+		for (int s = 0; s < dim; s++) {
+			if (!isAffected(s, from, to, oldWeights, wasUp))
+				continue;
+			oldDists[s] = new double[dim];
+			SPFTree oldPreds = preds[s].copy();
+			for (int t = 0; t < dim; t++)
+				oldDists[s][t] = getDist(s, t);
+			resetSource(s);
+			executeAux(s);
+			for (int t = 0; t < dim; t++)
+				if (oldDists[s][t] != getDist(s, t) || !preds[s].sameHops(t, oldPreds))
+					changed[t] = true;
+		}
+
+		// arcs may join or leave the DAG of a destination without distance
+		// changes
+		for (int k = 0; k < from.length; k++) {
+			int u = from[k], v = to[k];
+			boolean up = graph.getConnection(u, v).equals(Graph.Status.UP);
+			if (!up && !wasUp[k])
+				continue;
+			double w = graph.getWeight(u, v);
+			for (int t = 0; t < dim; t++) {
+				if (changed[t])
+					continue;
+				double du = oldDists[u] != null ? oldDists[u][t] : getDist(u, t);
+				double dv = oldDists[v] != null ? oldDists[v][t] : getDist(v, t);
+				boolean wasTight = wasUp[k] && du - dv == oldWeights[k];
+				boolean tight = up && getDist(u, t) - getDist(v, t) == w;
+				if (wasTight != tight)
+					changed[t] = true;
+			}
+		}
+
+		if (dags != null)
+			for (int t = 0; t < dim; t++)
+				if (changed[t])
+					dags[t] = null;
+		setComplete();
+		return changed;
+	}
+
+	// true if the change of some arc may alter the SPF tree of s
+	private boolean isAffected(int s, int[] from, int[] to, double[] oldWeights, boolean[] wasUp) {
+		for (int k = 0; k < from.length; k++) {
+			int u = from[k], v = to[k];
+			if (!preds[s].reaches(u) || u == v)
+				continue;
+			boolean up = graph.getConnection(u, v).equals(Graph.Status.UP);
+			double w = graph.getWeight(u, v);
+			if (up == wasUp[k] && w == oldWeights[k])
+				continue;
+			// the arc was tight or becomes tight
+			if (wasUp[k] && oldWeights[k] + dists[s][u] == dists[s][v])
+				return true;
+			if (up && (!preds[s].reaches(v) || w + dists[s][u] <= dists[s][v]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Clears the SPF tree of source s before a new execution from s
+	 */
+	void resetSource(int s) {
+		preds[s].clear();
+		Arrays.fill(dists[s], 0.0);
+	}
+
+	/**
+	 * Called by updateWeights, after arc weights were changed
+	 */
+	void refreshWeights() {
 	}
 
 	public void execute(int st) {
@@ -167,20 +401,21 @@ public class MatDijkstra implements Serializable {
 		// System.out.println("* root at " + st);
 
 		int dim = graph.getDimension();
-		preds[st][st] = new SPFElement(st);
+		Arrays.fill(settled, false);
+		preds[st].set(st, st);
 		int cur = st;
 
 		while (cur != -1) {
 			relaxNeighbors(st, cur);
 			// printSettled();
 			// printPred();
-			settled[st][cur] = true;
+			settled[cur] = true;
 
 			// get next node
 			double min = Double.MAX_VALUE;
 			int next = -1;
 			for (int i = 0; i < dim; i++)
-				if (i != st && preds[st][i] != null && !settled[st][i]) {
+				if (i != st && preds[st].reaches(i) && !settled[i]) {
 					if (dists[st][i] < min) {
 						min = dists[st][i];
 						next = i;
@@ -196,38 +431,38 @@ public class MatDijkstra implements Serializable {
 		int dim = graph.getDimension();
 
 		for (int i = 0; i < dim; i++) {
-			if (i != node && !settled[s][i] && graph.getConnection(node, i).equals(Graph.Status.UP)) // neighbors
-			{
-				double d = graph.getWeight(node, i) + dists[s][node];
-				double w = Double.MAX_VALUE; 
-				if (preds[s][i] != null) { // node is on the unsettled list
-					if (dists[s][i] > d) {
-						dists[s][i] = d;
-						preds[s][i].removeAll();
-						preds[s][i].addNextHop(node);
-						w=graph.getWeight(node, i);
-						alternatives[s][i] = false;	
-					} 
-					else if (dists[s][i] == d)
-					{
-						if(!singleSP){
-							alternatives[s][i] = true;
-							preds[s][i].addNextHop(node);
-						}else if(graph.getWeight(node, i)<w && singleSP){
-							w=graph.getWeight(node, i);
-							preds[s][i].removeAll();
-							preds[s][i].addNextHop(node);							
-						}
-					}
-					
-				} else {
+			if (i != node && !settled[i] && graph.getConnection(node, i).equals(Graph.Status.UP)) // neighbors
+				relax(s, node, i);
+		}
+	}
 
-					preds[s][i] = new SPFElement(node);
-					dists[s][i] = d;
-					alternatives[s][i] = false;
-					settled[s][i] = false;
+	/**
+	 * Relaxes the arc (node,i) for the SPF rooted at s, keeping ECMP next hops
+	 * and the single shortest path tie breaking.
+	 */
+	void relax(int s, int node, int i) {
+		double d = graph.getWeight(node, i) + dists[s][node];
+		double w = Double.MAX_VALUE; 
+		if (preds[s].reaches(i)) { // node is on the unsettled list
+			if (dists[s][i] > d) {
+				dists[s][i] = d;
+				preds[s].set(i, node);
+				w=graph.getWeight(node, i);
+			} 
+			else if (dists[s][i] == d)
+			{
+				if(!singleSP){
+					preds[s].add(i, node);
+				}else if(graph.getWeight(node, i)<w && singleSP){
+					w=graph.getWeight(node, i);
+					preds[s].set(i, node);
 				}
 			}
+			
+		} else {
+
+			preds[s].set(i, node);
+			dists[s][i] = d;
 		}
 	}
 
@@ -264,7 +499,7 @@ public class MatDijkstra implements Serializable {
 		List<Vector<Integer>> list = new ArrayList<Vector<Integer>>();
 		Vector<Integer> path = null;
 
-		if (preds[source][dest] != null) {
+		if (preds[source].reaches(dest)) {
 			int pos = 0;
 			path = new Vector<Integer>();
 			path.add(dest);
@@ -274,18 +509,18 @@ public class MatDijkstra implements Serializable {
 				path = list.get(pos);
 				int d = path.get(path.size() - 1);
 				do {
-					int n = preds[source][d].countHops();
+					int n = preds[source].countHops(d);
 					if (n > 1) {
 						// clone path & add to vector
 						for (int i = 1; i < n; i++) {
 							@SuppressWarnings("unchecked")
 							Vector<Integer> e = (Vector<Integer>) (path.clone());
-							int v = preds[source][d].getNextHop(i);
+							int v = preds[source].getHop(d, i);
 							e.add(new Integer(v));
 							list.add(e);
 						}
 					}
-					d = preds[source][d].getNextHop();
+					d = preds[source].getHop(d, 0);
 					path.add(new Integer(d));
 
 				} while (d != source);
@@ -331,12 +566,12 @@ public class MatDijkstra implements Serializable {
 	
 
 	public boolean existsPath(int source, int dest) {
-		return (preds[source][dest] != null);
+		return preds[source].reaches(dest);
 	}
 
 	public double getDist(int source, int dest) // from the defined source
 	{ // assumes execute is done previously
-		if (preds[source][dest] != null)
+		if (preds[source].reaches(dest))
 			return dists[source][dest];
 		else
 			return Double.MAX_VALUE;
@@ -384,12 +619,12 @@ public class MatDijkstra implements Serializable {
 		Graph res = new Graph(graph.getDimension());
 
 		for (int i = 0; i < listDest.length; i++) {
-			if (preds[root][listDest[i]] != null) {
-				int d = preds[root][listDest[i]].getNextHop();
+			if (preds[root].reaches(listDest[i])) {
+				int d = preds[root].getHop(listDest[i], 0);
 				res.setConnection(d, listDest[i], Graph.Status.UP);
 				int p = d;
 				do {
-					d = preds[root][p].getNextHop();
+					d = preds[root].getHop(p, 0);
 					res.setConnection(d, p, Graph.Status.UP);
 					p = d;
 				} while (d != root);
@@ -401,7 +636,7 @@ public class MatDijkstra implements Serializable {
 	public Vector<Integer> getNodesForDest(int dest) {
 		Vector<Integer> res = new Vector<Integer>();
 		for (int i = 0; i < preds.length; i++)
-			if (i != dest && preds[i][dest] != null)
+			if (i != dest && preds[i].reaches(dest))
 				res.add(new Integer(i));
 		return res;
 	}
@@ -436,15 +671,15 @@ public class MatDijkstra implements Serializable {
 		ArrayList<Integer> list =new ArrayList<Integer>();
 		ArrayList<Integer> visit =new ArrayList<Integer>();
 		
-		if (preds[source][dest] != null) {
+		if (preds[source].reaches(dest)) {
 			if(includeDest)
 				list.add(dest);
 			visit.add(dest);
 			do {
 				int d = visit.get(0);
-				int n = preds[source][d].countHops();
+				int n = preds[source].countHops(d);
 				for (int i = 0; i < n; i++) {
-					int v = preds[source][d].getNextHop(i);
+					int v = preds[source].getHop(d, i);
 					if(!list.contains(v)){
 						list.add(v);
 					}
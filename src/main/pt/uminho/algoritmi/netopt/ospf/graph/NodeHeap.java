@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.graph;
+
+import java.io.Serializable;
+
+/**
+ * Indexed binary min-heap of nodes keyed by distance. Ties are broken by the
+ * lowest node index, which reproduces the selection order of the linear scan
+ * in MatDijkstra.
+ */
+@SuppressWarnings("serial")
+public class NodeHeap implements Serializable {
+
+	private int[] heap; // heap position -> node
+	private int[] position; // node -> heap position, -1 if not in heap
+	private double[] keys;
+	private int size;
+
+	public NodeHeap(int dimension) {
+		this.heap = new int[dimension];
+		this.position = new int[dimension];
+		this.keys = new double[dimension];
+		for (int i = 0; i < dimension; i++)
+			position[i] = -1;
+		this.size = 0;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			position[heap[i]] = -1;
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int node) {
+		return position[node] != -1;
+	}
+
+	/**
+	 * Inserts the node or lowers its key. Keys never increase during an SPF
+	 * run, so a higher key is ignored.
+	 */
+	public void update(int node, double key) {
+		if (position[node] == -1) {
+			heap[size] = node;
+			position[node] = size;
+			keys[node] = key;
+			size++;
+			siftUp(size - 1);
+		} else if (key < keys[node]) {
+			keys[node] = key;
+			siftUp(position[node]);
+		}
+	}
+
+	public int poll() {
+		if (size == 0)
+			return -1;
+		int min = heap[0];
+		position[min] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+	private boolean less(int a, int b) {
+		return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+	}
+
+	private void siftUp(int pos) {
+		int node = heap[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (!less(node, heap[parent]))
+				break;
+			heap[pos] = heap[parent];
+			position[heap[pos]] = pos;
+			pos = parent;
+		}
+		heap[pos] = node;
+		position[node] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int node = heap[pos];
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			int right = child + 1;
+			if (right < size && less(heap[right], heap[child]))
+				child = right;
+			if (!less(heap[child], node))
+				break;
+			heap[pos] = heap[child];
+			position[heap[pos]] = pos;
+			pos = child;
+		}
+		heap[pos] = node;
+		position[node] = pos;
+	}
+}
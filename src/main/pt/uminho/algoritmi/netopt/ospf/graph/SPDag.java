@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Shortest path DAG towards a destination.
+ *
+ * Holds the nodes with a path to the destination (the destination excluded) in
+ * decreasing distance order, ties by increasing node index, which is a
+ * topological order of the DAG and the order in which loads are pushed. The
+ * next hops of each node are the UP arcs (u,v) with d(u)-d(v)=w(u,v), the same
+ * arcs as MatDijkstra.getArcsShortestPath, in increasing node order.
+ */
+@SuppressWarnings("serial")
+public class SPDag implements Serializable {
+
+	private final int destination;
+	private final int[] order;
+	private final int[] hopStart; // next hops of u are hops[hopStart[u]..hopStart[u+1]-1]
+	private final int[] hops;
+
+	SPDag(MatDijkstra sp, int dest) {
+		WGraph graph = sp.graph;
+		int dim = graph.getDimension();
+		this.destination = dest;
+
+		// next hops
+		CSRGraph csr = graph.getCSR();
+		if (csr != null && csr.getDimension() != dim)
+			csr = null;
+		this.hopStart = new int[dim + 1];
+		int[] buf = new int[csr != null ? csr.getNumberOfArcs() : dim];
+		int k = 0;
+		for (int u = 0; u < dim; u++) {
+			hopStart[u] = k;
+			double du = sp.getDist(u, dest);
+			if (csr != null) {
+				for (int a = csr.getStart(u); a < csr.getEnd(u); a++)
+					if (isNextHop(sp, u, csr.getTarget(a), du))
+						buf[k++] = csr.getTarget(a);
+			} else {
+				for (int v = 0; v < dim; v++)
+					if (isNextHop(sp, u, v, du)) {
+						if (k == buf.length)
+							buf = Arrays.copyOf(buf, 2 * buf.length);
+						buf[k++] = v;
+					}
+			}
+		}
+		hopStart[dim] = k;
+		this.hops = Arrays.copyOf(buf, k);
+
+		// nodes by decreasing distance, stable on the node index
+		int n = 0;
+		for (int i = 0; i < dim; i++)
+			if (i != dest && sp.existsPath(i, dest))
+				n++;
+		this.order = new int[n];
+		double[] keys = new double[dim];
+		n = 0;
+		for (int i = 0; i < dim; i++)
+			if (i != dest && sp.existsPath(i, dest)) {
+				order[n++] = i;
+				keys[i] = sp.dists[i][dest];
+			}
+		sort(order, new int[n], 0, n, keys);
+	}
+
+	private boolean isNextHop(MatDijkstra sp, int u, int v, double du) {
+		WGraph graph = sp.graph;
+		return u != v && graph.getConnection(u, v).equals(Graph.Status.UP)
+				&& (du - sp.getDist(v, destination) == graph.getWeight(u, v));
+	}
+
+	// stable merge sort by decreasing key
+	private static void sort(int[] a, int[] tmp, int from, int to, double[] keys) {
+		if (to - from < 2)
+			return;
+		int mid = (from + to) >>> 1;
+		sort(a, tmp, from, mid, keys);
+		sort(a, tmp, mid, to, keys);
+		if (keys[a[mid - 1]] >= keys[a[mid]])
+			return;
+		System.arraycopy(a, from, tmp, from, to - from);
+		int i = from, j = mid;
+		for (int p = from; p < to; p++)
+			if (j >= to || (i < mid && keys[tmp[i]] >= keys[tmp[j]]))
+				a[p] = tmp[i++];
+			else
+				a[p] = tmp[j++];
+	}
+
+	public int getDestination() {
+		return destination;
+	}
+
+	/** number of nodes with a path to the destination */
+	public int size() {
+		return order.length;
+	}
+
+	/** the i-th node in decreasing distance order */
+	public int getNode(int i) {
+		return order[i];
+	}
+
+	/** position of node in the order, -1 if it has no path to destination */
+	public int indexOf(int node) {
+		for (int i = 0; i < order.length; i++)
+			if (order[i] == node)
+				return i;
+		return -1;
+	}
+
+	public int outDegree(int node) {
+		return hopStart[node + 1] - hopStart[node];
+	}
+
+	/** the i-th next hop of node, in increasing node order */
+	public int getNextHop(int node, int i) {
+		return hops[hopStart[node] + i];
+	}
+
+	public boolean isNextHop(int node, int next) {
+		int lo = hopStart[node], hi = hopStart[node + 1] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (hops[mid] < next)
+				lo = mid + 1;
+			else if (hops[mid] > next)
+				hi = mid - 1;
+			else
+				return true;
+		}
+		return false;
+	}
+}
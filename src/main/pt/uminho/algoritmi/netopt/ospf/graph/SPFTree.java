@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Predecessors of the nodes on the shortest paths from one source, in flat
+ * arrays instead of one SPFElement per node.
+ *
+ * The first predecessor of node t is first[t], -1 if t is not reached. Equal
+ * cost predecessors follow, in the order they were found, in a list chained
+ * through the pool. Lists replaced by a shorter path leave their entries in
+ * the pool until the tree is cleared.
+ */
+@SuppressWarnings("serial")
+final class SPFTree implements Serializable {
+
+	private final int[] first;
+	private final int[] count;
+	private final int[] more; // first equal cost predecessor in the pool, -1 if none
+	private int[] poolNode;
+	private int[] poolNext;
+	private int poolSize;
+
+	SPFTree(int dimension) {
+		this.first = new int[dimension];
+		this.count = new int[dimension];
+		this.more = new int[dimension];
+		this.poolNode = new int[4];
+		this.poolNext = new int[4];
+		clear();
+	}
+
+	private SPFTree(SPFTree t) {
+		this.first = t.first.clone();
+		this.count = t.count.clone();
+		this.more = t.more.clone();
+		this.poolNode = Arrays.copyOf(t.poolNode, Math.max(4, t.poolSize));
+		this.poolNext = Arrays.copyOf(t.poolNext, Math.max(4, t.poolSize));
+		this.poolSize = t.poolSize;
+	}
+
+	SPFTree copy() {
+		return new SPFTree(this);
+	}
+
+	void clear() {
+		Arrays.fill(first, -1);
+		Arrays.fill(count, 0);
+		Arrays.fill(more, -1);
+		poolSize = 0;
+	}
+
+	boolean reaches(int t) {
+		return first[t] != -1;
+	}
+
+	int countHops(int t) {
+		return count[t];
+	}
+
+	/**
+	 * @return the i-th predecessor of t
+	 */
+	int getHop(int t, int i) {
+		if (i == 0)
+			return first[t];
+		int p = more[t];
+		for (int k = 1; k < i; k++)
+			p = poolNext[p];
+		return poolNode[p];
+	}
+
+	/**
+	 * Makes node the only predecessor of t
+	 */
+	void set(int t, int node) {
+		first[t] = node;
+		count[t] = 1;
+		more[t] = -1;
+	}
+
+	/**
+	 * Adds an equal cost predecessor to t, which must be reached
+	 */
+	void add(int t, int node) {
+		if (poolSize == poolNode.length) {
+			poolNode = Arrays.copyOf(poolNode, 2 * poolSize);
+			poolNext = Arrays.copyOf(poolNext, 2 * poolSize);
+		}
+		int e = poolSize++;
+		poolNode[e] = node;
+		poolNext[e] = -1;
+		if (more[t] == -1)
+			more[t] = e;
+		else {
+			int p = more[t];
+			while (poolNext[p] != -1)
+				p = poolNext[p];
+			poolNext[p] = e;
+		}
+		count[t]++;
+	}
+
+	/**
+	 * @return true if t has the same predecessors, in the same order, in both
+	 *         trees
+	 */
+	boolean sameHops(int t, SPFTree other) {
+		if (count[t] != other.count[t] || first[t] != other.first[t])
+			return false;
+		for (int p = more[t], q = other.more[t]; p != -1; p = poolNext[p], q = other.poolNext[q])
+			if (poolNode[p] != other.poolNode[q])
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return the predecessors of t as an SPFElement, null if t is not reached
+	 */
+	SPFElement toElement(int t) {
+		if (first[t] == -1)
+			return null;
+		SPFElement e = new SPFElement(first[t]);
+		for (int p = more[t]; p != -1; p = poolNext[p])
+			e.addNextHop(poolNode[p]);
+		return e;
+	}
+}
@@ -34,6 +34,15 @@ public class WGraph extends Graph implements Serializable
 
 /** weights of the edges; has no meaning if connection does not exist;*/
  double[][] weights;
+ 
+/** sparse view of the arcs; null if not built */
+ CSRGraph csr;
+
+/** changed by every weight update through setWeight */
+ private transient int weightVersion;
+
+/** the weights matrix is shared with copies of the graph, and is copied before it is changed */
+ transient boolean sharedWeights;
 
  public WGraph()
  {}
@@ -86,6 +95,8 @@ public class WGraph extends Graph implements Serializable
 public void allocate (int d)
  {
  	super.allocate(d);
+	weightVersion++;
+	sharedWeights = false;
 	if(oriented)
 		weights = new double [dimension][dimension]; 
 	else
@@ -110,12 +121,44 @@ public void allocate (int d)
 
  public void setWeight(int n1, int n2, double w)
  {
+	ownWeights();
 	if(oriented) weights[n1][n2] = w;
 	else
 	{
 		if(n1>n2) weights[n1][n2]=w;
 		else weights[n2][n1]=w;
 	}
+	if(csr != null) csr.setWeight(n1, n2, w);
+	weightVersion++;
+ }
+
+/** Copies the weights matrix if it is shared with a copy of the graph */
+ void ownWeights()
+ {
+	if(!sharedWeights) return;
+	double[][] w = new double[weights.length][];
+	for(int i=0; i<weights.length; i++)
+		w[i] = weights[i].clone();
+	weights = w;
+	sharedWeights = false;
+ }
+
+/** Counter incremented whenever a weight is set */
+ public int getWeightVersion()
+ {
+	return weightVersion;
+ }
+
+/** Returns the sparse (CSR) view of the arcs, null if it was not built */
+ public CSRGraph getCSR()
+ {
+	return csr;
+ }
+
+/** Sets the sparse view; it must be built from the current connections */
+ public void setCSR(CSRGraph csr)
+ {
+	this.csr = csr;
  }
 
  public void writecons(BufferedWriter B) throws Exception
@@ -259,6 +302,7 @@ public void allocate (int d)
  }
  
  
+/** The weights matrix of this graph, possibly shared with its copies. It must not be changed: weights are set through setWeight, which keeps the weight version and the CSR view up to date */
  public double[][] getWeights(){
 	 return this.weights;
  }
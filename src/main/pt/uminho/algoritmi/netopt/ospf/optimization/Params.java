@@ -22,6 +22,7 @@ package pt.uminho.algoritmi.netopt.ospf.optimization;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Properties;
 
 import pt.uminho.algoritmi.netopt.ospf.simulation.OSPFWeights;
 import pt.uminho.algoritmi.netopt.ospf.simulation.PValues;
@@ -131,6 +132,18 @@ public class Params {
 	private int numberSDNNodes;
 	private PValues pvalues;
 	private double[][] initialLoads;
+	/**
+	 * configuration values overriding conf/netopt.conf during the run
+	 */
+	private Properties configuration;
+	/**
+	 * maximum number of cached fitness values, 0 disables the cache
+	 */
+	private int fitnessCacheSize;
+	/**
+	 * multiobjective algorithms run as an asynchronous steady-state NSGA-II
+	 */
+	private boolean steadyState;
 	
 	public Params()
 	{
@@ -147,6 +160,8 @@ public class Params {
 		this.loadBalancer=LoadBalancer.ECMP;
 		this.previousWeights=null;
 		this.pvalues=null;
+		this.configuration=new Properties();
+		this.fitnessCacheSize=10000;
 	}
 
 	
@@ -404,6 +419,9 @@ public class Params {
 		p.setUseUnit(useUnit);
 		p.setPValues(pvalues);
 		p.setInitialLoads(getInitialLoads());
+		p.getConfiguration().putAll(this.configuration);
+		p.setFitnessCacheSize(fitnessCacheSize);
+		p.setSteadyState(steadyState);
 		return p;
 	}
 
@@ -419,4 +437,34 @@ public class Params {
 		this.initialLoads = initialLoads;
 	}
 
+
+	/**
+	 * Overrides a conf/netopt.conf property for runs configured with these
+	 * parameters
+	 */
+	public void setConfigurationProperty(String name, String value) {
+		this.configuration.setProperty(name, value);
+	}
+
+	public Properties getConfiguration() {
+		return configuration;
+	}
+
+
+	public int getFitnessCacheSize() {
+		return fitnessCacheSize;
+	}
+
+	public void setFitnessCacheSize(int fitnessCacheSize) {
+		this.fitnessCacheSize = fitnessCacheSize;
+	}
+
+	public boolean isSteadyState() {
+		return steadyState;
+	}
+
+	public void setSteadyState(boolean steadyState) {
+		this.steadyState = steadyState;
+	}
+
 }
@@ -27,6 +27,8 @@ import jecoli.algorithm.components.algorithm.IAlgorithmResult;
 import jecoli.algorithm.components.algorithm.IAlgorithmStatistics;
 import jecoli.algorithm.components.algorithm.writer.IAlgorithmResultWriter;
 import jecoli.algorithm.components.configuration.InvalidConfigurationException;
+import jecoli.algorithm.components.evaluationfunction.AbstractEvaluationFunction;
+import jecoli.algorithm.components.evaluationfunction.AbstractMultiobjectiveEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.operator.IReproductionOperator;
 import jecoli.algorithm.components.operator.container.IOperatorContainer;
@@ -40,7 +42,6 @@ import jecoli.algorithm.components.operator.selection.TournamentSelection;
 import jecoli.algorithm.components.operator.selection.TournamentSelection2;
 import jecoli.algorithm.components.randomnumbergenerator.DefaultRandomNumberGenerator;
 import jecoli.algorithm.components.randomnumbergenerator.IRandomNumberGenerator;
-import jecoli.algorithm.components.representation.integer.IntegerRepresentationFactory;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentationFactory;
 import jecoli.algorithm.components.representation.linear.LinearRepresentation;
@@ -73,11 +74,21 @@ import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.AlgorithmIn
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.OSPFEvolutionaryAlgorithm;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.OSPFNSGAII;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.OSPFSPEA2;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.SteadyStateNSGAII;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayIncrementalMutation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRandomMutation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentationFactory;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayTwoPointCrossover;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayUniformCrossover;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.permutation.HybridPermutationCrossover;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.permutation.PermutationInversionMutation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.permutation.PermutationNonAdjacentSwapMutation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.tuple.TupleRepresentationFactory;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.EvaluationType;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.FitnessCache;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ParallelEvaluation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ParallelEvaluationMO;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ospf.HybridEvaluationMO;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ospf.OSPFAllLinkFailureEvaluation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ospf.OSPFAllLinkFailureEvaluationMO;
@@ -104,6 +115,7 @@ import pt.uminho.algoritmi.netopt.ospf.simulation.solution.AbstractSolutionSet;
 import pt.uminho.algoritmi.netopt.ospf.simulation.solution.IntegerSolution;
 import pt.uminho.algoritmi.netopt.ospf.simulation.solution.ASolution;
 import pt.uminho.algoritmi.netopt.ospf.simulation.solution.ASolutionSet;
+import pt.uminho.algoritmi.netopt.ospf.utils.WorkerPools;
 
 public class JecoliOSPF {
 
@@ -121,9 +133,16 @@ public class JecoliOSPF {
 	private int MINWeight = 1;
 	private int MAXWeight = 20;
 	private int NUMObjectives = 2;
+	private FitnessCache fitnessCache;
+	private SteadyStateNSGAII steadyState;
+	// configuration values overriding conf/netopt.conf while configuring and running
+	private SystemConf.Overrides configuration;
 
 	public JecoliOSPF(NetworkTopology topology, Demands[] demands, DelayRequests delays) {
 		this.topology = topology.copy();
+		// genomes are integer weight vectors
+		if (NetworkTopology.SPFAlgorithm.HEAP.equals(this.topology.getSPFAlgorithm()))
+			this.topology.setSPFAlgorithm(NetworkTopology.SPFAlgorithm.DIAL);
 		this.demands = demands;
 		this.delays = delays;
 		this.algorithm = null;
@@ -146,15 +165,33 @@ public class JecoliOSPF {
 	 * @throws Exception
 	 */
 	public void run() throws Exception {
-		results = algorithm.run();
-		statistics = results.getAlgorithmStatistics();
-		statistics.getSolutionContainer().getNumberOfSolutions();
+		WorkerPools.acquire();
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			if (isSteadyState())
+				results = steadyState.run();
+			else
+				results = algorithm.run();
+			statistics = results.getAlgorithmStatistics();
+			statistics.getSolutionContainer().getNumberOfSolutions();
+		} finally {
+			IEvaluationFunction<ILinearRepresentation<Integer>> f = getEvaluationFunction();
+			if (f instanceof ParallelEvaluation)
+				((ParallelEvaluation) f).shutdown();
+			else if (f instanceof ParallelEvaluationMO)
+				((ParallelEvaluationMO) f).shutdown();
+			// the workers are no longer needed
+			WorkerPools.release();
+		}
 	}
 
 	/**
 	 * Cancels the optimization
 	 */
 	public void cancel() {
+		if (isSteadyState()) {
+			steadyState.cancel();
+			return;
+		}
 		try {
 			results = algorithm.cancel();
 			statistics = results.getAlgorithmStatistics();
@@ -175,6 +212,22 @@ public class JecoliOSPF {
 	public ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> getContainer()
 			throws Exception {
 
+		double[] p = getOperatorProbabilities();
+		double tpco=p[0], uco=p[1], rm=p[2], im=p[3];
+		
+		ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> operatorContainer = new ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
+		operatorContainer.addOperator(tpco, new IntegerArrayTwoPointCrossover());
+		operatorContainer.addOperator(uco, new IntegerArrayUniformCrossover());
+		operatorContainer.addOperator(rm, new IntegerArrayRandomMutation(3));
+		operatorContainer.addOperator(im, new IntegerArrayIncrementalMutation(3));
+		return operatorContainer;
+	}
+
+	/**
+	 * @return the probabilities of the two point crossover, uniform crossover,
+	 *         random mutation and incremental mutation operators
+	 */
+	private double[] getOperatorProbabilities() {
 		double tpco=SystemConf.getPropertyDouble("ea.twoPointCrossover", 0.25);
 		double uco=SystemConf.getPropertyDouble("ea.uniformCrossover", 0.25);
 		double rm=SystemConf.getPropertyDouble("ea.randomMutation", 0.25);
@@ -182,14 +235,7 @@ public class JecoliOSPF {
 		if(tpco+uco+rm+im!=1 || tpco<0 || uco<0 || rm<0 || im<0){
 			tpco=0.25;uco=0.25;rm=0.25;im=0.25;
 		}
-			
-		
-		ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> operatorContainer = new ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
-		operatorContainer.addOperator(tpco, new TwoPointCrossOver<Integer>());
-		operatorContainer.addOperator(uco, new UniformCrossover<Integer>());
-		operatorContainer.addOperator(rm, new LinearGenomeRandomMutation<Integer>(3));
-		operatorContainer.addOperator(im, new IntegerAddMutation(3));
-		return operatorContainer;
+		return new double[] { tpco, uco, rm, im };
 	}
 
 	/**
@@ -293,7 +339,7 @@ public class JecoliOSPF {
 	private EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> buildPreConfigurationEA(
 			Params params) throws Exception {
 
-		ILinearRepresentationFactory<Integer> solutionFactory = new IntegerRepresentationFactory(
+		ILinearRepresentationFactory<Integer> solutionFactory = new IntegerArrayRepresentationFactory(
 				topology.getNumberEdges(), MAXWeight, MINWeight);
 
 		ITerminationCriteria terminationCriteria;
@@ -343,28 +389,31 @@ public class JecoliOSPF {
 	 */
 
 	public void configureEvolutionaryAlgorithm(Params params) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			EvaluationType type = EvaluationType.DEMANDS_DELAY;
+			if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
+				type = EvaluationType.TWO_DEMANDS;
+			} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
+				type = EvaluationType.DEMANDS_MLU;
+			}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
+				type = EvaluationType.DEMANDS_ALU;
+			}
 
-		EvaluationType type = EvaluationType.DEMANDS_DELAY;
-		if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
-			type = EvaluationType.TWO_DEMANDS;
-		} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
-			type = EvaluationType.DEMANDS_MLU;
-		}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
-			type = EvaluationType.DEMANDS_ALU;
-		}
-
-		OSPFIntegerEvaluation f = new OSPFIntegerEvaluation(topology, demands);
-		f.setAlpha(params.getAlfa());
-		f.setDelays(delays);
-		f.setType(type);
-		f.setLoadBalancer(params.getLoadBalancer());
+			OSPFIntegerEvaluation f = new OSPFIntegerEvaluation(topology, demands);
+			f.setAlpha(params.getAlfa());
+			f.setDelays(delays);
+			f.setType(type);
+			f.setLoadBalancer(params.getLoadBalancer());
+			f.setFitnessCache(createFitnessCache(params));
 
-		EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = buildPreConfigurationEA(
-				params);
-		configuration.setEvaluationFunction(f);
+			EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = buildPreConfigurationEA(
+					params);
+			configuration.setEvaluationFunction(parallel(f));
 
-		this.info = params.toString();
-		this.algorithm = new OSPFEvolutionaryAlgorithm(configuration);
+			this.info = params.toString();
+			this.algorithm = new OSPFEvolutionaryAlgorithm(configuration);
+		}
 	}
 
 	/**
@@ -377,19 +426,25 @@ public class JecoliOSPF {
 	 */
 
 	public void configureLinkFailureAlgorithm(Params params) throws Exception, InvalidConfigurationException {
-		IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
-		if(params.getEdgeSelectionOption().equals(EdgeSelectionOption.ALLEDGES))
-			evaluationFunction= new OSPFAllLinkFailureEvaluation(topology,demands[0],params.getLoadBalancer(),params.getAlfa());
-		else
-			evaluationFunction = new OSPFLinkFailureIntegerEvaluation(params.getAlfa(), params.getBeta(), topology, demands,
-				delays, params.getEdgeSelectionOption(), params.getEdgeFailureId(), false);
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
+			if(params.getEdgeSelectionOption().equals(EdgeSelectionOption.ALLEDGES))
+				evaluationFunction= new OSPFAllLinkFailureEvaluation(topology,demands[0],params.getLoadBalancer(),params.getAlfa());
+			else {
+				OSPFLinkFailureIntegerEvaluation f = new OSPFLinkFailureIntegerEvaluation(params.getAlfa(), params.getBeta(),
+						topology, demands, delays, params.getEdgeSelectionOption(), params.getEdgeFailureId(), false);
+				f.setFitnessCache(createFitnessCache(params));
+				evaluationFunction = f;
+			}
 
-		EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = buildPreConfigurationEA(
-				params);
-		configuration.setEvaluationFunction(evaluationFunction);
+			EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = buildPreConfigurationEA(
+					params);
+			configuration.setEvaluationFunction(parallel(evaluationFunction));
 
-		this.info = params.toString();
-		this.algorithm = new OSPFEvolutionaryAlgorithm(configuration);
+			this.info = params.toString();
+			this.algorithm = new OSPFEvolutionaryAlgorithm(configuration);
+		}
 	}
 
 	/**
@@ -406,7 +461,7 @@ public class JecoliOSPF {
 		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
 		configuration.setStatisticsConfiguration(new StatisticsConfiguration());
 		configuration.setRandomNumberGenerator(randomNumberGenerator);
-		IntegerRepresentationFactory solutionFactory = new IntegerRepresentationFactory(topology.getNumberEdges(),
+		IntegerArrayRepresentationFactory solutionFactory = new IntegerArrayRepresentationFactory(topology.getNumberEdges(),
 				MAXWeight, MINWeight, NUMObjectives);
 		configuration.setSolutionFactory(solutionFactory);
 		configuration.setNumberOfObjectives(NUMObjectives);
@@ -450,7 +505,7 @@ public class JecoliOSPF {
 
 		configuration.setStatisticsConfiguration(new StatisticsConfiguration());
 		configuration.setRandomNumberGenerator(randomNumberGenerator);
-		IntegerRepresentationFactory solutionFactory = new IntegerRepresentationFactory(topology.getNumberEdges(),
+		IntegerArrayRepresentationFactory solutionFactory = new IntegerArrayRepresentationFactory(topology.getNumberEdges(),
 				MAXWeight, MINWeight, NUMObjectives);
 		configuration.setSolutionFactory(solutionFactory);
 		configuration.setNumberOfObjectives(NUMObjectives);
@@ -490,24 +545,27 @@ public class JecoliOSPF {
 	 */
 
 	public void configureNSGAII(Params params) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigureNSGAII(params);
+			EvaluationType type = EvaluationType.DEMANDS_DELAY;
+			if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
+				type = EvaluationType.TWO_DEMANDS;
+			} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
+				type = EvaluationType.DEMANDS_MLU;
+			}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
+				type = EvaluationType.DEMANDS_ALU;
+			}
 
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigureNSGAII(params);
-		EvaluationType type = EvaluationType.DEMANDS_DELAY;
-		if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
-			type = EvaluationType.TWO_DEMANDS;
-		} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
-			type = EvaluationType.DEMANDS_MLU;
-		}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
-			type = EvaluationType.DEMANDS_ALU;
-		}
-
-		OSPFIntegerEvaluationMO ospfEvaluation = new OSPFIntegerEvaluationMO(topology, demands, delays, type);
+			OSPFIntegerEvaluationMO ospfEvaluation = new OSPFIntegerEvaluationMO(topology, demands, delays, type);
 
-		ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
-		configuration.setEvaluationFunction(ospfEvaluation);
+			ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
 
-		algorithm = new OSPFNSGAII(configuration);
+			algorithm = new OSPFNSGAII(configuration);
+			configureSteadyState(params);
+		}
 	}
 
 	/**
@@ -518,24 +576,27 @@ public class JecoliOSPF {
 	 * @throws InvalidConfigurationException
 	 */
 	public void configureSPEA2(Params params) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			SPEA2Configuration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigurationSPEA2(params);
+
+			EvaluationType type = EvaluationType.DEMANDS_DELAY;
+			if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
+				type = EvaluationType.TWO_DEMANDS;
+			} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
+				type = EvaluationType.DEMANDS_MLU;
+			}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
+				type = EvaluationType.DEMANDS_ALU;
+			}
 
-		SPEA2Configuration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigurationSPEA2(params);
+			OSPFIntegerEvaluationMO ospfEvaluation = new OSPFIntegerEvaluationMO(topology, demands, delays, type);
+			ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
 
-		EvaluationType type = EvaluationType.DEMANDS_DELAY;
-		if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
-			type = EvaluationType.TWO_DEMANDS;
-		} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
-			type = EvaluationType.DEMANDS_MLU;
-		}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
-			type = EvaluationType.DEMANDS_ALU;
+			this.algorithm = new OSPFSPEA2(configuration);
+			configureSteadyState(params);
 		}
-
-		OSPFIntegerEvaluationMO ospfEvaluation = new OSPFIntegerEvaluationMO(topology, demands, delays, type);
-		ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
-		configuration.setEvaluationFunction(ospfEvaluation);
-
-		this.algorithm = new OSPFSPEA2(configuration);
 	}
 
 	/**
@@ -547,20 +608,23 @@ public class JecoliOSPF {
 	 */
 
 	public void configureNSGAIILinkFailure(Params params) throws Exception, InvalidConfigurationException {
-
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigureNSGAII(params);
-
-		IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
-		if(params.getEdgeSelectionOption().equals(EdgeSelectionOption.ALLEDGES))
-			 evaluationFunction= new OSPFAllLinkFailureEvaluationMO(topology,demands[0],params.getLoadBalancer());
-		else
-			evaluationFunction = new OSPFLinkFailureIntegerEvaluationMO(params.getAlfa(), params.getBeta(), topology,
-				demands, delays, params.getEdgeSelectionOption(), params.getEdgeFailureId(), false);
-
-		configuration.setEvaluationFunction(evaluationFunction);
-
-		algorithm = new OSPFNSGAII(configuration);
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigureNSGAII(params);
+
+			IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
+			if(params.getEdgeSelectionOption().equals(EdgeSelectionOption.ALLEDGES))
+				 evaluationFunction= new OSPFAllLinkFailureEvaluationMO(topology,demands[0],params.getLoadBalancer());
+			else
+				evaluationFunction = new OSPFLinkFailureIntegerEvaluationMO(params.getAlfa(), params.getBeta(), topology,
+					demands, delays, params.getEdgeSelectionOption(), params.getEdgeFailureId(), false);
+
+			configuration.setEvaluationFunction(batch(evaluationFunction));
+
+			algorithm = new OSPFNSGAII(configuration);
+			configureSteadyState(params);
+		}
 	}
 
 	/**
@@ -571,20 +635,23 @@ public class JecoliOSPF {
 	 * @throws InvalidConfigurationException
 	 */
 	public void configureSPEA2LinkFailure(Params params) throws Exception, InvalidConfigurationException {
-
-		SPEA2Configuration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigurationSPEA2(params);
-
-		IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
-		if(params.getEdgeSelectionOption().equals(EdgeSelectionOption.ALLEDGES))
-			 evaluationFunction= new OSPFAllLinkFailureEvaluationMO(topology,demands[0],params.getLoadBalancer());
-		else
-			 evaluationFunction = new OSPFLinkFailureIntegerEvaluationMO(params.getAlfa(), params.getBeta(), topology,
-				demands, delays, params.getEdgeSelectionOption(), params.getEdgeFailureId(), false);
-
-		configuration.setEvaluationFunction(evaluationFunction);
-
-		this.algorithm = new OSPFSPEA2(configuration);
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			SPEA2Configuration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigurationSPEA2(params);
+
+			IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
+			if(params.getEdgeSelectionOption().equals(EdgeSelectionOption.ALLEDGES))
+				 evaluationFunction= new OSPFAllLinkFailureEvaluationMO(topology,demands[0],params.getLoadBalancer());
+			else
+				 evaluationFunction = new OSPFLinkFailureIntegerEvaluationMO(params.getAlfa(), params.getBeta(), topology,
+					demands, delays, params.getEdgeSelectionOption(), params.getEdgeFailureId(), false);
+
+			configuration.setEvaluationFunction(batch(evaluationFunction));
+
+			this.algorithm = new OSPFSPEA2(configuration);
+			configureSteadyState(params);
+		}
 	}
 
 	/**
@@ -596,7 +663,10 @@ public class JecoliOSPF {
 	 */
 
 	public void configureMultiLayerAlgorithm(Params params) throws Exception, InvalidConfigurationException {
-		configureMultiLayerAlgorithm(params, 2);
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			configureMultiLayerAlgorithm(params, 2);
+		}
 	}
 
 	/**
@@ -608,47 +678,49 @@ public class JecoliOSPF {
 	 */
 
 	public void configureMultiLayerAlgorithm(Params params, int n) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			int nLayers = n;
 
-		int nLayers = n;
-
-		EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
+			EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
 
-		IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
-		evaluationFunction = new OSPFMultiLayerIntegerEvaluation(topology, demands, nLayers);
+			IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
+			evaluationFunction = new OSPFMultiLayerIntegerEvaluation(topology, demands, nLayers);
 
-		configuration.setEvaluationFunction(evaluationFunction);
+			configuration.setEvaluationFunction(parallel(evaluationFunction));
 
-		// number of weights/maximum weight
-		ILinearRepresentationFactory<Integer> solutionFactory = new IntegerRepresentationFactory(
-				topology.getNumberEdges() * nLayers, MAXWeight, MINWeight);
-		configuration.setSolutionFactory(solutionFactory);
+			// number of weights/maximum weight
+			ILinearRepresentationFactory<Integer> solutionFactory = new IntegerArrayRepresentationFactory(
+					topology.getNumberEdges() * nLayers, MAXWeight, MINWeight);
+			configuration.setSolutionFactory(solutionFactory);
 
-		IterationTerminationCriteria terminationCriteria = new IterationTerminationCriteria(
-				params.getNumberGenerations());
+			IterationTerminationCriteria terminationCriteria = new IterationTerminationCriteria(
+					params.getNumberGenerations());
 
-		configuration.setTerminationCriteria(terminationCriteria);
-		RecombinationParameters recombinationParameters = new RecombinationParameters(
-				params.getPopulationSize() * nLayers);
-		configuration.setRecombinationParameters(recombinationParameters);
+			configuration.setTerminationCriteria(terminationCriteria);
+			RecombinationParameters recombinationParameters = new RecombinationParameters(
+					params.getPopulationSize() * nLayers);
+			configuration.setRecombinationParameters(recombinationParameters);
 
-		configuration.setRandomNumberGenerator(randomNumberGenerator);
-		configuration.setProblemBaseDirectory("nullDirectory");
-		configuration.setAlgorithmStateFile("nullFile");
-		configuration.setSaveAlgorithmStateDirectoryPath("nullDirectory");
+			configuration.setRandomNumberGenerator(randomNumberGenerator);
+			configuration.setProblemBaseDirectory("nullDirectory");
+			configuration.setAlgorithmStateFile("nullFile");
+			configuration.setSaveAlgorithmStateDirectoryPath("nullDirectory");
 
-		configuration.setSelectionOperator(new TournamentSelection<ILinearRepresentation<Integer>>(1, 2));
+			configuration.setSelectionOperator(new TournamentSelection<ILinearRepresentation<Integer>>(1, 2));
 
-		configuration.setSurvivorSelectionOperator(new TournamentSelection<ILinearRepresentation<Integer>>(1, 2));
+			configuration.setSurvivorSelectionOperator(new TournamentSelection<ILinearRepresentation<Integer>>(1, 2));
 
-		IOperatorContainer<IReproductionOperator<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>> reproductionOperatorContainer = getContainer();
+			IOperatorContainer<IReproductionOperator<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>> reproductionOperatorContainer = getContainer();
 
-		configuration.setPopulationSize(params.getPopulationSize() * nLayers);
+			configuration.setPopulationSize(params.getPopulationSize() * nLayers);
 
-		configuration.setPopulationInitialization(true);
-		configuration.setReproductionOperatorContainer(reproductionOperatorContainer);
+			configuration.setPopulationInitialization(true);
+			configuration.setReproductionOperatorContainer(reproductionOperatorContainer);
 
-		this.info = params.toString();
-		this.algorithm = new OSPFEvolutionaryAlgorithm(configuration);
+			this.info = params.toString();
+			this.algorithm = new OSPFEvolutionaryAlgorithm(configuration);
+		}
 	}
 
 	/**
@@ -656,15 +728,13 @@ public class JecoliOSPF {
 	 * @return the bestSolution
 	 */
 	public int[] getBestSolutionWeights() {
+		if (isSteadyState())
+			return steadyState.getBestSolution().getVariablesArray();
 		ISolutionContainer<ILinearRepresentation<Integer>> c = results.getSolutionContainer();
 
 		LinearRepresentation<Integer> rep = (LinearRepresentation<Integer>) c.getBestSolutionCellContainer(true)
 				.getSolution().getRepresentation();
-		int[] sol = new int[rep.getNumberOfElements()];
-
-		for (int i = 0; i < rep.getNumberOfElements(); i++)
-			sol[i] = rep.getElementAt(i);
-		return sol;
+		return IntegerArrayRepresentation.toArray(rep, 0, rep.getNumberOfElements());
 	}
 
 	/**
@@ -693,16 +763,22 @@ public class JecoliOSPF {
 	}
 
 	public ASolution<Integer> getBestSolution() {
+		if (isSteadyState())
+			return steadyState.getBestSolution();
 		ISolution<ILinearRepresentation<Integer>> s = results.getSolutionContainer().getBestSolutionCellContainer(true)
 				.getSolution();
 		return SolutionParser.convert(s);
 	}
 
 	public AbstractSolutionSet<Integer> getSolutionSet() {
+		if (isSteadyState())
+			return steadyState.getSolutionSet();
 		return algorithm.getSolutionSet();
 	}
 
 	public AbstractSolutionSet<Integer> getAchiveSolutionSet() {
+		if (isSteadyState())
+			return steadyState.getNonDominatedSolutionSet();
 		return algorithm.getAchiveSolutionSet();
 	}
 
@@ -729,9 +805,100 @@ public class JecoliOSPF {
 	}
 
 	public ASolutionSet<Integer> getArchive() {
+		if (isSteadyState())
+			return steadyState.getNonDominatedSolutionSet();
 		return SolutionParser.convert(archive.getArchive());
 	}
 
+	/**
+	 * @return the fitness cache of the configured algorithm, null if it has none
+	 */
+	public FitnessCache getFitnessCache() {
+		return fitnessCache;
+	}
+
+	private FitnessCache createFitnessCache(Params params) {
+		if (params.getFitnessCacheSize() > 0)
+			fitnessCache = new FitnessCache(params.getFitnessCacheSize());
+		else
+			fitnessCache = null;
+		return fitnessCache;
+	}
+
+	/**
+	 * Wraps the evaluation function to evaluate the populations with
+	 * evaluation.threads threads, each with its own copy of the function
+	 */
+	@SuppressWarnings("unchecked")
+	private IEvaluationFunction<ILinearRepresentation<Integer>> parallel(
+			IEvaluationFunction<ILinearRepresentation<Integer>> f) {
+		int threads = SystemConf.getPropertyInt("evaluation.threads", 1);
+		if (threads <= 1)
+			return f;
+		if (f instanceof AbstractMultiobjectiveEvaluationFunction)
+			return new ParallelEvaluationMO(
+					(AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>>) f, threads);
+		if (f instanceof AbstractEvaluationFunction)
+			return new ParallelEvaluation((AbstractEvaluationFunction<ILinearRepresentation<Integer>>) f, threads);
+		return f;
+	}
+
+	/**
+	 * Wraps the evaluation function to evaluate the offspring of each
+	 * generation as a batch, with evaluation.threads threads. Unlike
+	 * {@link #parallel}, it wraps the function even with a single thread, to
+	 * evaluate duplicated genomes once and similar genomes in sequence.
+	 */
+	@SuppressWarnings("unchecked")
+	private IEvaluationFunction<ILinearRepresentation<Integer>> batch(
+			IEvaluationFunction<ILinearRepresentation<Integer>> f) {
+		int threads = Math.max(1, SystemConf.getPropertyInt("evaluation.threads", 1));
+		if (f instanceof AbstractMultiobjectiveEvaluationFunction)
+			return new ParallelEvaluationMO(
+					(AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>>) f, threads);
+		if (f instanceof AbstractEvaluationFunction)
+			return new ParallelEvaluation((AbstractEvaluationFunction<ILinearRepresentation<Integer>>) f, threads);
+		return f;
+	}
+
+	/**
+	 * Replaces the configured multiobjective algorithm by an asynchronous
+	 * steady-state NSGA-II, if the parameters ask for it. It uses the same
+	 * evaluation function, reproduction operators, solution factory,
+	 * population and termination criteria, each generation being worth
+	 * populationSize offspring, and evaluation.threads workers.
+	 */
+	private void configureSteadyState(Params params) throws Exception {
+		if (!params.isSteadyState()) {
+			steadyState = null;
+			return;
+		}
+		IntegerArrayRepresentationFactory solutionFactory = new IntegerArrayRepresentationFactory(topology.getNumberEdges(),
+				MAXWeight, MINWeight, NUMObjectives);
+		steadyState = new SteadyStateNSGAII(algorithm, getContainer(), solutionFactory,
+				buildInitialPopulation(params, solutionFactory), params.getPopulationSize());
+		steadyState.setRandomNumberGenerator(randomNumberGenerator);
+		steadyState.setThreads(SystemConf.getPropertyInt("evaluation.threads", 1));
+		if (params.getCriteria().equals(TerminationCriteria.ITERATION))
+			steadyState.setMaxOffspring((long) params.getNumberGenerations() * params.getPopulationSize());
+		else
+			steadyState.setFitnessTarget(params.getCriteriaValue());
+	}
+
+	// the steady-state algorithm belongs to the configured algorithm
+	private boolean isSteadyState() {
+		return steadyState != null && algorithm != null
+				&& steadyState.getEvaluationFunction() == getEvaluationFunction();
+	}
+
+	/**
+	 * @return the steady-state algorithm, null if the configured algorithm is
+	 *         run as is
+	 */
+	public SteadyStateNSGAII getSteadyState() {
+		return isSteadyState() ? steadyState : null;
+	}
+
 	public IEvaluationFunction<ILinearRepresentation<Integer>> getEvaluationFunction() {
 		return this.getAlgorithm().getConfiguration().getEvaluationFunction();
 	}
@@ -753,33 +920,35 @@ public class JecoliOSPF {
 	 */
 
 	public void configureSREvolutionaryAlgorithm(Params params) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
+
+			EvaluationType type = EvaluationType.DEMANDS_DELAY;
+			if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
+				type = EvaluationType.TWO_DEMANDS;
+			} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
+				type = EvaluationType.DEMANDS_MLU;
+			}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
+				type = EvaluationType.DEMANDS_ALU;
+			}
 
-		IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
-
-		EvaluationType type = EvaluationType.DEMANDS_DELAY;
-		if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
-			type = EvaluationType.TWO_DEMANDS;
-		} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
-			type = EvaluationType.DEMANDS_MLU;
-		}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
-			type = EvaluationType.DEMANDS_ALU;
-		}
-
-		SRIntegerEvaluation f = new SRIntegerEvaluation(topology, demands);
-		f.setAlpha(params.getAlfa());
-		f.setDelays(delays);
-		f.setType(type);
-		if (params.getLoadBalancer() == LoadBalancer.DEFT)
-			f.setLoadBalancer(LoadBalancer.DEFT);
+			SRIntegerEvaluation f = new SRIntegerEvaluation(topology, demands);
+			f.setAlpha(params.getAlfa());
+			f.setDelays(delays);
+			f.setType(type);
+			if (params.getLoadBalancer() == LoadBalancer.DEFT)
+				f.setLoadBalancer(LoadBalancer.DEFT);
 
-		evaluationFunction = f;
+			evaluationFunction = f;
 
-		EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = buildPreConfigurationEA(
-				params);
-		configuration.setEvaluationFunction(evaluationFunction);
+			EvolutionaryConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = buildPreConfigurationEA(
+					params);
+			configuration.setEvaluationFunction(parallel(evaluationFunction));
 
-		this.info = params.toString();
-		this.algorithm = new OSPFEvolutionaryAlgorithm(configuration);
+			this.info = params.toString();
+			this.algorithm = new OSPFEvolutionaryAlgorithm(configuration);
+		}
 	}
 
 	/**
@@ -791,55 +960,63 @@ public class JecoliOSPF {
 	 */
 
 	public void configureSRNSGAII(Params params) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigureNSGAII(params);
+
+			EvaluationType type = EvaluationType.DEMANDS_DELAY;
+			if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
+				type = EvaluationType.TWO_DEMANDS;
+			} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
+				type = EvaluationType.DEMANDS_MLU;
+			}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
+				type = EvaluationType.DEMANDS_ALU;
+			}
 
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigureNSGAII(params);
+			SRIntegerEvaluationMO ospfEvaluation = new SRIntegerEvaluationMO(topology, demands, delays, type);
+			// sets load balancing strategy (DEFT or PEFT)
+			ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
+			ospfEvaluation.setFitnessCache(createFitnessCache(params));
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
 
-		EvaluationType type = EvaluationType.DEMANDS_DELAY;
-		if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
-			type = EvaluationType.TWO_DEMANDS;
-		} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
-			type = EvaluationType.DEMANDS_MLU;
-		}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
-			type = EvaluationType.DEMANDS_ALU;
+			algorithm = new OSPFNSGAII(configuration);
+			configureSteadyState(params);
 		}
-
-		SRIntegerEvaluationMO ospfEvaluation = new SRIntegerEvaluationMO(topology, demands, delays, type);
-		// sets load balancing strategy (DEFT or PEFT)
-		ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
-		configuration.setEvaluationFunction(ospfEvaluation);
-
-		algorithm = new OSPFNSGAII(configuration);
 	}
 
 	
 	
 	public void configureSRNSGAIILP(Params params) throws Exception, InvalidConfigurationException {
-
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigureNSGAII(params);
-
-		if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
-			SRIntegerEvaluation2DMOLP ospfEvaluation = new SRIntegerEvaluation2DMOLP(topology, demands);
-			configuration.setEvaluationFunction(ospfEvaluation);	
-		}else {
-			SRIntegerEvaluationMOLP ospfEvaluation = new SRIntegerEvaluationMOLP(topology, demands);
-			configuration.setEvaluationFunction(ospfEvaluation);
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigureNSGAII(params);
+
+			if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
+				SRIntegerEvaluation2DMOLP ospfEvaluation = new SRIntegerEvaluation2DMOLP(topology, demands);
+				configuration.setEvaluationFunction(batch(ospfEvaluation));	
+			}else {
+				SRIntegerEvaluationMOLP ospfEvaluation = new SRIntegerEvaluationMOLP(topology, demands);
+				configuration.setEvaluationFunction(batch(ospfEvaluation));
+			}
+			algorithm = new OSPFNSGAII(configuration);
 		}
-		algorithm = new OSPFNSGAII(configuration);
 	}
 
 	
 	
 	
 	public void configureHybridSRNSGAIILP(Params params) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigureNSGAII(params);
+			SRIntegerEvaluationMOLP ospfEvaluation = new SRIntegerEvaluationMOLP(topology, demands);
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
 
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigureNSGAII(params);
-		SRIntegerEvaluationMOLP ospfEvaluation = new SRIntegerEvaluationMOLP(topology, demands);
-		configuration.setEvaluationFunction(ospfEvaluation);
-
-		algorithm = new OSPFNSGAII(configuration);
+			algorithm = new OSPFNSGAII(configuration);
+		}
 	}
 
 	/**
@@ -850,24 +1027,28 @@ public class JecoliOSPF {
 	 * @throws InvalidConfigurationException
 	 */
 	public void configureSRSPEA2(Params params) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			SPEA2Configuration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigurationSPEA2(params);
+
+			EvaluationType type = EvaluationType.DEMANDS_DELAY;
+			if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
+				type = EvaluationType.TWO_DEMANDS;
+			} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
+				type = EvaluationType.DEMANDS_MLU;
+			}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
+				type = EvaluationType.DEMANDS_ALU;
+			}
 
-		SPEA2Configuration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigurationSPEA2(params);
+			SRIntegerEvaluationMO ospfEvaluation = new SRIntegerEvaluationMO(topology, demands, delays, type);
+			ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
+			ospfEvaluation.setFitnessCache(createFitnessCache(params));
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
 
-		EvaluationType type = EvaluationType.DEMANDS_DELAY;
-		if (params.getSecondObjective() == AlgorithmSecondObjective.DEMANDS) {
-			type = EvaluationType.TWO_DEMANDS;
-		} else if (params.getSecondObjective() == AlgorithmSecondObjective.MLU) {
-			type = EvaluationType.DEMANDS_MLU;
-		}else if (params.getSecondObjective() == AlgorithmSecondObjective.ALU) {
-			type = EvaluationType.DEMANDS_ALU;
+			this.algorithm = new OSPFSPEA2(configuration);
+			configureSteadyState(params);
 		}
-
-		SRIntegerEvaluationMO ospfEvaluation = new SRIntegerEvaluationMO(topology, demands, delays, type);
-		ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
-		configuration.setEvaluationFunction(ospfEvaluation);
-
-		this.algorithm = new OSPFSPEA2(configuration);
 	}
 
 	
@@ -882,120 +1063,128 @@ public class JecoliOSPF {
 	 * @throws InvalidConfigurationException
 	 */
 	public void configureSRLinkFailureNSGAII(Params params) throws Exception, InvalidConfigurationException {
-
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
-				.preConfigureNSGAII(params);
-		SRLinkFailureEvaluation ospfEvaluation = new SRLinkFailureEvaluation(topology, demands[0],params.getLoadBalancer(), SRLinkFailureEvaluation.LFObjectives.CONGESTION_CONGESTION);
-		configuration.setEvaluationFunction(ospfEvaluation);
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = this
+					.preConfigureNSGAII(params);
+			SRLinkFailureEvaluation ospfEvaluation = new SRLinkFailureEvaluation(topology, demands[0],params.getLoadBalancer(), SRLinkFailureEvaluation.LFObjectives.CONGESTION_CONGESTION);
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
 		
 		
-		algorithm = new OSPFNSGAII(configuration);
+			algorithm = new OSPFNSGAII(configuration);
+			configureSteadyState(params);
+		}
 	}
 	
 	
 	
 	public void configureConstrainedSRLMTNSGAII(Params params) throws Exception, InvalidConfigurationException {
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
 		
 		
-		Demands[] d = new Demands[2];
+			Demands[] d = new Demands[2];
 		
-		d[0]=demands[1];
-		d[1]=demands[2];
+			d[0]=demands[1];
+			d[1]=demands[2];
 		
-		ConstrainedSRMultiLayerEvaluation ospfEvaluation = new ConstrainedSRMultiLayerEvaluation(topology, params.getPreviousWeights(),demands[0] ,d);
+			ConstrainedSRMultiLayerEvaluation ospfEvaluation = new ConstrainedSRMultiLayerEvaluation(topology, params.getPreviousWeights(),demands[0] ,d);
 		
-		if(params.getPValues()!=null)
-			ospfEvaluation.setPValues(params.getPValues().getPValues());
+			if(params.getPValues()!=null)
+				ospfEvaluation.setPValues(params.getPValues().getPValues());
 		
 		
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
-		configuration.setStatisticsConfiguration(new StatisticsConfiguration());
-		configuration.setRandomNumberGenerator(randomNumberGenerator);		
-		IntegerRepresentationFactory solutionFactory = new IntegerRepresentationFactory(topology.getNumberEdges()*2,
-				MAXWeight, MINWeight, 2);
-		configuration.setSolutionFactory(solutionFactory);
-		configuration.setNumberOfObjectives(2);
-
-		configuration.setPopulationSize(params.getPopulationSize());
-		configuration.getStatisticConfiguration().setNumberOfBestSolutionsToKeepPerRun(params.getPopulationSize());
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
+			configuration.setStatisticsConfiguration(new StatisticsConfiguration());
+			configuration.setRandomNumberGenerator(randomNumberGenerator);		
+			IntegerArrayRepresentationFactory solutionFactory = new IntegerArrayRepresentationFactory(topology.getNumberEdges()*2,
+					MAXWeight, MINWeight, 2);
+			configuration.setSolutionFactory(solutionFactory);
+			configuration.setNumberOfObjectives(2);
+
+			configuration.setPopulationSize(params.getPopulationSize());
+			configuration.getStatisticConfiguration().setNumberOfBestSolutionsToKeepPerRun(params.getPopulationSize());
 		
-		if(params.getInitialPopulationPercentage()>0 && params.getInitialPopulation()!=null){
-			ISolutionSet<ILinearRepresentation<Integer>> newSolutions = buildInitialPopulation(params, solutionFactory);
-			configuration.setInitialPopulation(newSolutions);
-			configuration.setPopulationInitialization(false);	
-		}
-		else
-		  configuration.setPopulationInitialization(true);
+			if(params.getInitialPopulationPercentage()>0 && params.getInitialPopulation()!=null){
+				ISolutionSet<ILinearRepresentation<Integer>> newSolutions = buildInitialPopulation(params, solutionFactory);
+				configuration.setInitialPopulation(newSolutions);
+				configuration.setPopulationInitialization(false);	
+			}
+			else
+			  configuration.setPopulationInitialization(true);
 
-		ITerminationCriteria terminationCriteria = new IterationTerminationCriteria(params.getNumberGenerations());
-		configuration.setTerminationCriteria(terminationCriteria);
+			ITerminationCriteria terminationCriteria = new IterationTerminationCriteria(params.getNumberGenerations());
+			configuration.setTerminationCriteria(terminationCriteria);
 
-		RecombinationParameters recombinationParameters = new RecombinationParameters(0, params.getPopulationSize(), 0,
-				true);
-		configuration.setRecombinationParameters(recombinationParameters);
+			RecombinationParameters recombinationParameters = new RecombinationParameters(0, params.getPopulationSize(), 0,
+					true);
+			configuration.setRecombinationParameters(recombinationParameters);
 
-		configuration.setSelectionOperator(
-				new TournamentSelection2<ILinearRepresentation<Integer>>(1, 2, randomNumberGenerator));
-		configuration.setReproductionOperatorContainer(this.getContainer());
-		configuration.setEvaluationFunction(ospfEvaluation);
-		this.info = params.toString();
-		algorithm = new OSPFNSGAII(configuration);
+			configuration.setSelectionOperator(
+					new TournamentSelection2<ILinearRepresentation<Integer>>(1, 2, randomNumberGenerator));
+			configuration.setReproductionOperatorContainer(this.getContainer());
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
+			this.info = params.toString();
+			algorithm = new OSPFNSGAII(configuration);
 
 		 
+		}
 	}
 	
 	
 	public void configureSRLMTNSGAII(Params params) throws Exception, InvalidConfigurationException {
-
-		int nlayers;
-		SRMultiLayerEvaluation ospfEvaluation;
-		if(params.getPreviousWeights()==null){
-			ospfEvaluation= new SRMultiLayerEvaluation(topology, demands,params.getLoadBalancer());
-			nlayers=demands.length;
-		}
-		else{
-			Demands[] d = new Demands[demands.length-1];
-			for(int i=1;i<demands.length;i++)
-				d[i-1]=demands[i];
-			ospfEvaluation = new SRMultiLayerEvaluation(topology, params.getPreviousWeights(),demands[0] ,d,params.getLoadBalancer());
-			nlayers=demands.length-1;
-		}
-		if(params.getPValues()!=null)
-			ospfEvaluation.setPValues(params.getPValues().getPValues());
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
+			int nlayers;
+			SRMultiLayerEvaluation ospfEvaluation;
+			if(params.getPreviousWeights()==null){
+				ospfEvaluation= new SRMultiLayerEvaluation(topology, demands,params.getLoadBalancer());
+				nlayers=demands.length;
+			}
+			else{
+				Demands[] d = new Demands[demands.length-1];
+				for(int i=1;i<demands.length;i++)
+					d[i-1]=demands[i];
+				ospfEvaluation = new SRMultiLayerEvaluation(topology, params.getPreviousWeights(),demands[0] ,d,params.getLoadBalancer());
+				nlayers=demands.length-1;
+			}
+			if(params.getPValues()!=null)
+				ospfEvaluation.setPValues(params.getPValues().getPValues());
 		
 		
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
-		configuration.setStatisticsConfiguration(new StatisticsConfiguration());
-		configuration.setRandomNumberGenerator(randomNumberGenerator);		
-		IntegerRepresentationFactory solutionFactory = new IntegerRepresentationFactory(topology.getNumberEdges()*nlayers,
-				MAXWeight, MINWeight, 2);
-		configuration.setSolutionFactory(solutionFactory);
-		configuration.setNumberOfObjectives(2);
-
-		configuration.setPopulationSize(params.getPopulationSize());
-		configuration.getStatisticConfiguration().setNumberOfBestSolutionsToKeepPerRun(params.getPopulationSize());
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
+			configuration.setStatisticsConfiguration(new StatisticsConfiguration());
+			configuration.setRandomNumberGenerator(randomNumberGenerator);		
+			IntegerArrayRepresentationFactory solutionFactory = new IntegerArrayRepresentationFactory(topology.getNumberEdges()*nlayers,
+					MAXWeight, MINWeight, 2);
+			configuration.setSolutionFactory(solutionFactory);
+			configuration.setNumberOfObjectives(2);
+
+			configuration.setPopulationSize(params.getPopulationSize());
+			configuration.getStatisticConfiguration().setNumberOfBestSolutionsToKeepPerRun(params.getPopulationSize());
 		
-		if(params.getInitialPopulationPercentage()>0 && params.getInitialPopulation()!=null){
-			ISolutionSet<ILinearRepresentation<Integer>> newSolutions = buildInitialPopulation(params, solutionFactory);
-			configuration.setInitialPopulation(newSolutions);
-			configuration.setPopulationInitialization(false);	
+			if(params.getInitialPopulationPercentage()>0 && params.getInitialPopulation()!=null){
+				ISolutionSet<ILinearRepresentation<Integer>> newSolutions = buildInitialPopulation(params, solutionFactory);
+				configuration.setInitialPopulation(newSolutions);
+				configuration.setPopulationInitialization(false);	
+			}
+			else
+			  configuration.setPopulationInitialization(true);
+
+			ITerminationCriteria terminationCriteria = new IterationTerminationCriteria(params.getNumberGenerations());
+			configuration.setTerminationCriteria(terminationCriteria);
+
+			RecombinationParameters recombinationParameters = new RecombinationParameters(0, params.getPopulationSize(), 0,
+					true);
+			configuration.setRecombinationParameters(recombinationParameters);
+
+			configuration.setSelectionOperator(
+					new TournamentSelection2<ILinearRepresentation<Integer>>(1, 2, randomNumberGenerator));
+			configuration.setReproductionOperatorContainer(this.getContainer());
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
+			this.info = params.toString();
+			algorithm = new OSPFNSGAII(configuration);
 		}
-		else
-		  configuration.setPopulationInitialization(true);
-
-		ITerminationCriteria terminationCriteria = new IterationTerminationCriteria(params.getNumberGenerations());
-		configuration.setTerminationCriteria(terminationCriteria);
-
-		RecombinationParameters recombinationParameters = new RecombinationParameters(0, params.getPopulationSize(), 0,
-				true);
-		configuration.setRecombinationParameters(recombinationParameters);
-
-		configuration.setSelectionOperator(
-				new TournamentSelection2<ILinearRepresentation<Integer>>(1, 2, randomNumberGenerator));
-		configuration.setReproductionOperatorContainer(this.getContainer());
-		configuration.setEvaluationFunction(ospfEvaluation);
-		this.info = params.toString();
-		algorithm = new OSPFNSGAII(configuration);
 	}
 	
 	
@@ -1009,106 +1198,109 @@ public class JecoliOSPF {
 
 	
 	public void configureHybridNSGAII(Params params) throws Exception{
+		this.configuration = SystemConf.overrides(params.getConfiguration());
+		try (SystemConf.Scope scope = SystemConf.enter(this.configuration)) {
 		
-		NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
-		configuration.setStatisticsConfiguration(new StatisticsConfiguration());
-		configuration.setRandomNumberGenerator(randomNumberGenerator);
-		List<Integer> perm = new ArrayList<Integer>(topology.getDimension());
+			NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> configuration = new NSGAIIConfiguration<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
+			configuration.setStatisticsConfiguration(new StatisticsConfiguration());
+			configuration.setRandomNumberGenerator(randomNumberGenerator);
+			List<Integer> perm = new ArrayList<Integer>(topology.getDimension());
 		
-		int nedges=topology.getNumberEdges();
-		int nnodes=topology.getDimension();
-		int solutionSize = nedges+nnodes;
-		int k = Math.min(params.getNumberSDNNodes(),topology.getDimension());
+			int nedges=topology.getNumberEdges();
+			int nnodes=topology.getDimension();
+			int solutionSize = nedges+nnodes;
+			int k = Math.min(params.getNumberSDNNodes(),topology.getDimension());
 		
-		for(int i=0;i<topology.getDimension();i++)
-			perm.add(i, i<k? 1 : 0);
+			for(int i=0;i<topology.getDimension();i++)
+				perm.add(i, i<k? 1 : 0);
 		
-		TupleRepresentationFactory solutionFactory = new TupleRepresentationFactory(nedges,MAXWeight, MINWeight, NUMObjectives,perm);
+			TupleRepresentationFactory solutionFactory = new TupleRepresentationFactory(nedges,MAXWeight, MINWeight, NUMObjectives,perm);
 
-		configuration.setSolutionFactory(solutionFactory);
-		configuration.setNumberOfObjectives(NUMObjectives);
-		configuration.setPopulationSize(params.getPopulationSize());
-		configuration.getStatisticConfiguration().setNumberOfBestSolutionsToKeepPerRun(params.getPopulationSize());
+			configuration.setSolutionFactory(solutionFactory);
+			configuration.setNumberOfObjectives(NUMObjectives);
+			configuration.setPopulationSize(params.getPopulationSize());
+			configuration.getStatisticConfiguration().setNumberOfBestSolutionsToKeepPerRun(params.getPopulationSize());
 		
-		//generate initial population
-		if(params.getInitialPopulation()!=null && params.getInitialPopulationPercentage()>0){
-			ISolutionSet<ILinearRepresentation<Integer>> newSolutionSet;
-			int populationSize = params.getPopulationSize();
-			int fromOldPopulationSize = 0;
-			double percentage = params.getInitialPopulationPercentage() / 100;
-			if (percentage < 1.0) {
-				fromOldPopulationSize = Math.min((int) (percentage * params.getPopulationSize()),
-						params.getInitialPopulation().getNumberOfSolutions());
-			} else {
-				fromOldPopulationSize = params.getInitialPopulation().getNumberOfSolutions();
-			}
-			int q,p;
-			if (fromOldPopulationSize > populationSize) {
-				q = 0;
-				p = populationSize;
-			} else {
-				q = populationSize - fromOldPopulationSize;
-				p = fromOldPopulationSize;
-			}
+			//generate initial population
+			if(params.getInitialPopulation()!=null && params.getInitialPopulationPercentage()>0){
+				ISolutionSet<ILinearRepresentation<Integer>> newSolutionSet;
+				int populationSize = params.getPopulationSize();
+				int fromOldPopulationSize = 0;
+				double percentage = params.getInitialPopulationPercentage() / 100;
+				if (percentage < 1.0) {
+					fromOldPopulationSize = Math.min((int) (percentage * params.getPopulationSize()),
+							params.getInitialPopulation().getNumberOfSolutions());
+				} else {
+					fromOldPopulationSize = params.getInitialPopulation().getNumberOfSolutions();
+				}
+				int q,p;
+				if (fromOldPopulationSize > populationSize) {
+					q = 0;
+					p = populationSize;
+				} else {
+					q = populationSize - fromOldPopulationSize;
+					p = fromOldPopulationSize;
+				}
 			
 			
-			newSolutionSet = solutionFactory.generateSolutionSet(q, new DefaultRandomNumberGenerator());
-			for(int i=0;i<p;i++){
-					ISolution<ILinearRepresentation<Integer>> solution=solutionFactory.generateSolution(params.getInitialPopulation().getWeights(i));
-					newSolutionSet.add(solution);
+				newSolutionSet = solutionFactory.generateSolutionSet(q, new DefaultRandomNumberGenerator());
+				for(int i=0;i<p;i++){
+						ISolution<ILinearRepresentation<Integer>> solution=solutionFactory.generateSolution(params.getInitialPopulation().getWeights(i));
+						newSolutionSet.add(solution);
+				}
+				configuration.setInitialPopulation(newSolutionSet);
+				configuration.setPopulationInitialization(false);
 			}
-			configuration.setInitialPopulation(newSolutionSet);
-			configuration.setPopulationInitialization(false);
-		}
-		else
-			configuration.setPopulationInitialization(true);
+			else
+				configuration.setPopulationInitialization(true);
 
-		ITerminationCriteria terminationCriteria = new IterationTerminationCriteria(params.getNumberGenerations());
-		configuration.setTerminationCriteria(terminationCriteria);
+			ITerminationCriteria terminationCriteria = new IterationTerminationCriteria(params.getNumberGenerations());
+			configuration.setTerminationCriteria(terminationCriteria);
 
-		RecombinationParameters recombinationParameters = new RecombinationParameters(0, params.getPopulationSize(), 0,
-				true);
-		configuration.setRecombinationParameters(recombinationParameters);
+			RecombinationParameters recombinationParameters = new RecombinationParameters(0, params.getPopulationSize(), 0,
+					true);
+			configuration.setRecombinationParameters(recombinationParameters);
 
-		configuration.setSelectionOperator(
-				new TournamentSelection2<ILinearRepresentation<Integer>>(1, 2, randomNumberGenerator));
+			configuration.setSelectionOperator(
+					new TournamentSelection2<ILinearRepresentation<Integer>>(1, 2, randomNumberGenerator));
 		
 		
 		
-		// normal density operators probability
+			// normal density operators probability
 		
-		//NormalDistribution dn= new NormalDistribution(nnodes/2,nnodes/4);
-		//double p=dn.density(nnodes/2-Math.abs(nnodes/2-n));
+			//NormalDistribution dn= new NormalDistribution(nnodes/2,nnodes/4);
+			//double p=dn.density(nnodes/2-Math.abs(nnodes/2-n));
 		
-		// linear 
+			// linear 
 		
-		double p = (-0.5 * Math.abs(k - (nnodes/2))) / (nnodes/2) + 0.5; 
+			double p = (-0.5 * Math.abs(k - (nnodes/2))) / (nnodes/2) + 0.5; 
 		
-		ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> reproductionOperatorContainer = new ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
-		reproductionOperatorContainer.addOperator(0.5-p/4, new TwoPointCrossOver<Integer>(0,nedges));
-		reproductionOperatorContainer.addOperator(0.5-p/4, new UniformCrossover<Integer>(0,nedges));
-		reproductionOperatorContainer.addOperator(p/2, new HybridPermutationCrossover<Integer>(nedges));		
+			ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> reproductionOperatorContainer = new ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
+			reproductionOperatorContainer.addOperator(0.5-p/4, new TwoPointCrossOver<Integer>(0,nedges));
+			reproductionOperatorContainer.addOperator(0.5-p/4, new UniformCrossover<Integer>(0,nedges));
+			reproductionOperatorContainer.addOperator(p/2, new HybridPermutationCrossover<Integer>(nedges));		
 		
-		configuration.setReproductionOperatorContainer(reproductionOperatorContainer);
+			configuration.setReproductionOperatorContainer(reproductionOperatorContainer);
 		
-		ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> mutationOperatorContainer = new ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
-		mutationOperatorContainer.addOperator(0.5-p/4, new LinearGenomeRandomMutation<Integer>(3,0,nedges));
-		mutationOperatorContainer.addOperator(0.5-p/4, new IntegerAddMutation(3,0,nedges));
-		mutationOperatorContainer.addOperator(3*p/8, new PermutationNonAdjacentSwapMutation(nedges,solutionSize));
-		mutationOperatorContainer.addOperator(p/8, new PermutationInversionMutation(nedges,solutionSize));
-		configuration.setMutationOperatorsContainer(mutationOperatorContainer);
+			ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> mutationOperatorContainer = new ReproductionOperatorContainer<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>();
+			mutationOperatorContainer.addOperator(0.5-p/4, new LinearGenomeRandomMutation<Integer>(3,0,nedges));
+			mutationOperatorContainer.addOperator(0.5-p/4, new IntegerAddMutation(3,0,nedges));
+			mutationOperatorContainer.addOperator(3*p/8, new PermutationNonAdjacentSwapMutation(nedges,solutionSize));
+			mutationOperatorContainer.addOperator(p/8, new PermutationInversionMutation(nedges,solutionSize));
+			configuration.setMutationOperatorsContainer(mutationOperatorContainer);
 	
 
-		this.info = params.toString();
+			this.info = params.toString();
 
-		EvaluationType type = EvaluationType.DEMANDS_MLU;
+			EvaluationType type = EvaluationType.DEMANDS_MLU;
 		
-		HybridEvaluationMO ospfEvaluation = new HybridEvaluationMO(topology, demands,null, type);
+			HybridEvaluationMO ospfEvaluation = new HybridEvaluationMO(topology, demands,null, type);
 
-		ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
-		configuration.setEvaluationFunction(ospfEvaluation);
+			ospfEvaluation.setLoadBalancer(params.getLoadBalancer());
+			configuration.setEvaluationFunction(batch(ospfEvaluation));
 
-		algorithm = new OSPFNSGAII(configuration);
+			algorithm = new OSPFNSGAII(configuration);
+		}
 	}
 
 	
@@ -27,6 +27,7 @@ import jecoli.algorithm.components.representation.linear.LinearRepresentation;
 import jecoli.algorithm.components.solution.ISolution;
 import jecoli.algorithm.components.solution.ISolutionSet;
 import jecoli.algorithm.components.solution.Solution;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.simulation.solution.ASolution;
 import pt.uminho.algoritmi.netopt.ospf.simulation.solution.ASolutionSet;
 import pt.uminho.algoritmi.netopt.ospf.simulation.solution.AbstractSolutionSet;
@@ -38,8 +39,7 @@ public class SolutionParser {
 	public static ASolution<Integer> convert(
 			jecoli.algorithm.components.solution.ISolution<ILinearRepresentation<Integer>> solution) {
 		int nobj = solution.getNumberOfObjectives();
-		List<Integer> l = solution.getRepresentation().getGenome();
-		IntegerSolution s = new IntegerSolution(l, nobj);
+		IntegerSolution s = new IntegerSolution(IntegerArrayRepresentation.toArray(solution.getRepresentation()), nobj);
 	    for(int i=0;i<nobj;i++)
 	    	s.setObjective(i, solution.getFitnessValue(i));
 		return s;
@@ -87,9 +87,7 @@ public class SolutionParser {
 	
 	
 	public static jecoli.algorithm.components.solution.ISolution<ILinearRepresentation<Integer>> convert(IntegerSolution solution,int nobj) {
-		IntegerSolution sol=solution.copy();
-		List<Integer> l = sol.getVariables();
-		LinearRepresentation<Integer> r = new LinearRepresentation<Integer>(l);
+		IntegerArrayRepresentation r = new IntegerArrayRepresentation(solution.getVariablesArray());
 		ISolution<ILinearRepresentation<Integer>> s = new Solution<ILinearRepresentation<Integer>>(r,2);
 		return s;
 	}
@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jecoli.algorithm.components.algorithm.AlgorithmState;
+import jecoli.algorithm.components.algorithm.IAlgorithmResult;
+import jecoli.algorithm.components.evaluationfunction.AbstractEvaluationFunction;
+import jecoli.algorithm.components.evaluationfunction.AbstractMultiobjectiveEvaluationFunction;
+import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
+import jecoli.algorithm.components.operator.IReproductionOperator;
+import jecoli.algorithm.components.operator.container.IOperatorContainer;
+import jecoli.algorithm.components.randomnumbergenerator.DefaultRandomNumberGenerator;
+import jecoli.algorithm.components.randomnumbergenerator.IRandomNumberGenerator;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentationFactory;
+import jecoli.algorithm.components.solution.ISolution;
+import jecoli.algorithm.components.solution.ISolutionSet;
+import jecoli.algorithm.components.solution.SolutionSet;
+import pt.uminho.algoritmi.netopt.SystemConf;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ParallelEvaluation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ParallelEvaluationMO;
+import pt.uminho.algoritmi.netopt.ospf.simulation.solution.AbstractSolutionSet;
+import pt.uminho.algoritmi.netopt.ospf.simulation.solution.IntegerSolution;
+import pt.uminho.algoritmi.netopt.ospf.utils.MOUtil;
+
+/**
+ * Asynchronous steady-state NSGA-II for integer weight genomes.
+ *
+ * A generational algorithm waits for the slowest individual of each
+ * generation. Here a new offspring is created and sent to evaluation as soon
+ * as any evaluation finishes, so all workers are kept busy when the cost of
+ * the evaluations varies. Each evaluated individual is inserted into the
+ * population and the worst one, by non-dominated rank and crowding distance,
+ * is removed. Parents are chosen by binary tournament on the same criteria,
+ * and offspring are created by the reproduction operators of the configured
+ * algorithm, random solutions by its solution factory.
+ *
+ * The non-dominated fronts are kept between insertions. A new individual
+ * enters the first front with no individual dominating it, and the
+ * individuals it dominates move one front down, and so on; the worst
+ * individual is always removed from the last front. Only the fronts that
+ * change have their crowding distances computed again.
+ *
+ * The state of the configured algorithm is updated with the population after
+ * the initial population and after every populationSize offspring, which
+ * records the statistics of the run and notifies its listeners, such as the
+ * archive, as a generation of the algorithm would.
+ *
+ * Each worker evaluates on its own copy of the evaluation function. Functions
+ * that cannot be copied are evaluated by a single worker. All objectives are
+ * minimized. With more than one worker the results depend on the order in
+ * which the evaluations finish.
+ */
+public class SteadyStateNSGAII {
+
+	private final AlgorithmInterface<Integer> algorithm;
+	private final IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction;
+	private final IOperatorContainer<IReproductionOperator<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>> operators;
+	private final ILinearRepresentationFactory<Integer> solutionFactory;
+	private final ISolutionSet<ILinearRepresentation<Integer>> initialPopulation;
+	private final int populationSize;
+
+	private int threads = 1;
+	private long maxOffspring = Long.MAX_VALUE;
+	private double fitnessTarget = Double.NaN;
+	private IRandomNumberGenerator randomNumberGenerator = new DefaultRandomNumberGenerator();
+
+	private volatile boolean cancelled;
+	private List<Individual> population = new ArrayList<Individual>();
+	// non-dominated fronts of the population, by rank
+	private List<List<Individual>> fronts = new ArrayList<List<Individual>>();
+	// offspring created by the operators and not yet evaluated
+	private final Deque<ISolution<ILinearRepresentation<Integer>>> offspring = new ArrayDeque<ISolution<ILinearRepresentation<Integer>>>();
+	private int numberOfObjectives;
+	private long evaluations;
+
+	/**
+	 * @param algorithm
+	 *            the configured algorithm, whose evaluation function is used,
+	 *            parallel wrappers being replaced by the function they wrap
+	 * @param operators
+	 *            the reproduction operators of the algorithm
+	 * @param solutionFactory
+	 *            the solution factory of the algorithm
+	 * @param initialPopulation
+	 *            solutions evaluated before the first offspring
+	 */
+	public SteadyStateNSGAII(AlgorithmInterface<Integer> algorithm,
+			IOperatorContainer<IReproductionOperator<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>>> operators,
+			ILinearRepresentationFactory<Integer> solutionFactory,
+			ISolutionSet<ILinearRepresentation<Integer>> initialPopulation, int populationSize) {
+		IEvaluationFunction<ILinearRepresentation<Integer>> evaluationFunction = algorithm.getConfiguration()
+				.getEvaluationFunction();
+		if (!(evaluationFunction instanceof AbstractEvaluationFunction)
+				&& !(evaluationFunction instanceof AbstractMultiobjectiveEvaluationFunction))
+			throw new IllegalArgumentException("Unsupported evaluation function");
+		this.algorithm = algorithm;
+		this.evaluationFunction = evaluationFunction;
+		this.operators = operators;
+		this.solutionFactory = solutionFactory;
+		this.initialPopulation = initialPopulation;
+		this.populationSize = populationSize;
+	}
+
+	/**
+	 * Number of concurrent evaluations
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Maximum number of offspring, after the initial population
+	 */
+	public void setMaxOffspring(long maxOffspring) {
+		this.maxOffspring = maxOffspring;
+	}
+
+	/**
+	 * Stops when the first objective of an individual reaches the target
+	 */
+	public void setFitnessTarget(double fitnessTarget) {
+		this.fitnessTarget = fitnessTarget;
+	}
+
+	public void setRandomNumberGenerator(IRandomNumberGenerator randomNumberGenerator) {
+		this.randomNumberGenerator = randomNumberGenerator;
+	}
+
+	public IEvaluationFunction<ILinearRepresentation<Integer>> getEvaluationFunction() {
+		return evaluationFunction;
+	}
+
+	/**
+	 * @return the number of evaluations of the last run
+	 */
+	public long getNumberOfEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Stops creating offspring. The evaluations in progress are still
+	 * inserted into the population.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return the result of the run, as recorded by the state of the
+	 *         configured algorithm
+	 */
+	public IAlgorithmResult<ILinearRepresentation<Integer>> run() throws Exception {
+		cancelled = false;
+		synchronized (this) {
+			population = new ArrayList<Individual>();
+			fronts = new ArrayList<List<Individual>>();
+		}
+		offspring.clear();
+		evaluations = 0;
+
+		IEvaluationFunction<ILinearRepresentation<Integer>> function = evaluationFunction;
+		if (function instanceof ParallelEvaluation)
+			function = ((ParallelEvaluation) function).getFunction();
+		else if (function instanceof ParallelEvaluationMO)
+			function = ((ParallelEvaluationMO) function).getFunction();
+		numberOfObjectives = function.getNumberOfObjectives();
+
+		// one function per worker, the first is the original one
+		BlockingQueue<IEvaluationFunction<ILinearRepresentation<Integer>>> contexts = new ArrayBlockingQueue<IEvaluationFunction<ILinearRepresentation<Integer>>>(
+				threads);
+		contexts.add(function);
+		for (int i = 1; i < threads; i++) {
+			IEvaluationFunction<ILinearRepresentation<Integer>> copy = function.deepCopy();
+			if (copy == null)
+				break;
+			contexts.add(copy);
+		}
+		int workers = contexts.size();
+
+		AlgorithmState<ILinearRepresentation<Integer>> state = new AlgorithmState<ILinearRepresentation<Integer>>(
+				algorithm);
+		state.initializeState();
+		List<ISolution<ILinearRepresentation<Integer>>> initial = initialPopulation.getListOfSolutions();
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		CompletionService<Individual> completion = new ExecutorCompletionService<Individual>(executor);
+		try {
+			int next = 0;
+			long created = 0;
+			int running = 0;
+			boolean stop = false;
+			while (running > 0 || !stop) {
+				// keep every worker busy
+				while (!stop && running < workers) {
+					ISolution<ILinearRepresentation<Integer>> solution;
+					if (next < initial.size())
+						solution = initial.get(next++);
+					else if (created < maxOffspring) {
+						solution = population.size() < 2 ? solutionFactory.generateSolution(randomNumberGenerator)
+								: offspring();
+						created++;
+					} else {
+						stop = true;
+						break;
+					}
+					completion.submit(new Evaluation(solution, contexts));
+					running++;
+				}
+				if (running == 0)
+					break;
+
+				Individual individual;
+				try {
+					individual = completion.take().get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
+				running--;
+				evaluations++;
+				insert(individual);
+				// a generation is worth populationSize offspring
+				long offspringEvaluated = evaluations - initial.size();
+				if (offspringEvaluated == 0 || (offspringEvaluated > 0 && offspringEvaluated % populationSize == 0))
+					state.updateState(getPopulation());
+				if (cancelled || (!Double.isNaN(fitnessTarget) && individual.fitness[0] <= fitnessTarget))
+					stop = true;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return state.getAlgorithmResult();
+	}
+
+	/**
+	 * @return the current population
+	 */
+	public synchronized AbstractSolutionSet<Integer> getSolutionSet() {
+		AbstractSolutionSet<Integer> set = new AbstractSolutionSet<Integer>();
+		for (Individual individual : population)
+			set.add(individual.toSolution());
+		return set;
+	}
+
+	public AbstractSolutionSet<Integer> getNonDominatedSolutionSet() {
+		return MOUtil.getNonDominatedFront(getSolutionSet());
+	}
+
+	/**
+	 * @return the solution with the lowest first objective, null if there is
+	 *         none
+	 */
+	public synchronized IntegerSolution getBestSolution() {
+		Individual best = null;
+		for (Individual individual : population)
+			if (best == null || individual.fitness[0] < best.fitness[0])
+				best = individual;
+		return best != null ? best.toSolution() : null;
+	}
+
+	// the current population as a jecoli solution set
+	private synchronized ISolutionSet<ILinearRepresentation<Integer>> getPopulation() {
+		ISolutionSet<ILinearRepresentation<Integer>> set = new SolutionSet<ILinearRepresentation<Integer>>();
+		for (Individual individual : population)
+			set.add(individual.solution);
+		return set;
+	}
+
+	// inserts the individual and removes the worst of the population
+	private synchronized void insert(Individual individual) {
+		population.add(individual);
+		int rank = 0;
+		while (rank < fronts.size() && isDominated(individual, fronts.get(rank)))
+			rank++;
+		// the individuals entering a front push the ones they dominate to the
+		// next front
+		List<Individual> entering = Collections.singletonList(individual);
+		for (; !entering.isEmpty(); rank++) {
+			if (rank == fronts.size())
+				fronts.add(new ArrayList<Individual>());
+			List<Individual> front = fronts.get(rank);
+			List<Individual> pushed = new ArrayList<Individual>();
+			for (Iterator<Individual> it = front.iterator(); it.hasNext();) {
+				Individual i = it.next();
+				if (isDominated(i, entering)) {
+					it.remove();
+					pushed.add(i);
+				}
+			}
+			for (Individual i : entering) {
+				i.rank = rank;
+				front.add(i);
+			}
+			crowding(front);
+			entering = pushed;
+		}
+
+		if (population.size() > populationSize) {
+			List<Individual> last = fronts.get(fronts.size() - 1);
+			Individual worst = last.get(0);
+			for (Individual i : last)
+				if (i.crowding < worst.crowding)
+					worst = i;
+			last.remove(worst);
+			population.remove(worst);
+			if (last.isEmpty())
+				fronts.remove(fronts.size() - 1);
+			else
+				crowding(last);
+		}
+	}
+
+	private static boolean isDominated(Individual individual, List<Individual> front) {
+		for (Individual i : front)
+			if (dominates(i, individual))
+				return true;
+		return false;
+	}
+
+	private void crowding(List<Individual> front) {
+		for (Individual i : front)
+			i.crowding = 0.0;
+		if (front.size() < 3) {
+			for (Individual i : front)
+				i.crowding = Double.POSITIVE_INFINITY;
+			return;
+		}
+		// sorts a copy, the front keeps its insertion order
+		List<Individual> sorted = new ArrayList<Individual>(front);
+		for (int m = 0; m < numberOfObjectives; m++) {
+			final int objective = m;
+			Collections.sort(sorted, new Comparator<Individual>() {
+				@Override
+				public int compare(Individual a, Individual b) {
+					return Double.compare(a.fitness[objective], b.fitness[objective]);
+				}
+			});
+			Individual first = sorted.get(0), last = sorted.get(sorted.size() - 1);
+			first.crowding = Double.POSITIVE_INFINITY;
+			last.crowding = Double.POSITIVE_INFINITY;
+			double range = last.fitness[m] - first.fitness[m];
+			if (range <= 0)
+				continue;
+			for (int i = 1; i < sorted.size() - 1; i++)
+				sorted.get(i).crowding += (sorted.get(i + 1).fitness[m] - sorted.get(i - 1).fitness[m]) / range;
+		}
+	}
+
+	private static boolean dominates(Individual a, Individual b) {
+		boolean better = false;
+		for (int m = 0; m < a.fitness.length; m++) {
+			if (a.fitness[m] > b.fitness[m])
+				return false;
+			if (a.fitness[m] < b.fitness[m])
+				better = true;
+		}
+		return better;
+	}
+
+	// binary tournament on rank and crowding distance, the NSGA-II crowded
+	// comparison
+	private Individual select() {
+		Individual a = population.get((int) (randomNumberGenerator.nextDouble() * population.size()));
+		Individual b = population.get((int) (randomNumberGenerator.nextDouble() * population.size()));
+		if (a.rank != b.rank)
+			return a.rank < b.rank ? a : b;
+		return a.crowding >= b.crowding ? a : b;
+	}
+
+	// the next offspring of an operator of the algorithm, crossovers create
+	// two
+	private ISolution<ILinearRepresentation<Integer>> offspring() throws Exception {
+		while (offspring.isEmpty()) {
+			IReproductionOperator<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> operator = operators
+					.selectOperator(randomNumberGenerator);
+			List<ISolution<ILinearRepresentation<Integer>>> parents = new ArrayList<ISolution<ILinearRepresentation<Integer>>>();
+			for (int i = 0; i < operator.getNumberOfInputSolutions(); i++)
+				parents.add(select().solution);
+			offspring.addAll(operator.apply(parents, solutionFactory, randomNumberGenerator));
+		}
+		return offspring.poll();
+	}
+
+	private class Evaluation implements Callable<Individual> {
+
+		private final ISolution<ILinearRepresentation<Integer>> solution;
+		private final BlockingQueue<IEvaluationFunction<ILinearRepresentation<Integer>>> contexts;
+		// the configuration of the run, also applied in the worker threads
+		private final SystemConf.Overrides overrides = SystemConf.current();
+
+		Evaluation(ISolution<ILinearRepresentation<Integer>> solution,
+				BlockingQueue<IEvaluationFunction<ILinearRepresentation<Integer>>> contexts) {
+			this.solution = solution;
+			this.contexts = contexts;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public Individual call() throws Exception {
+			ILinearRepresentation<Integer> representation = solution.getRepresentation();
+			IEvaluationFunction<ILinearRepresentation<Integer>> function = contexts.take();
+			double[] fitness;
+			try (SystemConf.Scope scope = SystemConf.enter(overrides)) {
+				if (function instanceof AbstractMultiobjectiveEvaluationFunction) {
+					Double[] f = ((AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>>) function)
+							.evaluateMO(representation);
+					fitness = new double[f.length];
+					for (int i = 0; i < f.length; i++)
+						fitness[i] = f[i];
+				} else
+					fitness = new double[] { ((AbstractEvaluationFunction<ILinearRepresentation<Integer>>) function)
+							.evaluate(representation) };
+			} finally {
+				contexts.put(function);
+			}
+			for (int i = 0; i < fitness.length; i++)
+				solution.setFitnessValue(i, fitness[i]);
+			return new Individual(solution, fitness);
+		}
+	}
+
+	private static class Individual {
+
+		final ISolution<ILinearRepresentation<Integer>> solution;
+		final double[] fitness;
+		int rank;
+		double crowding;
+
+		Individual(ISolution<ILinearRepresentation<Integer>> solution, double[] fitness) {
+			this.solution = solution;
+			this.fitness = fitness;
+		}
+
+		IntegerSolution toSolution() {
+			IntegerSolution s = new IntegerSolution(IntegerArrayRepresentation.toArray(solution.getRepresentation()),
+					fitness.length);
+			for (int i = 0; i < fitness.length; i++)
+				s.setObjective(i, fitness[i]);
+			return s;
+		}
+	}
+}
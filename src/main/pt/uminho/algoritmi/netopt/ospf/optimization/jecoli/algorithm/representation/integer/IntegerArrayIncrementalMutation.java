@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer;
+
+import jecoli.algorithm.components.operator.reproduction.linear.AbstractMutationOperator;
+import jecoli.algorithm.components.randomnumbergenerator.IRandomNumberGenerator;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentationFactory;
+
+/**
+ * Adds or subtracts one to up to numberGenesToMutate genes, within
+ * [minPosition,maxPosition), keeping them within the bounds of an
+ * {@link IntegerArrayRepresentationFactory}.
+ */
+public class IntegerArrayIncrementalMutation
+		extends AbstractMutationOperator<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> {
+
+	private static final long serialVersionUID = 1L;
+
+	protected int numberGenesToMutate;
+	protected int minPosition;
+	protected int maxPosition;
+
+	public IntegerArrayIncrementalMutation(int numberGenesToMutate) {
+		this(numberGenesToMutate, 0, Integer.MAX_VALUE);
+	}
+
+	public IntegerArrayIncrementalMutation(int numberGenesToMutate, int minPosition, int maxPosition) {
+		this.numberGenesToMutate = numberGenesToMutate;
+		this.minPosition = minPosition;
+		this.maxPosition = maxPosition;
+	}
+
+	@Override
+	public IntegerArrayIncrementalMutation deepCopy() throws Exception {
+		return new IntegerArrayIncrementalMutation(numberGenesToMutate, minPosition, maxPosition);
+	}
+
+	@Override
+	protected void mutateGenome(ILinearRepresentation<Integer> childGenome,
+			ILinearRepresentationFactory<Integer> solutionFactory, IRandomNumberGenerator randomNumberGenerator) {
+		IntegerArrayRepresentationFactory factory = (IntegerArrayRepresentationFactory) solutionFactory;
+		int numberOfGenes = Math.min(childGenome.getNumberOfElements(), maxPosition) - minPosition;
+		if (numberOfGenes <= 0)
+			return;
+		int[] genome = childGenome instanceof IntegerArrayRepresentation
+				? ((IntegerArrayRepresentation) childGenome).getArray() : null;
+		int n = 1 + (int) (randomNumberGenerator.nextDouble() * numberGenesToMutate);
+		for (int k = 0; k < n; k++) {
+			int pos = (int) (randomNumberGenerator.nextDouble() * numberOfGenes) + minPosition;
+			int value = (genome != null ? genome[pos] : childGenome.getElementAt(pos))
+					+ (randomNumberGenerator.nextDouble() < 0.5 ? 1 : -1);
+			value = Math.max(factory.getLowerBound(pos), Math.min(factory.getUpperBound(pos), value));
+			if (genome != null)
+				genome[pos] = value;
+			else
+				childGenome.setElement(pos, value);
+		}
+	}
+}
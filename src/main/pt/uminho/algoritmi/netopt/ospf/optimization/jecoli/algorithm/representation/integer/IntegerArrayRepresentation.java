@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import jecoli.algorithm.components.representation.linear.LinearRepresentation;
+
+/**
+ * Linear integer representation backed by a primitive array.
+ *
+ * The genome list seen by the jecoli operators is a view of the array, so
+ * evaluation functions can read the genes with {@link #toArray} without
+ * copying or unboxing them. The array is shared: it must not be changed by
+ * whoever reads it.
+ */
+@SuppressWarnings("serial")
+public class IntegerArrayRepresentation extends LinearRepresentation<Integer> {
+
+	private final IntegerGenome values;
+
+	public IntegerArrayRepresentation(int[] genome) {
+		this(new IntegerGenome(genome));
+	}
+
+	public IntegerArrayRepresentation(List<Integer> genome) {
+		this(new IntegerGenome(toArray(genome)));
+	}
+
+	private IntegerArrayRepresentation(IntegerGenome values) {
+		super(values);
+		this.values = values;
+	}
+
+	/**
+	 * @return the genes, not a copy
+	 */
+	public int[] getArray() {
+		return values.getArray();
+	}
+
+	/**
+	 * @return the genes of the representation, without a copy if it is an
+	 *         IntegerArrayRepresentation
+	 */
+	public static int[] toArray(ILinearRepresentation<Integer> representation) {
+		if (representation instanceof IntegerArrayRepresentation)
+			return ((IntegerArrayRepresentation) representation).getArray();
+		return toArray(representation, 0, representation.getNumberOfElements());
+	}
+
+	/**
+	 * @return a copy of the genes in [from,to)
+	 */
+	public static int[] toArray(ILinearRepresentation<Integer> representation, int from, int to) {
+		int[] res = new int[to - from];
+		if (representation instanceof IntegerArrayRepresentation)
+			System.arraycopy(((IntegerArrayRepresentation) representation).getArray(), from, res, 0, res.length);
+		else
+			for (int i = from; i < to; i++)
+				res[i - from] = representation.getElementAt(i);
+		return res;
+	}
+
+	private static int[] toArray(List<Integer> genome) {
+		int[] res = new int[genome.size()];
+		for (int i = 0; i < res.length; i++)
+			res[i] = genome.get(i);
+		return res;
+	}
+
+	/**
+	 * List view of the genes. Adding or removing genes replaces the array.
+	 */
+	private static class IntegerGenome extends AbstractList<Integer> implements RandomAccess, Serializable {
+
+		private int[] array;
+
+		IntegerGenome(int[] array) {
+			this.array = array;
+		}
+
+		int[] getArray() {
+			return array;
+		}
+
+		@Override
+		public Integer get(int index) {
+			return array[index];
+		}
+
+		@Override
+		public Integer set(int index, Integer element) {
+			int old = array[index];
+			array[index] = element;
+			return old;
+		}
+
+		@Override
+		public int size() {
+			return array.length;
+		}
+
+		@Override
+		public void add(int index, Integer element) {
+			if (index < 0 || index > array.length)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + array.length);
+			int[] a = new int[array.length + 1];
+			System.arraycopy(array, 0, a, 0, index);
+			a[index] = element;
+			System.arraycopy(array, index, a, index + 1, array.length - index);
+			array = a;
+			modCount++;
+		}
+
+		@Override
+		public Integer remove(int index) {
+			int old = array[index];
+			int[] a = new int[array.length - 1];
+			System.arraycopy(array, 0, a, 0, index);
+			System.arraycopy(array, index + 1, a, index, array.length - index - 1);
+			array = a;
+			modCount++;
+			return old;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer;
+
+import java.io.Serializable;
+
+import jecoli.algorithm.components.randomnumbergenerator.IRandomNumberGenerator;
+import jecoli.algorithm.components.representation.integer.IntegerRepresentationFactory;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentationFactory;
+import jecoli.algorithm.components.solution.ISolution;
+import jecoli.algorithm.components.solution.Solution;
+
+/**
+ * IntegerRepresentationFactory whose solutions are
+ * {@link IntegerArrayRepresentation}s. Genes are generated within the same
+ * bounds, and solutions are copied array to array.
+ */
+public class IntegerArrayRepresentationFactory extends IntegerRepresentationFactory
+		implements ILinearRepresentationFactory<Integer>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public IntegerArrayRepresentationFactory(int solutionSize, Integer upperBound, Integer lowerBound) {
+		this(solutionSize, upperBound, lowerBound, 1);
+	}
+
+	public IntegerArrayRepresentationFactory(int solutionSize, Integer upperBound, Integer lowerBound,
+			int numberOfObjectives) {
+		super(solutionSize, upperBound, lowerBound, numberOfObjectives);
+	}
+
+	@Override
+	public ISolution<ILinearRepresentation<Integer>> generateSolution(IRandomNumberGenerator randomGenerator) {
+		return generateSolution(solutionSize, randomGenerator);
+	}
+
+	@Override
+	public ISolution<ILinearRepresentation<Integer>> generateSolution(int size,
+			IRandomNumberGenerator randomGenerator) {
+		int[] genome = new int[size];
+		for (int i = 0; i < size; i++)
+			genome[i] = generateGeneValue(i, randomGenerator);
+		return new Solution<ILinearRepresentation<Integer>>(new IntegerArrayRepresentation(genome),
+				numberOfObjectives);
+	}
+
+	/**
+	 * @return a solution with the given genes, which are not copied
+	 */
+	public ISolution<ILinearRepresentation<Integer>> createSolution(int[] genome) {
+		return new Solution<ILinearRepresentation<Integer>>(new IntegerArrayRepresentation(genome),
+				numberOfObjectives);
+	}
+
+	@Override
+	public ISolution<ILinearRepresentation<Integer>> copySolution(
+			ISolution<ILinearRepresentation<Integer>> solutionToCopy) {
+		ILinearRepresentation<Integer> representation = solutionToCopy.getRepresentation();
+		return createSolution(
+				IntegerArrayRepresentation.toArray(representation, 0, representation.getNumberOfElements()));
+	}
+
+	public int getLowerBound(int position) {
+		return lowerBoundGeneLimitList.get(position);
+	}
+
+	public int getUpperBound(int position) {
+		return upperBoundGeneLimitList.get(position);
+	}
+
+	@Override
+	public IntegerArrayRepresentationFactory deepCopy() {
+		return new IntegerArrayRepresentationFactory(solutionSize, getUpperBound(0), getLowerBound(0),
+				numberOfObjectives);
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jecoli.algorithm.components.operator.reproduction.linear.AbstractCrossoverOperator;
+import jecoli.algorithm.components.randomnumbergenerator.IRandomNumberGenerator;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentationFactory;
+import jecoli.algorithm.components.solution.ISolution;
+import jecoli.algorithm.components.solution.Solution;
+
+/**
+ * Two point crossover on primitive genomes. The genes between two random
+ * positions, within [minPosition,maxPosition), are swapped between the
+ * parents.
+ */
+public class IntegerArrayTwoPointCrossover
+		extends AbstractCrossoverOperator<ILinearRepresentation<Integer>, ILinearRepresentationFactory<Integer>> {
+
+	private static final long serialVersionUID = 1L;
+
+	protected int minPosition;
+	protected int maxPosition;
+
+	public IntegerArrayTwoPointCrossover() {
+		this(0, Integer.MAX_VALUE);
+	}
+
+	public IntegerArrayTwoPointCrossover(int minPosition, int maxPosition) {
+		this.minPosition = minPosition;
+		this.maxPosition = maxPosition;
+	}
+
+	@Override
+	public IntegerArrayTwoPointCrossover deepCopy() throws Exception {
+		return new IntegerArrayTwoPointCrossover(minPosition, maxPosition);
+	}
+
+	@Override
+	protected List<ISolution<ILinearRepresentation<Integer>>> crossOverGenomes(
+			ILinearRepresentation<Integer> parentGenome, ILinearRepresentation<Integer> parent1Genome,
+			ILinearRepresentationFactory<Integer> solutionFactory, IRandomNumberGenerator randomNumberGenerator) {
+
+		int[] child = IntegerArrayRepresentation.toArray(parentGenome, 0, parentGenome.getNumberOfElements());
+		int[] child1 = IntegerArrayRepresentation.toArray(parent1Genome, 0, parent1Genome.getNumberOfElements());
+
+		int numberOfGenes = Math.min(Math.min(child.length, child1.length), maxPosition) - minPosition;
+		if (numberOfGenes > 0) {
+			int p1 = (int) (randomNumberGenerator.nextDouble() * numberOfGenes) + minPosition;
+			int p2 = (int) (randomNumberGenerator.nextDouble() * numberOfGenes) + minPosition;
+			for (int i = Math.min(p1, p2); i <= Math.max(p1, p2); i++) {
+				int g = child[i];
+				child[i] = child1[i];
+				child1[i] = g;
+			}
+		}
+
+		int numObjectives = solutionFactory.getNumberOfObjectives();
+		List<ISolution<ILinearRepresentation<Integer>>> solutionList = new ArrayList<ISolution<ILinearRepresentation<Integer>>>();
+		solutionList.add(new Solution<ILinearRepresentation<Integer>>(new IntegerArrayRepresentation(child), numObjectives));
+		solutionList.add(new Solution<ILinearRepresentation<Integer>>(new IntegerArrayRepresentation(child1), numObjectives));
+		return solutionList;
+	}
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ * 
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ * 
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation;
+
+/**
+ * Evaluation function that learns from the solutions it evaluates, such as
+ * the link failure evaluations that count the worst failing link of each
+ * solution.
+ *
+ * Copies evaluating on other threads learn on their own. After each batch
+ * the function they were copied from merges what each copy learned, and the
+ * copy continues from the merged state.
+ */
+public interface AdaptiveEvaluation {
+
+	/**
+	 * Adds to this function what the copy learned since it was made or last
+	 * merged, and updates the copy with the merged state.
+	 * 
+	 * @param copy
+	 *            a deep copy of this function
+	 */
+	void merge(AdaptiveEvaluation copy);
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pt.uminho.algoritmi.netopt.ospf.simulation.DelayRequests;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetNode;
+
+/**
+ * Bounded fitness cache for the weights evaluation functions.
+ *
+ * Entries are keyed by the decoded weights and by a context value that
+ * identifies everything else the fitness depends on (evaluation type, load
+ * balancer, demands, link and node states, ...). The cache is split in segments, each
+ * one a LRU map with its own lock, so evaluations running in distinct threads
+ * seldom wait on each other. Keys keep a copy of the weights, so a hash
+ * collision never returns a wrong fitness.
+ */
+@SuppressWarnings("serial")
+public class FitnessCache implements Serializable {
+
+	private static final int SEGMENTS = 16;
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+
+	private final int capacity;
+	private final Segment[] segments;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public FitnessCache(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Fitness cache capacity must be positive");
+		this.capacity = capacity;
+		int n = Math.min(SEGMENTS, capacity);
+		this.segments = new Segment[n];
+		for (int i = 0; i < n; i++)
+			segments[i] = new Segment(capacity / n + (i < capacity % n ? 1 : 0));
+	}
+
+	/**
+	 * @return a copy of the cached fitness, or null if the weights were not
+	 *         evaluated in the context
+	 */
+	public double[] get(int[] weights, long context) {
+		Key key = new Key(weights, context);
+		double[] fitness = segment(key).get(key);
+		if (fitness == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return fitness.clone();
+	}
+
+	public void put(int[] weights, long context, double[] fitness) {
+		Key key = new Key(weights.clone(), context);
+		segment(key).put(key, fitness.clone());
+	}
+
+	private Segment segment(Key key) {
+		return segments[(int) ((key.hash >>> 32) % segments.length)];
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment s : segments)
+			size += s.size();
+		return size;
+	}
+
+	public void clear() {
+		for (Segment s : segments)
+			s.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "Fitness cache: " + size() + "/" + capacity + " entries, " + getHits() + " hits, " + getMisses()
+				+ " misses";
+	}
+
+	/**
+	 * Combines values into a context
+	 */
+	public static long context(long... values) {
+		long h = values.length;
+		for (long v : values)
+			h = mix((h ^ v) * SEED);
+		return h;
+	}
+
+	/**
+	 * @return a context value for the demands, equal for copies of the same
+	 *         demands
+	 */
+	public static long context(Demands[] demands) {
+		long[] values = new long[demands.length];
+		for (int i = 0; i < demands.length; i++)
+			values[i] = demands[i] != null ? demands[i].getFingerprint() : 0;
+		return context(values);
+	}
+
+	/**
+	 * @return a context value for the delay requirements, equal for copies of
+	 *         the same requirements
+	 */
+	public static long context(DelayRequests delays) {
+		return delays != null ? delays.getFingerprint() : 0;
+	}
+
+	/**
+	 * @return a context value for the status of the topology links and the
+	 *         type of its nodes
+	 */
+	public static long topologyState(NetworkTopology topology) {
+		long h = SEED;
+		NetEdge[] edges = topology.getNetGraph().getEdges();
+		for (int i = 0; i < edges.length; i++)
+			if (!edges[i].isUP())
+				h = mix((h ^ i) * SEED);
+		for (NetNode node : topology.getNetGraph().getNodes())
+			h = (h ^ node.getNodeType().ordinal()) * SEED;
+		return mix(h);
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static class Key implements Serializable {
+
+		private final int[] weights;
+		private final long context;
+		private final long hash;
+
+		Key(int[] weights, long context) {
+			this.weights = weights;
+			this.context = context;
+			long h = context ^ weights.length;
+			for (int w : weights)
+				h = (h ^ w) * SEED;
+			this.hash = mix(h);
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return hash == k.hash && context == k.context && Arrays.equals(weights, k.weights);
+		}
+	}
+
+	// LRU map guarded by its own monitor
+	private static class Segment implements Serializable {
+
+		private final LinkedHashMap<Key, double[]> map;
+
+		Segment(final int capacity) {
+			this.map = new LinkedHashMap<Key, double[]>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+
+		synchronized double[] get(Key key) {
+			return map.get(key);
+		}
+
+		synchronized void put(Key key, double[] fitness) {
+			map.put(key, fitness);
+		}
+
+		synchronized int size() {
+			return map.size();
+		}
+
+		synchronized void clear() {
+			map.clear();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation;
+
+import java.util.concurrent.RecursiveAction;
+
+import pt.uminho.algoritmi.netopt.SystemConf;
+import pt.uminho.algoritmi.netopt.ospf.utils.WorkerPools;
+
+/**
+ * Process wide work stealing executor for link failure scenarios.
+ *
+ * Each scenario is a task of its own, so workers that finish early take
+ * scenarios from the busy ones instead of waiting for a fixed range. The
+ * evaluation functions check out an idle simulation context (topology copy
+ * and simulator) for each scenario, and keep it for the next evaluations.
+ *
+ * Scenarios run on the shared pool of the requested parallelism (see
+ * WorkerPools), so optimizations using distinct numbers of threads never
+ * stop each other's workers. The pools are shut down when the last
+ * optimization run holding them ends.
+ */
+public final class LinkFailureExecutor {
+
+	/**
+	 * Evaluates one scenario
+	 */
+	public interface ScenarioEvaluator {
+		double[] evaluate(int scenario) throws Exception;
+	}
+
+	private LinkFailureExecutor() {
+	}
+
+	/**
+	 * Evaluates the scenarios in parallel
+	 *
+	 * @return the results, in the order of the scenarios
+	 */
+	public static double[][] evaluate(int threads, int[] scenarios, ScenarioEvaluator evaluator) {
+		double[][] results = new double[scenarios.length][];
+		if (scenarios.length > 0)
+			WorkerPools.invoke(threads, new ScenariosTask(evaluator, scenarios, results, 0, scenarios.length));
+		return results;
+	}
+
+	// evaluates the scenarios in [from,to)
+	@SuppressWarnings("serial")
+	private static class ScenariosTask extends RecursiveAction {
+
+		private final ScenarioEvaluator evaluator;
+		private final int[] scenarios;
+		private final double[][] results;
+		private final int from, to;
+		// the configuration of the run, also applied in the worker threads
+		private final SystemConf.Overrides overrides = SystemConf.current();
+
+		ScenariosTask(ScenarioEvaluator evaluator, int[] scenarios, double[][] results, int from, int to) {
+			this.evaluator = evaluator;
+			this.scenarios = scenarios;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			try (SystemConf.Scope scope = SystemConf.enter(overrides)) {
+				if (to - from > 1) {
+					int mid = (from + to) >>> 1;
+					invokeAll(new ScenariosTask(evaluator, scenarios, results, from, mid),
+							new ScenariosTask(evaluator, scenarios, results, mid, to));
+				} else
+					results[from] = evaluator.evaluate(scenarios[from]);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation;
+
+import java.util.Map;
+
+import jecoli.algorithm.components.evaluationfunction.AbstractMultiobjectiveEvaluationFunction;
+import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
+import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import jecoli.algorithm.components.solution.ISolutionSet;
+
+/**
+ * Multiobjective evaluation function that evaluates the populations in
+ * parallel.
+ *
+ * The fitness of every solution is computed as a batch by a
+ * {@link PopulationEvaluator}, which evaluates duplicated genomes once and
+ * similar genomes in sequence, each worker on its own copy of the wrapped
+ * function, and then assigned by the usual sequential evaluation, which only
+ * looks it up. Single solutions are evaluated by the wrapped function.
+ */
+@SuppressWarnings("serial")
+public class ParallelEvaluationMO
+		extends AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>> {
+
+	private final PopulationEvaluator<AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>>, Double[]>
+		evaluator;
+	private transient Map<ILinearRepresentation<Integer>, Double[]> fitness;
+
+	public ParallelEvaluationMO(AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>> function,
+			int threads) {
+		super(false); // NetOpt evaluation functions are minimizations
+		this.evaluator = new PopulationEvaluator<AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>>, Double[]>(
+				function, threads);
+	}
+
+	public AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>> getFunction() {
+		return evaluator.getFunction();
+	}
+
+	@Override
+	public void evaluate(ISolutionSet<ILinearRepresentation<Integer>> solutionSet) throws Exception {
+		fitness = evaluator.evaluate(solutionSet, (f, s) -> f.evaluateMO(s));
+		try {
+			super.evaluate(solutionSet);
+		} finally {
+			fitness = null;
+		}
+	}
+
+	@Override
+	public Double[] evaluateMO(ILinearRepresentation<Integer> solution) throws Exception {
+		Double[] f = fitness != null ? fitness.get(solution) : null;
+		if (f != null)
+			return f;
+		return evaluator.getFunction().evaluateMO(solution);
+	}
+
+	/**
+	 * Drops the copies of the function made by the worker threads
+	 */
+	public void shutdown() {
+		evaluator.shutdown();
+	}
+
+	@Override
+	public void verifyInputData() throws InvalidEvaluationFunctionInputDataException {
+		evaluator.getFunction().verifyInputData();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public IEvaluationFunction<ILinearRepresentation<Integer>> deepCopy() throws Exception {
+		IEvaluationFunction<ILinearRepresentation<Integer>> copy = evaluator.getFunction().deepCopy();
+		if (copy == null)
+			return null;
+		return new ParallelEvaluationMO(
+				(AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>>) copy, evaluator.getThreads());
+	}
+
+	@Override
+	public int getNumberOfObjectives() {
+		return evaluator.getFunction().getNumberOfObjectives();
+	}
+}
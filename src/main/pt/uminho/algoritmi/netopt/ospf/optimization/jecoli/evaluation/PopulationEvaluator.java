@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+
+import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
+import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import jecoli.algorithm.components.solution.ISolution;
+import jecoli.algorithm.components.solution.ISolutionSet;
+import pt.uminho.algoritmi.netopt.SystemConf;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.utils.WorkerPools;
+
+/**
+ * Evaluates the solutions of a population as a batch.
+ *
+ * Identical genomes are evaluated once. The remaining ones are ordered so
+ * that each is followed by the most similar of the others, and consecutive
+ * genomes are evaluated on the same topology, whose shortest paths are then
+ * updated incrementally from the previous weights. Offspring that share most
+ * of their weights with each other thus reuse most of the shortest path
+ * state.
+ *
+ * Evaluation functions change their topology while evaluating a solution, so
+ * with more than one thread contiguous runs of the ordered genomes are each
+ * evaluated on a deep copy of the function, with its own topology and
+ * simulators, taken from the idle copies for the duration of the run. A
+ * worker that waits on nested parallel work of the same shared pool (link
+ * failures, destination loads) may run another run meanwhile, which takes a
+ * different copy. The results are stored by position and do not depend on
+ * the order in which the runs are evaluated. Functions that cannot be
+ * copied ({@code deepCopy} returns null) are evaluated by the calling
+ * thread. What adaptive functions ({@link AdaptiveEvaluation}) learn in the
+ * copies is merged back into the function after each batch.
+ *
+ * @param <F>
+ *            evaluation function type
+ * @param <R>
+ *            fitness type
+ */
+@SuppressWarnings("serial")
+public class PopulationEvaluator<F extends IEvaluationFunction<ILinearRepresentation<Integer>>, R>
+		implements Serializable {
+
+	/**
+	 * Evaluates one solution with the function or one of its copies
+	 */
+	public interface Evaluator<F, R> {
+		R evaluate(F function, ILinearRepresentation<Integer> solution) throws Exception;
+	}
+
+	// larger batches are not ordered, as ordering is quadratic on their size
+	private static final int MAX_GROUPED = 1024;
+
+	private final F function;
+	private final int threads;
+	private Boolean copyable;
+	// copies not in use by a run
+	private transient BlockingQueue<F> idle;
+	// every copy made by the workers, to merge adaptive state
+	private transient List<F> workers;
+
+	public PopulationEvaluator(F function, int threads) {
+		this.function = function;
+		this.threads = threads;
+	}
+
+	public F getFunction() {
+		return function;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return the fitness of each solution representation, or null if the
+	 *         population has less than two solutions
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<ILinearRepresentation<Integer>, R> evaluate(ISolutionSet<ILinearRepresentation<Integer>> solutionSet,
+			Evaluator<F, R> evaluator) throws Exception {
+		List<ILinearRepresentation<Integer>> solutions = new ArrayList<ILinearRepresentation<Integer>>();
+		for (ISolution<ILinearRepresentation<Integer>> s : solutionSet.getListOfSolutions())
+			solutions.add(s.getRepresentation());
+		if (solutions.size() < 2)
+			return null;
+
+		// identical genomes are evaluated once
+		Map<Genome, Integer> index = new HashMap<Genome, Integer>();
+		List<ILinearRepresentation<Integer>> unique = new ArrayList<ILinearRepresentation<Integer>>();
+		List<int[]> genomes = new ArrayList<int[]>();
+		int[] position = new int[solutions.size()];
+		for (int i = 0; i < solutions.size(); i++) {
+			int[] genome = IntegerArrayRepresentation.toArray(solutions.get(i));
+			Genome key = new Genome(genome);
+			Integer k = index.get(key);
+			if (k == null) {
+				k = unique.size();
+				index.put(key, k);
+				unique.add(solutions.get(i));
+				genomes.add(genome);
+			}
+			position[i] = k;
+		}
+
+		int[] order = group(genomes);
+		Object[] results = new Object[unique.size()];
+		if (threads > 1 && unique.size() > 1 && isCopyable()) {
+			int grain = Math.max(1, (unique.size() + 2 * threads - 1) / (2 * threads));
+			try {
+				WorkerPools.invoke(threads,
+						new SolutionsTask(unique, order, results, evaluator, grain, 0, order.length));
+			} catch (RuntimeException e) {
+				if (e.getCause() instanceof Exception)
+					throw (Exception) e.getCause();
+				throw e;
+			} finally {
+				merge();
+			}
+		} else
+			for (int k : order)
+				results[k] = evaluator.evaluate(function, unique.get(k));
+
+		Map<ILinearRepresentation<Integer>, R> fitness = new IdentityHashMap<ILinearRepresentation<Integer>, R>();
+		for (int i = 0; i < solutions.size(); i++)
+			fitness.put(solutions.get(i), (R) results[position[i]]);
+		return fitness;
+	}
+
+	/**
+	 * Orders the genomes, each followed by the remaining one with the fewest
+	 * different genes
+	 * 
+	 * @return the indexes of the genomes, in evaluation order
+	 */
+	static int[] group(List<int[]> genomes) {
+		int n = genomes.size();
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		if (n > MAX_GROUPED)
+			return order;
+		for (int i = 1; i < n; i++) {
+			int[] last = genomes.get(order[i - 1]);
+			int best = i;
+			int bestDistance = Integer.MAX_VALUE;
+			// the genomes are distinct, one gene is the closest possible
+			for (int j = i; j < n && bestDistance > 1; j++) {
+				int d = distance(last, genomes.get(order[j]), bestDistance);
+				if (d < bestDistance) {
+					best = j;
+					bestDistance = d;
+				}
+			}
+			int aux = order[i];
+			order[i] = order[best];
+			order[best] = aux;
+		}
+		return order;
+	}
+
+	// number of different genes, counted up to limit
+	private static int distance(int[] a, int[] b, int limit) {
+		if (a.length != b.length)
+			return limit;
+		int d = 0;
+		for (int k = 0; k < a.length; k++)
+			if (a[k] != b[k] && ++d >= limit)
+				return d;
+		return d;
+	}
+
+	// a probe copy, made on the calling thread and discarded, tells if the
+	// function supports copies
+	private synchronized boolean isCopyable() throws Exception {
+		if (copyable == null)
+			copyable = copy() != null;
+		return copyable;
+	}
+
+	@SuppressWarnings("unchecked")
+	private F copy() throws Exception {
+		return (F) function.deepCopy();
+	}
+
+	private synchronized BlockingQueue<F> idle() {
+		if (idle == null)
+			idle = new LinkedBlockingQueue<F>();
+		return idle;
+	}
+
+	// an idle copy, or a new one if all are in use
+	private F checkOut() throws Exception {
+		F f = idle().poll();
+		if (f == null) {
+			f = copy();
+			synchronized (this) {
+				if (workers == null)
+					workers = new ArrayList<F>();
+				workers.add(f);
+			}
+		}
+		return f;
+	}
+
+	private void checkIn(F f) {
+		idle().offer(f);
+	}
+
+	// merges what the copies learned into the function, and back into them
+	private synchronized void merge() {
+		if (workers == null || !(function instanceof AdaptiveEvaluation))
+			return;
+		for (F f : workers)
+			((AdaptiveEvaluation) function).merge((AdaptiveEvaluation) f);
+	}
+
+	/**
+	 * Drops the copies of the function made by the workers. The workers
+	 * belong to the shared pools of {@link WorkerPools}, which are shut down
+	 * when released.
+	 */
+	public synchronized void shutdown() {
+		idle = null;
+		workers = null;
+	}
+
+	// genome compared by value
+	private static class Genome {
+
+		private final int[] genes;
+		private final int hash;
+
+		Genome(int[] genes) {
+			this.genes = genes;
+			this.hash = Arrays.hashCode(genes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Genome && Arrays.equals(genes, ((Genome) o).genes);
+		}
+	}
+
+	// evaluates the solutions in positions [from,to) of the order, runs of up
+	// to grain solutions in sequence
+	private class SolutionsTask extends RecursiveAction {
+
+		private final List<ILinearRepresentation<Integer>> solutions;
+		private final int[] order;
+		private final Object[] results;
+		private final Evaluator<F, R> evaluator;
+		private final int grain;
+		private final int from, to;
+		// the configuration of the run, also applied in the worker threads
+		private final SystemConf.Overrides overrides = SystemConf.current();
+
+		SolutionsTask(List<ILinearRepresentation<Integer>> solutions, int[] order, Object[] results,
+				Evaluator<F, R> evaluator, int grain, int from, int to) {
+			this.solutions = solutions;
+			this.order = order;
+			this.results = results;
+			this.evaluator = evaluator;
+			this.grain = grain;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			try (SystemConf.Scope scope = SystemConf.enter(overrides)) {
+				if (to - from > grain) {
+					int mid = (from + to) >>> 1;
+					invokeAll(new SolutionsTask(solutions, order, results, evaluator, grain, from, mid),
+							new SolutionsTask(solutions, order, results, evaluator, grain, mid, to));
+				} else {
+					F f = checkOut();
+					try {
+						for (int i = from; i < to; i++)
+							results[order[i]] = evaluator.evaluate(f, solutions.get(order[i]));
+					} finally {
+						checkIn(f);
+					}
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
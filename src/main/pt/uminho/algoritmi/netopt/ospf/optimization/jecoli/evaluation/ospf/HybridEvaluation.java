@@ -20,6 +20,7 @@
 package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ospf;
 
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
 import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
@@ -40,26 +41,14 @@ public class HybridEvaluation extends OSPFIntegerEvaluation {
 	
 	protected int[] decodeWeights (ILinearRepresentation<Integer> solution)
 	{
-		int size= this.topology.getNumberEdges();
-		int[] res = new int[size];
-		for(int i=0; i < size; i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution, 0, this.topology.getNumberEdges());
 	}
 
 	
 	protected int[] decodeNodes (ILinearRepresentation<Integer> solution)
 	{
-		int wsize= this.topology.getNumberEdges();
-		int nsize=solution.getNumberOfElements()-wsize;
-		int[] res = new int[nsize];
-		for(int i=0; i < nsize; i++)
-		{
-			res[i] = solution.getElementAt(i+wsize);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution, this.topology.getNumberEdges(),
+				solution.getNumberOfElements());
 	}
 	
 	
@@ -82,7 +71,9 @@ public class HybridEvaluation extends OSPFIntegerEvaluation {
 		Demands[] d = new Demands[demands.length];
 		for(int i=0; i<demands.length;i++)
 			d[i]=demands[i].copy();
-		return new HybridEvaluation(this.topology.copy(),d);
+		HybridEvaluation e = new HybridEvaluation(this.topology.copy(),d);
+		copySettings(e);
+		return e;
 	}
 	
 	
@@ -20,6 +20,7 @@
 package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ospf;
 
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.EvaluationType;
 import pt.uminho.algoritmi.netopt.ospf.simulation.DelayRequests;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
@@ -42,26 +43,14 @@ public class HybridEvaluationMO extends OSPFIntegerEvaluationMO{
 	
 	protected int[] decodeWeights (ILinearRepresentation<Integer> solution)
 	{
-		int size=this.topology.getNumberEdges();
-		int[] res = new int[size];
-		for(int i=0; i < size; i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution, 0, this.topology.getNumberEdges());
 	}
 
 	
 	protected int[] decodeNodes (ILinearRepresentation<Integer> solution)
 	{
-		int wsize=this.topology.getNumberEdges();
-		int nsize=solution.getNumberOfElements()-wsize;
-		int[] res = new int[nsize];
-		for(int i=0; i < nsize; i++)
-		{
-			res[i] = solution.getElementAt(i+wsize);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution, this.topology.getNumberEdges(),
+				solution.getNumberOfElements());
 	}
 
 	
@@ -94,7 +83,9 @@ public class HybridEvaluationMO extends OSPFIntegerEvaluationMO{
 		Demands[] d = new Demands[demands.length];
 		for(int i=0; i<demands.length;i++)
 			d[i]=demands[i].copy();
-		return new HybridEvaluationMO(this.topology.copy(),d,this.delays.copy(),this.type);
+		HybridEvaluationMO e = new HybridEvaluationMO(this.topology.copy(),d,this.delays!=null?this.delays.copy():null,this.type);
+		e.setLoadBalancer(this.loadBalancer);
+		return e;
 	}
 
 
@@ -20,27 +20,27 @@
 package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ospf;
 
 import java.util.Arrays;
-import java.util.OptionalDouble;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import jecoli.algorithm.components.evaluationfunction.AbstractMultiobjectiveEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import pt.uminho.algoritmi.netopt.SystemConf;
-import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.AdaptiveEvaluation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.FitnessCache;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.LinkFailureExecutor;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
-import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkLoads;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
-import pt.uminho.algoritmi.netopt.ospf.simulation.Simul;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
 import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
 import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
+import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.FailureScenarioSimul;
 import pt.uminho.algoritmi.netopt.ospf.utils.MathUtils;
 
-public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>>{
+public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>> implements AdaptiveEvaluation{
 
 	
 	public enum LFObjectives{
@@ -53,10 +53,13 @@ public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvalua
 	private LoadBalancer loadBalancer;
 	private LFObjectives objectives;
 	private int[] worstEdgeCount;
+	// counts of a copy when it was made or last merged
+	private int[] mergedCount;
 	
 	private double EVALUATE_ALL_EDGES_PROBABILITY = 0.1;
 	private double LINKS_SAMPLE_FRACTION = 0.3;
 	private int NTHREADS = 4;
+	private transient BlockingQueue<Context> contexts;
 	
 	
 	/**
@@ -94,8 +97,20 @@ public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvalua
 
 	@Override
 	public IEvaluationFunction<ILinearRepresentation<Integer>> deepCopy() throws Exception {
-		// TODO Auto-generated method stub
-		return null;
+		OSPFAllLinkFailureEvaluationMO e = new OSPFAllLinkFailureEvaluationMO(topology.copy(), demands.copy(),
+				loadBalancer, objectives);
+		e.worstEdgeCount = worstEdgeCount.clone();
+		e.mergedCount = worstEdgeCount.clone();
+		return e;
+	}
+
+	@Override
+	public synchronized void merge(AdaptiveEvaluation function) {
+		OSPFAllLinkFailureEvaluationMO copy = (OSPFAllLinkFailureEvaluationMO) function;
+		for (int i = 0; i < worstEdgeCount.length; i++)
+			worstEdgeCount[i] += copy.worstEdgeCount[i] - copy.mergedCount[i];
+		copy.worstEdgeCount = worstEdgeCount.clone();
+		copy.mergedCount = worstEdgeCount.clone();
 	}
 
 	@Override
@@ -118,12 +133,7 @@ public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvalua
 	
 	protected int[] decode (ILinearRepresentation<Integer> solution)
 	{
-		int[] res = new int[solution.getNumberOfElements()];
-		for(int i=0; i < solution.getNumberOfElements(); i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 	
 	
@@ -133,35 +143,32 @@ public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvalua
 		
 		Double[] res=new Double[2];	
 		//evaluate the congestion for the network on a normal state
-		Simul simul = new Simul(topology);
-		double r0=simul.evalWeights(weights,1,demands,null);
-		if(this.objectives == LFObjectives.MLU_CONGESTION)
-			res[0] = simul.getLoads().getMLU();
-		else
-			res[0] = r0;
+		Context context = checkOut();
 		int worstEdgeIndex=0;
 		double mlu = 0;
 		double congestion=0;
-		NetworkTopology t = topology.copy();
-		
-		for(int i=0;i<t.getNetGraph().getNEdges();i++){
-			Simul s = new Simul(t);
-			simul.setLoadBalancer(loadBalancer);
-			NetEdge e =t.getNetGraph().getEdge(i);
-			t.setEdgeStatus(e, Graph.Status.DOWN);
+		try {
+			double[] r0=context.setBaseline(weights);
+			if(this.objectives == LFObjectives.MLU_CONGESTION)
+				res[0] = r0[1];
+			else
+				res[0] = r0[0];
 			
-			double _cong=s.evalWeights(weights,1,demands,null);		
-			NetworkLoads load=s.getLoads();	
-			double _mlu = load.getMLU();
-		
-			//reset link status 
-			t.setEdgeStatus(e, Graph.Status.UP);
-			if(_mlu>mlu)
-				mlu=_mlu;
-			if(_cong>congestion){
-				congestion=_cong;
-				worstEdgeIndex=i;
+			for(int i=0;i<topology.getNetGraph().getNEdges();i++){
+				// only the destinations affected by the failure are recomputed
+				double[] r = context.evalFailure(weights,i);
+				double _cong = r[0];
+				double _mlu = r[1];
+			
+				if(_mlu>mlu)
+					mlu=_mlu;
+				if(_cong>congestion){
+					congestion=_cong;
+					worstEdgeIndex=i;
+				}
 			}
+		} finally {
+			checkIn(context);
 		}
 	
 		if(this.objectives == LFObjectives.CONGESTION_MLU)
@@ -176,19 +183,13 @@ public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvalua
 	
 	public Double[] evaluateLinkFailureMultiThread(int threads,int[] weights) throws InterruptedException, DimensionErrorException{
 		
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		CountDownLatch latch = new CountDownLatch(threads);
-		ComputeUnit[] runnables = new ComputeUnit[threads];
 		Double[] res = new Double[2];
 		//first objective
-		Simul simul = new Simul(topology);
-		simul.setLoadBalancer(loadBalancer);
-		double re=simul.evalWeights(weights,1,demands,null);
-		
+		double[] r0=setBaseline(weights);
 		if(this.objectives == LFObjectives.MLU_CONGESTION)
-			res[0] = simul.getLoads().getMLU();
+			res[0] = r0[1];
 		else
-			res[0] = re;
+			res[0] = r0[0];
 			
 		/**
 		 * 
@@ -229,41 +230,24 @@ public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvalua
 		
 			
 		//multi-threaded second objective computation
-		for(int i=0;i<edges.length;i++)
-			edges[i]=i;
-		int from=0;
-		int n = edges.length/threads;
-		int t = edges.length%threads;
-		//split edges among threads
-		for(int i=0;i<threads;i++){
-			int to= from + n - 1;
-			if(t>0)
-				to+=1;
-			int[] a=Arrays.copyOfRange(edges, from, to);
-			runnables[i]=new ComputeUnit(topology.copy(),Arrays.copyOf(weights,weights.length),demands,a);
-			from = to+1;
-			t--;
-		}
-		// parallel link failure computation
-		for(ComputeUnit r : runnables) {
-		    r.setLatch(latch);
-		    exec.execute(r);
-		}
-
-		latch.await();
-		exec.shutdown();
+		// each failure is a task of the shared executor, evaluated on an
+		// idle context
+		double[][] r = LinkFailureExecutor.evaluate(threads, edges, e -> evalFailure(weights, e));
 		
 		if(this.objectives == LFObjectives.CONGESTION_MLU){
-			OptionalDouble mlu = Arrays.stream(runnables).mapToDouble(r -> r.getMaxMLU()).max();
-			res[1]=mlu.getAsDouble();
+			double mlu=0.0;
+			for(int i=0;i<r.length;i++)
+				if(r[i][1]>mlu)
+					mlu=r[i][1];
+			res[1]=mlu;
 		}
 		else{
-			double max=runnables[0].getMaxCong();
-			int e = runnables[0].getWorstEdge();
-			for(int i=1;i<runnables.length;i++){
-				if(runnables[i].getMaxCong()>max){
-					max=runnables[i].getMaxCong();
-					e = runnables[i].getWorstEdge();
+			double max=0.0;
+			int e = edges[0];
+			for(int i=0;i<r.length;i++){
+				if(r[i][0]>max){
+					max=r[i][0];
+					e = edges[i];
 				}
 			}
 			this.worstEdgeCount[e]++;	
@@ -285,74 +269,79 @@ public class OSPFAllLinkFailureEvaluationMO extends AbstractMultiobjectiveEvalua
 	}
 	
 	
-	private class ComputeUnit implements Runnable {
-
-		
-		private NetworkTopology topo;
-		private int[] w;
-		private Demands d; 
-		private int[] e;
-		private double m;
-		private double c;
-		private CountDownLatch latch;
-		int worstEdge;
-
-		
-		public ComputeUnit(NetworkTopology topology, int[] weights, Demands demands, int[] edges){
-			this.topo=topology;
-			this.w=weights;
-			this.d= demands;
-			this.e =edges;
-			this.m=0.0;
+	/**
+	 * Takes an idle simulation context, or makes a new one. Contexts are
+	 * checked out for each use instead of kept per worker thread, as a worker
+	 * waiting on its tasks may run another evaluation meanwhile.
+	 */
+	private synchronized Context checkOut() {
+		if (contexts == null)
+			contexts = new LinkedBlockingQueue<Context>();
+		Context context = contexts.poll();
+		return context != null ? context : new Context();
+	}
+	
+	
+	private synchronized void checkIn(Context context) {
+		contexts.offer(context);
+	}
+	
+	
+	private double[] evalFailure(int[] weights, int edge) throws DimensionErrorException {
+		Context context = checkOut();
+		try {
+			return context.evalFailure(weights, edge);
+		} finally {
+			checkIn(context);
 		}
-		
-		public void setLatch(CountDownLatch latch) {
-		    this.latch = latch;
-		  }
-		
-		public double getMaxMLU(){
-			return this.m;
+	}
+	
+	
+	private double[] setBaseline(int[] weights) throws DimensionErrorException {
+		Context context = checkOut();
+		try {
+			return context.setBaseline(weights);
+		} finally {
+			checkIn(context);
 		}
+	}
+	
+	
+	/**
+	 * Simulation context of an evaluation: a copy of the topology and the failure
+	 * scenarios simulator, with the baseline of the last weights. The copy is
+	 * replaced when the status of the links or the type of the nodes of the
+	 * topology change.
+	 */
+	private class Context {
+
+		private NetworkTopology topo;
+		private FailureScenarioSimul simul;
+		private long state;
+		// copy of the weights of the baseline, compared by content as
+		// genomes may share or reuse their arrays
+		private int[] weights;
+		private double[] measures;
 		
-		public double getMaxCong(){
-			return this.c;
+		public double[] setBaseline(int[] weights) throws DimensionErrorException {
+			long s = FitnessCache.topologyState(topology);
+			if (topo == null || s != state) {
+				topo = topology.copy();
+				simul = new FailureScenarioSimul(topo, loadBalancer);
+				state = s;
+				this.weights = null;
+			}
+			if (!Arrays.equals(this.weights, weights)) {
+				measures = simul.setBaseline(weights, demands);
+				this.weights = weights.clone();
+			}
+			return measures;
 		}
 		
-		public int getWorstEdge(){
-			return this.worstEdge;
+		public double[] evalFailure(int[] weights, int edge) throws DimensionErrorException {
+			setBaseline(weights);
+			return simul.evalFailure(topo.getNetGraph().getEdge(edge));
 		}
-		
-		@Override
-		public void run() {
-			Simul simul = new Simul(topo);
-			simul.setLoadBalancer(loadBalancer);
-			double maxMLU=0.0;
-			double maxCong =0.0;
-			worstEdge =e[0];
-			for(int i=0;i<e.length;i++){
-				NetEdge edge= topo.getNetGraph().getEdge(e[i]);  
-				topo.setEdgeStatus(edge, Graph.Status.DOWN);
-				double c=0.0;
-				try {
-					c=simul.evalWeights(w,1, d, null);
-				} catch (DimensionErrorException e1) {
-					// TODO Auto-generated catch block
-					e1.printStackTrace();
-				}
-				NetworkLoads load=simul.getLoads();
-				double mlu = load.getMLU();
-				if(mlu>maxMLU)
-					maxMLU=mlu;
-				if(c>maxCong){
-					maxCong = c;
-					worstEdge=e[i];
-				}
-				topo.setEdgeStatus(edge, Graph.Status.UP);
-			}
-			this.m=maxMLU;
-			this.c = maxCong;
-			latch.countDown();
-		}	
 	}
 	
 }
@@ -25,7 +25,9 @@ import jecoli.algorithm.components.evaluationfunction.AbstractEvaluationFunction
 import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.EvaluationType;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.FitnessCache;
 import pt.uminho.algoritmi.netopt.ospf.simulation.DelayRequests;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
@@ -59,6 +61,7 @@ public class OSPFIntegerEvaluation extends AbstractEvaluationFunction<ILinearRep
 	//private boolean applyWeightsPenalties;
 	private EvaluationType type;
 	protected LoadBalancer loadBalancer;
+	protected FitnessCache cache;
 	
 		
 	public OSPFIntegerEvaluation (NetworkTopology topology, Demands[] demands)
@@ -78,18 +81,29 @@ public class OSPFIntegerEvaluation extends AbstractEvaluationFunction<ILinearRep
 	@Override
 	public double evaluate(ILinearRepresentation<Integer> solution) throws DimensionErrorException {	
 		int[] weights = decode(solution);
+		if (cache == null)
+			return evalWeights(weights);
+		long context = cacheContext();
+		double[] cached = cache.get(weights, context);
+		if (cached != null)
+			return cached[0];
 		double fitness = evalWeights(weights);
+		cache.put(weights, context, new double[] { fitness });
 		return fitness;
 	}
 	
+	/**
+	 * Everything, other than the weights, the fitness depends on
+	 */
+	protected long cacheContext() {
+		long delaysId = type == EvaluationType.DEMANDS_DELAY ? FitnessCache.context(delays) : 0;
+		return FitnessCache.context(type.ordinal(), loadBalancer.ordinal(), Double.doubleToLongBits(alpha), delaysId,
+				FitnessCache.context(demands), FitnessCache.topologyState(topology));
+	}
+	
 	protected int[] decode (ILinearRepresentation<Integer> solution)
 	{
-		int[] res = new int[solution.getNumberOfElements()];
-		for(int i=0; i < solution.getNumberOfElements(); i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 	
 	protected double evalWeights(int[] weights) throws DimensionErrorException
@@ -172,7 +186,20 @@ public class OSPFIntegerEvaluation extends AbstractEvaluationFunction<ILinearRep
 		Demands[] d = new Demands[demands.length];
 		for(int i=0; i<demands.length;i++)
 			d[i]=demands[i].copy();
-		return new OSPFIntegerEvaluation(this.topology.copy(),d);
+		OSPFIntegerEvaluation e = new OSPFIntegerEvaluation(this.topology.copy(),d);
+		copySettings(e);
+		return e;
+	}
+	
+	/**
+	 * Copies the evaluation settings, sharing the fitness cache
+	 */
+	protected void copySettings(OSPFIntegerEvaluation e){
+		e.setAlpha(alpha);
+		e.setDelays(delays!=null?delays.copy():null);
+		e.setType(type);
+		e.setLoadBalancer(loadBalancer);
+		e.setFitnessCache(cache);
 	}
 	
 	@Override
@@ -200,6 +227,19 @@ public class OSPFIntegerEvaluation extends AbstractEvaluationFunction<ILinearRep
 	public void setType(EvaluationType type) {
 		this.type = type;
 	}
+
+	
+	/**
+	 * Shares a fitness cache, null disables caching
+	 */
+	public void setFitnessCache(FitnessCache cache) {
+		this.cache = cache;
+	}
+
+
+	public FitnessCache getFitnessCache() {
+		return cache;
+	}
 	
 
 }
@@ -23,6 +23,7 @@ import jecoli.algorithm.components.evaluationfunction.AbstractMultiobjectiveEval
 import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.EvaluationType;
 import pt.uminho.algoritmi.netopt.ospf.simulation.DelayRequests;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
@@ -72,11 +73,7 @@ public class OSPFIntegerEvaluationMO extends AbstractMultiobjectiveEvaluationFun
 	}
 
 	protected int[] decode(ILinearRepresentation<Integer> solution) {
-		int[] res = new int[solution.getNumberOfElements()];
-		for (int i = 0; i < solution.getNumberOfElements(); i++) {
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 
 	
@@ -120,7 +117,7 @@ public class OSPFIntegerEvaluationMO extends AbstractMultiobjectiveEvaluationFun
 		Demands[] d = new Demands[demands.length];
 		for(int i=0; i<demands.length;i++)
 			d[i]=demands[i].copy();
-		OSPFIntegerEvaluationMO e = new OSPFIntegerEvaluationMO(this.topology.copy(),d,this.delays.copy(),this.type);
+		OSPFIntegerEvaluationMO e = new OSPFIntegerEvaluationMO(this.topology.copy(),d,this.delays!=null?this.delays.copy():null,this.type);
 		e.setLoadBalancer(this.loadBalancer);
 		return e;
 	}
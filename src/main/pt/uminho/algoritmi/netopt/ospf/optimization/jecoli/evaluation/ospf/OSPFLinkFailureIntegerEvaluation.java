@@ -29,6 +29,8 @@ import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.Params;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.FitnessCache;
 import pt.uminho.algoritmi.netopt.ospf.simulation.DelayRequests;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
@@ -61,6 +63,7 @@ public class OSPFLinkFailureIntegerEvaluation extends
 	Params.EdgeSelectionOption edgeSelectionOption;
 	
 	boolean evaluateDelay=false;
+	FitnessCache cache;
 
 	public OSPFLinkFailureIntegerEvaluation(double alfa, double beta,
 			NetworkTopology topology, Demands[] demands, DelayRequests delays,
@@ -81,16 +84,32 @@ public class OSPFLinkFailureIntegerEvaluation extends
 			throws DimensionErrorException, GraphNotConnectedException {
 		
 		int[] weights = decode(solution);
+		if (cache == null)
+			return evalWeights(weights);
+		long context = cacheContext();
+		double[] cached = cache.get(weights, context);
+		if (cached != null)
+			return cached[0];
 		double fitness = evalWeights(weights);
+		cache.put(weights, context, new double[] { fitness });
 		return fitness;
 	}
 
-	protected int[] decode(ILinearRepresentation<Integer> solution) {
-		int[] res = new int[solution.getNumberOfElements()];
-		for (int i = 0; i < solution.getNumberOfElements(); i++) {
-			res[i] = solution.getElementAt(i);
+	protected long cacheContext() {
+		long failing = 0;
+		if (edgesToFail != null) {
+			long[] ids = new long[edgesToFail.length];
+			for (int i = 0; i < ids.length; i++)
+				ids[i] = edgesToFail[i];
+			failing = FitnessCache.context(ids);
 		}
-		return res;
+		return FitnessCache.context(Double.doubleToLongBits(alfa), Double.doubleToLongBits(beta),
+				edgeSelectionOption.ordinal(), failing, FitnessCache.context(delays), FitnessCache.context(demands),
+				FitnessCache.topologyState(topology));
+	}
+
+	protected int[] decode(ILinearRepresentation<Integer> solution) {
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 
 	protected double evalWeights(int[] weights) throws DimensionErrorException, GraphNotConnectedException {
@@ -139,10 +158,26 @@ public class OSPFLinkFailureIntegerEvaluation extends
 		
 	}
 
+	/**
+	 * Shares a fitness cache, null disables caching
+	 */
+	public void setFitnessCache(FitnessCache cache) {
+		this.cache = cache;
+	}
+
+	public FitnessCache getFitnessCache() {
+		return cache;
+	}
+
 	@Override
 	public IEvaluationFunction<ILinearRepresentation<Integer>> deepCopy()
 			throws Exception {
-		// TODO Auto-generated method stub
-		return null;
+		Demands[] d = new Demands[demands.length];
+		for (int i = 0; i < demands.length; i++)
+			d[i] = demands[i].copy();
+		OSPFLinkFailureIntegerEvaluation e = new OSPFLinkFailureIntegerEvaluation(alfa, beta, topology.copy(), d,
+				delays != null ? delays.copy() : null, edgeSelectionOption, edgesToFail, evaluateDelay);
+		e.setFitnessCache(cache);
+		return e;
 	}
 }
@@ -29,6 +29,7 @@ import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.Params;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.simulation.DelayRequests;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
@@ -76,11 +77,7 @@ public class OSPFLinkFailureIntegerEvaluationMO
 	}
 
 	protected int[] decode(ILinearRepresentation<Integer> solution) {
-		int[] res = new int[solution.getNumberOfElements()];
-		for (int i = 0; i < solution.getNumberOfElements(); i++) {
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 
 	protected double[] evalWeightsMO(int[] weights) throws DimensionErrorException, GraphNotConnectedException {
@@ -121,8 +118,11 @@ public class OSPFLinkFailureIntegerEvaluationMO
 
 	@Override
 	public IEvaluationFunction<ILinearRepresentation<Integer>> deepCopy() throws Exception {
-		// TODO Auto-generated method stub
-		return null;
+		Demands[] d = new Demands[demands.length];
+		for (int i = 0; i < demands.length; i++)
+			d[i] = demands[i].copy();
+		return new OSPFLinkFailureIntegerEvaluationMO(alfa, beta, topology.copy(), d,
+				delays != null ? delays.copy() : null, edgeSelectionOption, edgesToFail, evaluateDelay);
 	}
 
 	@Override
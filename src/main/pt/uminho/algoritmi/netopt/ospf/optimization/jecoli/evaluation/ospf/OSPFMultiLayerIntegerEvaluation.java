@@ -25,6 +25,7 @@ import jecoli.algorithm.components.evaluationfunction.AbstractEvaluationFunction
 import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
 import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
@@ -76,12 +77,7 @@ public class OSPFMultiLayerIntegerEvaluation extends AbstractEvaluationFunction<
 	
 	protected int[] decode (ILinearRepresentation<Integer> solution)
 	{
-		int[] res = new int[solution.getNumberOfElements()];
-		for(int i=0; i < solution.getNumberOfElements(); i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 	
 	protected double evalWeights (int[] weights) throws DimensionErrorException
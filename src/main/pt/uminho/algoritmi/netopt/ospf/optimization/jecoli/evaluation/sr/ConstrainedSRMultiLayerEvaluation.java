@@ -30,6 +30,7 @@ import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionI
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import pt.uminho.algoritmi.netopt.SystemConf;
 import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
 import pt.uminho.algoritmi.netopt.ospf.simulation.OSPFWeights;
@@ -214,12 +215,7 @@ public class ConstrainedSRMultiLayerEvaluation extends AbstractMultiobjectiveEva
 	
 	protected int[] decode (ILinearRepresentation<Integer> solution)
 	{
-		int[] res = new int[solution.getNumberOfElements()];
-		for(int i=0; i < solution.getNumberOfElements(); i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 
 
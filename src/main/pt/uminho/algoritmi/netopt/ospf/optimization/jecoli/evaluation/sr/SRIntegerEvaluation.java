@@ -29,6 +29,7 @@ import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import pt.uminho.algoritmi.netopt.SystemConf;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.EvaluationType;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.ospf.OSPFIntegerEvaluationMO;
 import pt.uminho.algoritmi.netopt.ospf.simulation.DelayRequests;
@@ -98,12 +99,7 @@ public class SRIntegerEvaluation extends AbstractEvaluationFunction<ILinearRepre
 	
 	protected int[] decode (ILinearRepresentation<Integer> solution)
 	{
-		int[] res = new int[solution.getNumberOfElements()];
-		for(int i=0; i < solution.getNumberOfElements(); i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 	
 	protected double evalWeights(int[] weights) throws DimensionErrorException
@@ -176,6 +172,9 @@ public class SRIntegerEvaluation extends AbstractEvaluationFunction<ILinearRepre
 			d[i]=demands[i].copy();
 		SRIntegerEvaluation e = new SRIntegerEvaluation(this.topology.copy(),d,this.hybrid);
 		e.setLoadBalancer(this.loadBalancer);
+		e.setAlpha(alpha);
+		e.setDelays(delays!=null?delays.copy():null);
+		e.setType(type);
 		return e;
 	}
 	
@@ -25,6 +25,7 @@ import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionI
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import pt.uminho.algoritmi.netopt.cplex.SRLoadBalancingPhiSolver;
 import pt.uminho.algoritmi.netopt.cplex.SRLoadBalancingSolver;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
 import pt.uminho.algoritmi.netopt.ospf.simulation.OSPFWeights;
@@ -72,11 +73,7 @@ public class SRIntegerEvaluation2DMOLP extends AbstractMultiobjectiveEvaluationF
 	}
 
 	protected int[] decode(ILinearRepresentation<Integer> solution) {
-		int[] res = new int[solution.getNumberOfElements()];
-		for (int i = 0; i < solution.getNumberOfElements(); i++) {
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 
 	protected Double[] evalWeightsMO(int[] weights) throws Exception {
@@ -135,7 +132,9 @@ public class SRIntegerEvaluation2DMOLP extends AbstractMultiobjectiveEvaluationF
 		Demands[] d = new Demands[demands.length];
 		for(int i=0; i<demands.length;i++)
 			d[i]=demands[i].copy();
-		return new SRIntegerEvaluation2DMOLP(this.topology.copy(),d);
+		SRIntegerEvaluation2DMOLP e = new SRIntegerEvaluation2DMOLP(this.topology.copy(),d,objective);
+		e.setAlpha(alpha);
+		return e;
 	}
 
 	@Override
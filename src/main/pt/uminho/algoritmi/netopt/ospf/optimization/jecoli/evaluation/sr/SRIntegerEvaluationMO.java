@@ -25,7 +25,9 @@ import jecoli.algorithm.components.evaluationfunction.AbstractMultiobjectiveEval
 import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionInputDataException;
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.EvaluationType;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.FitnessCache;
 import pt.uminho.algoritmi.netopt.ospf.simulation.DelayRequests;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
@@ -50,6 +52,7 @@ public class SRIntegerEvaluationMO extends AbstractMultiobjectiveEvaluationFunct
 	DelayRequests delays;
 	EvaluationType type;
 	LoadBalancer loadBalancer;
+	FitnessCache cache;
 	
 	
 	public SRIntegerEvaluationMO (NetworkTopology topology, Demands[] demands, DelayRequests delays,EvaluationType type2)
@@ -68,7 +71,19 @@ public class SRIntegerEvaluationMO extends AbstractMultiobjectiveEvaluationFunct
 		Double[] resultList =  new Double[2];
 			
 		int[] weights = decode(solution);
-		double[] fitness = evalWeightsMO(weights);
+		double[] fitness = null;
+		long context = 0;
+		if (cache != null) {
+			long delaysId = type == EvaluationType.DEMANDS_DELAY ? FitnessCache.context(delays) : 0;
+			context = FitnessCache.context(type.ordinal(), loadBalancer.ordinal(), delaysId,
+					FitnessCache.context(demands), FitnessCache.topologyState(topology));
+			fitness = cache.get(weights, context);
+		}
+		if (fitness == null) {
+			fitness = evalWeightsMO(weights);
+			if (cache != null)
+				cache.put(weights, context, fitness);
+		}
 	        
 		resultList[0]=new Double(fitness[0]);
 		resultList[1]=new Double(fitness[1]);
@@ -78,12 +93,7 @@ public class SRIntegerEvaluationMO extends AbstractMultiobjectiveEvaluationFunct
 	
 	protected int[] decode (ILinearRepresentation<Integer> solution)
 	{
-		int[] res = new int[solution.getNumberOfElements()];
-		for(int i=0; i < solution.getNumberOfElements(); i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 	
 	
@@ -126,7 +136,10 @@ public class SRIntegerEvaluationMO extends AbstractMultiobjectiveEvaluationFunct
 		Demands[] d = new Demands[demands.length];
 		for(int i=0; i<demands.length;i++)
 			d[i]=demands[i].copy();
-		return new SRIntegerEvaluationMO (topology.copy(), d, delays.copy(), type);
+		SRIntegerEvaluationMO e = new SRIntegerEvaluationMO (topology.copy(), d, delays!=null?delays.copy():null, type);
+		e.setLoadBalancer(loadBalancer);
+		e.setFitnessCache(cache);
+		return e;
 	}
 
 	@Override
@@ -138,4 +151,17 @@ public class SRIntegerEvaluationMO extends AbstractMultiobjectiveEvaluationFunct
 	public void setLoadBalancer(LoadBalancer lb){
 		this.loadBalancer=lb;
 	}
+
+
+	/**
+	 * Shares a fitness cache, null disables caching
+	 */
+	public void setFitnessCache(FitnessCache cache) {
+		this.cache = cache;
+	}
+
+
+	public FitnessCache getFitnessCache() {
+		return cache;
+	}
 }
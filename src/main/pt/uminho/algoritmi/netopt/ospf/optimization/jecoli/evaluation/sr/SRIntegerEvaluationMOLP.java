@@ -25,6 +25,7 @@ import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionI
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import pt.uminho.algoritmi.netopt.cplex.SRLoadBalancingPhiSolver;
 import pt.uminho.algoritmi.netopt.cplex.SRLoadBalancingSolver;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkLoads;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
@@ -74,11 +75,7 @@ public class SRIntegerEvaluationMOLP extends AbstractMultiobjectiveEvaluationFun
 	}
 
 	protected int[] decode(ILinearRepresentation<Integer> solution) {
-		int[] res = new int[solution.getNumberOfElements()];
-		for (int i = 0; i < solution.getNumberOfElements(); i++) {
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 
 	protected Double[] evalWeightsMO(int[] weights) throws Exception {
@@ -20,10 +20,8 @@
 package pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.sr;
 
 import java.util.Arrays;
-import java.util.OptionalDouble;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import jecoli.algorithm.components.evaluationfunction.AbstractMultiobjectiveEvaluationFunction;
 import jecoli.algorithm.components.evaluationfunction.IEvaluationFunction;
@@ -31,6 +29,10 @@ import jecoli.algorithm.components.evaluationfunction.InvalidEvaluationFunctionI
 import jecoli.algorithm.components.representation.linear.ILinearRepresentation;
 import pt.uminho.algoritmi.netopt.SystemConf;
 import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.algorithm.representation.integer.IntegerArrayRepresentation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.AdaptiveEvaluation;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.FitnessCache;
+import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.evaluation.LinkFailureExecutor;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkLoads;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
@@ -39,7 +41,7 @@ import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
 import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.SRSimul;
 import pt.uminho.algoritmi.netopt.ospf.utils.MathUtils;
 
-public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>>{
+public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFunction<ILinearRepresentation<Integer>> implements AdaptiveEvaluation{
 
 	
 	public enum LFObjectives{
@@ -52,11 +54,14 @@ public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFun
 	private LoadBalancer loadBalancer;
 	private LFObjectives objectives;
 	private int[] worstEdgeCount;
+	// counts of a copy when it was made or last merged
+	private int[] mergedCount;
 	
 	
 	private double EVALUATE_ALL_EDGES_PROBABILITY = 0.1;
 	private double LINKS_SAMPLE_FRACTION = 0.3;
 	private int NTHREADS = 4;
+	private transient BlockingQueue<Context> contexts;
 	
 	
 	/**
@@ -93,8 +98,20 @@ public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFun
 
 	@Override
 	public IEvaluationFunction<ILinearRepresentation<Integer>> deepCopy() throws Exception {
-		// TODO Auto-generated method stub
-		return null;
+		SRLinkFailureEvaluation e = new SRLinkFailureEvaluation(topology.copy(), demands.copy(), loadBalancer,
+				objectives);
+		e.worstEdgeCount = worstEdgeCount.clone();
+		e.mergedCount = worstEdgeCount.clone();
+		return e;
+	}
+
+	@Override
+	public synchronized void merge(AdaptiveEvaluation function) {
+		SRLinkFailureEvaluation copy = (SRLinkFailureEvaluation) function;
+		for (int i = 0; i < worstEdgeCount.length; i++)
+			worstEdgeCount[i] += copy.worstEdgeCount[i] - copy.mergedCount[i];
+		copy.worstEdgeCount = worstEdgeCount.clone();
+		copy.mergedCount = worstEdgeCount.clone();
 	}
 
 	@Override
@@ -117,12 +134,7 @@ public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFun
 	
 	protected int[] decode (ILinearRepresentation<Integer> solution)
 	{
-		int[] res = new int[solution.getNumberOfElements()];
-		for(int i=0; i < solution.getNumberOfElements(); i++)
-		{
-			res[i] = solution.getElementAt(i);
-		}
-		return res;
+		return IntegerArrayRepresentation.toArray(solution);
 	}
 	
 	
@@ -141,27 +153,23 @@ public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFun
 		int worstEdgeIndex=0;
 		double mlu = 0;
 		double congestion=0;
-		NetworkTopology t = topology.copy();
+		Context context = checkOut();
 		
-		for(int i=0;i<t.getNetGraph().getNEdges();i++){
-			SRSimul s = new SRSimul(t,this.loadBalancer);
-			NetEdge e =t.getNetGraph().getEdge(i);
-			t.setEdgeStatus(e, Graph.Status.DOWN);
-			
-			s.evalWeights(weights, demands);		
-			NetworkLoads load=s.getLoads();
-			
-			double _mlu = load.getMLU();
-			double _cong = load.getCongestion();
-			
-			//reset link status 
-			t.setEdgeStatus(e, Graph.Status.UP);
-			if(_mlu>mlu)
-				mlu=_mlu;
-			if(_cong>congestion){
-				congestion=_cong;
-				worstEdgeIndex=i;
+		try {
+			for(int i=0;i<topology.getNetGraph().getNEdges();i++){
+				double[] r = context.evalFailure(weights,i,false);
+				double _mlu = r[1];
+				double _cong = r[0];
+				
+				if(_mlu>mlu)
+					mlu=_mlu;
+				if(_cong>congestion){
+					congestion=_cong;
+					worstEdgeIndex=i;
+				}
 			}
+		} finally {
+			checkIn(context);
 		}
 		
 		if(this.objectives == LFObjectives.CONGESTION_MLU)
@@ -176,11 +184,7 @@ public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFun
 	
 	public Double[] evaluateLinkFailureMultiThread(int threads,int[] weights) throws InterruptedException{
 		
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		CountDownLatch latch = new CountDownLatch(threads);
-		ComputeUnit[] runnables = new ComputeUnit[threads];
 		Double[] res = new Double[2];
-		boolean useDEFT = this.loadBalancer==LoadBalancer.DEFT;
 		//first objective
 		SRSimul simul = new SRSimul(topology,this.loadBalancer);
 		simul.evalPValues(null, weights, demands);
@@ -220,41 +224,24 @@ public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFun
 		
 			
 		//multi-threaded second objective computation
-		for(int i=0;i<edges.length;i++)
-			edges[i]=i;
-		int from=0;
-		int n = edges.length/threads-1;
-		int t = edges.length%threads;
-		//split edges among threads
-		for(int i=0;i<threads;i++){
-			int to= from+n;
-			if(t>0)
-				to+=1;
-			int[] a=Arrays.copyOfRange(edges, from, to);
-			runnables[i]=new ComputeUnit(topology.copy(),Arrays.copyOf(weights,weights.length),demands,a,this.loadBalancer);
-			from = to+1;
-			t--;
-		}
-		// parallel link failure computation
-		for(ComputeUnit r : runnables) {
-		    r.setLatch(latch);
-		    exec.execute(r);
-		}
-
-		latch.await();
-		exec.shutdown();
+		// each failure is a task of the shared executor, evaluated on an
+		// idle context
+		double[][] r = LinkFailureExecutor.evaluate(threads, edges, e -> evalFailure(weights, e, true));
 		
 		if(this.objectives == LFObjectives.CONGESTION_MLU){
-			OptionalDouble mlu = Arrays.stream(runnables).mapToDouble(r -> r.getMaxMLU()).max();
-			res[1]=mlu.getAsDouble();
+			double mlu=0.0;
+			for(int i=0;i<r.length;i++)
+				if(r[i][1]>mlu)
+					mlu=r[i][1];
+			res[1]=mlu;
 		}
 		else{
-			double max=runnables[0].getMaxCong();
-			int e = runnables[0].getWorstEdge();
-			for(int i=1;i<runnables.length;i++){
-				if(runnables[i].getMaxCong()>max){
-					max=runnables[i].getMaxCong();
-					e = runnables[i].getWorstEdge();
+			double max=0.0;
+			int e = edges[0];
+			for(int i=0;i<r.length;i++){
+				if(r[i][0]>max){
+					max=r[i][0];
+					e = edges[i];
 				}
 			}
 			this.worstEdgeCount[e]++;	
@@ -276,70 +263,68 @@ public class SRLinkFailureEvaluation extends AbstractMultiobjectiveEvaluationFun
 	}
 	
 	
-	private class ComputeUnit implements Runnable {
+	/**
+	 * Takes an idle simulation context, or makes a new one. Contexts are
+	 * checked out for each use instead of kept per worker thread, as a worker
+	 * waiting on its tasks may run another evaluation meanwhile.
+	 */
+	private synchronized Context checkOut() {
+		if (contexts == null)
+			contexts = new LinkedBlockingQueue<Context>();
+		Context context = contexts.poll();
+		return context != null ? context : new Context();
+	}
+	
+	
+	private synchronized void checkIn(Context context) {
+		contexts.offer(context);
+	}
+	
+	
+	private double[] evalFailure(int[] weights, int edge, boolean pvalues) {
+		Context context = checkOut();
+		try {
+			return context.evalFailure(weights, edge, pvalues);
+		} finally {
+			checkIn(context);
+		}
+	}
+	
+	
+	/**
+	 * Simulation context of an evaluation: a copy of the topology and its
+	 * simulator. The copy is replaced when the status of the links or the type
+	 * of the nodes of the topology change.
+	 */
+	private class Context {
 
-		
 		private NetworkTopology topo;
-		private int[] w;
-		private Demands d; 
-		private int[] e;
-		private double m;
-		private double c;
-		private LoadBalancer lb;
-		private CountDownLatch latch;
-		int worstEdge;
-
-		
-		public ComputeUnit(NetworkTopology topology, int[] weights, Demands demands, int[] edges,LoadBalancer lb){
-			this.topo=topology;
-			this.w=weights;
-			this.d= demands;
-			this.e =edges;
-			this.m=0.0;
-			this.lb=lb;
-		}
-		
-		public void setLatch(CountDownLatch latch) {
-		    this.latch = latch;
-		  }
-		
-		public double getMaxMLU(){
-			return this.m;
-		}
-		
-		public double getMaxCong(){
-			return this.c;
-		}
+		private SRSimul simul;
+		private long state;
 		
-		public int getWorstEdge(){
-			return this.worstEdge;
-		}
-		
-		@Override
-		public void run() {
-			SRSimul simul = new SRSimul(topo,this.lb);
-			double maxMLU=0.0;
-			double maxCong =0.0;
-			worstEdge =e[0];
-			for(int i=0;i<e.length;i++){
-				NetEdge edge= topo.getNetGraph().getEdge(e[i]);  
-				topo.setEdgeStatus(edge, Graph.Status.DOWN);
-				simul.evalPValues(null, w, d);		// p-values are set to default
-				NetworkLoads load=simul.getLoads();
-				double mlu = load.getMLU();
-				double c= load.getCongestion();
-				if(mlu>maxMLU)
-					maxMLU=mlu;
-				if(c>maxCong){
-					maxCong = c;
-					worstEdge=e[i];
-				}
-				topo.setEdgeStatus(edge, Graph.Status.UP);
+		/**
+		 * @return the congestion and MLU when the edge fails
+		 */
+		public double[] evalFailure(int[] weights, int edge, boolean pvalues) {
+			long s = FitnessCache.topologyState(topology);
+			if (topo == null || s != state) {
+				topo = topology.copy();
+				simul = new SRSimul(topo, loadBalancer);
+				state = s;
 			}
-			this.m=maxMLU;
-			this.c = maxCong;
-			latch.countDown();
-		}	
+			NetEdge e = topo.getNetGraph().getEdge(edge);
+			topo.updateEdgeStatus(e, Graph.Status.DOWN);
+			try {
+				if (pvalues)
+					simul.evalPValues(null, weights, demands); // p-values are set to default
+				else
+					simul.evalWeights(weights, demands);
+				NetworkLoads load = simul.getLoads();
+				return new double[] { load.getCongestion(), load.getMLU() };
+			} finally {
+				topo.updateEdgeStatus(e, Graph.Status.UP);
+			}
+		}
 	}
 	
 }
@@ -35,6 +35,11 @@ import pt.uminho.algoritmi.netopt.ospf.utils.MathUtils;
 public class DelayRequests implements Serializable{
 	double[][] delayReqs; // delay requirements (end to end nodes)
 	private String filename;
+	// changed by every update through this class, used to validate cached values
+	private transient int version;
+	// hash of the delay requirements and the version it was computed at, plus one
+	private transient long fingerprint;
+	private transient int fingerprintVersion;
 
 	public DelayRequests(int n) {
 		allocateDelayRequests(n);
@@ -60,7 +65,33 @@ public class DelayRequests implements Serializable{
 		return this.delayReqs.length;
 	}
 
+	/**
+	 * @return a counter incremented whenever the delay requirements are
+	 *         changed through this class; writes to the array returned by
+	 *         getDelayRequests() are not tracked
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return a 64 bit hash of the delay requirements, equal for copies of the
+	 *         same requirements and recomputed only when the version changes
+	 */
+	public synchronized long getFingerprint() {
+		if (fingerprintVersion != version + 1) {
+			long h = delayReqs.length;
+			for (int i = 0; i < delayReqs.length; i++)
+				for (int j = 0; j < delayReqs[i].length; j++)
+					h = (h ^ Double.doubleToLongBits(delayReqs[i][j])) * 0x9E3779B97F4A7C15L;
+			fingerprint = h ^ (h >>> 31);
+			fingerprintVersion = version + 1;
+		}
+		return fingerprint;
+	}
+
 	protected void allocateDelayRequests(int n) {
+		version++;
 		this.delayReqs = new double[n][n];
 		for (int i = 0; i < n; i++) {
 			for (int j = 0; j < n; j++)
@@ -69,6 +100,7 @@ public class DelayRequests implements Serializable{
 	}
 
 	public void setDelayRequest(int i, int j, double value) {
+		version++;
 		this.delayReqs[i][j] = value;
 	}
 
@@ -126,6 +158,7 @@ public class DelayRequests implements Serializable{
 		FileReader f = new FileReader(filename);
 		BufferedReader b = new BufferedReader(f);
 
+		version++;
 		delayReqs = new double[n][n];
 		for (int s = 0; s < n; s++)
 			for (int t = 0; t < n; t++)
@@ -36,6 +36,11 @@ import pt.uminho.algoritmi.netopt.ospf.utils.MathUtils;
 public class Demands implements Serializable {
 	double[][] demands; // demands
 	private String filename;
+	// changed by every update through this class, used to validate cached values
+	private transient int version;
+	// hash of the demand values and the version it was computed at, plus one
+	private transient long fingerprint;
+	private transient int fingerprintVersion;
 
 	public Demands(int dimension) {
 		allocateDemands(dimension);
@@ -59,6 +64,31 @@ public class Demands implements Serializable {
 		return this.demands;
 	}
 
+	/**
+	 * @return a counter incremented whenever the demands are changed through
+	 *         this class; writes to the array returned by getDemands() are
+	 *         not tracked
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return a 64 bit hash of the demand values, equal for copies of the same
+	 *         demands and recomputed only when the version changes
+	 */
+	public synchronized long getFingerprint() {
+		if (fingerprintVersion != version + 1) {
+			long h = demands.length;
+			for (int i = 0; i < demands.length; i++)
+				for (int j = 0; j < demands[i].length; j++)
+					h = (h ^ Double.doubleToLongBits(demands[i][j])) * 0x9E3779B97F4A7C15L;
+			fingerprint = h ^ (h >>> 31);
+			fingerprintVersion = version + 1;
+		}
+		return fingerprint;
+	}
+
 	public int getDimension() {
 		return this.demands.length;
 	}
@@ -82,6 +112,7 @@ public class Demands implements Serializable {
 	}
 
 	protected void allocateDemands(int n) {
+		version++;
 		this.demands = new double[n][n];
 		for (int i = 0; i < n; i++) {
 			for (int j = 0; j < n; j++)
@@ -94,6 +125,7 @@ public class Demands implements Serializable {
 	 * dimension
 	 */
 	public void readDemands(int n, String filename) throws Exception {
+		version++;
 		FileReader f = new FileReader(filename);
 		BufferedReader B = new BufferedReader(f);
 
@@ -119,6 +151,7 @@ public class Demands implements Serializable {
 	// Generates demands from the graph (Fortz and Thorup 2000)
 	// D - parameter to control congestion of the network
 	public void generateDemands(SPFElement[][] sol, double D, NetGraph bgr) {
+		version++;
 		int n = this.demands.length;
 
 		for (int s = 0; s < n; s++)
@@ -152,18 +185,14 @@ public class Demands implements Serializable {
 		int numlinks = topology.getGraph().countEdges();
 		double avcap = topology.getGraph().averageCapacity();
 
-		topology.setUnitWeights();
-		topology.shortestDistances();
-
-		// Vector sol = sp.getSolution();
-		double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-		SPFElement[][] preds = topology.getShortestPathGraph().getSolPreds();
+		// hop counts, 0 if t is not reachable from s
+		double[][] dists = topology.getHopCounts();
 
 		double sum = 0.0;
 		// for(int k= 0; k < sol.size(); k++)
-		for (int s = 0; s < preds.length; s++)
-			for (int t = 0; t < preds.length; t++)
-				if (s != t && preds[s][t] != null) // predecessors
+		for (int s = 0; s < dists.length; s++)
+			for (int t = 0; t < dists.length; t++)
+				if (s != t && dists[s][t] > 0) // predecessors
 				{
 					// DijkstraNode dn = (DijkstraNode)sol.get(k);
 					// double hops = dn.getDist();
@@ -253,10 +282,12 @@ public class Demands implements Serializable {
 	}
 
 	public void setDemands(int i, int j, double value) {
+		version++;
 		this.demands[i][j] = value;
 	}
 
 	public void add(Demands demand) {
+		version++;
 		for (int i = 0; i < demands.length; i++) {
 			for (int j = 0; j < demands.length; j++) {
 				demands[i][j] += demand.getDemands(i, j);
@@ -265,14 +296,17 @@ public class Demands implements Serializable {
 	}
 	
 	public void add(int i, int j, double value) {
+		version++;
 			demands[i][j] += value;
 	}
 	
 	public void subtract(int i, int j, double value) {
+		version++;
 		demands[i][j] -= value;
 	}
 	
 	public void subtract(Demands demand) {
+		version++;
 		for (int i = 0; i < demands.length; i++) {
 			for (int j = 0; j < demands.length; j++) {
 				demands[i][j] -= demand.getDemands(i, j);
@@ -283,6 +317,7 @@ public class Demands implements Serializable {
 	
 	
 	public void mutiply(double factor) {
+		version++;
 		for (int i = 0; i < demands.length; i++) {
 			for (int j = 0; j < demands.length; j++) {
 				demands[i][j] *= factor;
@@ -326,6 +361,7 @@ public class Demands implements Serializable {
 	
 	
 	public void divide(int divider) {
+		version++;
 		for(int i=0;i<demands.length;i++)
 			for(int j=0;j<demands.length;j++)
 				this.demands[i][j]/=divider;
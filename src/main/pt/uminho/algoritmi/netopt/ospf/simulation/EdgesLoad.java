@@ -20,13 +20,11 @@
 */
 package pt.uminho.algoritmi.netopt.ospf.simulation;
 
-import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.ISimulator;
 import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.PDEFTSimul;
 import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.SRSimul;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -52,13 +50,35 @@ public class EdgesLoad {
 		LEFT_RIGHT, BOTH;
 	}
 
+	// null until the loads are computed; never modified once built, so
+	// copies share it
+	private RoutingMatrix routing;
+	// partial loads by edge id, built from the routing matrix when first
+	// requested
 	private Map<Integer, List<PartialEdgeLoad>> edgesLoad;
 
 	public EdgesLoad() {
-		edgesLoad = new HashMap<Integer, List<PartialEdgeLoad>>();
 	}
 
+	/**
+	 * @return the partial loads of each edge id, built from the routing
+	 *         matrix on the first call after the loads are computed
+	 */
 	public Map<Integer, List<PartialEdgeLoad>> getEdgesLoad() {
+		if (edgesLoad != null)
+			return edgesLoad;
+		edgesLoad = new HashMap<Integer, List<PartialEdgeLoad>>();
+		if (routing == null)
+			return edgesLoad;
+		for (int e : routing.getEdgeIds()) {
+			for (int k = routing.getStart(e); k < routing.getEnd(e); k++) {
+				if (!edgesLoad.containsKey(e)) {
+					edgesLoad.put(e, new ArrayList<PartialEdgeLoad>());
+				}
+				edgesLoad.get(e).add(new PartialEdgeLoad(routing.getSource(k), routing.getDestination(k),
+						routing.getFraction(k) * 100, routing.getInNode(k), routing.getOutNode(k)));
+			}
+		}
 		return edgesLoad;
 	}
 
@@ -83,10 +103,9 @@ public class EdgesLoad {
 	public void computeLoads(NetworkTopology topology, OSPFWeights weights, LoadBalancer lb, boolean sr)
 			throws DimensionErrorException {
 
-		int dim = topology.getDimension();
 		topology.applyWeights(weights);
 		topology.shortestDistances();
-		ISimulator simul;
+		Simul simul;
 		if (!sr)
 			switch (lb) {
 			case DEFT:
@@ -103,35 +122,8 @@ public class EdgesLoad {
 		else
 			simul = new SRSimul(topology, lb);
 
-		double[][] demands = new double[dim][dim];
-		for (int i = 0; i < dim; i++)
-			for (int j = 0; j < dim; j++)
-				demands[i][j] = 0.0;
-
-		for (int src = 0; src < dim; src++) {
-			for (int dst = 0; dst < dim; dst++) {
-				if (src != dst) {
-					// compute loads
-					demands[src][dst] = 100.0;
-					double[][] load = simul.partialLoads(dst, new Demands(demands));
-
-					demands[src][dst] = 0.0;
-					// map load to edges
-					for (int i = 0; i < dim; i++) {
-						for (int j = 0; j < dim; j++) {
-							if (load[i][j] != 0.0) {
-								int e = topology.getNetGraph().getEdge(i, j).getEdgeId();
-								if (!edgesLoad.containsKey(e)) {
-									edgesLoad.put(e, new ArrayList<PartialEdgeLoad>());
-								}
-								PartialEdgeLoad l = new PartialEdgeLoad(src, dst, load[i][j], i, j);
-								edgesLoad.get(e).add(l);
-							}
-						}
-					}
-				}
-			}
-		}
+		this.routing = new RoutingMatrix(topology, simul);
+		this.edgesLoad = null;
 	}
 
 	public class PartialEdgeLoad {
@@ -195,20 +187,18 @@ public class EdgesLoad {
 		Demands d1 = new Demands(demand.getDimension());
 		Demands d2 = new Demands(demand.getDimension());
 
-		if (this.edgesLoad.containsKey(edge.getEdgeId())) {
-			Iterator<PartialEdgeLoad> it = this.edgesLoad.get(edge.getEdgeId()).iterator();
-			while (it.hasNext()) {
-				PartialEdgeLoad next = it.next();
-				int src = next.getSource();
-				int dst = next.getDestination();
-				double percentage = next.getTrafficPercentage() / 100;
-				double d = percentage * demand.getDemands(src, dst);
+		if (routing != null) {
+			int e = edge.getEdgeId();
+			for (int k = routing.getStart(e); k < routing.getEnd(e); k++) {
+				int src = routing.getSource(k);
+				int dst = routing.getDestination(k);
+				double d = routing.getFraction(k) * demand.getDemands(src, dst);
 				d0.subtract(src, dst, d);
 				// traffic from src to dst
 				if (in.equals(EdgeNodeIn.BOTH))
 					d1.add(src, dst, d);
 				else {
-					if (next.getINNode() == edge.getTo())
+					if (routing.getInNode(k) == edge.getTo())
 						d1.add(src, dst, d);
 					else
 						d2.add(src, dst, d);
@@ -241,22 +231,20 @@ public class EdgesLoad {
 		Demands d1 = new Demands(demand.getDimension());
 		Demands d2 = new Demands(demand.getDimension());
 
-		if (this.edgesLoad.containsKey(edge.getEdgeId())) {
-			Iterator<PartialEdgeLoad> it = this.edgesLoad.get(edge.getEdgeId()).iterator();
-			while (it.hasNext()) {
-				PartialEdgeLoad next = it.next();
-				int src = next.getSource();
-				int dst = next.getDestination();
-				int innode = next.getINNode();
-				double percentage = next.getTrafficPercentage() / 100;
-				double d = percentage * demand.getDemands(src, dst);
+		if (routing != null) {
+			int e = edge.getEdgeId();
+			for (int k = routing.getStart(e); k < routing.getEnd(e); k++) {
+				int src = routing.getSource(k);
+				int dst = routing.getDestination(k);
+				int innode = routing.getInNode(k);
+				double d = routing.getFraction(k) * demand.getDemands(src, dst);
 				d0.subtract(src, dst, d);
 				// traffic from src to PLR
 				d0.add(src, innode, d);
 				// traffic from PLR to dst
 				if (in.equals(EdgeNodeIn.BOTH))
 					d1.add(innode, dst, d);
-				else if (next.getINNode() == edge.getTo())
+				else if (innode == edge.getTo())
 					d1.setDemands(innode, dst, d);
 				else
 					d2.setDemands(innode, dst, d);
@@ -278,19 +266,22 @@ public class EdgesLoad {
 
 	public String getString(NetEdge edge) {
 		StringBuffer bf = new StringBuffer();
-		if (this.edgesLoad.containsKey(edge.getEdgeId())) {
-			Iterator<PartialEdgeLoad> it = this.edgesLoad.get(edge.getEdgeId()).iterator();
-			while (it.hasNext()) {
-				PartialEdgeLoad next = it.next();
-				bf.append(next.toString());
-			}
+		if (routing != null) {
+			int e = edge.getEdgeId();
+			for (int k = routing.getStart(e); k < routing.getEnd(e); k++)
+				bf.append(new PartialEdgeLoad(routing.getSource(k), routing.getDestination(k),
+						routing.getFraction(k) * 100, routing.getInNode(k), routing.getOutNode(k)));
 		}
 		return bf.toString();
 	}
 
+	/**
+	 * @return an EdgesLoad with the same routing matrix, which builds its own
+	 *         partial loads map
+	 */
 	public EdgesLoad copy() {
 		EdgesLoad el = new EdgesLoad();
-
+		el.routing = this.routing;
 		return el;
 	}
 
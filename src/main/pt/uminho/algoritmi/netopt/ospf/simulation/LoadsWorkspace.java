@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Scratch buffers reused by the load computations. Each thread has its own
+ * workspace, so simulators running in distinct threads never share buffers.
+ * 
+ * The buffers are not reentrant: each get method hands out the same array
+ * until it is released, and zeroes it, so a nested computation asking for a
+ * buffer its caller holds would wipe the caller's loads. A buffer must be
+ * released (in a finally block) before it is asked for again in the same
+ * thread; asking for a buffer in use throws IllegalStateException. Buffers
+ * must not be held while waiting on fork/join tasks, as the waiting thread
+ * may run other computations meanwhile.
+ */
+public final class LoadsWorkspace {
+
+	private static final ThreadLocal<LoadsWorkspace> WORKSPACE = ThreadLocal.withInitial(LoadsWorkspace::new);
+
+	private double[] arcLoads = new double[0];
+	private double[] arcLoads2 = new double[0];
+	private boolean arcLoadsInUse, arcLoads2InUse;
+
+	private LoadsWorkspace() {
+	}
+
+	/**
+	 * @return the workspace of the calling thread
+	 */
+	public static LoadsWorkspace get() {
+		return WORKSPACE.get();
+	}
+
+	/**
+	 * @return a zeroed buffer with one entry per arc
+	 * @throws IllegalStateException
+	 *             if the buffer was not released
+	 */
+	public double[] getArcLoads(int arcs) {
+		if (arcLoadsInUse)
+			throw new IllegalStateException("arc loads buffer in use");
+		arcLoads = zeroed(arcLoads, arcs);
+		arcLoadsInUse = true;
+		return arcLoads;
+	}
+
+	/**
+	 * @return a second zeroed buffer with one entry per arc, distinct from
+	 *         {@link #getArcLoads(int)}
+	 * @throws IllegalStateException
+	 *             if the buffer was not released
+	 */
+	public double[] getSecondArcLoads(int arcs) {
+		if (arcLoads2InUse)
+			throw new IllegalStateException("second arc loads buffer in use");
+		arcLoads2 = zeroed(arcLoads2, arcs);
+		arcLoads2InUse = true;
+		return arcLoads2;
+	}
+
+	/**
+	 * Gives back a buffer handed out by getArcLoads or getSecondArcLoads
+	 */
+	public void release(double[] loads) {
+		if (loads == arcLoads)
+			arcLoadsInUse = false;
+		else if (loads == arcLoads2)
+			arcLoads2InUse = false;
+	}
+
+	private static double[] zeroed(double[] loads, int arcs) {
+		if (loads.length < arcs)
+			return new double[arcs];
+		Arrays.fill(loads, 0, arcs, 0.0);
+		return loads;
+	}
+}
@@ -24,15 +24,29 @@ import java.io.FileWriter;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
 import pt.uminho.algoritmi.netopt.ospf.graph.CapWGraph;
 
 
-
+/**
+ * Loads of the links of a topology.
+ * 
+ * Loads are kept per arc of the CSR view of the topology graph, as only
+ * links carry traffic, and the measures are computed in a single pass over
+ * the arcs. The N x N matrices returned by getLoads() and getU() are built
+ * on request; once getLoads() was called, the loads are kept in the matrix,
+ * so that changes made to it are seen by the measures.
+ */
 @SuppressWarnings("serial")
 public class NetworkLoads extends ResultSimul implements Serializable
 {	
+	// loads of each arc, null when the loads are kept in the loads matrix
+	protected double [] arcLoads;
+	// utilization of each arc, as set by computeU
+	protected double [] arcU;
 	protected double [][] loads; 
 	protected double [][] u;  
+	private CapWGraph uGraph;
 	private String name="Network Loads";
 	private NetworkTopology topology;
 	private double congestion; 
@@ -41,8 +55,7 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	public NetworkLoads(NetworkTopology topo)
 	{
 		this.topology=topo.copy();
-		this.loads = new double[topology.getDimension()][topology.getDimension()];
-		this.u = new double[topology.getDimension()][topology.getDimension()];
+		this.arcLoads = new double[getCSR().getNumberOfArcs()];
 		computeU(topology.getGraph());
 		
 	}
@@ -51,44 +64,122 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	{
 		this.topology=topo.copy();
 		this.loads = loads;
-		this.u = new double[loads.length][loads.length];
 		computeU(topology.getGraph());
 		
 	}
 	
+	/**
+	 * @param arcLoads
+	 *            load of each arc of the CSR view of the topology graph
+	 * @param topo
+	 */
+	public NetworkLoads(double[] arcLoads,NetworkTopology topo)
+	{
+		this.topology=topo.copy();
+		this.arcLoads = arcLoads;
+		computeU(topology.getGraph());
+	}
+	
+	/**
+	 * Arcs of the loads, in the order of the arc vectors
+	 */
+	public CSRGraph getCSR()
+	{
+		return topology.getGraph().getCSR();
+	}
+	
+	/**
+	 * Matrix of the loads, built from the arc loads on the first call
+	 */
 	public double[][] getLoads ()
 	{
+		if (loads == null) {
+			loads = toMatrix(arcLoads);
+			arcLoads = null;
+		}
 		return loads;
 	}
 	
 	public void setLoads(double[][] loads)
 	{
 		this.loads = loads;
+		this.arcLoads = null;
+	}
+	
+	/**
+	 * @return the load of each arc, a copy if the loads are kept in a matrix
+	 */
+	public double[] getArcLoads()
+	{
+		if (arcLoads != null)
+			return arcLoads;
+		CSRGraph csr = getCSR();
+		double[] res = new double[csr.getNumberOfArcs()];
+		for (int a = 0; a < res.length; a++)
+			res[a] = getArcLoad(a);
+		return res;
+	}
+	
+	public void setArcLoads(double[] arcLoads)
+	{
+		this.arcLoads = arcLoads;
+		this.loads = null;
+		this.u = null;
+	}
+	
+	public double getArcLoad(int arc)
+	{
+		if (arcLoads != null)
+			return arcLoads[arc];
+		CSRGraph csr = getCSR();
+		return loads[csr.getSource(arc)][csr.getTarget(arc)];
 	}
 	
 	public double getLoads(int i,int j)
 	{
-		return this.loads[i][j];
+		if (arcLoads == null)
+			return this.loads[i][j];
+		int a = getCSR().getArc(i, j);
+		return a == -1 ? 0.0 : arcLoads[a];
 	}
 	
 	
 	public void addLoads(double[][] load) 
 	{
+		double[][] loads = getLoads();
 		int dimension = loads.length;
 		for(int i=0;i<dimension;i++)
 			for(int j=0;j<dimension;j++)
-				this.loads[i][j]+=load[i][j];
+				loads[i][j]+=load[i][j];
 			
 	}
 	
+	/**
+	 * Matrix of the link utilizations, built on request
+	 */
 	public double[][] getU ()
 	{
+		if (u == null) {
+			int dimension = getDimension();
+			u = new double[dimension][dimension];
+			for(int i=0; i < dimension; i++)
+				for(int j=0; j < dimension; j++)	
+					u[i][j] = getLoads(i, j)/ uGraph.getCapacity(i,j);
+		}
 		return u;
 	}
 	
 	public double getU (int i, int j)
 	{
-		return this.u[i][j];
+		int a = getCSR().getArc(i, j);
+		if (a != -1)
+			return arcU[a];
+		return getLoads(i, j) / uGraph.getCapacity(i, j);
+	}
+
+	public double getArcU(int arc)
+	{
+		return arcU[arc];
 	}
 
 	public void setCongestion(double congestion)
@@ -104,18 +195,30 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	// compute congestion values: load/ capacity
 	public void computeU (CapWGraph graph)
 	{
-		int dimension = loads.length;
-		
-		u = new double[dimension][dimension];
-		for(int i=0; i < dimension; i++)
-			for(int j=0; j < dimension; j++)	
-				u[i][j] = loads[i][j]/ graph.getCapacity(i,j);
+		CSRGraph csr = getCSR();
+		int arcs = csr.getNumberOfArcs();
+		if (arcU == null || arcU.length != arcs)
+			arcU = new double[arcs];
+		for (int a = 0; a < arcs; a++)
+			arcU[a] = getArcLoad(a) / graph.getCapacity(csr.getSource(a), csr.getTarget(a));
+		this.uGraph = graph;
+		this.u = null;
 	}
 	
+	private double[][] toMatrix(double[] arcLoads)
+	{
+		CSRGraph csr = getCSR();
+		int dimension = topology.getDimension();
+		double[][] m = new double[dimension][dimension];
+		for (int a = 0; a < csr.getNumberOfArcs(); a++)
+			m[csr.getSource(a)][csr.getTarget(a)] = arcLoads[a];
+		return m;
+	}
 	
 	
 	public void saveLoads (String file) throws Exception
 	{
+		double[][] loads = getLoads();
 		int dimension = loads.length;
 		
 		FileWriter f=new FileWriter(file);
@@ -136,12 +239,12 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	//set dimension as a variable?
 	public void printLoads ()
 	{
-		int dimension = loads.length;
+		int dimension = getDimension();
 		DecimalFormat df=new DecimalFormat("#.##");
 		for(int i=0; i < dimension; i++)
 		{
 			for(int j=0; j < dimension; j++)	
-				System.out.print(df.format(loads[i][j]) + " ");
+				System.out.print(df.format(getLoads(i, j)) + " ");
 			System.out.println(" ");
 		}
 	}
@@ -156,17 +259,20 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	
 	
 	public double getTotalLoads(){
-		int dimension=loads.length;
+		int arcs = getCSR().getNumberOfArcs();
 		double t=0.0;
-		for(int i=0; i < dimension; i++)
-			for(int j=0; j < dimension; j++)	
-				t+=loads[i][j];
+		for(int a=0; a < arcs; a++)
+			t+=getArcLoad(a);
 		return t;
 	}
 
 	
 	public void setLoads(int i, int j, double value) {
-		loads[i][j]=value;
+		int a = arcLoads != null ? getCSR().getArc(i, j) : -1;
+		if (a != -1)
+			arcLoads[a] = value;
+		else
+			getLoads()[i][j] = value;
 		//NOTE : should update U? 
 	}
 
@@ -182,10 +288,9 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	 */
 	public double getMLU() {
 		double res=0.0;
-		for(int i=0;i<u.length;i++)
-			for(int j=0;j<u.length;j++)
-				if(u[i][j]>res)
-					res=u[i][j];
+		for(int a=0;a<arcU.length;a++)
+			if(arcU[a]>res)
+				res=arcU[a];
 		return res;
 	}
 	
@@ -197,11 +302,10 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	 */
 	public double getALU() {
 		double sum=0.0;
-		for(int i=0;i<u.length;i++)
-			for(int j=0;j<u.length;j++){
-				if(u[i][j]>=0)
-					sum+=u[i][j];
-			}
+		for(int a=0;a<arcU.length;a++){
+			if(arcU[a]>=0)
+				sum+=arcU[a];
+		}
 		
 		return (sum/topology.getNumberEdges());
 	}
@@ -221,10 +325,6 @@ public class NetworkLoads extends ResultSimul implements Serializable
 		 */
 		
 		double res =0.0;
-		for(int i=0;i<u.length;i++)
-			for(int j=0;j<u.length;j++){
-				
-		}
 		return res;
 	}
 	
@@ -234,10 +334,9 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	 */
 	public double getlLLU() {
 		double res=0.0;
-		for(int i=0;i<u.length;i++)
-			for(int j=0;j<u.length;j++)
-				if(u[i][j]<res)
-					res=u[i][j];
+		for(int a=0;a<arcU.length;a++)
+			if(arcU[a]<res)
+				res=arcU[a];
 		return res;
 	}
 
@@ -250,17 +349,16 @@ public class NetworkLoads extends ResultSimul implements Serializable
 	public double getUsageRange(){
 		double max=0.0;
 		double min=0.0;
-		for(int i=0;i<u.length;i++)
-			for(int j=0;j<u.length;j++)
-				if(u[i][j]<min)
-					min=u[i][j];
-				else if(u[i][j]>max)
-					max=u[i][j];
+		for(int a=0;a<arcU.length;a++)
+			if(arcU[a]<min)
+				min=arcU[a];
+			else if(arcU[a]>max)
+				max=arcU[a];
 		return max-min;
 	}
 
 	public int getDimension() {
-		return this.loads.length;
+		return arcLoads == null ? this.loads.length : topology.getDimension();
 	}
 	
 }
@@ -21,13 +21,18 @@ package pt.uminho.algoritmi.netopt.ospf.simulation;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+import pt.uminho.algoritmi.netopt.SystemConf;
 import pt.uminho.algoritmi.netopt.ospf.graph.CapWGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.DialDijkstra;
 import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
 import pt.uminho.algoritmi.netopt.ospf.graph.Graph.Status;
+import pt.uminho.algoritmi.netopt.ospf.graph.HeapDijkstra;
 import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
-import pt.uminho.algoritmi.netopt.ospf.graph.SPFElement;
 import pt.uminho.algoritmi.netopt.ospf.graph.WGraph;
 import pt.uminho.algoritmi.netopt.ospf.listener.ITopologyChangeListener;
 import pt.uminho.algoritmi.netopt.ospf.listener.TopologyEvent;
@@ -41,80 +46,108 @@ import pt.uminho.algoritmi.netopt.ospf.utils.MathUtils;
 @SuppressWarnings("serial")
 public class NetworkTopology implements Serializable,ITopologyChangeListener {
 
+	/**
+	 * Shortest path algorithm implementation: MATRIX scans the full adjacency
+	 * matrix (O(N^3) for all pairs), HEAP uses a binary heap over UP arcs only
+	 * and DIAL a bucket queue with integer distances for integer weights
+	 * (falling back to HEAP otherwise). All yield the same routing.
+	 */
+	public enum SPFAlgorithm {
+		MATRIX, HEAP, DIAL
+	}
+
 	private MatDijkstra shortestPathGraph; // results shortest path algorithm (graph weights
 								// = OSPF weights)
-	private MatDijkstra euclidianDistanceSPGraph; // results shortest path algorithm (graph weights
-								// = euclidean dist)
+	private transient MatDijkstra euclidianDistanceSPGraph; // results shortest path algorithm (graph weights
+								// = euclidean dist), computed on first use
 	protected CapWGraph graph; // graph of nodes and links, weights, capacities
 	private String filenameNodes, filenameEdges;
 	private NetGraph bgr; // keeps information for nodes and edges
 	private String name;
+	private SPFAlgorithm spfAlgorithm = defaultSPFAlgorithm();
+
+	// hop counts between nodes over UP links, computed on a unit weights copy
+	// of the link status and valid while the status of graph is unchanged
+	private transient double[][] hopCounts;
+	private transient Graph hopCountsGraph;
+	private transient int hopCountsVersion;
+	// uncapacitated Phi of each demand matrix, for the current hop counts
+	private transient Map<Demands, double[]> phiUncapCache;
+	// load balancers of the current routing state, kept between evaluations
+	private transient RoutingCache routingCache;
+	// links of the NetGraph the edge positions of the CSR view of graph refer to
+	private transient NetEdge[] graphEdges;
 
 	// Topology Change Listener
 	public ArrayList<ITopologyChangeListener> listeners = new ArrayList<ITopologyChangeListener>();
 
 	public NetworkTopology(String filename) throws Exception {
 		this.bgr = new NetGraph(filename);
-		this.graph = bgr.createGraph();
-		this.shortestPathGraph = new MatDijkstra(graph);
-		this.euclidianDistanceSPGraph = new MatDijkstra(graph);
-		euclidianDistanceSPGraph.execute();
+		this.graph = createGraph();
+		this.shortestPathGraph = createSPF(graph, true);
 	}
 
 	public NetworkTopology(String filenameNodes, String filenameEdges) throws Exception {
 		this.filenameNodes = filenameNodes;
 		this.filenameEdges = filenameEdges;
 		this.bgr = new NetGraph(filenameNodes, filenameEdges);
-		this.graph = bgr.createGraph();
-		this.shortestPathGraph = new MatDijkstra(graph);
-		this.euclidianDistanceSPGraph = new MatDijkstra(graph);
-		euclidianDistanceSPGraph.execute(); // calculates shortest paths taking real distances into
-						// account; used in some heuristics
+		this.graph = createGraph();
+		this.shortestPathGraph = createSPF(graph, true);
 	}
 
 	public NetworkTopology(NetGraph brg) {
 		this.filenameNodes = null;
 		this.filenameEdges = null;
 		this.bgr = brg;
-		this.graph = bgr.createGraph();
-		this.shortestPathGraph = new MatDijkstra(graph);
-		this.euclidianDistanceSPGraph = new MatDijkstra(graph);
-		euclidianDistanceSPGraph.execute(); // calculates shortest paths taking real distances into
-						// account; used in some heuristics
+		this.graph = createGraph();
+		this.shortestPathGraph = createSPF(graph, true);
 	}
 
 	public NetworkTopology() {
 		this.bgr = new NetGraph();
-		this.graph = bgr.createGraph();
-		this.shortestPathGraph = new MatDijkstra(graph);
-		this.euclidianDistanceSPGraph = new MatDijkstra(graph);
-		euclidianDistanceSPGraph.execute(); // calculates shortest paths taking real distances into
-						// account; used in some heuristics
+		this.graph = createGraph();
+		this.shortestPathGraph = createSPF(graph, true);
 	}
 
 	public NetworkTopology(NetNode[] nodes, NetEdge[] edges) {
 		this.bgr = new NetGraph(nodes, edges);
-		this.graph = bgr.createGraph();
-		this.shortestPathGraph = new MatDijkstra(graph);
-		this.euclidianDistanceSPGraph = new MatDijkstra(graph);
-		euclidianDistanceSPGraph.execute(); // calculates shortest paths taking real distances into
-						// account; used in some heuristics
+		this.graph = createGraph();
+		this.shortestPathGraph = createSPF(graph, true);
 	}
 
 	/*
 	 * apply weigths to links Links maybe administratively UP or DOWN.
 	 */
 	public void applyWeights(int[] weights) {
+		updateWeights(weights);
+	}
+
+	/**
+	 * Applies weights to links, as applyWeights, recomputing only the
+	 * shortest paths affected by the links whose weight changed.
+	 * 
+	 * @return the destinations whose shortest paths changed
+	 */
+	public boolean[] updateWeights(int[] weights) {
+		int dim = graph.getDimension();
+		int n = 0;
+		int[] from = new int[weights.length];
+		int[] to = new int[weights.length];
+		double[] values = new double[weights.length];
 		int w = 0;
-		for (int i = 0; i < graph.getDimension(); i++)
-			for (int j = 0; j < graph.getDimension(); j++)
+		for (int i = 0; i < dim; i++)
+			for (int j = 0; j < dim; j++)
 				if (!graph.getConnection(i, j).equals(Graph.Status.NOCONNECTION)) {
-					double d = 0;
-					d = weights[w];
-					graph.setWeight(i, j, d);
+					if (graph.getWeight(i, j) != weights[w]) {
+						from[n] = i;
+						to[n] = j;
+						values[n] = weights[w];
+						n++;
+					}
 					w++;
 				}
-		this.shortestPathGraph.execute();
+		return this.shortestPathGraph.updateWeights(Arrays.copyOf(from, n), Arrays.copyOf(to, n),
+				Arrays.copyOf(values, n));
 	}
 
 	public void applyWeights(OSPFWeights weights) throws DimensionErrorException {
@@ -129,6 +162,9 @@ public class NetworkTopology implements Serializable,ITopologyChangeListener {
 		this.shortestPathGraph.execute();
 	}
 
+	/**
+	 * @return the weights matrix of the graph, which must not be changed
+	 */
 	public double[][] getWeights() {
 		return this.graph.getWeights();
 	}
@@ -174,16 +210,36 @@ public class NetworkTopology implements Serializable,ITopologyChangeListener {
 		return this.graph.getDimension();
 	}
 
-	public MatDijkstra getEuclidianDistanceSPGraph() {
+	/**
+	 * Shortest paths taking real distances into account, used in some
+	 * heuristics. Computed when first requested, on a graph of its own, as
+	 * most topologies, namely copies made for evaluations, never use them.
+	 */
+	public synchronized MatDijkstra getEuclidianDistanceSPGraph() {
+		if (this.euclidianDistanceSPGraph == null) {
+			MatDijkstra spf = createSPF(bgr.createGraph(), true);
+			spf.execute();
+			this.euclidianDistanceSPGraph = spf;
+		}
 		return this.euclidianDistanceSPGraph;
 	}
 
 	public MatDijkstra getShortestPathGraph() {
 		return this.shortestPathGraph;
 	}
+
+	/**
+	 * Split tables of the current routing state, reused while shortest paths,
+	 * link weights and status, node types and p-values do not change
+	 */
+	public synchronized RoutingCache getRoutingCache() {
+		if (this.routingCache == null)
+			this.routingCache = new RoutingCache(this);
+		return this.routingCache;
+	}
 	
 	public MatDijkstra getShortestPathGraph(boolean SSP) {
-		MatDijkstra g=new MatDijkstra(graph,SSP);
+		MatDijkstra g=createSPF(graph,SSP);
 		g.execute();
 		return g;
 	}
@@ -196,7 +252,16 @@ public class NetworkTopology implements Serializable,ITopologyChangeListener {
 		return filenameNodes;
 	}
 
+	/**
+	 * @return the graph; its CSR view is rebuilt if links were added to or
+	 *         removed from the NetGraph since it was built
+	 */
 	public CapWGraph getGraph() {
+		NetEdge[] edges = bgr.getEdges();
+		if (edges != graphEdges) {
+			graph.setCSR(bgr.createCSR(graph));
+			graphEdges = edges;
+		}
 		return this.graph;
 	}
 
@@ -227,6 +292,56 @@ public class NetworkTopology implements Serializable,ITopologyChangeListener {
 				}
 	}
 
+	/**
+	 * Hop count distances between nodes using UP links, 0 if there is no
+	 * path. Computed by a separate shortest path run on unit weights, so the
+	 * OSPF weights and shortest paths of the topology are not changed, and
+	 * recomputed only when the link status changes.
+	 */
+	public synchronized double[][] getHopCounts() {
+		if (hopCounts == null || hopCountsGraph != graph || hopCountsVersion != graph.getStatusVersion()) {
+			// the Graph constructor copies the UP links with unit weights
+			MatDijkstra hops = new DialDijkstra((Graph) graph, true);
+			hops.execute();
+			hopCounts = hops.getShortestPathDistances();
+			hopCountsGraph = graph;
+			hopCountsVersion = graph.getStatusVersion();
+			phiUncapCache = null;
+		}
+		return hopCounts;
+	}
+
+	/**
+	 * Phi value of routing the demands on minimum hop paths over links with
+	 * unlimited capacity, used to normalize the congestion measure. Cached per
+	 * demand matrix until the link status or the demands change.
+	 */
+	public synchronized double phiUncap(Demands demands) {
+		double[][] hops = getHopCounts();
+		if (phiUncapCache == null)
+			phiUncapCache = new WeakHashMap<Demands, double[]>();
+		double[] cached = phiUncapCache.get(demands);
+		if (cached != null && cached[1] == demands.getVersion())
+			return cached[0];
+		double sum = phiUncap(hops, demands.getDemands());
+		phiUncapCache.put(demands, new double[] { sum, demands.getVersion() });
+		return sum;
+	}
+
+	public double phiUncap(double[][] demands) {
+		return phiUncap(getHopCounts(), demands);
+	}
+
+	static double phiUncap(double[][] hops, double[][] demands) {
+		int n = hops.length;
+		double sum = 0.0;
+		for (int s = 0; s < n; s++)
+			for (int t = 0; t < n; t++)
+				if (demands[s][t] > 0)
+					sum += demands[s][t] * hops[s][t];
+		return sum;
+	}
+
 	/** Compute shortest distances and keeps in object of class Dijkstra */
 	public void shortestDistances() {
 		shortestPathGraph.execute();
@@ -234,34 +349,111 @@ public class NetworkTopology implements Serializable,ITopologyChangeListener {
 
 	public double sumEndtoEndDelays() {
 		WGraph delay_gr = bgr.createDelayGraph();
-		MatDijkstra del = new MatDijkstra(delay_gr);
+		MatDijkstra del = createSPF(delay_gr, true);
 		del.execute();
-		SPFElement[][] preds = del.getSolPreds();
 		double[][] dists = del.getShortestPathDistances();
 
 		double sumEndtoEndDelays = 0.0;
-		for (int s = 0; s < preds.length; s++)
-			for (int t = 0; t < preds.length; t++)
-				if (s != t && preds[s][t] != null) // predecessors
+		for (int s = 0; s < dists.length; s++)
+			for (int t = 0; t < dists.length; t++)
+				if (s != t && del.existsPath(s, t)) // predecessors
 					sumEndtoEndDelays += dists[s][t];
 
 		return sumEndtoEndDelays;
 	}
 
+	/**
+	 * Copy of the topology, as if built from a copy of its NetGraph. Nodes,
+	 * edges, link status and weights are copied, while capacities and the
+	 * sparse arc structure, that never change, are shared with this topology.
+	 * Shortest paths are not computed.
+	 */
 	public NetworkTopology copy() {
-		NetGraph g = this.bgr.copy();
-		return new NetworkTopology(g);
+		NetworkTopology t = new NetworkTopology(this.bgr.copy(), copyGraph());
+		t.spfAlgorithm = this.spfAlgorithm;
+		t.shortestPathGraph = t.createSPF(t.graph, true);
+		return t;
+	}
+
+	private NetworkTopology(NetGraph bgr, CapWGraph graph) {
+		this.bgr = bgr;
+		this.graph = graph;
+		// a copy of the graph keeps the edge positions, as the links are copied in order
+		this.graphEdges = bgr.getEdges();
+	}
+
+	private CapWGraph createGraph() {
+		this.graphEdges = bgr.getEdges();
+		return bgr.createGraph();
+	}
+
+	/**
+	 * The graph createGraph would build from the NetGraph: edge lengths as
+	 * weights and the status of the edges, without rebuilding its structure.
+	 * The copy shares the matrices of this graph, and only the ones whose
+	 * values differ are copied.
+	 */
+	private CapWGraph copyGraph() {
+		// the NetGraph was changed without updating the graph
+		if (graph.getCSR() == null || graph.getDimension() != bgr.getNNodes())
+			return bgr.createGraph();
+		CapWGraph g = this.graph.copy();
+		NetEdge[] edges = bgr.getEdges();
+		for (int i = 0; i < edges.length; i++) {
+			NetEdge e = edges[i];
+			if (g.getCSR().getArc(e.getFrom(), e.getTo()) == -1)
+				return bgr.createGraph();
+			Status status = e.isUP() ? Status.UP : Status.DOWN;
+			if (g.getWeight(e.getFrom(), e.getTo()) != e.getLength())
+				g.setWeight(e.getFrom(), e.getTo(), e.getLength());
+			if (g.getWeight(e.getTo(), e.getFrom()) != e.getLength())
+				g.setWeight(e.getTo(), e.getFrom(), e.getLength());
+			if (g.getConnection(e.getFrom(), e.getTo()) != status)
+				g.setConnection(e.getFrom(), e.getTo(), status);
+			if (g.getConnection(e.getTo(), e.getFrom()) != status)
+				g.setConnection(e.getTo(), e.getFrom(), status);
+		}
+		return g;
 	}
 
 	public void updateGraph() {
-		this.graph = bgr.createGraph();
-		this.shortestPathGraph = new MatDijkstra(graph);
-		this.euclidianDistanceSPGraph = new MatDijkstra(graph);
-		euclidianDistanceSPGraph.execute();
+		this.graph = createGraph();
+		this.shortestPathGraph = createSPF(graph, true);
+		this.euclidianDistanceSPGraph = null;
 	}
 
 	
 
+	public SPFAlgorithm getSPFAlgorithm() {
+		return spfAlgorithm;
+	}
+
+	/**
+	 * Selects the shortest path algorithm. Shortest paths are recomputed with
+	 * the current weights.
+	 */
+	public void setSPFAlgorithm(SPFAlgorithm algorithm) {
+		this.spfAlgorithm = algorithm;
+		this.shortestPathGraph = createSPF(graph, true);
+		this.shortestPathGraph.execute();
+	}
+
+	private MatDijkstra createSPF(WGraph g, boolean SSP) {
+		if (SPFAlgorithm.DIAL.equals(spfAlgorithm))
+			return new DialDijkstra(g, SSP);
+		if (SPFAlgorithm.HEAP.equals(spfAlgorithm))
+			return new HeapDijkstra(g, SSP);
+		return new MatDijkstra(g, SSP);
+	}
+
+	private static SPFAlgorithm defaultSPFAlgorithm() {
+		try {
+			return SPFAlgorithm.valueOf(SystemConf.getPropertyString("spf.algorithm", "DIAL").toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return SPFAlgorithm.DIAL;
+		}
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -292,7 +484,26 @@ public class NetworkTopology implements Serializable,ITopologyChangeListener {
 		this.graph.setConnection(e.getFrom(),e.getTo(),status);
 		this.graph.setConnection(e.getTo(),e.getFrom(),status);
 		e.setUP(status.equals(Status.UP));
-		
+		this.shortestPathGraph.invalidateDAGs();
+		fireEdgeStatusChanged(e, status);
+	}
+
+	/**
+	 * Sets the status of an edge, as setEdgeStatus, and updates the shortest
+	 * paths recomputing only the trees that used the edge, or may use it.
+	 * 
+	 * @return the destinations whose shortest paths changed
+	 */
+	public boolean[] updateEdgeStatus(NetEdge e, Status status) {
+		int[] from = { e.getFrom(), e.getTo() };
+		int[] to = { e.getTo(), e.getFrom() };
+		e.setUP(status.equals(Status.UP));
+		boolean[] changed = this.shortestPathGraph.updateStatus(from, to, status);
+		fireEdgeStatusChanged(e, status);
+		return changed;
+	}
+
+	private void fireEdgeStatusChanged(NetEdge e, Status status) {
 		int type=0;
 		if(status.equals(Status.UP))
 			type=TopologyEvent.EDGE_UP;
@@ -25,7 +25,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import pt.uminho.algoritmi.netopt.ospf.comparator.FitnessComparator;
 import pt.uminho.algoritmi.netopt.ospf.comparator.SingleObjectiveComparator;
@@ -226,8 +225,7 @@ public class Population implements Serializable {
 	
 	
 	public void add(OSPFWeights weights){
-		List<Integer> w  = Arrays.stream( weights.asIntArray() ).boxed().collect( Collectors.toList() );
-		IntegerSolution solution = new IntegerSolution(w,this.numberOfObjectives);
+		IntegerSolution solution = new IntegerSolution(weights.asIntArray(),this.numberOfObjectives);
 		data.add(solution);
 		firePopulationChanged();
 	}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ * 
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ * 
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.simulation;
+
+import java.util.Arrays;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.SPDag;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ECMPLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.GammaLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ILoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.SSPLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.SplitTable;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetGraph;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetNode.NodeType;
+
+/**
+ * Load balancers and split tables of each destination for the routing state
+ * of a topology, kept between evaluations.
+ *
+ * The shortest paths are those of the topology, which applyWeights updates
+ * incrementally, so a destination is computed from scratch only when its
+ * shortest path DAG was rebuilt. Otherwise, changes of link weights or status,
+ * node types and p-values mark the nodes they affect: ECMP tables are kept,
+ * NOLB tables are rebuilt if a marked node has alternative next hops and
+ * DEFT/PEFT load balancers recompute the marked nodes only.
+ *
+ * validate must be called before each evaluation, by a single thread. The
+ * tables of distinct destinations may then be requested concurrently.
+ */
+public class RoutingCache {
+
+	private final NetworkTopology topology;
+
+	// routing state of the cached tables
+	private MatDijkstra sp;
+	private CSRGraph csr;
+	private LoadBalancer lb;
+	private double[] pvalues; // null for the default p-values
+	private NodeType[] types;
+	private double[] weights; // by arc
+	private boolean[] up; // by arc
+	private SPDag[] dags;
+
+	// nodes marked by the last validation
+	private boolean[] changed;
+	private ILoadBalancer[] balancers;
+	private SplitTable[] tables;
+
+	RoutingCache(NetworkTopology topology) {
+		this.topology = topology;
+	}
+
+	/**
+	 * Discards the tables that do not match the current routing state.
+	 * 
+	 * @param lb
+	 *            load balancer of the tables
+	 * @param pvalues
+	 *            node p-values for DEFT/PEFT, null for the defaults
+	 */
+	public void validate(LoadBalancer lb, double[] pvalues) {
+		MatDijkstra sp = topology.getShortestPathGraph();
+		CSRGraph csr = topology.getGraph().getCSR();
+		NetGraph net = topology.getNetGraph();
+		int dim = topology.getDimension();
+		if (pvalues != null && pvalues.length != dim)
+			pvalues = null;
+
+		if (sp != this.sp || csr != this.csr || lb != this.lb || tables == null || tables.length != dim) {
+			this.sp = sp;
+			this.csr = csr;
+			this.lb = lb;
+			this.pvalues = pvalues == null ? null : pvalues.clone();
+			this.types = new NodeType[dim];
+			for (int u = 0; u < dim; u++)
+				types[u] = net.getNodeAt(u).getNodeType();
+			this.weights = new double[csr.getNumberOfArcs()];
+			this.up = new boolean[csr.getNumberOfArcs()];
+			for (int a = 0; a < weights.length; a++) {
+				weights[a] = csr.getWeight(a);
+				up[a] = net.isUP(csr, a);
+			}
+			this.dags = new SPDag[dim];
+			this.changed = new boolean[dim];
+			this.balancers = new ILoadBalancer[dim];
+			this.tables = new SplitTable[dim];
+			return;
+		}
+
+		// marks the changed nodes
+		Arrays.fill(changed, false);
+		boolean any = false;
+		if (pvalues != null || this.pvalues != null) {
+			for (int u = 0; u < dim; u++)
+				if (pvalues == null || this.pvalues == null || pvalues[u] != this.pvalues[u]) {
+					changed[u] = true;
+					any = true;
+				}
+			this.pvalues = pvalues == null ? null : pvalues.clone();
+		}
+		for (int u = 0; u < dim; u++) {
+			NodeType type = net.getNodeAt(u).getNodeType();
+			if (type != types[u]) {
+				types[u] = type;
+				changed[u] = true;
+				any = true;
+			}
+		}
+		for (int a = 0; a < weights.length; a++) {
+			double w = csr.getWeight(a);
+			boolean isUp = net.isUP(csr, a);
+			if (w != weights[a] || isUp != up[a]) {
+				weights[a] = w;
+				up[a] = isUp;
+				changed[csr.getSource(a)] = true;
+				any = true;
+			}
+		}
+
+		// tables not built since the previous validation can not be updated
+		for (int d = 0; d < dim; d++) {
+			if (tables[d] == null) {
+				balancers[d] = null;
+				continue;
+			}
+			SPDag dag = sp.getDAG(d);
+			if (dag != dags[d]) {
+				tables[d] = null;
+				balancers[d] = null;
+			} else if (any && isAffected(dag)) {
+				tables[d] = null;
+				if (!(balancers[d] instanceof GammaLoadBalancer))
+					balancers[d] = null;
+			}
+		}
+	}
+
+	private boolean isAffected(SPDag dag) {
+		switch (lb) {
+		case DEFT:
+		case PEFT:
+			return true;
+		case NOLB:
+			for (int u = 0; u < changed.length; u++)
+				if (changed[u] && dag.outDegree(u) > 1)
+					return true;
+			return false;
+		case ECMP:
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return the split table of the traffic to dest
+	 */
+	public SplitTable getSplitTable(int dest) {
+		if (tables[dest] == null)
+			build(dest);
+		return tables[dest];
+	}
+
+	/**
+	 * @return the load balancer the split table of dest was compiled from
+	 */
+	public ILoadBalancer getLoadBalancer(int dest) {
+		if (tables[dest] == null)
+			build(dest);
+		return balancers[dest];
+	}
+
+	private void build(int dest) {
+		SPDag dag = sp.getDAG(dest);
+		ILoadBalancer b = balancers[dest];
+		if (b instanceof GammaLoadBalancer)
+			b = new GammaLoadBalancer((GammaLoadBalancer) b, pvalues, changed);
+		else {
+			switch (lb) {
+			case DEFT:
+			case PEFT:
+				GammaLoadBalancer gam = new GammaLoadBalancer(topology, dest, lb, pvalues);
+				gam.compute();
+				b = gam;
+				break;
+			case NOLB:
+				b = new SSPLoadBalancer(dag, topology.getWeights());
+				break;
+			case ECMP:
+			default:
+				b = new ECMPLoadBalancer(dag);
+				break;
+			}
+		}
+		balancers[dest] = b;
+		dags[dest] = dag;
+		tables[dest] = b.compile(csr, dest);
+	}
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ * 
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ * 
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.simulation;
+
+import java.util.Arrays;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetGraph;
+
+/**
+ * Fractions of the traffic of each source/destination pair that travel on
+ * each link, for the routing of a simulator.
+ *
+ * Entries are kept in parallel columns (arc, source, destination, fraction)
+ * and grouped by the id of the edge of the arc. Within an edge, entries are
+ * sorted by source, destination and arc, the order in which pairs were
+ * computed one at a time. Only non zero fractions are kept.
+ */
+public class RoutingMatrix {
+
+	// loads are computed for a demand of 100 and divided by 100, as the
+	// percentages of the partial edge loads always were
+	private static final double PERCENT = 100.0;
+
+	private final CSRGraph csr;
+	// edge ids, ascending; the entries of edge ids[e] are in
+	// [start[e],start[e+1])
+	private final int[] ids;
+	private final int[] start;
+	private int[] arc;
+	private int[] src;
+	private int[] dst;
+	private double[] fraction;
+	private int size;
+
+	/**
+	 * Computes the fractions of all pairs, one destination at a time;
+	 * assumes shortest distances are calculated
+	 * 
+	 * @param topology
+	 * @param simul
+	 *            the simulator that defines the routing
+	 */
+	public RoutingMatrix(NetworkTopology topology, Simul simul) {
+		this.csr = topology.getGraph().getCSR();
+		NetGraph net = topology.getNetGraph();
+		int arcs = csr.getNumberOfArcs();
+
+		// group of the edge of each arc, -1 for arcs that are not links
+		NetEdge[] arcEdge = new NetEdge[arcs];
+		int[] sorted = new int[arcs];
+		int links = 0;
+		for (int a = 0; a < arcs; a++) {
+			arcEdge[a] = net.getEdge(csr, a);
+			if (arcEdge[a] != null)
+				sorted[links++] = arcEdge[a].getEdgeId();
+		}
+		Arrays.sort(sorted, 0, links);
+		int groups = 0;
+		for (int k = 0; k < links; k++)
+			if (groups == 0 || sorted[k] != sorted[groups - 1])
+				sorted[groups++] = sorted[k];
+		this.ids = Arrays.copyOf(sorted, groups);
+		int[] arcGroup = new int[arcs];
+		for (int a = 0; a < arcs; a++)
+			arcGroup[a] = arcEdge[a] != null ? Arrays.binarySearch(ids, arcEdge[a].getEdgeId()) : -1;
+
+		arc = new int[Math.max(16, arcs)];
+		src = new int[arc.length];
+		dst = new int[arc.length];
+		fraction = new double[arc.length];
+		int dimension = topology.getDimension();
+		for (int d = 0; d < dimension; d++) {
+			final int dest = d;
+			simul.sourceArcLoads(dest, PERCENT, (s, arcLoads) -> {
+				for (int a = 0; a < arcs; a++)
+					if (arcLoads[a] != 0.0 && arcGroup[a] != -1)
+						add(a, s, dest, arcLoads[a] / PERCENT);
+			});
+		}
+
+		// entries are by destination: stable sorts by source and then by edge
+		int[] order = new int[size];
+		for (int k = 0; k < size; k++)
+			order[k] = k;
+		order = sort(order, src, dimension);
+		int[] group = new int[size];
+		for (int k = 0; k < size; k++)
+			group[k] = arcGroup[arc[k]];
+		order = sort(order, group, groups);
+
+		this.start = new int[groups + 1];
+		for (int k = 0; k < size; k++)
+			start[group[k] + 1]++;
+		for (int e = 0; e < groups; e++)
+			start[e + 1] += start[e];
+		arc = permute(arc, order);
+		src = permute(src, order);
+		dst = permute(dst, order);
+		double[] f = new double[size];
+		for (int k = 0; k < size; k++)
+			f[k] = fraction[order[k]];
+		fraction = f;
+	}
+
+	private void add(int a, int s, int d, double f) {
+		if (size == arc.length) {
+			arc = Arrays.copyOf(arc, 2 * size);
+			src = Arrays.copyOf(src, 2 * size);
+			dst = Arrays.copyOf(dst, 2 * size);
+			fraction = Arrays.copyOf(fraction, 2 * size);
+		}
+		arc[size] = a;
+		src[size] = s;
+		dst[size] = d;
+		fraction[size] = f;
+		size++;
+	}
+
+	// stable counting sort of order by the keys of its entries, in [0,range)
+	private static int[] sort(int[] order, int[] key, int range) {
+		int[] count = new int[range + 1];
+		for (int k : order)
+			count[key[k] + 1]++;
+		for (int i = 0; i < range; i++)
+			count[i + 1] += count[i];
+		int[] res = new int[order.length];
+		for (int k : order)
+			res[count[key[k]]++] = k;
+		return res;
+	}
+
+	private static int[] permute(int[] values, int[] order) {
+		int[] res = new int[order.length];
+		for (int k = 0; k < order.length; k++)
+			res[k] = values[order[k]];
+		return res;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the ids of the edges of the topology, ascending
+	 */
+	public int[] getEdgeIds() {
+		return ids.clone();
+	}
+
+	/**
+	 * @return the first entry of the edge, equal to {@link #getEnd(int)} if
+	 *         no traffic travels on it
+	 */
+	public int getStart(int edgeId) {
+		int e = Arrays.binarySearch(ids, edgeId);
+		return e < 0 ? 0 : start[e];
+	}
+
+	/**
+	 * @return one past the last entry of the edge
+	 */
+	public int getEnd(int edgeId) {
+		int e = Arrays.binarySearch(ids, edgeId);
+		return e < 0 ? 0 : start[e + 1];
+	}
+
+	/**
+	 * @return the CSR arc of entry k
+	 */
+	public int getArc(int k) {
+		return arc[k];
+	}
+
+	public int getSource(int k) {
+		return src[k];
+	}
+
+	public int getDestination(int k) {
+		return dst[k];
+	}
+
+	/**
+	 * @return the node where the traffic of entry k enters the edge
+	 */
+	public int getInNode(int k) {
+		return csr.getSource(arc[k]);
+	}
+
+	/**
+	 * @return the node where the traffic of entry k leaves the edge
+	 */
+	public int getOutNode(int k) {
+		return csr.getTarget(arc[k]);
+	}
+
+	/**
+	 * @return the fraction of the traffic from the source to the destination
+	 *         of entry k that travels on its arc
+	 */
+	public double getFraction(int k) {
+		return fraction[k];
+	}
+}
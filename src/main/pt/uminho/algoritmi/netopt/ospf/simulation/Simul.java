@@ -23,18 +23,24 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.Serializable;
 import java.util.Vector;
+import java.util.concurrent.RecursiveAction;
 
 import pt.uminho.algoritmi.netopt.SystemConf;
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.CapWGraph;
 import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
 import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
-import pt.uminho.algoritmi.netopt.ospf.graph.SPFElement;
+import pt.uminho.algoritmi.netopt.ospf.graph.SPDag;
 import pt.uminho.algoritmi.netopt.ospf.graph.WGraph;
 import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
 import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ECMPLoadBalancer;
 import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.GammaLoadBalancer;
 import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ILoadBalancer;
 import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.SSPLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.SplitTable;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetGraph;
 import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.ISimulator;
+import pt.uminho.algoritmi.netopt.ospf.utils.WorkerPools;
 
 
 @SuppressWarnings("serial")
@@ -48,6 +54,8 @@ public class Simul implements Serializable, ISimulator {
 	protected String lbs;
 	protected double deftThreshold;
 	protected boolean filterDeftThreshold = false;
+	// number of threads computing the loads of distinct destinations
+	protected int loadsThreads;
 
 
 
@@ -102,6 +110,20 @@ public class Simul implements Serializable, ISimulator {
 		this.lbo = LoadBalancer.ECMP;
 		this.deftThreshold=SystemConf.getPropertyDouble("deft.threshold",0.01);
 		this.filterDeftThreshold=SystemConf.getPropertyBoolean ("deft.applythreshold",false);
+		this.loadsThreads=SystemConf.getPropertyInt("loads.threads",1);
+	}
+	
+	
+	public int getLoadsThreads() {
+		return loadsThreads;
+	}
+
+	/**
+	 * Number of threads used to compute the loads of distinct destinations
+	 * within a single evaluation. Results do not depend on this value.
+	 */
+	public void setLoadsThreads(int threads) {
+		this.loadsThreads = threads;
 	}
 	
 	
@@ -126,75 +148,144 @@ public class Simul implements Serializable, ISimulator {
 	}
 
 	/**
-	 * Compute partial loads to a given destination; assumes shortest distances
-	 * are calculated
-	 * 
+	 * Load balancer for the traffic to dest, as defined by the simulator
+	 * configuration; assumes shortest distances are calculated
 	 */
-
-	public double[][] partialLoads(int dest, Demands demands) {
-		
+	protected ILoadBalancer createLoadBalancer(int dest) {
 		ILoadBalancer lb;
 		switch(lbo){
 		case DEFT:
 			GammaLoadBalancer gdeft = new GammaLoadBalancer(topology,dest,LoadBalancer.DEFT);
-			gdeft.computeGamma();
+			gdeft.compute();
 			lb=gdeft;
 			break;
 		case PEFT:
 			GammaLoadBalancer gpeft= new GammaLoadBalancer(topology,dest,LoadBalancer.PEFT);
-			gpeft.computeGamma();
+			gpeft.compute();
 			lb=gpeft;
 			break;
 		case NOLB:
-			lb= new SSPLoadBalancer(topology.getShortestPathGraph().getArcsShortestPath(dest),topology.getWeights());
+			lb= new SSPLoadBalancer(topology.getShortestPathGraph().getDAG(dest),topology.getWeights());
 			break;
 		case ECMP:
 		default:
-			lb= new ECMPLoadBalancer(topology.getShortestPathGraph().getArcsShortestPath(dest));
+			lb= new ECMPLoadBalancer(topology.getShortestPathGraph().getDAG(dest));
 			break;
 		}
-				
-		// SP distances
-		double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-		// Initialize loads to 0.0
+		return lb;
+	}
+
+	/**
+	 * Compute partial loads to a given destination; assumes shortest distances
+	 * are calculated
+	 * 
+	 */
+
+	public double[][] partialLoads(int dest, Demands demands) {
 		double[][] ploads = new double[topology.getDimension()][topology.getDimension()];
-		for (int j = 0; j < topology.getDimension(); j++)
-			for (int k = 0; k < topology.getDimension(); k++)
-				ploads[j][k] = 0.0;
+		addLoads(dest, demands, createLoadBalancer(dest), ploads);
+		return ploads;
+	}
 
-		//Suppose the network is connected
-		Vector<Integer> nodes = topology.getShortestPathGraph().getNodesForDest(dest);
+	/**
+	 * Adds the loads of the traffic to dest, split by lb, to acc. The loads
+	 * of the destination are kept per arc in the thread workspace, so no
+	 * matrix is allocated.
+	 * 
+	 * @param dest
+	 * @param demands
+	 * @param lb
+	 * @param acc
+	 */
+	protected void addLoads(int dest, Demands demands, ILoadBalancer lb, double[][] acc) {
+		CSRGraph csr = topology.getGraph().getCSR();
+		double[] arcLoads = LoadsWorkspace.get().getArcLoads(csr.getNumberOfArcs());
+		try {
+			arcLoads(dest, demands, lb, arcLoads);
+			for (int a = 0; a < csr.getNumberOfArcs(); a++)
+				acc[csr.getSource(a)][csr.getTarget(a)] += arcLoads[a];
+		} finally {
+			LoadsWorkspace.get().release(arcLoads);
+		}
+	}
+
+	/**
+	 * Sets the load of each CSR arc due to the traffic to dest, split by lb.
+	 * arcLoads must be zeroed.
+	 */
+	protected void arcLoads(int dest, Demands demands, ILoadBalancer lb, double[] arcLoads) {
+		CSRGraph csr = topology.getGraph().getCSR();
+		NetGraph net = topology.getNetGraph();
+		SplitTable splits = lb.compile(csr, dest);
+
+		// nodes with a path to dest, by decreasing distance
+		SPDag dag = topology.getShortestPathGraph().getDAG(dest);
 		
-		while (nodes.size() > 0) {
-			// choose node with maximum distance
-			Integer dn1 = (Integer) nodes.get(0);
-			double ddn = dists[dn1.intValue()][dest];
-			int v = dn1.intValue();
-			for (int i = 1; i < nodes.size(); i++) {
-				Integer newdn = (Integer) nodes.get(i);
-				double nddn = dists[newdn.intValue()][dest];
-				if (nddn > ddn) {
-					dn1 = (Integer) nodes.get(i);
-					ddn = nddn;
-					v = newdn.intValue();
+		for (int n = 0; n < dag.size(); n++) {
+			int v = dag.getNode(n);
+
+			// traffic arriving to this node (links are undirected)
+			double sum = 0.0;
+			for (int a = csr.getStart(v); a < csr.getEnd(v); a++)
+				if (net.isUP(csr, a) && csr.getReverse(a) != -1)
+					sum += arcLoads[csr.getReverse(a)];
+
+			// for each arc leaving from this node
+			for (int a = csr.getStart(v); a < csr.getEnd(v); a++) {
+				if (net.isUP(csr, a)) {
+					arcLoads[a] = splits.getArcRatio(a) * (demands.getDemands(v, dest) + sum);
 				}
 			}
+		}
+	}
 
-			// for each arc leaving from this node
-			for (int w = 0; w < topology.getDimension(); w++){
-				if (topology.getNetGraph().existEdge(v,w) && topology.getNetGraph().getEdge(v,w).isUP()){
-					double sum=0.0;
-					for(int u=0;u<topology.getDimension(); u++)
-						if(topology.getNetGraph().existEdge(u,v) && topology.getNetGraph().getEdge(u,v).isUP())
-							sum+=ploads[u][v];
-						
-					ploads[v][w]=lb.getSplitRatio(v, dest, v,w)*(demands.getDemands(v, dest)+sum);
+	/**
+	 * Loads of the traffic from one source to the destination, set on the CSR
+	 * arcs
+	 */
+	protected interface SourceLoads {
+		void accept(int src, double[] arcLoads);
+	}
+
+	/**
+	 * For each node with a path to dest, sets the loads of the CSR arcs due to
+	 * a demand from that node alone, split by the load balancer of the
+	 * simulator, and passes them to loads. The arc vector is reused from one
+	 * source to the next. Traffic only flows to closer nodes, so each sweep
+	 * starts at the source in the DAG and the loads are the same as the
+	 * partial loads of a demand matrix with the single pair.
+	 * 
+	 * @param dest
+	 * @param demand
+	 * @param loads
+	 */
+	protected void sourceArcLoads(int dest, double demand, SourceLoads loads) {
+		CSRGraph csr = topology.getGraph().getCSR();
+		NetGraph net = topology.getNetGraph();
+		SplitTable splits = createLoadBalancer(dest).compile(csr, dest);
+		SPDag dag = topology.getShortestPathGraph().getDAG(dest);
+
+		for (int first = 0; first < dag.size(); first++) {
+			int src = dag.getNode(first);
+			if (src == dest)
+				continue;
+			double[] arcLoads = LoadsWorkspace.get().getArcLoads(csr.getNumberOfArcs());
+			try {
+				for (int n = first; n < dag.size(); n++) {
+					int v = dag.getNode(n);
+					double sum = 0.0;
+					for (int a = csr.getStart(v); a < csr.getEnd(v); a++)
+						if (net.isUP(csr, a) && csr.getReverse(a) != -1)
+							sum += arcLoads[csr.getReverse(a)];
+					for (int a = csr.getStart(v); a < csr.getEnd(v); a++)
+						if (net.isUP(csr, a))
+							arcLoads[a] = splits.getArcRatio(a) * ((v == src ? demand : 0.0) + sum);
 				}
+				loads.accept(src, arcLoads);
+			} finally {
+				LoadsWorkspace.get().release(arcLoads);
 			}
-				
-			nodes.remove(dn1);
 		}
-		return ploads;
 	}
 	
 	
@@ -211,37 +302,150 @@ public class Simul implements Serializable, ISimulator {
 	 * get results do getLoads
 	 */
 	public double[][] totalLoads(Demands demands) {
-		int dimension = topology.getGraph().getDimension();
+		return toMatrix(totalArcLoads(demands));
+	}
+
+	/**
+	 * Total loads of each arc of the CSR view of the topology graph
+	 */
+	public double[] totalArcLoads(Demands demands) {
+		RoutingCache routing = topology.getRoutingCache();
+		routing.validate(lbo, null);
+		return sumArcLoads((d, arcLoads) -> arcLoads(d, demands, routing.getSplitTable(d), arcLoads), loadsThreads);
+	}
+
+	/**
+	 * DEFT or PEFT, as the load balancer, for simulators that always split
+	 * traffic with gamma load balancers
+	 */
+	protected LoadBalancer getGammaLoadBalancer() {
+		return LoadBalancer.PEFT.equals(lbo) ? LoadBalancer.PEFT : LoadBalancer.DEFT;
+	}
 
+	/**
+	 * Matrix of the loads of the CSR arcs
+	 */
+	protected double[][] toMatrix(double[] arcLoads) {
+		int dimension = topology.getGraph().getDimension();
+		CSRGraph csr = topology.getGraph().getCSR();
 		double[][] tLoads = new double[dimension][dimension];
-		for (int i = 0; i < dimension; i++)
-			for (int j = 0; j < dimension; j++)
-				tLoads[i][j] = 0.0;
+		for (int a = 0; a < csr.getNumberOfArcs(); a++)
+			tLoads[csr.getSource(a)][csr.getTarget(a)] = arcLoads[a];
+		return tLoads;
+	}
 
-		for (int d = 0; d < dimension; d++) {
-			if (topology.getGraph().inDegree(d) > 0) {
-				double[][] ploads = partialLoads(d, demands);
-				for (int i = 0; i < dimension; i++)
-					for (int j = 0; j < dimension; j++)
-						tLoads[i][j] += ploads[i][j];
+	/**
+	 * Loads of the traffic to one destination, set on the CSR arcs
+	 */
+	protected interface DestinationLoads {
+		void compute(int dest, double[] arcLoads);
+	}
+
+	/**
+	 * Sums the loads of all destinations with incoming links. With more than
+	 * one thread destinations are computed in parallel, each into its own arc
+	 * vector, and the vectors are added in destination order, so the result
+	 * is the same as the serial one.
+	 * 
+	 * @param loads
+	 * @param threads
+	 * @return the total loads
+	 */
+	protected double[][] sumLoads(DestinationLoads loads, int threads) {
+		return toMatrix(sumArcLoads(loads, threads));
+	}
+
+	/**
+	 * As sumLoads, with the total load of each CSR arc
+	 */
+	protected double[] sumArcLoads(DestinationLoads loads, int threads) {
+		int dimension = topology.getGraph().getDimension();
+		CSRGraph csr = topology.getGraph().getCSR();
+		int arcs = csr.getNumberOfArcs();
+		double[] tLoads = new double[arcs];
+
+		if (threads <= 1 || dimension < 2) {
+			for (int d = 0; d < dimension; d++) {
+				if (topology.getGraph().inDegree(d) > 0) {
+					double[] arcLoads = LoadsWorkspace.get().getArcLoads(arcs);
+					try {
+						loads.compute(d, arcLoads);
+						for (int a = 0; a < arcs; a++)
+							tLoads[a] += arcLoads[a];
+					} finally {
+						LoadsWorkspace.get().release(arcLoads);
+					}
+				}
 			}
+			return tLoads;
 		}
 
+		// DAGs are built before being shared by the workers
+		MatDijkstra sp = topology.getShortestPathGraph();
+		boolean[] active = new boolean[dimension];
+		for (int d = 0; d < dimension; d++) {
+			active[d] = topology.getGraph().inDegree(d) > 0;
+			if (active[d])
+				sp.getDAG(d);
+		}
+		// allocated per call: while waiting for the workers this thread may
+		// run another evaluation of the same pool, which reaches this point
+		// with its own destinations
+		double[][] destLoads = new double[dimension][arcs];
+		WorkerPools.invoke(threads, new DestinationsTask(loads, active, destLoads, 0, dimension));
+
+		for (int a = 0; a < arcs; a++)
+			for (int d = 0; d < dimension; d++)
+				if (active[d])
+					tLoads[a] += destLoads[d][a];
 		return tLoads;
 	}
 
+	// computes the loads of the destinations in [from,to)
+	private static class DestinationsTask extends RecursiveAction {
+
+		private final DestinationLoads loads;
+		private final boolean[] active;
+		private final double[][] destLoads;
+		private final int from, to;
+		// the configuration of the caller, also applied in the worker threads
+		private final SystemConf.Overrides overrides = SystemConf.current();
+
+		DestinationsTask(DestinationLoads loads, boolean[] active, double[][] destLoads, int from, int to) {
+			this.loads = loads;
+			this.active = active;
+			this.destLoads = destLoads;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			try (SystemConf.Scope scope = SystemConf.enter(overrides)) {
+				if (to - from > 1) {
+					int mid = (from + to) >>> 1;
+					invokeAll(new DestinationsTask(loads, active, destLoads, from, mid),
+							new DestinationsTask(loads, active, destLoads, mid, to));
+				} else if (active[from])
+					loads.compute(from, destLoads[from]);
+			}
+		}
+	}
+
 	
 	
 	// lists overloaded links and returns total overload
 	public double listOverloadedLinks() {
 		double r = 0.0;
-		for (int i = 0; i < topology.getGraph().getDimension(); i++)
-			for (int j = 0; j < topology.getGraph().getDimension(); j++)
-				if (i != j) {
-					if (loads.getLoads(i, j) > topology.getGraph().getCapacity(i, j)) {
-						r += (loads.getLoads(i, j) - topology.getGraph().getCapacity(i, j));
-					}
+		CSRGraph csr = loads.getCSR();
+		for (int a = 0; a < csr.getNumberOfArcs(); a++) {
+			int i = csr.getSource(a), j = csr.getTarget(a);
+			if (i != j) {
+				if (loads.getArcLoad(a) > topology.getGraph().getCapacity(i, j)) {
+					r += (loads.getArcLoad(a) - topology.getGraph().getCapacity(i, j));
 				}
+			}
+		}
 		return r;
 	}
 
@@ -264,9 +468,7 @@ public class Simul implements Serializable, ISimulator {
 		int[][] sparse = topology.getGraph().getAllEdges();
 		Vector<Vector<Integer>> paths;
 
-		boolean[][] alts = topology.getShortestPathGraph().getSolAlternatives();
-
-		if (alts[s][d]) // alternative routes
+		if (topology.getShortestPathGraph().hasAlternatives(s, d)) // alternative routes
 		{
 			Graph opt = topology.getShortestPathGraph().getArcsShortestPath(s, d, sparse);
 
@@ -301,25 +503,25 @@ public class Simul implements Serializable, ISimulator {
 
 	/** congestion measure proposed by Fortz and Thorup */
 	public double congestionMeasure(NetworkLoads loads, Demands demands) {
-		double sum = 0.0;
-
-		loads.computeU(topology.getGraph()); // compute congestion for each link
-
-		for (int j = 0; j < topology.getGraph().getDimension(); j++)
-			for (int k = 0; k < topology.getGraph().getDimension(); k++)
-				if (topology.getGraph().getConnection(j, k).equals(Graph.Status.UP))
-					sum += phi(loads.getU(j, k), loads.getLoads(j, k), topology.getGraph().getCapacity(j, k));
-		return (sum / phiUncap(demands));
+		return (sumPhi(loads) / phiUncap(demands));
 	}
 
 	public double congestionMeasure(NetworkLoads loads, double[][] demands) {
+		return (sumPhi(loads) / phiUncap(demands));		
+	}
+
+	// sum of phi over the UP links, in a single pass over the arcs
+	private double sumPhi(NetworkLoads loads) {
 		double sum = 0.0;
-		loads.computeU(topology.getGraph()); // compute congestion for each link
-		for (int j = 0; j < topology.getGraph().getDimension(); j++)
-			for (int k = 0; k < topology.getGraph().getDimension(); k++)
-				if (topology.getGraph().getConnection(j, k).equals(Graph.Status.UP))
-					sum += phi(loads.getU(j, k), loads.getLoads(j, k), topology.getGraph().getCapacity(j, k));
-		return (sum / phiUncap(demands));		
+		CapWGraph graph = topology.getGraph();
+		loads.computeU(graph); // compute congestion for each link
+		CSRGraph csr = loads.getCSR();
+		for (int a = 0; a < csr.getNumberOfArcs(); a++) {
+			int j = csr.getSource(a), k = csr.getTarget(a);
+			if (graph.getConnection(j, k).equals(Graph.Status.UP))
+				sum += phi(loads.getArcU(a), loads.getArcLoad(a), graph.getCapacity(j, k));
+		}
+		return sum;
 	}
 	
 	public double phi(double load, double cap) {
@@ -359,52 +561,29 @@ public class Simul implements Serializable, ISimulator {
 		return penalty(u, real, aim, c1, c2, c3, c4, c5);
 	}
 
+	/**
+	 * Normalization of the congestion measure, computed on hop counts
+	 * without changing the topology weights and cached per demand matrix
+	 */
 	public double phiUncap(Demands demands) {
-		int n = topology.getGraph().getDimension();
-		double sum = 0.0;
-
-		topology.setUnitWeights();
-		topology.shortestDistances();
-
-		double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-
-		for (int s = 0; s < n; s++)
-			for (int t = 0; t < n; t++)
-				if (demands.getDemands(s, t) > 0)
-					sum += demands.getDemands(s, t) * dists[s][t];
-
-		return sum;
+		return topology.phiUncap(demands);
 	}
-	
-	public double phiUncap(double[][] demands) {
-		int n = topology.getGraph().getDimension();
-		double sum = 0.0;
-
-		topology.setUnitWeights();
-		topology.shortestDistances();
-
-		double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
 
-		for (int s = 0; s < n; s++)
-			for (int t = 0; t < n; t++)
-				if (demands[s][t] > 0)
-					sum += demands[s][t] * dists[s][t];
-
-		return sum;
+	public double phiUncap(double[][] demands) {
+		return topology.phiUncap(demands);
 	}
 
 	public double sumEndtoEndDelays() {
 		WGraph delay_gr = topology.getNetGraph().createDelayGraph();
 		MatDijkstra del = new MatDijkstra(delay_gr);
 		del.execute();
-		SPFElement[][] preds = del.getSolPreds();
 		double[][] dists = del.getShortestPathDistances();
 
 		double sum = 0.0;
-		for (int s = 0; s < preds.length; s++)
-			for (int t = 0; t < preds.length; t++)
+		for (int s = 0; s < dists.length; s++)
+			for (int t = 0; t < dists.length; t++)
 				
-				if (s != t && preds[s][t] != null) 
+				if (s != t && del.existsPath(s, t)) 
 					sum += dists[s][t];
 
 		return sum;
@@ -584,9 +763,8 @@ public class Simul implements Serializable, ISimulator {
 	public Double[] evalWeightsAndUsageRange(int[] weights,Demands demands){
 		NetworkLoads loads;
 		topology.applyWeights(weights);
-		topology.shortestDistances();
 		
-		loads = new NetworkLoads(totalLoads(demands),topology);
+		loads = new NetworkLoads(totalArcLoads(demands),topology);
 		
 		Double[] result = new Double[2];
 		result[0] = loads.getCongestion();
@@ -608,12 +786,11 @@ public class Simul implements Serializable, ISimulator {
 		//NetworkLoads loads;
 
 		topology.applyWeights(weights);
-		topology.shortestDistances();
 	
 
 		double res = 0.0;
 		if (computeCong) {
-			loads = new NetworkLoads(totalLoads(demands),topology);
+			loads = new NetworkLoads(totalArcLoads(demands),topology);
 			if (fullDebug)
 				loads.printLoads(); // debug
 
@@ -643,7 +820,7 @@ public class Simul implements Serializable, ISimulator {
 	public void computeLoads(OSPFWeights weights, Demands demands) throws DimensionErrorException {	
 		this.loads = new NetworkLoads(topology);
 		topology.applyWeights(weights); // apply weights on graph
-		this.loads.setLoads(totalLoads(demands));
+		this.loads.setArcLoads(totalArcLoads(demands));
 		this.loads.setCongestion(congestionMeasure(loads, demands));
 	}
 	
@@ -651,7 +828,7 @@ public class Simul implements Serializable, ISimulator {
 	public void computeLoads(int[] weights, Demands d) {
 		this.loads = new NetworkLoads(topology);
 		topology.applyWeights(weights); // apply weights on graph
-		this.loads.setLoads(totalLoads(d));
+		this.loads.setArcLoads(totalArcLoads(d));
 		this.loads.setCongestion(congestionMeasure(loads, d));
 	}
 
@@ -681,7 +858,7 @@ public class Simul implements Serializable, ISimulator {
 	 */
 	public double computeAverageDelay() throws DimensionErrorException {
 
-		double[][] mloads=this.loads.loads;
+		double[][] mloads=this.loads.getLoads();
 		double[][] mdelays=this.getTopology().getNetGraph().getDelays();
 		double tload=0.0;
 		double tdelay =0.0;
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ * 
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ * 
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.CapWGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
+import pt.uminho.algoritmi.netopt.ospf.utils.WorkerPools;
+
+/**
+ * Evaluates one routing configuration against many traffic matrices.
+ *
+ * The routing (weights and load balancer of a simulator) is a linear map from
+ * demands to link loads, so the routing matrix is built once and the loads of
+ * the traffic matrices are computed as a sparse matrix product, in blocks of
+ * matrices that are evaluated in parallel. The MLU and congestion of each
+ * matrix are the same as those of a simulation, up to rounding.
+ */
+public class TrafficMatricesEvaluator {
+
+	// matrices per block, bounded by the size of the block demands
+	private static final int BLOCK = 32;
+	private static final int BLOCK_DEMANDS = 1 << 20;
+
+	private final Simul simul;
+	private final RoutingMatrix routing;
+	private final int dimension;
+	private final double[] capacities;
+	private final boolean[] up;
+	// hop counts of the links of the routing, for the congestion baseline
+	private final double[][] hops;
+
+	/**
+	 * Applies the weights to the topology of the simulator and builds the
+	 * routing matrix of its load balancer
+	 * 
+	 * @param simul
+	 * @param weights
+	 * @throws DimensionErrorException
+	 */
+	public TrafficMatricesEvaluator(Simul simul, OSPFWeights weights) throws DimensionErrorException {
+		NetworkTopology topology = simul.getTopology();
+		topology.applyWeights(weights);
+		this.simul = simul;
+		this.routing = new RoutingMatrix(topology, simul);
+		this.dimension = topology.getDimension();
+		this.hops = topology.getHopCounts();
+
+		CapWGraph graph = topology.getGraph();
+		CSRGraph csr = graph.getCSR();
+		int arcs = csr.getNumberOfArcs();
+		this.capacities = new double[arcs];
+		this.up = new boolean[arcs];
+		for (int a = 0; a < arcs; a++) {
+			int j = csr.getSource(a), k = csr.getTarget(a);
+			capacities[a] = graph.getCapacity(j, k);
+			up[a] = graph.getConnection(j, k).equals(Graph.Status.UP);
+		}
+	}
+
+	public RoutingMatrix getRoutingMatrix() {
+		return routing;
+	}
+
+	/**
+	 * @param demands
+	 * @param threads
+	 *            number of blocks evaluated in parallel
+	 * @return the MLU and congestion of each traffic matrix
+	 */
+	public Result evaluate(Demands[] demands, int threads) {
+		int n = demands.length;
+		double[] mlu = new double[n];
+		double[] congestion = new double[n];
+		int block = Math.max(1, Math.min(BLOCK, BLOCK_DEMANDS / Math.max(1, dimension * dimension)));
+		int blocks = (n + block - 1) / block;
+
+		// the uncapacitated Phi of each matrix, which the blocks divide their
+		// congestion by, is computed here so the workers share no state of
+		// the topology
+		for (int i = 0; i < n; i++)
+			congestion[i] = NetworkTopology.phiUncap(hops, demands[i].getDemands());
+
+		if (threads <= 1 || blocks < 2) {
+			for (int b = 0; b < blocks; b++)
+				evaluate(demands, b * block, Math.min(n, (b + 1) * block), mlu, congestion);
+		} else
+			WorkerPools.invoke(threads, new BlocksTask(demands, mlu, congestion, block, 0, blocks));
+		return new Result(mlu, congestion);
+	}
+
+	// evaluates the matrices in [from,to); congestion holds their
+	// uncapacitated Phi
+	private void evaluate(Demands[] demands, int from, int to, double[] mlu, double[] congestion) {
+		int b = to - from;
+		int arcs = capacities.length;
+
+		// demands of each pair, with the matrices of the block side by side
+		double[] dem = new double[dimension * dimension * b];
+		for (int t = 0; t < b; t++) {
+			double[][] m = demands[from + t].getDemands();
+			for (int s = 0; s < dimension; s++)
+				for (int d = 0; d < dimension; d++)
+					dem[(s * dimension + d) * b + t] = m[s][d];
+		}
+
+		double[] loads = new double[arcs * b];
+		for (int k = 0; k < routing.size(); k++) {
+			int p = (routing.getSource(k) * dimension + routing.getDestination(k)) * b;
+			int l = routing.getArc(k) * b;
+			double f = routing.getFraction(k);
+			for (int t = 0; t < b; t++)
+				loads[l + t] += f * dem[p + t];
+		}
+
+		// as the MLU and the congestion measure of the network loads
+		for (int t = 0; t < b; t++) {
+			double max = 0.0;
+			double sum = 0.0;
+			for (int a = 0; a < arcs; a++) {
+				double load = loads[a * b + t];
+				double u = load / capacities[a];
+				if (u > max)
+					max = u;
+				if (up[a])
+					sum += simul.phi(u, load, capacities[a]);
+			}
+			mlu[from + t] = max;
+			congestion[from + t] = sum / congestion[from + t];
+		}
+	}
+
+	// evaluates the blocks in [from,to)
+	@SuppressWarnings("serial")
+	private class BlocksTask extends RecursiveAction {
+
+		private final Demands[] demands;
+		private final double[] mlu, congestion;
+		private final int block, from, to;
+
+		BlocksTask(Demands[] demands, double[] mlu, double[] congestion, int block, int from, int to) {
+			this.demands = demands;
+			this.mlu = mlu;
+			this.congestion = congestion;
+			this.block = block;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BlocksTask(demands, mlu, congestion, block, from, mid),
+						new BlocksTask(demands, mlu, congestion, block, mid, to));
+			} else
+				evaluate(demands, from * block, Math.min(demands.length, to * block), mlu, congestion);
+		}
+	}
+
+	/**
+	 * MLU and congestion of each traffic matrix, with their percentiles
+	 */
+	public static class Result {
+
+		private final double[] mlu;
+		private final double[] congestion;
+
+		Result(double[] mlu, double[] congestion) {
+			this.mlu = mlu;
+			this.congestion = congestion;
+		}
+
+		public int size() {
+			return mlu.length;
+		}
+
+		public double getMLU(int i) {
+			return mlu[i];
+		}
+
+		public double getCongestion(int i) {
+			return congestion[i];
+		}
+
+		public double[] getMLU() {
+			return mlu.clone();
+		}
+
+		public double[] getCongestion() {
+			return congestion.clone();
+		}
+
+		/**
+		 * @param p
+		 *            in [0,100]
+		 */
+		public double getMLUPercentile(double p) {
+			return percentile(mlu, p);
+		}
+
+		/**
+		 * @param p
+		 *            in [0,100]
+		 */
+		public double getCongestionPercentile(double p) {
+			return percentile(congestion, p);
+		}
+
+		public String toString() {
+			return "MLU " + summary(mlu) + " Congestion " + summary(congestion);
+		}
+
+		private static String summary(double[] values) {
+			return "[p50=" + percentile(values, 50) + " p90=" + percentile(values, 90) + " p95="
+					+ percentile(values, 95) + " p99=" + percentile(values, 99) + " max=" + percentile(values, 100)
+					+ "]";
+		}
+	}
+
+	/**
+	 * @param values
+	 * @param p
+	 *            in [0,100]
+	 * @return the p-th percentile of the values, interpolated between the
+	 *         closest ranks; NaN if there are no values
+	 */
+	public static double percentile(double[] values, double p) {
+		if (values.length == 0)
+			return Double.NaN;
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		double rank = Math.max(0.0, Math.min(100.0, p)) / 100.0 * (sorted.length - 1);
+		int i = (int) rank;
+		int j = Math.min(i + 1, sorted.length - 1);
+		return sorted[i] + (rank - i) * (sorted[j] - sorted[i]);
+	}
+}
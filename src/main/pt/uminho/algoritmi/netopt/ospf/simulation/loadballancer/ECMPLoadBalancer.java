@@ -19,7 +19,9 @@
  ******************************************************************************/
 package pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer;
 
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
 import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.graph.SPDag;
 import pt.uminho.algoritmi.netopt.ospf.simulation.sr.Flow;
 
 public class ECMPLoadBalancer implements ILoadBalancer {
@@ -28,18 +30,26 @@ public class ECMPLoadBalancer implements ILoadBalancer {
 	    
 	// g is the SP spanning tree for destination dst
 	private Graph g; 
+	// or the SP DAG for destination dst
+	private SPDag dag;
 	
 	
 	public ECMPLoadBalancer(Graph g){
 		this.g=g;
 	}
 
+	public ECMPLoadBalancer(SPDag dag){
+		this.dag=dag;
+	}
+
 	@Override
 	/*
 	 * @see ospf.simulation.loadballancer.ILoadBalancer#getSplitRatio(int, int, int, int)
 	 *  
 	 */
 	public double getSplitRatio(int flowSrc, int flowDst, int currentNode, int nextNode) {
+		if(dag!=null)
+			return dag.isNextHop(currentNode,nextNode)? (double) 1/dag.outDegree(currentNode) : 0;
 		if(g.getConnection(currentNode,nextNode).equals(Graph.Status.UP))
 			return (double) 1/g.outDegree(currentNode);
 		else 
@@ -49,6 +59,12 @@ public class ECMPLoadBalancer implements ILoadBalancer {
 	
 	
 	public double getSplitRatio(Flow f, int currentNode, int nextNode) {
+		if(dag!=null) {
+			if(!dag.isNextHop(currentNode,nextNode))
+				return 0;
+			int i = f.hashCode()%dag.outDegree(currentNode);
+			return dag.getNextHop(currentNode,i)==nextNode? 1 : 0;
+		}
 		if(g.getConnection(currentNode,nextNode).equals(Graph.Status.UP)) {
 			int i = f.hashCode()%g.outDegree(currentNode);
 			if(g.outNodes(currentNode).get(i)==nextNode)
@@ -61,5 +77,38 @@ public class ECMPLoadBalancer implements ILoadBalancer {
 	}
 	
 
+	/**
+	 * The table keeps the next hops of the DAG, in the same order, so flows
+	 * are hashed to the same next hop.
+	 */
+	@Override
+	public SplitTable compile(CSRGraph csr, int dest) {
+		if (dag == null || dag.getDestination() != dest)
+			return SplitTable.compile(csr, dest, this);
+		int dim = csr.getDimension();
+		double[] ratios = new double[csr.getNumberOfArcs()];
+		int[] hopStart = new int[dim + 1];
+		int k = 0;
+		for (int u = 0; u < dim; u++) {
+			hopStart[u] = k;
+			k += dag.outDegree(u);
+		}
+		hopStart[dim] = k;
+		int[] hops = new int[k];
+		for (int u = 0; u < dim; u++) {
+			int degree = dag.outDegree(u);
+			for (int i = 0; i < degree; i++) {
+				int v = dag.getNextHop(u, i);
+				hops[hopStart[u] + i] = v;
+				int a = csr.getArc(u, v);
+				if (a >= 0)
+					ratios[a] = (double) 1 / degree;
+			}
+		}
+		return new SplitTable(csr, dest, ratios, hopStart, hops);
+	}
+
 	public Graph getGraph(){ return g;}
+
+	public SPDag getDAG(){ return dag;}
 }
@@ -25,17 +25,13 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.ArrayRealVector;
-import org.apache.commons.math3.linear.DecompositionSolver;
-import org.apache.commons.math3.linear.LUDecomposition;
-import org.apache.commons.math3.linear.RealMatrix;
-import org.apache.commons.math3.linear.RealVector;
-
 import pt.uminho.algoritmi.netopt.SystemConf;
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
 import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.SPDag;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetGraph;
 import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetNode;
 import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetNode.NodeType;
 import pt.uminho.algoritmi.netopt.ospf.utils.IntPair;
@@ -44,21 +40,29 @@ import pt.uminho.algoritmi.netopt.ospf.utils.IntPair;
  * 
  *
  *  For each destination t computes the splitting traffic matrix for each path node. 
- *  The h matrix contains entries h^t_u,v of SP extra lengths to destination t from u
- *  passing by v.
+ *  The h values contain entries h^t_u,v of SP extra lengths to destination t from u
+ *  passing by v, one for each arc (u,v) of the topology CSR graph.
+ *
+ *  Only downhill arcs (d(v,t) < d(u,t)) are used, so the PEFT gamma system is
+ *  acyclic and is solved by substitution in increasing distance order, in
+ *  O(E) per destination.
  *
  */
 
 public class GammaLoadBalancer implements ILoadBalancer {
 
+	// integer extra lengths below this are tabulated
+	private static final int MAX_TABULATED = 256;
+
 	
 	private int destination;
-	private double[][] hs; 			// e^h
+	private double[] hs; 			// e^h, by arc
 	private double[] gs; 			// gamma node
-	private double[][] gamma; 		// e^h * gamma
-	private double[][] splits; 		// splitting ratios
+	private double[] splits; 		// splitting ratios, by arc
+	private boolean[] nspArc;		// Non Shortest Path links, by arc
 	private ArrayList<IntPair> nsp;	// Non Shortest Path links to destination t
 	private NetworkTopology topology;
+	private CSRGraph csr;
 	private double[] pvalues;
 
 	private double DEFAULT_P_VALUE;
@@ -67,6 +71,10 @@ public class GammaLoadBalancer implements ILoadBalancer {
 	
 	// penalizing function
 	private IHFunction function;
+	// values of the function for integer extra lengths, NaN if not yet
+	// computed, for the p-value of the table
+	private double[] table = new double[0];
+	private double tableP = Double.NaN;
 	private LoadBalancer lb;
 	//private boolean deft = false;	
 	private boolean debug = false;
@@ -84,6 +92,7 @@ public class GammaLoadBalancer implements ILoadBalancer {
 		this.topology = topology;
 		this.destination = destination;
 		this.lb = lb;
+		this.csr = topology.getGraph().getCSR();
 		int size = topology.getDimension();
 
 		// default configuration values
@@ -104,68 +113,51 @@ public class GammaLoadBalancer implements ILoadBalancer {
 			pvalues = pv;
 		}
 
-		// initialize computation matrices
-		this.hs = new double[size][size];
-		this.gamma = new double[size][size];
-		this.splits = new double[size][size];
-		//usually don't need to be initialized, however....
-		for (int i = 0; i < size; i++) {
-			for (int j = 0; j < size; j++) {
-				hs[i][j] = 0.0;
-				gamma[i][j] = 0.0;
-				splits[i][j] = 0.0;
-			}
-		}
+		// initialize computation arrays
+		this.hs = new double[csr.getNumberOfArcs()];
+		this.nspArc = new boolean[csr.getNumberOfArcs()];
+		this.splits = new double[csr.getNumberOfArcs()];
+		this.gs = new double[size];
 
 		this.nsp = new ArrayList<IntPair>();
 	}
 
+	/**
+	 * Split ratios for other p-values or node types, reusing the computation
+	 * of lb. Only the nodes in changed, whose p-value, type or outgoing links
+	 * may differ from those lb was computed with, and with PEFT the nodes
+	 * upstream of them, are recomputed. The shortest paths to the destination
+	 * must be the ones lb was computed with.
+	 * 
+	 * @param lb
+	 * @param pv
+	 * @param changed
+	 */
+	public GammaLoadBalancer(GammaLoadBalancer lb, double[] pv, boolean[] changed) {
+		this(lb.topology, lb.destination, lb.lb, pv);
+		System.arraycopy(lb.hs, 0, hs, 0, hs.length);
+		System.arraycopy(lb.nspArc, 0, nspArc, 0, nspArc.length);
+		System.arraycopy(lb.gs, 0, gs, 0, gs.length);
+		System.arraycopy(lb.splits, 0, splits, 0, splits.length);
+		update(changed);
+	}
+
 	/*
 	 * Computes the penalization of the extra length (h) of a path from all nodes
 	 * to destination t. On legacy nodes only outgoing links on shortest paths
 	 * are used to forward traffic. 
 	 */
 	
-	private double[][] computeEH() {
+	private double[] computeEH() {
 
 		MatDijkstra sp = topology.getShortestPathGraph();
-		for (int u = 0; u < topology.getDimension(); u++) {
-			NetNode node = topology.getNetGraph().getNodeAt(u);
-			for (int v = 0; v < topology.getDimension(); v++) {
-				if (u != destination && u != v && topology.getNetGraph().existEdge(u, v)
-						&& topology.getNetGraph().getEdge(u, v).isUP()) {
-					
-					double dut = sp.getDist(u, this.destination);
-					double dvt = sp.getDist(v, this.destination);
-					if (dvt < dut) {
-						double h = dvt + sp.getArcWeight(u, v) - dut;
-						double exp = function.f(h,pvalues[u]);
-						// hs_uv could be set to 1 when next hops v are on the shortest path
-						// however this allows to use distinct settings as defined by the penalizing function 
-						if (h == 0) {
-							hs[u][v] = exp;
-						}
-						// non shortest path edges
-						// if node u is SDN/SR enable
-						// nsp links can be used to forward traffic
-						else if (node.getNodeType().equals(NodeType.SDN_SR)) {
-							hs[u][v] = exp;
-							nsp.add(new IntPair(u, v));
-						}
-
-					}
-				}
-			}
-		}
+		NetGraph net = topology.getNetGraph();
+		for (int u = 0; u < topology.getDimension(); u++)
+			computeEH(u, sp, net);
+		collectNSP();
 
 		if (debug) {
-			DecimalFormat df = new DecimalFormat("#.00");
-			for (int i = 0; i < hs.length; i++) {
-				for (int j = 0; j < hs.length; j++) {
-					System.out.print(df.format(hs[i][j]) + " ");
-				}
-				System.out.println();
-			}
+			print(hs, new DecimalFormat("#.00"));
 			System.out.println("NSP Edges:");
 			for (int i = 0; i < nsp.size(); i++)
 				System.out.print(nsp.get(i).toString() + " ; ");
@@ -175,98 +167,228 @@ public class GammaLoadBalancer implements ILoadBalancer {
 		return hs;
 	}
 
+	// penalizations of the links leaving u
+	private void computeEH(int u, MatDijkstra sp, NetGraph net) {
+		NetNode node = net.getNodeAt(u);
+		double dut = sp.getDist(u, this.destination);
+		for (int a = csr.getStart(u); a < csr.getEnd(u); a++) {
+			hs[a] = 0.0;
+			nspArc[a] = false;
+			int v = csr.getTarget(a);
+			if (u != destination && u != v && net.isUP(csr, a)) {
+				
+				double dvt = sp.getDist(v, this.destination);
+				if (dvt < dut) {
+					double h = dvt + sp.getArcWeight(u, v) - dut;
+					double exp = penalty(h, pvalues[u]);
+					// hs_uv could be set to 1 when next hops v are on the shortest path
+					// however this allows to use distinct settings as defined by the penalizing function 
+					if (h == 0) {
+						hs[a] = exp;
+					}
+					// non shortest path edges
+					// if node u is SDN/SR enable
+					// nsp links can be used to forward traffic
+					else if (node.getNodeType().equals(NodeType.SDN_SR)) {
+						hs[a] = exp;
+						nspArc[a] = true;
+					}
+
+				}
+			}
+		}
+	}
+
+	/*
+	 * The penalizing function for extra length h and p-value p. Link weights
+	 * are integers, so are the extra lengths, whose values are kept in a
+	 * table for the last p-value used.
+	 */
+	private double penalty(double h, double p) {
+		int k = (int) h;
+		if (k != h || k < 0 || k >= MAX_TABULATED)
+			return function.f(h, p);
+		if (Double.doubleToLongBits(p) != Double.doubleToLongBits(tableP)) {
+			Arrays.fill(table, Double.NaN);
+			tableP = p;
+		}
+		if (k >= table.length) {
+			int n = table.length;
+			table = Arrays.copyOf(table, Math.min(MAX_TABULATED, Math.max(k + 1, 2 * n)));
+			Arrays.fill(table, n, table.length, Double.NaN);
+		}
+		double v = table[k];
+		if (Double.isNaN(v)) {
+			v = function.f(h, p);
+			table[k] = v;
+		}
+		return v;
+	}
+
+	private void collectNSP() {
+		nsp.clear();
+		for (int a = 0; a < nspArc.length; a++)
+			if (nspArc[a])
+				nsp.add(new IntPair(csr.getSource(a), csr.getTarget(a)));
+	}
+
 	/**
 	 * 
-	 * @param sp
-	 * @return the array of gamma values
+	 * @return the splitting ratios, as a matrix indexed by the nodes of each
+	 *         link. The matrix is built on each call, compute() and
+	 *         getArcSplit avoid it.
 	 */
 	public double[][] computeGamma() {
+		compute();
+		int size = topology.getDimension();
+		double[][] m = new double[size][size];
+		for (int u = 0; u < size; u++)
+			for (int a = csr.getStart(u); a < csr.getEnd(u); a++)
+				m[u][csr.getTarget(a)] = splits[a];
+		return m;
+	}
+
+	/**
+	 * Computes the splitting ratios, by arc of the topology CSR graph
+	 */
+	public void compute() {
 
 		computeEH();
 		
 		if (lb.equals(LoadBalancer.PEFT)) { // for PEFT
-			// solves the system taking hs as coefficients
-			RealMatrix coefficients = new Array2DRowRealMatrix(this.hs, true);
-			coefficients.setEntry(destination, destination, 1);
-			for (int i = 0; i < hs.length; i++)
-				if (i != destination)
-					coefficients.setEntry(i, i, -1);
+			// gamma_t = 1 and gamma_u = sum_v hs_uv * gamma_v; hs_uv is only
+			// set on downhill arcs so nodes are solved by increasing distance
+			gs[destination] = 1;
+			SPDag dag = topology.getShortestPathGraph().getDAG(destination);
+			for (int i = dag.size() - 1; i >= 0; i--) {
+				int u = dag.getNode(i);
+				gs[u] = gamma(u);
+			}
+		}
 
-			
-						
-			DecompositionSolver solver = new LUDecomposition(coefficients).getSolver();
-			double[] c = new double[hs.length];
-			for (int i = 0; i < c.length; i++)
-				c[i] = 0;
-			c[destination] = 1;
-			RealVector constants = new ArrayRealVector(c, false);
-			RealVector solution = solver.solve(constants);
-			gs = solution.toArray();
-			for (int i = 0; i < gs.length; i++) {
-				double sum = 0.0;
-				double[] values = new double[gs.length];
-				for (int j = 0; j < gs.length; j++) {
-					gamma[i][j] = hs[i][j] * gs[j];
-					values[j] = gamma[i][j];
-					sum += gamma[i][j];
-				}
-				if (sum != 0.0)
-					if (this.APPLY_THRESHOLD) {
-						double res[] = fraction(values, this.THRESHOLD);
-						for (int j = 0; j < gs.length; j++) {
-							splits[i][j] = res[j];
-						}
-					} else {
-						for (int j = 0; j < gs.length; j++) {
-							splits[i][j] = gamma[i][j] / sum;
-						}
-					}
+		for (int u = 0; u < gs.length; u++)
+			computeSplits(u);
 
+		if (debug) {
+			System.out.println("**********Split table*******\n*************************");
+			print(splits, new DecimalFormat("#.0000"));
+			System.out.println("\n");
+		}
+	}
+
+	// recomputes the nodes in changed and those whose splits depend on them
+	private void update(boolean[] changed) {
+		MatDijkstra sp = topology.getShortestPathGraph();
+		NetGraph net = topology.getNetGraph();
+		int size = gs.length;
+		boolean[] dirty = new boolean[size];
+		for (int u = 0; u < size; u++)
+			if (changed[u]) {
+				computeEH(u, sp, net);
+				dirty[u] = true;
 			}
 
-		} else { // DEFT
-			for (int i = 0; i < hs.length; i++) {
-				double sum = 0.0;
-				double[] values = new double[hs.length];
-				for (int j = 0; j < hs.length; j++) {
-					sum += hs[i][j];
-					values[j] = hs[i][j];
-				}
-				if (sum != 0.0)
-					if (this.APPLY_THRESHOLD) {
-						double res[] = fraction(values, this.THRESHOLD);
-						for (int j = 0; j < hs.length; j++) {
-							splits[i][j] = res[j];
-						}
-					} else {
-						for (int j = 0; j < hs.length; j++) {
-							splits[i][j] = hs[i][j] / sum;
-						}
+		if (lb.equals(LoadBalancer.PEFT)) {
+			// a node is recomputed if its links or the gamma of a next hop
+			// changed
+			boolean[] moved = new boolean[size];
+			SPDag dag = sp.getDAG(destination);
+			for (int i = dag.size() - 1; i >= 0; i--) {
+				int u = dag.getNode(i);
+				if (!dirty[u])
+					dirty[u] = usesMoved(u, moved);
+				if (dirty[u]) {
+					double g = gamma(u);
+					if (g != gs[u]) {
+						gs[u] = g;
+						moved[u] = true;
 					}
+				}
 			}
+			for (int u = 0; u < size; u++)
+				if (!dirty[u])
+					dirty[u] = usesMoved(u, moved);
 		}
 
-		if (debug) {
-			System.out.println("**********Split table*******\n*************************");
-			DecimalFormat df = new DecimalFormat("#.0000");
-			for (int i = 0; i < hs.length; i++) {
-				for (int j = 0; j < hs.length; j++) {
-					System.out.print(df.format(splits[i][j]) + " ");
-				}
-				System.out.println();
-			}
-			System.out.println("\n");
+		for (int u = 0; u < size; u++)
+			if (dirty[u])
+				computeSplits(u);
+		collectNSP();
+	}
+
+	private boolean usesMoved(int u, boolean[] moved) {
+		for (int a = csr.getStart(u); a < csr.getEnd(u); a++)
+			if (hs[a] != 0.0 && moved[csr.getTarget(a)])
+				return true;
+		return false;
+	}
+
+	private double gamma(int u) {
+		double g = 0.0;
+		for (int a = csr.getStart(u); a < csr.getEnd(u); a++)
+			if (hs[a] != 0.0)
+				g += hs[a] * gs[csr.getTarget(a)];
+		return g;
+	}
+
+	// splits of the links leaving u, by the penalization (DEFT) or the gamma
+	// (PEFT) of each link
+	private void computeSplits(int u) {
+		int start = csr.getStart(u), end = csr.getEnd(u);
+		boolean peft = lb.equals(LoadBalancer.PEFT);
+		double[] values = new double[end - start];
+		double sum = 0.0;
+		for (int a = start; a < end; a++) {
+			values[a - start] = peft ? hs[a] * gs[csr.getTarget(a)] : hs[a];
+			sum += values[a - start];
 		}
+		Arrays.fill(splits, start, end, 0.0);
+		if (sum != 0.0)
+			if (this.APPLY_THRESHOLD) {
+				double res[] = fraction(values, this.THRESHOLD);
+				System.arraycopy(res, 0, splits, start, res.length);
+			} else {
+				for (int a = start; a < end; a++)
+					splits[a] = values[a - start] / sum;
+			}
+	}
 
-		return splits;
+	private void print(double[] values, DecimalFormat df) {
+		int size = topology.getDimension();
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				int a = csr.getArc(i, j);
+				System.out.print(df.format(a < 0 ? 0.0 : values[a]) + " ");
+			}
+			System.out.println();
+		}
 	}
 
 	public boolean isOnShortestPath(int u, int v) {
-		return hs[u][v] == 1;
+		int a = csr.getArc(u, v);
+		return a >= 0 && hs[a] == 1;
 	}
 
 	public double getSplit(int from, int to) {
-		return splits[from][to];
+		int a = csr.getArc(from, to);
+		return a < 0 ? 0.0 : splits[a];
+	}
+
+	/**
+	 * @return the fraction of traffic forwarded along the CSR arc
+	 */
+	public double getArcSplit(int arc) {
+		return splits[arc];
+	}
+
+	/**
+	 * The table shares the split ratios, compute must have been called
+	 */
+	@Override
+	public SplitTable compile(CSRGraph csr, int dest) {
+		if (csr != this.csr || dest != destination)
+			return SplitTable.compile(csr, dest, this);
+		return new SplitTable(csr, dest, splits);
 	}
 
 	public int countNSPLinks() {
@@ -19,6 +19,7 @@
  ******************************************************************************/
 package pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer;
 
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
 
 public interface ILoadBalancer {
 
@@ -39,4 +40,15 @@ public interface ILoadBalancer {
 	public double getSplitRatio(int flowSrc, int flowDst, int currentNode,int nextNode);
 	
 	
+	/**
+	 * 
+	 * @param csr
+	 * @param dest
+	 * @return the split ratios of the traffic to dest on each arc of csr
+	 */
+	public default SplitTable compile(CSRGraph csr, int dest) {
+		return SplitTable.compile(csr, dest, this);
+	}
+	
+	
 }
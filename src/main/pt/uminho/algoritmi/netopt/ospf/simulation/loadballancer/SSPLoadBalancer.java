@@ -22,7 +22,9 @@ package pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer;
 import java.util.Collections;
 import java.util.List;
 
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
 import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.graph.SPDag;
 
 public class SSPLoadBalancer implements ILoadBalancer {
 
@@ -31,6 +33,8 @@ public class SSPLoadBalancer implements ILoadBalancer {
 	// g is the SP spanning tree for destination dst
 	private Graph g; 
 	private double[][] weights;
+	// or the SP DAG for destination dst
+	private SPDag dag;
 	
 	
 	public SSPLoadBalancer(Graph g, double[][] weights){
@@ -38,12 +42,27 @@ public class SSPLoadBalancer implements ILoadBalancer {
 		this.weights=weights;
 	}
 
+	public SSPLoadBalancer(SPDag dag, double[][] weights){
+		this.dag=dag;
+		this.weights=weights;
+	}
+
 	@Override
 	/*
 	 * @see ospf.simulation.loadballancer.ILoadBalancer#getSplitRatio(int, int, int, int)
 	 *  
 	 */
 	public double getSplitRatio(int flowSrc, int flowDst, int currentNode, int nextNode) {
+		if(dag!=null){
+			if(!dag.isNextHop(currentNode,nextNode))
+				return 0;
+			// next hops are sorted, the first with the lowest weight is selected
+			int selectedHop= dag.getNextHop(currentNode,0);
+			for(int i=1;i<dag.outDegree(currentNode);i++)
+				if(weights[currentNode][dag.getNextHop(currentNode,i)]<weights[currentNode][selectedHop])
+					selectedHop=dag.getNextHop(currentNode,i);
+			return nextNode==selectedHop? 1 : 0;
+		}
 		if(g.getConnection(currentNode,nextNode).equals(Graph.Status.UP)){
 			List<Integer> out=g.outNodes(currentNode);
 			Collections.sort(out);
@@ -60,5 +79,24 @@ public class SSPLoadBalancer implements ILoadBalancer {
 			return 0;
 	}
 	
+	
+	@Override
+	public SplitTable compile(CSRGraph csr, int dest) {
+		if (dag == null || dag.getDestination() != dest)
+			return SplitTable.compile(csr, dest, this);
+		double[] ratios = new double[csr.getNumberOfArcs()];
+		for (int u = 0; u < csr.getDimension(); u++) {
+			if (dag.outDegree(u) == 0)
+				continue;
+			int selectedHop= dag.getNextHop(u,0);
+			for(int i=1;i<dag.outDegree(u);i++)
+				if(weights[u][dag.getNextHop(u,i)]<weights[u][selectedHop])
+					selectedHop=dag.getNextHop(u,i);
+			int a = csr.getArc(u, selectedHop);
+			if (a >= 0)
+				ratios[a] = 1;
+		}
+		return new SplitTable(csr, dest, ratios);
+	}
 
 }
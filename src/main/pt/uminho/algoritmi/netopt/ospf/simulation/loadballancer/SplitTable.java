@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ * 
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ * 
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer;
+
+import java.util.Arrays;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.simulation.sr.Flow;
+
+/**
+ * Split ratios of the traffic to one destination, compiled into arrays so
+ * that load computations only read them.
+ *
+ * The ratio of each arc of the topology CSR graph is the one given by the
+ * load balancer it was compiled from. The next hops of node u, the arc
+ * targets with a non zero ratio unless stated by the load balancer, are
+ * hops[hopStart[u]..hopStart[u+1]-1]. The arrays are shared with the load
+ * balancer and must not be changed.
+ */
+public class SplitTable implements ILoadBalancer {
+
+	private final CSRGraph csr;
+	private final int destination;
+	private final double[] ratios;
+	private final int[] hopStart;
+	private final int[] hops;
+
+	SplitTable(CSRGraph csr, int destination, double[] ratios, int[] hopStart, int[] hops) {
+		this.csr = csr;
+		this.destination = destination;
+		this.ratios = ratios;
+		this.hopStart = hopStart;
+		this.hops = hops;
+	}
+
+	/**
+	 * Table of the ratios, by arc; the next hops are the arcs with a non zero
+	 * ratio
+	 */
+	SplitTable(CSRGraph csr, int destination, double[] ratios) {
+		this.csr = csr;
+		this.destination = destination;
+		this.ratios = ratios;
+		int dim = csr.getDimension();
+		this.hopStart = new int[dim + 1];
+		int[] buf = new int[csr.getNumberOfArcs()];
+		int k = 0;
+		for (int u = 0; u < dim; u++) {
+			hopStart[u] = k;
+			for (int a = csr.getStart(u); a < csr.getEnd(u); a++)
+				if (ratios[a] != 0)
+					buf[k++] = csr.getTarget(a);
+		}
+		hopStart[dim] = k;
+		this.hops = Arrays.copyOf(buf, k);
+	}
+
+	/**
+	 * Compiles any load balancer by asking the ratio of each arc
+	 */
+	static SplitTable compile(CSRGraph csr, int dest, ILoadBalancer lb) {
+		double[] ratios = new double[csr.getNumberOfArcs()];
+		for (int a = 0; a < ratios.length; a++)
+			ratios[a] = lb.getSplitRatio(csr.getSource(a), dest, csr.getSource(a), csr.getTarget(a));
+		return new SplitTable(csr, dest, ratios);
+	}
+
+	@Override
+	public SplitTable compile(CSRGraph csr, int dest) {
+		if (csr == this.csr && dest == destination)
+			return this;
+		return compile(csr, dest, this);
+	}
+
+	public int getDestination() {
+		return destination;
+	}
+
+	public CSRGraph getCSR() {
+		return csr;
+	}
+
+	/**
+	 * @return the fraction of the traffic at the arc source forwarded along
+	 *         the arc
+	 */
+	public double getArcRatio(int arc) {
+		return ratios[arc];
+	}
+
+	public int outDegree(int node) {
+		return hopStart[node + 1] - hopStart[node];
+	}
+
+	/** the i-th next hop of node */
+	public int getNextHop(int node, int i) {
+		return hops[hopStart[node] + i];
+	}
+
+	@Override
+	public double getSplitRatio(int flowSrc, int flowDst, int currentNode, int nextNode) {
+		if (flowDst != destination)
+			return 0;
+		int a = csr.getArc(currentNode, nextNode);
+		return a < 0 ? 0 : ratios[a];
+	}
+
+	/**
+	 * Flow level splitting: the whole flow follows one of the next hops of
+	 * the node, chosen by the flow hash as in ECMP
+	 */
+	public double getSplitRatio(Flow f, int currentNode, int nextNode) {
+		int a = csr.getArc(currentNode, nextNode);
+		return getArcRatio(f, a);
+	}
+
+	/**
+	 * Flow level ratio of the arc, see {@link #getSplitRatio(Flow, int, int)}
+	 */
+	public double getArcRatio(Flow f, int arc) {
+		if (arc < 0 || ratios[arc] == 0)
+			return 0;
+		int u = csr.getSource(arc);
+		int i = f.hashCode() % outDegree(u);
+		return getNextHop(u, i) == csr.getTarget(arc) ? 1 : 0;
+	}
+}
@@ -27,6 +27,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
 import pt.uminho.algoritmi.netopt.ospf.graph.CapWGraph;
 import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
 import pt.uminho.algoritmi.netopt.ospf.graph.Graph.Status;
@@ -43,6 +44,9 @@ public class NetGraph implements Serializable {
 	protected NetNode[] nodes;
 	public NetEdge[] edges;
 	
+	// lookup tables, rebuilt when the nodes or edges arrays are replaced
+	private transient volatile Index index;
+	
 	
 	/**
 	 * @param filenameNodes
@@ -132,9 +136,15 @@ public class NetGraph implements Serializable {
 
 	public void setEdges(NetEdge[] edges) {
 		this.edges = edges;
+		this.nedges = edges.length;
 	}
 
 	public NetNode getNodeByID(int i) {
+		Index idx = index();
+		if (idx.nodeIdPositions != null) {
+			int p = (i >= 0 && i < idx.nodeIdPositions.length) ? idx.nodeIdPositions[i] : -1;
+			return p == -1 ? null : nodes[p];
+		}
 		for (NetNode node : this.nodes) {
 			if (node.getNodeId() == i) {
 				return node;
@@ -145,6 +155,13 @@ public class NetGraph implements Serializable {
 	
 	
 	public NetEdge getEdgeByID(int i) throws NullPointerException {
+		Index idx = index();
+		if (idx.edgeIdPositions != null) {
+			int p = (i >= 0 && i < idx.edgeIdPositions.length) ? idx.edgeIdPositions[i] : -1;
+			if (p != -1)
+				return edges[p];
+			throw new NullPointerException("No edge with id="+i);
+		}
 		for (NetEdge edge : this.edges) {
 			if (edge.getEdgeId() == i) {
 				return edge;
@@ -164,6 +181,7 @@ public class NetGraph implements Serializable {
 
 	public void setNodes(NetNode[] nodes) {
 		this.nodes = nodes;
+		this.nnodes = nodes.length;
 	}
 
 	public int getNNodes() {
@@ -175,16 +193,48 @@ public class NetGraph implements Serializable {
 	}
 
 	public NetEdge getEdge(int from, int to) throws NullPointerException {
-
-		for (int i = 0; i < edges.length; i++) {
-			NetEdge e = edges[i];
-			if ((e.getFrom() == from && e.getTo() == to)
-					|| (e.getFrom() == to && e.getTo() == from))
-				return e;
-		}
+		int p = index().find(from, to);
+		if (p != -1)
+			return edges[p];
 		throw new NullPointerException();
 	}
 
+	/**
+	 * @return the position in the edges array of the link between the two
+	 *         nodes (in any direction) or -1
+	 */
+	public int getEdgeIndex(int from, int to) {
+		return index().find(from, to);
+	}
+
+	/**
+	 * The link of an arc of a CSR view, as getEdge(from,to), or null if the
+	 * end nodes are not linked (existEdge). The position kept by the view is
+	 * only used while it still holds a link between the same nodes, so views
+	 * left stale by adding or removing links fall back to the lookup tables.
+	 */
+	public NetEdge getEdge(CSRGraph csr, int arc) {
+		int from = csr.getSource(arc);
+		int to = csr.getTarget(arc);
+		int p = csr.getEdgeIndex(arc);
+		if (p < 0 || p >= nedges || !links(edges[p], from, to))
+			p = index().find(from, to);
+		return p != -1 ? edges[p] : null;
+	}
+
+	/**
+	 * @return true if the arc of a CSR view is a link of this graph that is
+	 *         UP, as existEdge(from,to) && getEdge(from,to).isUP()
+	 */
+	public boolean isUP(CSRGraph csr, int arc) {
+		NetEdge e = getEdge(csr, arc);
+		return e != null && e.isUP();
+	}
+
+	private static boolean links(NetEdge e, int from, int to) {
+		return (e.from == from && e.to == to) || (e.from == to && e.to == from);
+	}
+
 	//
 	public CapWGraph createGraph() {
 		CapWGraph graph = new CapWGraph(nnodes, true);
@@ -213,9 +263,25 @@ public class NetGraph implements Serializable {
 			
 		}
 
+		graph.setCSR(createCSR(graph));
+
 		return graph;
 	}
 
+	/**
+	 * Builds the CSR view of a graph with the positions of the current links
+	 * of this NetGraph; links that are not arcs of the graph are ignored.
+	 */
+	public CSRGraph createCSR(WGraph graph) {
+		int[] from = new int[nedges];
+		int[] to = new int[nedges];
+		for (int i = 0; i < nedges; i++) {
+			from[i] = edges[i].from;
+			to[i] = edges[i].to;
+		}
+		return new CSRGraph(graph, from, to);
+	}
+
 	// creates WGraph only with topology and no weights nor capacities
 	public WGraph createWGraph() {
 		WGraph graph = new WGraph(nnodes, true);
@@ -347,7 +413,12 @@ public class NetGraph implements Serializable {
 		for (int i = 0; i < this.nedges; i++) {
 			cedges[i] = this.edges[i].copy();
 		}
-		return new NetGraph(cnodes, cedges);
+		NetGraph g = new NetGraph(cnodes, cedges);
+		// same structure, the lookup tables only hold positions
+		Index idx = this.index;
+		if (idx != null && idx.isValid(this))
+			g.index = idx.rebind(cnodes, cedges);
+		return g;
 	}
 
 	
@@ -412,13 +483,7 @@ public class NetGraph implements Serializable {
 	}
 
 	public boolean existEdge(int from, int to) {
-		for (int i = 0; i < this.nedges; i++) {
-			if (this.edges[i].getFrom() == from && this.edges[i].getTo() == to)
-				return true;
-			else if (this.edges[i].getFrom() == to && this.edges[i].getTo() == from)
-				return true;
-		}
-		return false;
+		return index().find(from, to) != -1;
 	}
 
 	
@@ -672,4 +737,131 @@ public class NetGraph implements Serializable {
 		return list;
 	}
 	
+	
+	/**
+	 * Discards the lookup tables. Must be called if node/edge ids or edge end
+	 * points are changed in place; replacing the arrays is detected.
+	 */
+	public void reindex() {
+		this.index = null;
+	}
+	
+	private Index index() {
+		Index idx = this.index;
+		if (idx == null || !idx.isValid(this)) {
+			idx = new Index(nodes, edges, nedges);
+			this.index = idx;
+		}
+		return idx;
+	}
+	
+	
+	/**
+	 * Lookup tables: an open addressing table of edge positions keyed by the
+	 * (unordered) end nodes, and id to position arrays when ids are dense.
+	 * Keeps the first edge/node found, as the linear scans did.
+	 */
+	private static final class Index {
+
+		private final NetNode[] nodes;
+		private final NetEdge[] edges;
+		private final int nedges;
+		private final int[] slots;
+		private final int mask;
+		private final int[] edgeIdPositions;
+		private final int[] nodeIdPositions;
+
+		Index(NetNode[] nodes, NetEdge[] edges, int nedges) {
+			this.nodes = nodes;
+			this.edges = edges;
+			this.nedges = nedges;
+			int n = Math.min(nedges, edges.length);
+			int capacity = 16;
+			while (capacity < 2 * n)
+				capacity <<= 1;
+			this.slots = new int[capacity];
+			this.mask = capacity - 1;
+			for (int i = 0; i < capacity; i++)
+				slots[i] = -1;
+			for (int i = 0; i < n; i++) {
+				int a = Math.min(edges[i].getFrom(), edges[i].getTo());
+				int b = Math.max(edges[i].getFrom(), edges[i].getTo());
+				int h = hash(a, b) & mask;
+				while (slots[h] != -1 && !matches(slots[h], a, b))
+					h = (h + 1) & mask;
+				if (slots[h] == -1)
+					slots[h] = i;
+			}
+			int[] ids = new int[n];
+			for (int i = 0; i < n; i++)
+				ids[i] = edges[i].getEdgeId();
+			this.edgeIdPositions = positions(ids);
+			ids = new int[nodes.length];
+			for (int i = 0; i < nodes.length; i++)
+				ids[i] = nodes[i].getNodeId();
+			this.nodeIdPositions = positions(ids);
+		}
+
+		private Index(Index other, NetNode[] nodes, NetEdge[] edges) {
+			this.nodes = nodes;
+			this.edges = edges;
+			this.nedges = other.nedges;
+			this.slots = other.slots;
+			this.mask = other.mask;
+			this.edgeIdPositions = other.edgeIdPositions;
+			this.nodeIdPositions = other.nodeIdPositions;
+		}
+
+		Index rebind(NetNode[] nodes, NetEdge[] edges) {
+			return new Index(this, nodes, edges);
+		}
+
+		boolean isValid(NetGraph g) {
+			return g.edges == edges && g.nedges == nedges && g.nodes == nodes;
+		}
+
+		int find(int from, int to) {
+			int a = Math.min(from, to);
+			int b = Math.max(from, to);
+			int h = hash(a, b) & mask;
+			while (slots[h] != -1) {
+				if (matches(slots[h], a, b))
+					return slots[h];
+				h = (h + 1) & mask;
+			}
+			return -1;
+		}
+
+		private boolean matches(int position, int a, int b) {
+			NetEdge e = edges[position];
+			return (e.getFrom() == a && e.getTo() == b) || (e.getFrom() == b && e.getTo() == a);
+		}
+
+		private static int hash(int a, int b) {
+			int h = a * 0x9E3779B1 + b;
+			return h ^ (h >>> 16);
+		}
+
+		/**
+		 * id to position array, or null if ids are negative or too sparse
+		 */
+		private static int[] positions(int[] ids) {
+			int max = -1;
+			for (int id : ids) {
+				if (id < 0)
+					return null;
+				max = Math.max(max, id);
+			}
+			if (max > 2 * ids.length + 64)
+				return null;
+			int[] res = new int[max + 1];
+			for (int i = 0; i <= max; i++)
+				res[i] = -1;
+			for (int i = 0; i < ids.length; i++)
+				if (res[ids[i]] == -1)
+					res[ids[i]] = i;
+			return res;
+		}
+	}
+	
 }
@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ *
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ *
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.simulation.simulators;
+
+import java.util.Arrays;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.CapWGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.DialDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
+import pt.uminho.algoritmi.netopt.ospf.simulation.LoadsWorkspace;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
+
+/**
+ * Evaluates single link failure scenarios against a baseline.
+ *
+ * The baseline keeps the loads of each destination for a weight vector. When
+ * an edge fails, the shortest paths are repaired incrementally and the loads
+ * are recomputed only for the destinations whose routing may change: those
+ * whose shortest path DAG used the edge or, for DEFT and PEFT, that could
+ * forward traffic on it. The differences are then added to the baseline
+ * loads. The edge is restored after each scenario.
+ *
+ * The topology is changed during the evaluation of a scenario, so each
+ * thread must use its own topology copy.
+ */
+@SuppressWarnings("serial")
+public class FailureScenarioSimul extends Simul {
+
+	private Demands demands;
+	private boolean[] active;
+	// baseline loads of each destination on the CSR arcs
+	private double[][] destLoads;
+	private double[] baseLoads;
+	private double[] baseMeasures;
+
+	// uncapacitated phi with each edge failed, depends only on the demands
+	// and on the status of the other links; computed from the hop counts of
+	// the baseline, with a BFS from the sources whose minimum hop paths all
+	// use the failed edge
+	private MatDijkstra hops;
+	private double basePhiUncap;
+	private double[] failurePhiUncap;
+	private Demands phiUncapDemands;
+	private int phiUncapVersion;
+	private boolean[] phiUncapStatus;
+
+	public FailureScenarioSimul(NetworkTopology topology) {
+		super(topology);
+	}
+
+	public FailureScenarioSimul(NetworkTopology topology, LoadBalancer lb) {
+		super(topology);
+		this.setLoadBalancer(lb);
+	}
+
+	/**
+	 * Applies the weights and computes the baseline loads, with all links in
+	 * their current status.
+	 *
+	 * @return the congestion measure and the MLU of the baseline
+	 */
+	public double[] setBaseline(int[] weights, Demands demands) {
+		topology.applyWeights(weights);
+		this.demands = demands;
+		int dimension = topology.getDimension();
+		CSRGraph csr = topology.getGraph().getCSR();
+		int arcs = csr.getNumberOfArcs();
+
+		if (destLoads == null || destLoads.length != dimension || (dimension > 0 && destLoads[0].length != arcs)) {
+			destLoads = new double[dimension][arcs];
+			baseLoads = new double[arcs];
+		} else
+			Arrays.fill(baseLoads, 0.0);
+		active = new boolean[dimension];
+		for (int d = 0; d < dimension; d++) {
+			Arrays.fill(destLoads[d], 0.0);
+			active[d] = topology.getGraph().inDegree(d) > 0;
+			if (!active[d])
+				continue;
+			arcLoads(d, demands, createLoadBalancer(d), destLoads[d]);
+			for (int a = 0; a < arcs; a++)
+				baseLoads[a] += destLoads[d][a];
+		}
+
+		boolean[] status = linkStatus();
+		if (phiUncapDemands != demands || phiUncapVersion != demands.getVersion() || !Arrays.equals(phiUncapStatus, status)
+				|| failurePhiUncap == null || failurePhiUncap.length != topology.getNetGraph().getNEdges()) {
+			failurePhiUncap = new double[topology.getNetGraph().getNEdges()];
+			Arrays.fill(failurePhiUncap, Double.NaN);
+			phiUncapDemands = demands;
+			phiUncapVersion = demands.getVersion();
+			phiUncapStatus = status;
+			// the Graph constructor copies the UP links with unit weights
+			hops = new DialDijkstra((Graph) topology.getGraph(), true);
+			hops.execute();
+			basePhiUncap = hopsPhiUncap();
+		}
+
+		baseMeasures = measures(baseLoads, basePhiUncap);
+		return baseMeasures.clone();
+	}
+
+	/**
+	 * @return the baseline loads
+	 */
+	public double[][] getBaselineLoads() {
+		return toMatrix(baseLoads);
+	}
+
+	/**
+	 * @return the baseline loads of each CSR arc
+	 */
+	public double[] getBaselineArcLoads() {
+		return baseLoads;
+	}
+
+	/**
+	 * @return the loads when edge e fails
+	 */
+	public double[][] failureLoads(NetEdge e) {
+		return toMatrix(fail(e, null));
+	}
+
+	/**
+	 * @return the loads of each CSR arc when edge e fails
+	 */
+	public double[] failureArcLoads(NetEdge e) {
+		return fail(e, null);
+	}
+
+	/**
+	 * @return the congestion measure and the MLU when edge e fails
+	 */
+	public double[] evalFailure(NetEdge e) {
+		double[] measures = new double[2];
+		fail(e, measures);
+		return measures;
+	}
+
+	private double[] fail(NetEdge e, double[] measures) {
+		if (baseLoads == null)
+			throw new IllegalStateException("The baseline was not computed");
+		int dimension = topology.getDimension();
+		double[] loads = baseLoads.clone();
+		if (!e.isUP()) {
+			if (measures != null)
+				System.arraycopy(baseMeasures, 0, measures, 0, 2);
+			return loads;
+		}
+
+		int u = e.getFrom(), v = e.getTo();
+		CSRGraph csr = topology.getGraph().getCSR();
+		int arcs = csr.getNumberOfArcs();
+		boolean[] changed = topology.updateEdgeStatus(e, Graph.Status.DOWN);
+		try {
+			MatDijkstra sp = topology.getShortestPathGraph();
+			boolean gamma = lbo == LoadBalancer.DEFT || lbo == LoadBalancer.PEFT;
+
+			for (int d = 0; d < dimension; d++) {
+				// DEFT and PEFT may forward traffic on any link towards a closer node
+				if (!active[d] || !(changed[d] || (gamma && sp.getDist(u, d) != sp.getDist(v, d))))
+					continue;
+				double[] arcLoads = LoadsWorkspace.get().getArcLoads(arcs);
+				try {
+					if (topology.getGraph().inDegree(d) > 0)
+						arcLoads(d, demands, createLoadBalancer(d), arcLoads);
+					double[] old = destLoads[d];
+					for (int a = 0; a < arcs; a++)
+						if (arcLoads[a] != old[a])
+							loads[a] += arcLoads[a] - old[a];
+				} finally {
+					LoadsWorkspace.get().release(arcLoads);
+				}
+			}
+			// no residue of the patch on the failed links
+			int uv = csr.getArc(u, v), vu = csr.getArc(v, u);
+			if (uv != -1)
+				loads[uv] = 0.0;
+			if (vu != -1)
+				loads[vu] = 0.0;
+
+			if (measures != null) {
+				int index = topology.getNetGraph().getEdgeIndex(u, v);
+				double phiUncap;
+				if (index >= 0 && index < failurePhiUncap.length) {
+					if (Double.isNaN(failurePhiUncap[index]))
+						failurePhiUncap[index] = failurePhiUncap(u, v);
+					phiUncap = failurePhiUncap[index];
+				} else
+					phiUncap = failurePhiUncap(u, v);
+				double[] m = measures(loads, phiUncap);
+				System.arraycopy(m, 0, measures, 0, 2);
+			}
+		} finally {
+			// the scenario never leaves the edge down, even if it fails
+			topology.updateEdgeStatus(e, Graph.Status.UP);
+		}
+		return loads;
+	}
+
+	// uncapacitated phi, as phiUncap, when the links between u and v are down;
+	// only the hop counts from sources where some node loses its only
+	// minimum hop predecessor change, and those are recomputed by a BFS
+	private double failurePhiUncap(int u, int v) {
+		double sum = basePhiUncap;
+		for (int s = 0; s < topology.getDimension(); s++)
+			if (isOnlyPredecessor(s, u, v) || isOnlyPredecessor(s, v, u))
+				sum += hopsDelta(s);
+		return sum;
+	}
+
+	private boolean isOnlyPredecessor(int s, int u, int v) {
+		if (hops.getDist(s, u) == Double.MAX_VALUE || hops.getDist(s, v) != hops.getDist(s, u) + 1)
+			return false;
+		CapWGraph graph = topology.getGraph();
+		CSRGraph csr = graph.getCSR();
+		for (int a = csr.getStart(v); a < csr.getEnd(v); a++) {
+			int w = csr.getTarget(a);
+			if (w != u && graph.getConnection(w, v).equals(Graph.Status.UP)
+					&& hops.getDist(s, w) == hops.getDist(s, v) - 1)
+				return false;
+		}
+		return true;
+	}
+
+	// change of the phi of the demands from s, with the failed links down
+	private double hopsDelta(int s) {
+		CapWGraph graph = topology.getGraph();
+		CSRGraph csr = graph.getCSR();
+		int n = topology.getDimension();
+		int[] dist = new int[n];
+		int[] queue = new int[n];
+		Arrays.fill(dist, -1);
+		dist[s] = 0;
+		int head = 0, tail = 0;
+		queue[tail++] = s;
+		while (head < tail) {
+			int x = queue[head++];
+			for (int a = csr.getStart(x); a < csr.getEnd(x); a++) {
+				int y = csr.getTarget(a);
+				if (dist[y] < 0 && graph.getConnection(x, y).equals(Graph.Status.UP)) {
+					dist[y] = dist[x] + 1;
+					queue[tail++] = y;
+				}
+			}
+		}
+		double[] h = hops.getShortestPathDistances()[s];
+		double[] d = demands.getDemands()[s];
+		double delta = 0.0;
+		for (int t = 0; t < n; t++)
+			if (d[t] > 0)
+				delta += d[t] * (Math.max(dist[t], 0) - h[t]);
+		return delta;
+	}
+
+	private double hopsPhiUncap() {
+		double[][] h = hops.getShortestPathDistances();
+		double[][] d = demands.getDemands();
+		double sum = 0.0;
+		for (int s = 0; s < h.length; s++)
+			for (int t = 0; t < h.length; t++)
+				if (d[s][t] > 0)
+					sum += d[s][t] * h[s][t];
+		return sum;
+	}
+
+	// congestion measure, as congestionMeasure, and maximum link utilization
+	private double[] measures(double[] loads, double phiUncap) {
+		CapWGraph graph = topology.getGraph();
+		CSRGraph csr = graph.getCSR();
+		double sum = 0.0;
+		double mlu = 0.0;
+		for (int a = 0; a < csr.getNumberOfArcs(); a++) {
+			int i = csr.getSource(a), j = csr.getTarget(a);
+			double cap = graph.getCapacity(i, j);
+			double u = loads[a] / cap;
+			if (u > mlu)
+				mlu = u;
+			if (graph.getConnection(i, j).equals(Graph.Status.UP))
+				sum += phi(u, loads[a], cap);
+		}
+		return new double[] { sum / phiUncap, mlu };
+	}
+
+	// the links that are down
+	private boolean[] linkStatus() {
+		NetEdge[] edges = topology.getNetGraph().getEdges();
+		boolean[] down = new boolean[edges.length];
+		for (int i = 0; i < edges.length; i++)
+			down[i] = !edges[i].isUP();
+		return down;
+	}
+}
@@ -63,8 +63,7 @@ public class LinkFailureSimul extends Simul{
 		
 		// compute loads
 		topology.applyWeights(weights);
-		topology.shortestDistances();
-		loads = new NetworkLoads(totalLoads(demands),topology);
+		loads = new NetworkLoads(totalArcLoads(demands),topology);
 		// congestion measure
 		res1= congestionMeasure(loads,demands);
 		// compute delay
@@ -101,7 +100,7 @@ public class LinkFailureSimul extends Simul{
 			throw new GraphNotConnectedException();
 		}
 		topology.applyWeights(weights);
-		loads = new NetworkLoads(totalLoads(demands),topology);
+		loads = new NetworkLoads(totalArcLoads(demands),topology);
 		res2= congestionMeasure(loads,demands);
 		if (computeDelay) {
 			OSPFWeights w = new OSPFWeights(topology.getDimension());
@@ -158,49 +157,38 @@ public class LinkFailureSimul extends Simul{
 	{
 		
 						
-		// compute loads
-		topology.applyWeights(weights);
-		topology.shortestDistances();
-		
+		// baseline loads, each failure only recomputes the affected destinations
+		FailureScenarioSimul scenarios = new FailureScenarioSimul(topology,getLoadBalancer());
+		scenarios.setBaseline(weights,demands);
 		
-		// select failed link
-		// and compute congestion/delay measure
-		OSPFWeights ws = new OSPFWeights(topology.getDimension());
-		ws.setWeights(weights, topology);
+		// compute the congestion measure for each failed link
 		NetEdge[] edges=topology.getNetGraph().getEdges();
 		Double[] values=new Double[edges.length];
 		
 		for(int countedge=0;countedge<edges.length;countedge++){
 			NetEdge e=edges[countedge];
-			boolean connected;
-			int lf_from;int lf_to;
-			
-			do{
-				lf_from=e.getFrom();
-				lf_to=e.getTo();	
-				topology.getGraph().setConnection(lf_from,lf_to , Graph.Status.DOWN);
-				topology.getGraph().setConnection(lf_to,lf_from, Graph.Status.DOWN);
-				// TODO
-				// Question: what should be done in case of unconnected graph after link failure?
-				// for now just throw exception
-				connected = topology.getGraph().isConnected();
-			}while(!connected);
-			
-			if(!connected){
+			// links that disconnect the graph are not evaluated
+			if(!topology.getGraph().isConnected(e.getFrom(),e.getTo()))
 				values[countedge]=null;
-			}else{
-				topology.applyWeights(weights);
-				loads = new NetworkLoads(totalLoads(demands),topology);
-				values[countedge]= congestionMeasure(loads,demands);
-			}
-			topology.getGraph().setConnection(lf_from,lf_to , Graph.Status.UP);
-			topology.getGraph().setConnection(lf_to,lf_from, Graph.Status.UP);
+			else
+				values[countedge]=scenarios.evalFailure(e)[0];
 		}
 		
+		double sum=0.0;
+		double max=0.0;
+		int n=0;
+		for(Double v:values)
+			if(v!=null){
+				sum+=v;
+				max=Math.max(max,v);
+				n++;
+			}
+		if(n==0)
+			throw new GraphNotConnectedException();
 		if(s.equals(LinkFailureSimul.ValuesAggredation.average))
-			return 0.0;
+			return sum/n;
 		else
-			return 0.0;
+			return max;
 		
 	}
 	
@@ -60,13 +60,13 @@ public class MultiDemandsSimul extends Simul implements IMultiDemandSimulator,IS
 		
 		if (computeDemands1) {
 			topology.applyWeights(weights);
-			loads = new NetworkLoads(totalLoads(demands1),topology);
+			loads = new NetworkLoads(totalArcLoads(demands1),topology);
 			res1 = congestionMeasure(loads,demands1);
 		}
 		
 		if (computeDemands2) {
 			topology.applyWeights(weights);
-			loads = new NetworkLoads(totalLoads(demands2),topology);
+			loads = new NetworkLoads(totalArcLoads(demands2),topology);
 			res2 = congestionMeasure(loads,demands2);
 		}
 
@@ -100,7 +100,7 @@ public class MultiDemandsSimul extends Simul implements IMultiDemandSimulator,IS
 		
 		
 		topology.applyWeights(weights);
-		loads = new NetworkLoads(totalLoads(demands),topology);
+		loads = new NetworkLoads(totalArcLoads(demands),topology);
 		res1 = congestionMeasure(loads,demands);
 		res2=loads.getMLU();
 		double[] result = new double[2];
@@ -127,7 +127,7 @@ public class MultiDemandsSimul extends Simul implements IMultiDemandSimulator,IS
 		
 		
 		topology.applyWeights(weights);
-		loads = new NetworkLoads(totalLoads(demands),topology);
+		loads = new NetworkLoads(totalArcLoads(demands),topology);
 		res1 = congestionMeasure(loads,demands);
 		res2=loads.getALU();
 		double[] result = new double[2];
@@ -122,7 +122,6 @@ public class MultiTopologySimul {
 		   void doWork(int[] weights,Demands demands)
 		   { 
 			  topology.applyWeights(weights);
-			  topology.shortestDistances();
 			  loads= sim.totalLoads(demands);
 		   }
 		   
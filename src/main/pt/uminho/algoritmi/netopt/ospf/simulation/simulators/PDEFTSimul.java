@@ -19,17 +19,16 @@
  ******************************************************************************/
 package pt.uminho.algoritmi.netopt.ospf.simulation.simulators;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Iterator;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkLoads;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
 import pt.uminho.algoritmi.netopt.ospf.simulation.OSPFWeights;
 import pt.uminho.algoritmi.netopt.ospf.simulation.PValues;
+import pt.uminho.algoritmi.netopt.ospf.simulation.RoutingCache;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Simul;
 import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
 import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.GammaLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ILoadBalancer;
 
 // DEFT/ PEFT use a different distribution of traffic across the links topology
 
@@ -59,8 +58,8 @@ public class PDEFTSimul extends Simul implements ISimulator, IMultiDemandSimulat
 
 		this.loads = new NetworkLoads(topology);
 		topology.applyWeights(weights);
-		double[][] tl = totalLoads(demands);
-		this.loads.setLoads(tl);
+		double[] tl = totalArcLoads(demands);
+		this.loads.setArcLoads(tl);
 		this.loads.setCongestion(congestionMeasure(loads, demands));
 	}
 
@@ -69,79 +68,32 @@ public class PDEFTSimul extends Simul implements ISimulator, IMultiDemandSimulat
 
 		this.loads = new NetworkLoads(topology);
 		topology.applyWeights(weights);
-		double[][] tl = totalLoads(pvalues.getPValues(),demands);
-		this.loads.setLoads(tl);
+		double[] tl = totalArcLoads(pvalues.getPValues(),demands);
+		this.loads.setArcLoads(tl);
 		this.loads.setCongestion(congestionMeasure(loads, demands));
 	}
 
 	
 	@Override
-	public double[][] totalLoads(Demands demands) {
-		
-		int dimension = topology.getGraph().getDimension();
-		double[][] tLoads = new double[dimension][dimension];
-		for (int i = 0; i < dimension; i++)
-			for (int j = 0; j < dimension; j++)
-				tLoads[i][j] = 0.0;
-
-		for (int d = 0; d < dimension; d++) {
-			if (topology.getGraph().inDegree(d) > 0) {
-				double[][] ploads = partialLoads(d, demands);
-				for (int i = 0; i < dimension; i++)
-					for (int j = 0; j < dimension; j++)
-						tLoads[i][j] += ploads[i][j];
-			}
-		}
-
-		return tLoads;
+	public double[] totalArcLoads(Demands demands) {
+		return totalArcLoads(null, demands);
 	}
 
 
 	@Override
 	public double[][] partialLoads(int dest, Demands demands) {
-		GammaLoadBalancer g = new GammaLoadBalancer(topology, dest, this.getLoadBalancer());
-		g.computeGamma();
-		double[][] ploads = new double[topology.getDimension()][topology.getDimension()];
-		for (int j = 0; j < topology.getDimension(); j++)
-			for (int k = 0; k < topology.getDimension(); k++)
-				ploads[j][k] = 0.0;
-		ArrayList<Integer> nodes = new ArrayList<Integer>(topology.getShortestPathGraph().getNodesForDest(dest));
-
-		// order nodes by distance to destination
-		nodes.sort(new Comparator<Integer>() {
-			double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-
-			@Override
-			public int compare(Integer arg0, Integer arg1) {
-				double d0 = dists[arg0][dest];
-				double d1 = dists[arg1][dest];
-				if (d0 - d1 > 0)
-					return -1;
-				else if (d0 == d1)
-					return 0;
-				else
-					return 1;
-			}
-		});
-
-		Iterator<Integer> it = nodes.iterator();
-		while (it.hasNext()) {
-
-			int current = it.next();
-			// sum of all traffic that arrives to the current node v
-			double suml = 0.0;
-			for (int u = 0; u < topology.getDimension(); u++) {
-				if (topology.getNetGraph().existEdge(u, current) && topology.getNetGraph().getEdge(u, current).isUP())
-					suml += ploads[u][current];
-			}
-			// load to be forwarded from current
-			double load = demands.getDemands(current, dest) + suml;
-			// split load
-			for (int i = 0; i < topology.getDimension(); i++) {
-				ploads[current][i] = g.getSplit(current, i) * load;
-			}
-		}
-		return ploads;
+		return partialLoads(dest, demands, null);
+	}
+
+	@Override
+	protected ILoadBalancer createLoadBalancer(int dest) {
+		return createLoadBalancer(dest, null);
+	}
+
+	private GammaLoadBalancer createLoadBalancer(int dest, double[] pvalues) {
+		GammaLoadBalancer gam = new GammaLoadBalancer(this.topology, dest, this.getLoadBalancer(), pvalues);
+		gam.compute();
+		return gam;
 	}
 
 	public double[] evalWeightsMO(int[] weights, boolean computeDemands1, boolean computeDemands2, boolean timeDebug,
@@ -154,13 +106,13 @@ public class PDEFTSimul extends Simul implements ISimulator, IMultiDemandSimulat
 
 		if (computeDemands1) {
 			topology.applyWeights(weights);
-			loads = new NetworkLoads(totalLoads(demands1), topology);
+			loads = new NetworkLoads(totalArcLoads(demands1), topology);
 			res1 = congestionMeasure(loads, demands1);
 		}
 
 		if (computeDemands2) {
 			topology.applyWeights(weights);
-			loads = new NetworkLoads(totalLoads(demands2), topology);
+			loads = new NetworkLoads(totalArcLoads(demands2), topology);
 			res2 = congestionMeasure(loads, demands2);
 		}
 
@@ -179,83 +131,27 @@ public class PDEFTSimul extends Simul implements ISimulator, IMultiDemandSimulat
 		// NetworkLoads loads;
 
 		topology.applyWeights(weights);
-		topology.shortestDistances();
 		double res = 0.0;
-		loads = new NetworkLoads(totalLoads(pValues, demands), topology);
+		loads = new NetworkLoads(totalArcLoads(pValues, demands), topology);
 		res = congestionMeasure(loads, demands);
 		loads.setCongestion(res);
 		return res;
 	}
 
 	public double[][] totalLoads(double[] pvalues, Demands demands) {
-		int dimension = topology.getDimension();
-
-		double[][] tLoads = new double[dimension][dimension];
-		for (int i = 0; i < dimension; i++)
-			for (int j = 0; j < dimension; j++)
-				tLoads[i][j] = 0.0;
-
-		for (int d = 0; d < dimension; d++) {
-			if (topology.getGraph().inDegree(d) > 0) {
-				double[][] ploads = this.partialLoads(d, demands, pvalues);
-				for (int i = 0; i < dimension; i++)
-					for (int j = 0; j < dimension; j++)
-						tLoads[i][j] += ploads[i][j];
-			}
-		}
-		return tLoads;
+		return toMatrix(totalArcLoads(pvalues, demands));
 	}
 
-	public double[][] partialLoads(int dest, Demands demands, double[] pvalues) {
-
-		GammaLoadBalancer gam = new GammaLoadBalancer(this.topology, dest, this.getLoadBalancer(), pvalues);
-		gam.computeGamma();
+	public double[] totalArcLoads(double[] pvalues, Demands demands) {
+		RoutingCache routing = topology.getRoutingCache();
+		routing.validate(getGammaLoadBalancer(), pvalues);
+		return sumArcLoads((d, arcLoads) -> arcLoads(d, demands, routing.getSplitTable(d), arcLoads), loadsThreads);
+	}
 
+	public double[][] partialLoads(int dest, Demands demands, double[] pvalues) {
 		double[][] ploads = new double[topology.getDimension()][topology.getDimension()];
-		for (int j = 0; j < topology.getDimension(); j++)
-			for (int k = 0; k < topology.getDimension(); k++)
-				ploads[j][k] = 0.0;
-		ArrayList<Integer> nodes = new ArrayList<Integer>(topology.getShortestPathGraph().getNodesForDest(dest));
-
-		// order nodes by distance to destination
-		nodes.sort(new Comparator<Integer>() {
-			double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-
-			@Override
-			public int compare(Integer arg0, Integer arg1) {
-				double d0 = dists[arg0][dest];
-				double d1 = dists[arg1][dest];
-				if (d0 - d1 > 0)
-					return -1;
-				else if (d0 == d1)
-					return 0;
-				else
-					return 1;
-			}
-		});
-
-		Iterator<Integer> it = nodes.iterator();
-		while (it.hasNext()) {
-
-			int current = it.next();
-			if (current != dest) {
-				// sum of all traffic that arrives to the current node v
-				double suml = 0.0;
-				for (int u = 0; u < topology.getDimension(); u++) {
-					if (topology.getNetGraph().existEdge(u, current)
-							&& topology.getNetGraph().getEdge(u, current).isUP())
-						suml += ploads[u][current];
-				}
-				// load to be forwarded from current
-				double load = demands.getDemands(current, dest) + suml;
-				// split load
-				for (int i = 0; i < topology.getDimension(); i++) {
-					ploads[current][i] = gam.getSplit(current, i) * load;
-				}
-			}
-		}
+		addLoads(dest, demands, createLoadBalancer(dest, pvalues), ploads);
 		return ploads;
-
 	}
 
 	@Override
@@ -273,7 +169,7 @@ public class PDEFTSimul extends Simul implements ISimulator, IMultiDemandSimulat
 		double res2 = 0.0;
 
 		topology.applyWeights(weights);
-		loads = new NetworkLoads(totalLoads(demands), topology);
+		loads = new NetworkLoads(totalArcLoads(demands), topology);
 		res1 = congestionMeasure(loads, demands);
 		res2 = loads.getMLU();
 		double[] result = new double[2];
@@ -298,7 +194,7 @@ public class PDEFTSimul extends Simul implements ISimulator, IMultiDemandSimulat
 		double res2 = 0.0;
 
 		topology.applyWeights(weights);
-		loads = new NetworkLoads(totalLoads(demands), topology);
+		loads = new NetworkLoads(totalArcLoads(demands), topology);
 		res1 = congestionMeasure(loads, demands);
 		res2 = loads.getALU();
 		double[] result = new double[2];
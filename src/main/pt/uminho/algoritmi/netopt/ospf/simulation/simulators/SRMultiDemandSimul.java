@@ -62,13 +62,13 @@ public class SRMultiDemandSimul extends SRSimul implements IMultiDemandSimulator
 		
 		if (computeDemands1) {
 			topology.applyWeights(weights);
-			loads = new NetworkLoads(totalLoads(demands1),topology);
+			loads = new NetworkLoads(totalArcLoads(demands1),topology);
 			res1 = congestionMeasure(loads,demands1);
 		}
 		
 		if (computeDemands2) {
 			topology.applyWeights(weights);
-			loads = new NetworkLoads(totalLoads(demands2),topology);
+			loads = new NetworkLoads(totalArcLoads(demands2),topology);
 			res2 = congestionMeasure(loads,demands2);
 		}
 
@@ -94,7 +94,7 @@ public class SRMultiDemandSimul extends SRSimul implements IMultiDemandSimulator
 		
 		
 		topology.applyWeights(weights);
-		loads = new NetworkLoads(totalLoads(demands),topology);
+		loads = new NetworkLoads(totalArcLoads(demands),topology);
 		res1 = congestionMeasure(loads,demands);
 		res2=loads.getMLU();
 		double[] result = new double[2];
@@ -120,7 +120,7 @@ public class SRMultiDemandSimul extends SRSimul implements IMultiDemandSimulator
 		double res2 = 0.0;
 		
 		topology.applyWeights(weights);
-		loads = new NetworkLoads(totalLoads(demands),topology);
+		loads = new NetworkLoads(totalArcLoads(demands),topology);
 		res1 = congestionMeasure(loads,demands);
 		res2=loads.getALU();
 		double[] result = new double[2];
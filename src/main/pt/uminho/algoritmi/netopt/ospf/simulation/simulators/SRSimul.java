@@ -21,22 +21,26 @@ package pt.uminho.algoritmi.netopt.ospf.simulation.simulators;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 
-import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.SPDag;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
+import pt.uminho.algoritmi.netopt.ospf.simulation.LoadsWorkspace;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkLoads;
 import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
 import pt.uminho.algoritmi.netopt.ospf.simulation.OSPFWeights;
 import pt.uminho.algoritmi.netopt.ospf.simulation.PValues;
+import pt.uminho.algoritmi.netopt.ospf.simulation.RoutingCache;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Simul;
 import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
 import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ECMPLoadBalancer;
 import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.GammaLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.SplitTable;
 import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetGraph;
 import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetNode;
 import pt.uminho.algoritmi.netopt.ospf.simulation.sr.Flow;
 import pt.uminho.algoritmi.netopt.ospf.simulation.sr.LabelPath;
@@ -81,21 +85,11 @@ public class SRSimul extends Simul {
 		topology.shortestDistances();
 		int dimension = this.topology.getDimension();
 
-		LoadBalancer lb = this.getLoadBalancer();
-
-		this.setLoadBalancer(LoadBalancer.ECMP);
 		// distributes traffic traveling along SP
 		Demands dem = configuration.getShortestPathDemands(demands, this.topology, edgeReroute);
-		double[][] tLoads = new double[dimension][dimension];
 		// SP loads (Node-Segments and failing ADJ-Segments traffic)
-		for (int d = 0; d < dimension; d++) {
-			if (topology.getGraph().inDegree(d) > 0) {
-				double[][] ploads = super.partialLoads(d, dem);
-				for (int i = 0; i < dimension; i++)
-					for (int j = 0; j < dimension; j++)
-						tLoads[i][j] += ploads[i][j];
-			}
-		}
+		double[][] tLoads = sumLoads((d, arcLoads) -> arcLoads(d, dem,
+				new ECMPLoadBalancer(topology.getShortestPathGraph().getDAG(d)), arcLoads), loadsThreads);
 		// Adj. segments load on non failing links
 
 		for (SRNodeConfiguration nc : configuration.getNodesConfigurations()) {
@@ -118,15 +112,13 @@ public class SRSimul extends Simul {
 			}
 		}
 
-		// set load balancer to the previous configuration
-		this.setLoadBalancer(lb);
 		return tLoads;
 	}
 
 	public double[][] totalLoads(Demands demands, SRConfiguration configuration) {
 
-		int dimension = this.topology.getDimension();
-		double[][] tLoads = new double[dimension][dimension];
+		CSRGraph csr = topology.getGraph().getCSR();
+		double[] tLoads = new double[csr.getNumberOfArcs()];
 
 		Collection<SRNodeConfiguration> n = configuration.getNodesConfigurations();
 		for (SRNodeConfiguration nc : n) {
@@ -141,69 +133,31 @@ public class SRSimul extends Simul {
 					flow.setDemand(d);
 					// adds the flow
 					// correctPath(flow,path);
-					double[][] l = new double[this.topology.getDimension()][this.topology.getDimension()];
-					Iterator<Segment> it = path.getIterator();
-					while (it.hasNext()) {
-						Segment segment = it.next();
-						if (segment.getType().equals(SegmentType.ADJ)) {
-							l[segment.getSrcNodeId()][segment.getDstNodeId()] += flow.getDemand();
-
-						} else if (segment.getType().equals(SegmentType.NODE)) {
-							int dest = segment.getDstNodeId();
-							Graph g = topology.getShortestPathGraph().getArcsShortestPath(dest);
-							ECMPLoadBalancer lb1 = new ECMPLoadBalancer(g);
-							ArrayList<Integer> nodes = new ArrayList<Integer>(
-									topology.getShortestPathGraph().getNodesForDest(dest));
-							Comparator<Integer> comparator = new Comparator<Integer>() {
-								double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-
-								@Override
-								public int compare(Integer arg0, Integer arg1) {
-									double d0 = dists[arg0][dest];
-									double d1 = dists[arg1][dest];
-									if (d0 - d1 > 0)
-										return -1;
-									else if (d0 == d1)
-										return 0;
-									else
-										return 1;
-								}
-							};
-							nodes.sort(comparator);
-							// finds the segment src node in the spanning tree
-							while (nodes.get(0) != segment.getSrcNodeId())
-								nodes.remove(0);
-							while (nodes.size() > 0) {
-								int v = nodes.get(0);
-								double sum = 0.0;
-								if (v == segment.getSrcNodeId())
-									sum += flow.getDemand();
-								else {
-									for (int u1 = 0; u1 < topology.getDimension(); u1++)
-										if (topology.getNetGraph().existEdge(u1, v)
-												&& topology.getNetGraph().getEdge(u1, v).isUP())
-											sum += l[u1][v];
-								}
-								// for each arc leaving from this node
-								for (int w = 0; w < topology.getDimension(); w++) {
-									if (topology.getNetGraph().existEdge(v, w)
-											&& topology.getNetGraph().getEdge(v, w).isUP()) {
-										l[v][w] = lb1.getSplitRatio(v, dest, v, w) * sum;
-									}
-								}
-								nodes.remove(0);
+					double[] l = LoadsWorkspace.get().getSecondArcLoads(tLoads.length);
+					try {
+						Iterator<Segment> it = path.getIterator();
+						while (it.hasNext()) {
+							Segment segment = it.next();
+							if (segment.getType().equals(SegmentType.ADJ)) {
+								int arc = csr.getArc(segment.getSrcNodeId(), segment.getDstNodeId());
+								if (arc != -1)
+									l[arc] += flow.getDemand();
+
+							} else if (segment.getType().equals(SegmentType.NODE)) {
+								forwardSP(segment.getSrcNodeId(), segment.getDstNodeId(), flow.getDemand(), l);
 							}
 						}
-					}
 
-					for (int i = 0; i < topology.getDimension(); i++)
-						for (int j = 0; j < topology.getDimension(); j++)
-							tLoads[i][j] += l[i][j];
+						for (int k = 0; k < tLoads.length; k++)
+							tLoads[k] += l[k];
+					} finally {
+						LoadsWorkspace.get().release(l);
+					}
 
 				}
 			}
 		}
-		return tLoads;
+		return toMatrix(tLoads);
 	}
 
 	/**
@@ -211,25 +165,28 @@ public class SRSimul extends Simul {
 	 * get results do getLoads
 	 */
 	@Override
-	public double[][] totalLoads(Demands demands) {
-		return this.totalLoads(null, demands);
+	public double[] totalArcLoads(Demands demands) {
+		return this.totalArcLoads(null, demands);
 	}
 
 	public double[][] totalLoads(double[] pvalues, Demands demands) {
-		int dimension = topology.getDimension();
+		return toMatrix(totalArcLoads(pvalues, demands));
+	}
+
+	/**
+	 * Total loads of each arc of the CSR view of the topology graph
+	 */
+	public double[] totalArcLoads(double[] pvalues, Demands demands) {
 		if (this.configureSRPath) {
 			this.SRconfig = new SRConfiguration();
 		}
-		double[][] tLoads = new double[dimension][dimension];
-
-		for (int d = 0; d < dimension; d++) {
-			if (topology.getGraph().inDegree(d) > 0) {
-				double[][] ploads = this.partialLoads(d, demands, pvalues);
-				for (int i = 0; i < topology.getDimension(); i++)
-					for (int j = 0; j < topology.getDimension(); j++)
-						tLoads[i][j] += ploads[i][j];
-			}
-		}
+		RoutingCache routing = topology.getRoutingCache();
+		routing.validate(getGammaLoadBalancer(), pvalues);
+		// the SR configuration is not shared by threads
+		int threads = this.configureSRPath ? 1 : loadsThreads;
+		double[] tLoads = sumArcLoads(
+				(d, arcLoads) -> this.partialLoads(d, demands, (GammaLoadBalancer) routing.getLoadBalancer(d), arcLoads),
+				threads);
 
 		// double[][] tLoads = this.totalLoads(demands,
 		// this.getSRconfiguration());
@@ -258,253 +215,232 @@ public class SRSimul extends Simul {
 	 * @return
 	 */
 	public double[][] partialLoads(int dest, Demands demands, double[] pvalues) {
+		double[] ploads = new double[topology.getGraph().getCSR().getNumberOfArcs()];
+		GammaLoadBalancer gam = new GammaLoadBalancer(this.topology, dest, this.getLoadBalancer(), pvalues);
+		gam.compute();
+		this.partialLoads(dest, demands, gam, ploads);
+		return toMatrix(ploads);
+	}
 
-		// traffic demands to be routed by SP/ECMP
-		double[] spDemands = new double[this.topology.getDimension()];
-		// initialize partial loads
-		double[][] ploads = new double[topology.getDimension()][topology.getDimension()];
-		for (int i = 0; i < topology.getDimension(); i++) {
-			spDemands[i] = 0.0;
-			for (int j = 0; j < topology.getDimension(); j++)
-				ploads[i][j] = 0.0;
-		}
+	/**
+	 * Adds the partial loads to dest, split by gam, to the loads of the CSR
+	 * arcs
+	 */
+	private void partialLoads(int dest, Demands demands, GammaLoadBalancer gam, double[] ploads) {
 
 		// node on SP sorted by distance to destination
-		ArrayList<Integer> nodes = new ArrayList<Integer>(topology.getShortestPathGraph().getNodesForDest(dest));
-		Comparator<Integer> comparator = new Comparator<Integer>() {
-			double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-
-			@Override
-			public int compare(Integer arg0, Integer arg1) {
-				double d0 = dists[arg0][dest];
-				double d1 = dists[arg1][dest];
-				if (d0 - d1 > 0)
-					return -1;
-				else if (d0 == d1)
-					return 0;
-				else
-					return 1;
-			}
-		};
-		nodes.sort(comparator);
-		GammaLoadBalancer gam = new GammaLoadBalancer(this.topology, dest, this.getLoadBalancer(), pvalues);
-		gam.computeGamma();
-
-		Iterator<Integer> it = nodes.iterator();
+		SPDag dag = topology.getShortestPathGraph().getDAG(dest);
 
 		// for all nodes on SP
-		while (it.hasNext()) {
-
-			int src = it.next();
-			List<Integer> nodesOnPaths = topology.getShortestPathGraph().getNodesOnShortestPaths(src, dest, false);
+		for (int n = 0; n < dag.size(); n++) {
+			int src = dag.getNode(n);
+			sourceLoads(src, dest, demands.getDemands(src, dest), gam, ploads);
+		}
+	}
 
-			// list of all nsp edges on the paths to destination
-			ArrayList<IntPair> nspEdges = new ArrayList<IntPair>();
-			for (int node : nodesOnPaths) {
-				List<IntPair> nse = gam.getNSPEdgesEndWithSStart(node, true);
-				nspEdges.addAll(nse);
+	/**
+	 * The SR loads of each source alone, split by the gamma load balancer of
+	 * the simulator with no p-values, as the partial loads
+	 */
+	@Override
+	protected void sourceArcLoads(int dest, double demand, SourceLoads loads) {
+		GammaLoadBalancer gam = new GammaLoadBalancer(this.topology, dest, this.getLoadBalancer(), null);
+		gam.compute();
+		int arcs = topology.getGraph().getCSR().getNumberOfArcs();
+		SPDag dag = topology.getShortestPathGraph().getDAG(dest);
+		for (int n = 0; n < dag.size(); n++) {
+			int src = dag.getNode(n);
+			if (src != dest) {
+				double[] arcLoads = LoadsWorkspace.get().getArcLoads(arcs);
+				try {
+					sourceLoads(src, dest, demand, gam, arcLoads);
+					loads.accept(src, arcLoads);
+				} finally {
+					LoadsWorkspace.get().release(arcLoads);
+				}
 			}
+		}
+	}
 
-			// For each nsp edge, an alternative path will be available to
-			// forward traffic
-			// To compute the amount of traffic to be forward by nsp paths from
-			// source to destination.
-
-			Iterator<IntPair> nspEdgesIterator = nspEdges.iterator();
-			// sum of splits
-			double ssplit = 0.0;
-			while (nspEdgesIterator.hasNext()) {
+	/**
+	 * Adds the loads of the demand from src to dest, forwarded by the NSP
+	 * segments and by the shortest paths, to the loads of the CSR arcs
+	 */
+	private void sourceLoads(int src, int dest, double demand, GammaLoadBalancer gam, double[] ploads) {
+		CSRGraph csr = topology.getGraph().getCSR();
+		List<Integer> nodesOnPaths = topology.getShortestPathGraph().getNodesOnShortestPaths(src, dest, false);
+
+		// list of all nsp edges on the paths to destination
+		ArrayList<IntPair> nspEdges = new ArrayList<IntPair>();
+		for (int node : nodesOnPaths) {
+			List<IntPair> nse = gam.getNSPEdgesEndWithSStart(node, true);
+			nspEdges.addAll(nse);
+		}
 
-				IntPair p = nspEdgesIterator.next();
-				double sumBefore = 0;
-
-				if (p.getX() == src) {
-					sumBefore = 1;
-				} else {
-					List<Vector<Integer>> spBefore = topology.getShortestPathGraph().getAllPaths(src, p.getX());
-					for (int j = 0; j < spBefore.size(); j++) {
-						Vector<Integer> v = spBefore.get(j);
-						double f = 1.0;
-						for (int i = 0; i < v.size(); i++) {
-							if (v.get(i) != p.getX()) {
-								f *= gam.getSplit(v.get(i), v.get(i + 1));
-							}
+		// For each nsp edge, an alternative path will be available to
+		// forward traffic
+		// To compute the amount of traffic to be forward by nsp paths from
+		// source to destination.
+
+		Iterator<IntPair> nspEdgesIterator = nspEdges.iterator();
+		// sum of splits
+		double ssplit = 0.0;
+		while (nspEdgesIterator.hasNext()) {
+
+			IntPair p = nspEdgesIterator.next();
+			double sumBefore = 0;
+
+			if (p.getX() == src) {
+				sumBefore = 1;
+			} else {
+				List<Vector<Integer>> spBefore = topology.getShortestPathGraph().getAllPaths(src, p.getX());
+				for (int j = 0; j < spBefore.size(); j++) {
+					Vector<Integer> v = spBefore.get(j);
+					double f = 1.0;
+					for (int i = 0; i < v.size(); i++) {
+						if (v.get(i) != p.getX()) {
+							f *= gam.getSplit(v.get(i), v.get(i + 1));
 						}
-						sumBefore += f;
 					}
+					sumBefore += f;
 				}
+			}
 
-				double split = sumBefore * gam.getSplit(p.getX(), p.getY());
-
-				// Although threshold imposition is ALREADY DONE IN GAMMA
-				// here the threshold is applied to the path traffic fration
-				if (!this.filterDeftThreshold || split > this.deftThreshold) {
+			double split = sumBefore * gam.getSplit(p.getX(), p.getY());
 
-					ssplit += split;
+			// Although threshold imposition is ALREADY DONE IN GAMMA
+			// here the threshold is applied to the path traffic fration
+			if (!this.filterDeftThreshold || split > this.deftThreshold) {
 
-					NetNode dstNode = this.topology.getNetGraph().getNodeAt(dest);
-					NetNode srcNode = this.topology.getNetGraph().getNodeAt(src);
-					LabelPath lsp = new LabelPath(srcNode, dstNode);
-					lsp.setFraction(split);
-					if (p.getX() != src) {
-						Segment segment = new Segment(p.getXString(), SegmentType.NODE);
-						segment.setSrcNodeId(srcNode.getNodeId());
-						segment.setDstNodeId(p.getX());
-						lsp.addSegment(segment);
-					}
-					Segment s = new Segment(p.toString(), SegmentType.ADJ);
-					s.setDstNodeId(p.getY());
-					s.setSrcNodeId(p.getX());
-					lsp.addSegment(s);
-					if (p.getY() != dest) {
-						Segment segment = new Segment(dstNode.toString(), SegmentType.NODE);
-						segment.setSrcNodeId(p.getY());
-						segment.setDstNodeId(dstNode.getNodeId());
-						lsp.addSegment(segment);
-					}
-					if (this.configureSRPath) {
-						SRconfig.addLabelPath(srcNode, dstNode, lsp);
-					}
+				ssplit += split;
 
-					// Demand to be forward between src and dst by NSP p
-					double dem = demands.getDemands(src, dest) * split;
-					// Distributes traffic demand between src and dst by NSP p
-					double[][] loads = new double[topology.getDimension()][topology.getDimension()];
+				NetNode dstNode = this.topology.getNetGraph().getNodeAt(dest);
+				NetNode srcNode = this.topology.getNetGraph().getNodeAt(src);
+				LabelPath lsp = new LabelPath(srcNode, dstNode);
+				lsp.setFraction(split);
+				if (p.getX() != src) {
+					Segment segment = new Segment(p.getXString(), SegmentType.NODE);
+					segment.setSrcNodeId(srcNode.getNodeId());
+					segment.setDstNodeId(p.getX());
+					lsp.addSegment(segment);
+				}
+				Segment s = new Segment(p.toString(), SegmentType.ADJ);
+				s.setDstNodeId(p.getY());
+				s.setSrcNodeId(p.getX());
+				lsp.addSegment(s);
+				if (p.getY() != dest) {
+					Segment segment = new Segment(dstNode.toString(), SegmentType.NODE);
+					segment.setSrcNodeId(p.getY());
+					segment.setDstNodeId(dstNode.getNodeId());
+					lsp.addSegment(segment);
+				}
+				if (this.configureSRPath) {
+					SRconfig.addLabelPath(srcNode, dstNode, lsp);
+				}
 
+				// Demand to be forward between src and dst by NSP p
+				double dem = demand * split;
+				// Distributes traffic demand between src and dst by NSP p
+				double[] loads = LoadsWorkspace.get().getSecondArcLoads(csr.getNumberOfArcs());
+				try {
 					Iterator<Segment> seg = lsp.getIterator();
 					while (seg.hasNext()) {
 						Segment segment = seg.next();
 						if (segment.getType().equals(SegmentType.ADJ)) {
-							loads[segment.getSrcNodeId()][segment.getDstNodeId()] += dem;
+							loads[csr.getArc(segment.getSrcNodeId(), segment.getDstNodeId())] += dem;
 
 						} else if (segment.getType().equals(SegmentType.NODE)) {
-							int dst = segment.getDstNodeId();
-							Graph g = topology.getShortestPathGraph().getArcsShortestPath(dst);
-							ECMPLoadBalancer lb1 = new ECMPLoadBalancer(g);
-							ArrayList<Integer> nd = new ArrayList<Integer>(
-									topology.getShortestPathGraph().getNodesForDest(dst));
-
-							nd.sort(comparator);
-							// finds the segment src node in the spanning tree
-							while (nd.get(0) != segment.getSrcNodeId())
-								nd.remove(0);
-							while (nd.size() > 0) {
-								int v = nd.get(0);
-								double sum = 0.0;
-								if (v == segment.getSrcNodeId())
-									sum += dem;
-								else {
-									for (int u1 = 0; u1 < topology.getDimension(); u1++)
-										if (topology.getNetGraph().existEdge(u1, v)
-												&& topology.getNetGraph().getEdge(u1, v).isUP())
-											sum += loads[u1][v];
-								}
-								// for each arc leaving from this node
-								for (int w = 0; w < topology.getDimension(); w++) {
-									if (topology.getNetGraph().existEdge(v, w)
-											&& topology.getNetGraph().getEdge(v, w).isUP()) {
-										loads[v][w] = lb1.getSplitRatio(v, dest, v, w) * sum;
-									}
-								}
-								nd.remove(0);
-							}
+							forwardSP(segment.getSrcNodeId(), segment.getDstNodeId(), dem, loads);
 						}
 					}
 
-					for (int i = 0; i < topology.getDimension(); i++)
-						for (int j = 0; j < topology.getDimension(); j++)
-							ploads[i][j] += loads[i][j];
+					for (int a = 0; a < csr.getNumberOfArcs(); a++)
+						ploads[a] += loads[a];
+				} finally {
+					LoadsWorkspace.get().release(loads);
+				}
 
-				} // threshold
-			}
+			} // threshold
+		}
 
-			// After all traffic has been forwarded by NSP
-			// the remaining demands will be forwarded by SP/ECMP
+		// After all traffic has been forwarded by NSP
+		// the remaining demands will be forwarded by SP/ECMP
 
-			double spSplit = 1.0 - ssplit;
+		double spSplit = 1.0 - ssplit;
 
-			// only shortest path
-			NetNode dstNode = this.topology.getNetGraph().getNodeAt(dest);
-			NetNode srcNode = this.topology.getNetGraph().getNodeAt(src);
-			LabelPath lsp = new LabelPath(srcNode, dstNode);
-			lsp.setFraction(spSplit);
-			Segment segment = new Segment(dstNode.toString(), SegmentType.NODE);
-			segment.setDstNodeId(dstNode.getNodeId());
-			segment.setSrcNodeId(srcNode.getNodeId());
-			lsp.addSegment(segment);
+		// only shortest path
+		NetNode dstNode = this.topology.getNetGraph().getNodeAt(dest);
+		NetNode srcNode = this.topology.getNetGraph().getNodeAt(src);
+		LabelPath lsp = new LabelPath(srcNode, dstNode);
+		lsp.setFraction(spSplit);
+		Segment segment = new Segment(dstNode.toString(), SegmentType.NODE);
+		segment.setDstNodeId(dstNode.getNodeId());
+		segment.setSrcNodeId(srcNode.getNodeId());
+		lsp.addSegment(segment);
 
-			if (this.configureSRPath) {
-				SRconfig.addLabelPath(srcNode, dstNode, lsp);
-			}
+		if (this.configureSRPath) {
+			SRconfig.addLabelPath(srcNode, dstNode, lsp);
+		}
 
-			double[][] loads = new double[topology.getDimension()][topology.getDimension()];
-
-			double dem = demands.getDemands(src, dest) * spSplit;
-
-			int dst = segment.getDstNodeId();
-			Graph g = topology.getShortestPathGraph().getArcsShortestPath(dst);
-			ECMPLoadBalancer lb1 = new ECMPLoadBalancer(g);
-			ArrayList<Integer> nd = new ArrayList<Integer>(topology.getShortestPathGraph().getNodesForDest(dst));
-
-			nd.sort(comparator);
-			// finds the segment src node in the spanning tree
-			while (nd.get(0) != segment.getSrcNodeId())
-				nd.remove(0);
-			while (nd.size() > 0) {
-				int v = nd.get(0);
-				double sum = 0.0;
-				if (v == segment.getSrcNodeId())
-					sum += dem;
-				else {
-					for (int u1 = 0; u1 < topology.getDimension(); u1++)
-						if (topology.getNetGraph().existEdge(u1, v) && topology.getNetGraph().getEdge(u1, v).isUP())
-							sum += loads[u1][v];
-				}
-				// for each arc leaving from this node
-				for (int w = 0; w < topology.getDimension(); w++) {
-					if (topology.getNetGraph().existEdge(v, w) && topology.getNetGraph().getEdge(v, w).isUP()) {
-						loads[v][w] = lb1.getSplitRatio(v, dest, v, w) * sum;
-					}
-				}
-				nd.remove(0);
-			}
+		double[] loads = LoadsWorkspace.get().getSecondArcLoads(csr.getNumberOfArcs());
+		try {
+			double dem = demand * spSplit;
 
-			for (int i = 0; i < topology.getDimension(); i++)
-				for (int j = 0; j < topology.getDimension(); j++)
-					ploads[i][j] += loads[i][j];
+			forwardSP(segment.getSrcNodeId(), segment.getDstNodeId(), dem, loads);
 
-		} // for each src node
+			for (int a = 0; a < csr.getNumberOfArcs(); a++)
+				ploads[a] += loads[a];
+		} finally {
+			LoadsWorkspace.get().release(loads);
+		}
+	}
 
-		return ploads;
+	/**
+	 * Forwards demand from src to dest along the shortest paths (ECMP),
+	 * setting the loads of the CSR arcs traversed by the segment.
+	 * 
+	 * @param src
+	 * @param dest
+	 * @param demand
+	 * @param loads
+	 */
+	private void forwardSP(int src, int dest, double demand, double[] loads) {
+		SPDag dag = topology.getShortestPathGraph().getDAG(dest);
+		CSRGraph csr = topology.getGraph().getCSR();
+		SplitTable lb = new ECMPLoadBalancer(dag).compile(csr, dest);
+		NetGraph net = topology.getNetGraph();
+		// finds the segment src node in the spanning tree
+		int first = dag.indexOf(src);
+		if (first == -1)
+			return;
+		for (int n = first; n < dag.size(); n++) {
+			int v = dag.getNode(n);
+			double sum = 0.0;
+			if (v == src)
+				sum += demand;
+			else {
+				for (int a = csr.getStart(v); a < csr.getEnd(v); a++)
+					if (net.isUP(csr, a) && csr.getReverse(a) != -1)
+						sum += loads[csr.getReverse(a)];
+			}
+			// for each arc leaving from this node
+			for (int a = csr.getStart(v); a < csr.getEnd(v); a++) {
+				if (net.isUP(csr, a)) {
+					loads[a] = lb.getArcRatio(a) * sum;
+				}
+			}
+		}
 	}
 
 	public void partialSRConfig(int dest, SRConfiguration config) {
 
 		// node on SP sorted by distance to destination
-		ArrayList<Integer> nodes = new ArrayList<Integer>(topology.getShortestPathGraph().getNodesForDest(dest));
-		Comparator<Integer> comparator = new Comparator<Integer>() {
-			double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-
-			@Override
-			public int compare(Integer arg0, Integer arg1) {
-				double d0 = dists[arg0][dest];
-				double d1 = dists[arg1][dest];
-				if (d0 - d1 > 0)
-					return -1;
-				else if (d0 == d1)
-					return 0;
-				else
-					return 1;
-			}
-		};
-		nodes.sort(comparator);
+		SPDag dag = topology.getShortestPathGraph().getDAG(dest);
 		GammaLoadBalancer gam = new GammaLoadBalancer(this.topology, dest, this.getLoadBalancer());
-		gam.computeGamma();
-		Iterator<Integer> it = nodes.iterator();
-
-		while (it.hasNext()) {
+		gam.compute();
+		for (int n = 0; n < dag.size(); n++) {
 
-			int src = it.next();
+			int src = dag.getNode(n);
 			List<Integer> nodesOnPaths = topology.getShortestPathGraph().getNodesOnShortestPaths(src, dest, false);
 			ArrayList<IntPair> nspEdges = new ArrayList<IntPair>();
 			for (int node : nodesOnPaths) {
@@ -558,7 +494,7 @@ public class SRSimul extends Simul {
 		topology.applyWeights(weights);
 		// topology.shortestDistances();
 		double res = 0.0;
-		double[][] tl = totalLoads(pValues, demands);
+		double[] tl = totalArcLoads(pValues, demands);
 		loads = new NetworkLoads(tl, topology);
 		res = congestionMeasure(loads, demands);
 		loads.setCongestion(res);
@@ -569,7 +505,7 @@ public class SRSimul extends Simul {
 		topology.applyWeights(weights);
 		// topology.shortestDistances();
 		double res = 0.0;
-		loads = new NetworkLoads(totalLoads(demands), topology);
+		loads = new NetworkLoads(totalArcLoads(demands), topology);
 		res = congestionMeasure(loads, demands);
 		loads.setCongestion(res);
 		return res;
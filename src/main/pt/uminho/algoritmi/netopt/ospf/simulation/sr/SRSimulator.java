@@ -3,7 +3,6 @@ package pt.uminho.algoritmi.netopt.ospf.simulation.sr;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -12,7 +11,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import pt.uminho.algoritmi.netopt.SystemConf;
-import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.SPDag;
 import pt.uminho.algoritmi.netopt.ospf.optimization.Params;
 import pt.uminho.algoritmi.netopt.ospf.optimization.Params.AlgorithmSecondObjective;
 import pt.uminho.algoritmi.netopt.ospf.optimization.jecoli.JecoliOSPF;
@@ -28,7 +28,9 @@ import pt.uminho.algoritmi.netopt.ospf.simulation.Population;
 import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
 import pt.uminho.algoritmi.netopt.ospf.simulation.exception.DimensionErrorException;
 import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ECMPLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.SplitTable;
 import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetGraph;
 import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetNode.NodeType;
 import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.SRSimul;
 import pt.uminho.algoritmi.netopt.ospf.simulation.solution.IntegerSolution;
@@ -182,6 +184,8 @@ public class SRSimulator {
 		correctPath(flow,path);
 		topology.applyWeights(this.getWeights());
 		double[][] l = new double[this.topology.getDimension()][this.topology.getDimension()];
+		CSRGraph csr = topology.getGraph().getCSR();
+		NetGraph net = topology.getNetGraph();
 		Iterator<Segment> it = path.getIterator();
 		while (it.hasNext()) {
 			Segment s = it.next();
@@ -190,49 +194,30 @@ public class SRSimulator {
 
 			} else if (s.getType().equals(SegmentType.NODE)) {
 				int dest = s.getDstNodeId();
-				Graph g=topology.getShortestPathGraph().getArcsShortestPath(dest);
-				ECMPLoadBalancer lb = new ECMPLoadBalancer(g);
-				ArrayList<Integer> nodes = new ArrayList<Integer>(
-						topology.getShortestPathGraph().getNodesForDest(dest));
-				Comparator<Integer> comparator = new Comparator<Integer>() {
-					double[][] dists = topology.getShortestPathGraph().getShortestPathDistances();
-					@Override
-					public int compare(Integer arg0, Integer arg1) {
-						double d0 = dists[arg0][dest];
-						double d1 = dists[arg1][dest];
-						if (d0 - d1 > 0)
-							return -1;
-						else if (d0 == d1)
-							return 0;
-						else
-							return 1;
-					}
-				};
-				nodes.sort(comparator);
+				SPDag dag = topology.getShortestPathGraph().getDAG(dest);
+				SplitTable lb = new ECMPLoadBalancer(dag).compile(csr, dest);
 				// finds the segment src node in the spanning tree
-				while (nodes.get(0) != s.getSrcNodeId())
-					nodes.remove(0);
-				while (nodes.size() > 0) {
-					int v = nodes.get(0);
+				int first = dag.indexOf(s.getSrcNodeId());
+				for (int n = first; n >= 0 && n < dag.size(); n++) {
+					int v = dag.getNode(n);
 					double sum = 0.0;
 					if (v == s.getSrcNodeId())
 						sum += flow.getDemand();
 					else {
-						for (int u = 0; u < topology.getDimension(); u++)
-							if (topology.getNetGraph().existEdge(u, v)
-									&& topology.getNetGraph().getEdge(u, v).isUP())
-								sum += l[u][v];
+						for (int a = csr.getStart(v); a < csr.getEnd(v); a++)
+							if (net.isUP(csr, a))
+								sum += l[csr.getTarget(a)][v];
 					}
 					// for each arc leaving from this node
-					for (int w = 0; w < topology.getDimension(); w++) {
-						if (topology.getNetGraph().existEdge(v, w) && topology.getNetGraph().getEdge(v, w).isUP()) {
+					for (int a = csr.getStart(v); a < csr.getEnd(v); a++) {
+						if (net.isUP(csr, a)) {
+							int w = csr.getTarget(a);
 							if(flow.isAggregated())
-								l[v][w] = lb.getSplitRatio(v, dest, v, w) * sum;
+								l[v][w] = lb.getArcRatio(a) * sum;
 							else
-								l[v][w] = lb.getSplitRatio(flow, v, w)* sum;
+								l[v][w] = lb.getArcRatio(flow, a)* sum;
 						}
 					}
-					nodes.remove(0);
 				}
 			}
 		}
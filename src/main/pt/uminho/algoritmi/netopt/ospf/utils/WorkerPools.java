@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2012-2017,
+ *  Centro Algoritmi - University of Minho
+ * 
+ *  This is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This code is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Public License for more details.
+ * 
+ *  You should have received a copy of the GNU Public License
+ *  along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ *  @author Vtor Pereira
+ ******************************************************************************/
+package pt.uminho.algoritmi.netopt.ospf.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Fork/join pools shared by the parallel computations, one per parallelism.
+ *
+ * Pools are reference counted: a computation holds them from
+ * {@link #acquire()} to {@link #release()} (JecoliOSPF does it for a whole
+ * optimization run), and each {@link #invoke(int, ForkJoinTask)} holds them
+ * while its task runs. Once no computation holds them, the pools are shut
+ * down and are created again on the next use.
+ */
+public final class WorkerPools {
+
+	private static final Map<Integer, ForkJoinPool> POOLS = new HashMap<Integer, ForkJoinPool>();
+	private static int holders = 0;
+
+	private WorkerPools() {
+	}
+
+	/**
+	 * Holds the pools until the matching {@link #release()}
+	 */
+	public static synchronized void acquire() {
+		holders++;
+	}
+
+	/**
+	 * Releases a hold, shutting down the pools if it was the last one
+	 */
+	public static synchronized void release() {
+		if (holders > 0)
+			holders--;
+		if (holders == 0) {
+			for (ForkJoinPool pool : POOLS.values())
+				pool.shutdown();
+			POOLS.clear();
+		}
+	}
+
+	// holds the pools and returns the one with the given number of workers
+	private static synchronized ForkJoinPool hold(int parallelism) {
+		holders++;
+		ForkJoinPool pool = POOLS.get(parallelism);
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+			POOLS.put(parallelism, pool);
+		}
+		return pool;
+	}
+
+	/**
+	 * Runs the task on the pool with the given number of workers, holding the
+	 * pools until it completes
+	 *
+	 * @return the result of the task
+	 */
+	public static <T> T invoke(int parallelism, ForkJoinTask<T> task) {
+		ForkJoinPool pool = hold(parallelism);
+		try {
+			return pool.invoke(task);
+		} finally {
+			release();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package pt.uminho.algoritmi.netopt.tests;
+
+import java.util.Random;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
+import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.FailureScenarioSimul;
+
+/**
+ * Checks that the loads and measures FailureScenarioSimul patches onto the
+ * baseline are those of a full computeLoads with the link down, for every
+ * single link failure, and that the topology is left as it was.
+ * 
+ * Usage: FailureLoadsCheck [nodesFile edgesFile]
+ */
+public class FailureLoadsCheck {
+
+	private static final double TOLERANCE = 1e-9;
+
+	public static void main(String[] args) throws Exception {
+		Random r = new Random(3);
+		NetworkTopology topology = RandomTopology.create(args, 30, r);
+		Demands demands = RandomTopology.demands(topology, 40, r);
+		int failures = 0;
+		for (LoadBalancer lb : new LoadBalancer[] { LoadBalancer.ECMP, LoadBalancer.DEFT, LoadBalancer.PEFT })
+			for (int it = 0; it < 3; it++) {
+				int[] weights = RandomTopology.weights(topology, r);
+				FailureScenarioSimul patched = new FailureScenarioSimul(topology.copy(), lb);
+				patched.setBaseline(weights, demands);
+				NetworkTopology full = topology.copy();
+				NetEdge[] edges = patched.getTopology().getNetGraph().getEdges();
+				for (int i = 0; i < edges.length; i++) {
+					double[][] loads = patched.failureLoads(edges[i]);
+					double[] measures = patched.evalFailure(edges[i]);
+
+					NetEdge e = full.getNetGraph().getEdges()[i];
+					full.setEdgeStatus(e, Graph.Status.DOWN);
+					Simul simul = new Simul(full);
+					simul.setLoadBalancer(lb);
+					simul.computeLoads(weights, demands);
+					full.setEdgeStatus(e, Graph.Status.UP);
+
+					double d = RandomTopology.difference(loads, simul.getLoads().getLoads());
+					double c = RandomTopology.relative(measures[0], simul.getLoads().getCongestion());
+					double m = RandomTopology.relative(measures[1], simul.getLoads().getMLU());
+					if (d > TOLERANCE || c > TOLERANCE || m > TOLERANCE || !edges[i].isUP()) {
+						System.out.println(lb + " weights " + it + " edge " + i + ": loads " + d + " congestion " + c
+								+ " mlu " + m + (edges[i].isUP() ? "" : " left down"));
+						failures++;
+					}
+				}
+			}
+		System.out.println(failures == 0 ? "failure loads OK" : failures + " failure loads differences");
+		if (failures > 0)
+			System.exit(1);
+	}
+}
@@ -0,0 +1,81 @@
+package pt.uminho.algoritmi.netopt.tests;
+
+import java.util.Random;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.DialDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.Graph;
+import pt.uminho.algoritmi.netopt.ospf.graph.HeapDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.WGraph;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+
+/**
+ * Checks that the shortest paths updated by updateWeights and updateStatus
+ * are the ones a full execution finds, for the matrix, heap and bucket queue
+ * SPF.
+ * 
+ * Usage: IncrementalSPFCheck [nodesFile edgesFile]
+ */
+public class IncrementalSPFCheck {
+
+	public static void main(String[] args) throws Exception {
+		Random r = new Random(2);
+		NetworkTopology topology = RandomTopology.create(args, 40, r);
+		topology.applyWeights(RandomTopology.weights(topology, r));
+		int failures = 0;
+		for (int kind = 0; kind < 3; kind++)
+			for (boolean ssp : new boolean[] { true, false })
+				failures += check(topology.getGraph(), kind, ssp, r);
+		System.out.println(failures == 0 ? "incremental SPF OK" : failures + " incremental SPF differences");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private static MatDijkstra spf(WGraph g, int kind, boolean ssp) {
+		if (kind == 1)
+			return new HeapDijkstra(g, ssp);
+		if (kind == 2)
+			return new DialDijkstra(g, ssp);
+		return new MatDijkstra(g, ssp);
+	}
+
+	private static int check(WGraph g, int kind, boolean ssp, Random r) {
+		int n = g.getDimension();
+		int failures = 0;
+		MatDijkstra updated = spf(g, kind, ssp);
+		updated.execute();
+		for (int it = 0; it < 30; it++) {
+			int[] arc = randomArc(g, r);
+			int[] from = { arc[0], arc[1] };
+			int[] to = { arc[1], arc[0] };
+			String change;
+			if (it % 3 == 2) {
+				Graph.Status status = g.getConnection(arc[0], arc[1]).equals(Graph.Status.UP) ? Graph.Status.DOWN
+						: Graph.Status.UP;
+				updated.updateStatus(from, to, status);
+				change = "status " + arc[0] + "-" + arc[1] + " " + status;
+			} else {
+				double w = 1 + r.nextInt(20);
+				updated.updateWeights(from, to, new double[] { w, w });
+				change = "weight " + arc[0] + "-" + arc[1] + " " + w;
+			}
+			MatDijkstra full = spf(g, kind, ssp);
+			full.execute();
+			String d = RandomTopology.compare(full, updated, n);
+			if (d != null) {
+				System.out.println(updated.getClass().getSimpleName() + " ssp=" + ssp + " " + change + ": " + d);
+				failures++;
+			}
+		}
+		return failures;
+	}
+
+	private static int[] randomArc(Graph g, Random r) {
+		int n = g.getDimension();
+		while (true) {
+			int i = r.nextInt(n), j = r.nextInt(n);
+			if (i != j && !g.getConnection(i, j).equals(Graph.Status.NOCONNECTION))
+				return new int[] { i, j };
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package pt.uminho.algoritmi.netopt.tests;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetEdge;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetNode;
+
+/**
+ * Topologies, weights and demands for the equivalence checks. The topology is
+ * read from nodes and edges files when given, or else built at random: a
+ * spanning tree plus random links, three links per node.
+ */
+public class RandomTopology {
+
+	public static NetworkTopology create(String[] args, int nodes, Random r) throws Exception {
+		if (args.length >= 2)
+			return new NetworkTopology(args[0], args[1]);
+		return create(nodes, r);
+	}
+
+	public static NetworkTopology create(int n, Random r) {
+		NetNode[] nodes = new NetNode[n];
+		for (int i = 0; i < n; i++) {
+			nodes[i] = new NetNode();
+			nodes[i].setNodeId(i);
+		}
+		List<NetEdge> edges = new ArrayList<NetEdge>();
+		Set<Long> seen = new HashSet<Long>();
+		for (int i = 1; i < n; i++) {
+			int j = r.nextInt(i);
+			edges.add(new NetEdge(j, i));
+			seen.add((long) j * n + i);
+		}
+		while (edges.size() < 3 * n && edges.size() < n * (n - 1) / 2) {
+			int i = r.nextInt(n), j = r.nextInt(n);
+			if (i < j && seen.add((long) i * n + j))
+				edges.add(new NetEdge(i, j));
+		}
+		for (int k = 0; k < edges.size(); k++) {
+			edges.get(k).setEdgeId(k);
+			edges.get(k).setBandwidth(100 + r.nextInt(500));
+		}
+		return new NetworkTopology(nodes, edges.toArray(new NetEdge[edges.size()]));
+	}
+
+	/**
+	 * @return random weights in [1,20], one per arc of the topology
+	 */
+	public static int[] weights(NetworkTopology topology, Random r) {
+		int[] w = new int[2 * topology.getNetGraph().getNEdges()];
+		for (int k = 0; k < w.length; k++)
+			w[k] = 1 + r.nextInt(20);
+		return w;
+	}
+
+	public static Demands demands(NetworkTopology topology, double max, Random r) {
+		int n = topology.getDimension();
+		double[][] d = new double[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				if (i != j)
+					d[i][j] = r.nextDouble() * max;
+		return new Demands(d);
+	}
+
+	/**
+	 * @return the first difference between the shortest paths, null if there
+	 *         is none
+	 */
+	public static String compare(MatDijkstra a, MatDijkstra b, int n) {
+		for (int s = 0; s < n; s++)
+			for (int t = 0; t < n; t++) {
+				if (a.getDist(s, t) != b.getDist(s, t))
+					return "distance " + s + "->" + t + ": " + a.getDist(s, t) + " " + b.getDist(s, t);
+				if (a.countHops(s, t) != b.countHops(s, t))
+					return "hops " + s + "->" + t + ": " + a.countHops(s, t) + " " + b.countHops(s, t);
+				for (int i = 0; i < a.countHops(s, t); i++)
+					if (a.getNextHop(s, t, i) != b.getNextHop(s, t, i))
+						return "hop " + i + " " + s + "->" + t;
+			}
+		return null;
+	}
+
+	/**
+	 * @return the largest difference between two loads, relative to the
+	 *         largest of them
+	 */
+	public static double difference(double[][] a, double[][] b) {
+		double max = 0.0, diff = 0.0;
+		for (int i = 0; i < a.length; i++)
+			for (int j = 0; j < a.length; j++) {
+				max = Math.max(max, Math.max(Math.abs(a[i][j]), Math.abs(b[i][j])));
+				diff = Math.max(diff, Math.abs(a[i][j] - b[i][j]));
+			}
+		return max == 0.0 ? diff : diff / max;
+	}
+
+	/**
+	 * @return the difference between two measures, relative to the largest
+	 */
+	public static double relative(double a, double b) {
+		double max = Math.max(Math.abs(a), Math.abs(b));
+		return max == 0.0 ? 0.0 : Math.abs(a - b) / max;
+	}
+}
@@ -0,0 +1,101 @@
+package pt.uminho.algoritmi.netopt.tests;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
+import pt.uminho.algoritmi.netopt.ospf.simulation.EdgesLoad;
+import pt.uminho.algoritmi.netopt.ospf.simulation.EdgesLoad.PartialEdgeLoad;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.PDEFTSimul;
+import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.SRSimul;
+
+/**
+ * Checks that the partial edge loads EdgesLoad builds from its routing matrix
+ * are those of computing partialLoads for a demand of 100 on each pair, one
+ * pair at a time, as EdgesLoad used to, that the map is kept between calls,
+ * and that copies have the same partial loads.
+ * 
+ * Usage: RoutingMatrixCheck [nodesFile edgesFile]
+ */
+public class RoutingMatrixCheck {
+
+	private static final double TOLERANCE = 1e-9;
+
+	public static void main(String[] args) throws Exception {
+		Random r = new Random(3);
+		NetworkTopology topology = RandomTopology.create(args, 30, r);
+		int n = topology.getDimension();
+		int failures = 0;
+		for (boolean sr : new boolean[] { false, true })
+			for (LoadBalancer lb : new LoadBalancer[] { LoadBalancer.ECMP, LoadBalancer.DEFT, LoadBalancer.PEFT })
+				for (int it = 0; it < 2; it++) {
+					int[] weights = RandomTopology.weights(topology, r);
+					EdgesLoad el = new EdgesLoad();
+					el.computeLoads(topology, weights, lb, sr);
+					Map<Integer, List<PartialEdgeLoad>> loads = el.getEdgesLoad();
+
+					Simul simul;
+					if (sr)
+						simul = new SRSimul(topology, lb);
+					else if (lb == LoadBalancer.ECMP)
+						simul = new Simul(topology);
+					else
+						simul = new PDEFTSimul(topology, lb == LoadBalancer.DEFT);
+					Map<Integer, Map<String, Double>> expected = new HashMap<Integer, Map<String, Double>>();
+					double[][] demands = new double[n][n];
+					for (int src = 0; src < n; src++)
+						for (int dst = 0; dst < n; dst++)
+							if (src != dst) {
+								demands[src][dst] = 100.0;
+								double[][] load = simul.partialLoads(dst, new Demands(demands));
+								demands[src][dst] = 0.0;
+								for (int i = 0; i < n; i++)
+									for (int j = 0; j < n; j++)
+										if (load[i][j] != 0.0) {
+											int e = topology.getNetGraph().getEdge(i, j).getEdgeId();
+											if (!expected.containsKey(e))
+												expected.put(e, new HashMap<String, Double>());
+											expected.get(e).put(key(src, dst, i, j), load[i][j]);
+										}
+							}
+
+					String error = compare(loads, expected);
+					if (error == null && el.getEdgesLoad() != loads)
+						error = "partial loads rebuilt";
+					if (error == null)
+						error = compare(el.copy().getEdgesLoad(), expected);
+					if (error != null) {
+						System.out.println(lb + (sr ? " SR" : "") + " weights " + it + ": " + error);
+						failures++;
+					}
+				}
+		System.out.println(failures == 0 ? "routing matrix OK" : failures + " routing matrix differences");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private static String compare(Map<Integer, List<PartialEdgeLoad>> loads, Map<Integer, Map<String, Double>> expected) {
+		if (!loads.keySet().equals(expected.keySet()))
+			return "edges " + loads.keySet() + " expected " + expected.keySet();
+		for (int e : loads.keySet()) {
+			Map<String, Double> pairs = expected.get(e);
+			if (loads.get(e).size() != pairs.size())
+				return "edge " + e + " " + loads.get(e).size() + " partial loads, expected " + pairs.size();
+			for (PartialEdgeLoad l : loads.get(e)) {
+				Double p = pairs.get(key(l.getSource(), l.getDestination(), l.getINNode(), l.getOUTNode()));
+				if (p == null || Math.abs(p - l.getTrafficPercentage()) > TOLERANCE)
+					return "edge " + e + " " + l + " expected " + p;
+			}
+		}
+		return null;
+	}
+
+	private static String key(int src, int dst, int in, int out) {
+		return src + " " + dst + " " + in + " " + out;
+	}
+}
@@ -0,0 +1,45 @@
+package pt.uminho.algoritmi.netopt.tests;
+
+import java.util.Random;
+
+import pt.uminho.algoritmi.netopt.ospf.graph.DialDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.HeapDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+
+/**
+ * Checks that the heap and bucket queue SPF find the same distances and
+ * predecessors, in the same order, as the matrix SPF.
+ * 
+ * Usage: SPFCheck [nodesFile edgesFile]
+ */
+public class SPFCheck {
+
+	public static void main(String[] args) throws Exception {
+		Random r = new Random(1);
+		NetworkTopology topology = RandomTopology.create(args, 50, r);
+		int n = topology.getDimension();
+		int failures = 0;
+		for (int it = 0; it < 20; it++) {
+			topology.applyWeights(RandomTopology.weights(topology, r));
+			for (boolean ssp : new boolean[] { true, false }) {
+				MatDijkstra matrix = new MatDijkstra(topology.getGraph(), ssp);
+				MatDijkstra heap = new HeapDijkstra(topology.getGraph(), ssp);
+				MatDijkstra dial = new DialDijkstra(topology.getGraph(), ssp);
+				matrix.execute();
+				heap.execute();
+				dial.execute();
+				String d = RandomTopology.compare(matrix, heap, n);
+				if (d == null)
+					d = RandomTopology.compare(matrix, dial, n);
+				if (d != null) {
+					System.out.println("weights " + it + " ssp=" + ssp + ": " + d);
+					failures++;
+				}
+			}
+		}
+		System.out.println(failures == 0 ? "SPF OK" : failures + " SPF differences");
+		if (failures > 0)
+			System.exit(1);
+	}
+}
@@ -0,0 +1,218 @@
+package pt.uminho.algoritmi.netopt.tests;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import pt.uminho.algoritmi.netopt.SystemConf;
+import pt.uminho.algoritmi.netopt.ospf.graph.CSRGraph;
+import pt.uminho.algoritmi.netopt.ospf.graph.MatDijkstra;
+import pt.uminho.algoritmi.netopt.ospf.graph.SPDag;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ECMPLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.Exponential;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.GammaLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.ILoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.SSPLoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.loadballancer.SplitTable;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetGraph;
+import pt.uminho.algoritmi.netopt.ospf.simulation.net.NetNode.NodeType;
+
+/**
+ * Checks that the split tables compiled by each load balancer give, on every
+ * arc, the ratio of the balancer's getSplitRatio (and getSplit for DEFT and
+ * PEFT), that their next hops are the arcs with a nonzero ratio, and that the
+ * ECMP, DEFT and PEFT ratios are those of a recomputation on N x N matrices,
+ * which solves the PEFT gammas by Gaussian elimination.
+ * 
+ * Usage: SplitTableCheck [nodesFile edgesFile]
+ */
+public class SplitTableCheck {
+
+	private static final double TOLERANCE = 1e-9;
+
+	public static void main(String[] args) throws Exception {
+		Random r = new Random(3);
+		NetworkTopology topology = RandomTopology.create(args, 30, r);
+		int n = topology.getDimension();
+		int failures = 0;
+		for (int it = 0; it < 4; it++) {
+			topology.applyWeights(RandomTopology.weights(topology, r));
+			// half of the runs with legacy nodes, which only forward on
+			// shortest path links
+			NetGraph net = topology.getNetGraph();
+			for (int u = 0; u < n; u++)
+				net.getNodeAt(u).setNodeType(it % 2 == 1 && r.nextBoolean() ? NodeType.LEGACY : NodeType.SDN_SR);
+			double[] pv = new double[n];
+			for (int u = 0; u < n; u++)
+				pv[u] = 0.5 + 2 * r.nextDouble();
+
+			CSRGraph csr = topology.getGraph().getCSR();
+			MatDijkstra sp = topology.getShortestPathGraph();
+			for (int dest = 0; dest < n; dest++) {
+				SPDag dag = sp.getDAG(dest);
+				for (LoadBalancer lbo : new LoadBalancer[] { LoadBalancer.ECMP, LoadBalancer.NOLB, LoadBalancer.DEFT,
+						LoadBalancer.PEFT }) {
+					ILoadBalancer lb;
+					double[] expected;
+					switch (lbo) {
+					case ECMP:
+						lb = new ECMPLoadBalancer(dag);
+						expected = ecmp(dag, csr);
+						break;
+					case NOLB:
+						lb = new SSPLoadBalancer(dag, topology.getWeights());
+						expected = null;
+						break;
+					default:
+						GammaLoadBalancer g = new GammaLoadBalancer(topology, dest, lbo, pv);
+						double[][] m = g.computeGamma();
+						lb = g;
+						expected = gamma(topology, g, dest, lbo, pv);
+						// the matrix view holds the same ratios
+						for (int u = 0; u < m.length; u++)
+							for (int v = 0; v < m.length; v++)
+								if (m[u][v] != g.getSplit(u, v)) {
+									System.out.println(lbo + " weights " + it + " destination " + dest + ": matrix "
+											+ u + "-" + v + " " + m[u][v] + " split " + g.getSplit(u, v));
+									failures++;
+								}
+					}
+					SplitTable table = lb.compile(csr, dest);
+					String error = compare(table, lb, expected, dag, csr, dest);
+					if (error != null) {
+						System.out.println(lbo + " weights " + it + " destination " + dest + ": " + error);
+						failures++;
+					}
+				}
+			}
+		}
+		System.out.println(failures == 0 ? "split tables OK" : failures + " split tables differences");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private static String compare(SplitTable table, ILoadBalancer lb, double[] expected, SPDag dag, CSRGraph csr,
+			int dest) {
+		for (int u = 0; u < csr.getDimension(); u++) {
+			int used = 0;
+			for (int a = csr.getStart(u); a < csr.getEnd(u); a++) {
+				int v = csr.getTarget(a);
+				double ratio = table.getArcRatio(a);
+				if (Math.abs(ratio - lb.getSplitRatio(u, dest, u, v)) > TOLERANCE)
+					return "arc " + u + "-" + v + " ratio " + ratio + " balancer " + lb.getSplitRatio(u, dest, u, v);
+				if (lb instanceof GammaLoadBalancer
+						&& Math.abs(ratio - ((GammaLoadBalancer) lb).getSplit(u, v)) > TOLERANCE)
+					return "arc " + u + "-" + v + " ratio " + ratio + " split " + ((GammaLoadBalancer) lb).getSplit(u, v);
+				if (expected != null && Math.abs(ratio - expected[a]) > TOLERANCE)
+					return "arc " + u + "-" + v + " ratio " + ratio + " expected " + expected[a];
+				if (lb instanceof SSPLoadBalancer && ratio != 0.0 && !dag.isNextHop(u, v))
+					return "arc " + u + "-" + v + " off the shortest paths";
+				if (ratio != 0.0)
+					used++;
+			}
+			if (table.outDegree(u) != used)
+				return "node " + u + " " + table.outDegree(u) + " next hops, " + used + " arcs used";
+			for (int i = 0; i < table.outDegree(u); i++) {
+				int a = csr.getArc(u, table.getNextHop(u, i));
+				if (a < 0 || table.getArcRatio(a) == 0.0)
+					return "node " + u + " next hop " + table.getNextHop(u, i) + " not used";
+			}
+		}
+		return null;
+	}
+
+	private static double[] ecmp(SPDag dag, CSRGraph csr) {
+		double[] s = new double[csr.getNumberOfArcs()];
+		for (int u = 0; u < csr.getDimension(); u++)
+			for (int i = 0; i < dag.outDegree(u); i++)
+				s[csr.getArc(u, dag.getNextHop(u, i))] = 1.0 / dag.outDegree(u);
+		return s;
+	}
+
+	/*
+	 * DEFT and PEFT ratios, by CSR arc: hs_uv is the penalization of the
+	 * downhill link u-v, on the shortest paths or leaving an SR node; PEFT
+	 * solves gamma = hs gamma + e_t. The values of the links of a node are
+	 * split as configured, by their sum or by the balancer's threshold.
+	 */
+	private static double[] gamma(NetworkTopology topology, GammaLoadBalancer lb, int dest, LoadBalancer lbo,
+			double[] pv) {
+		int n = topology.getDimension();
+		MatDijkstra sp = topology.getShortestPathGraph();
+		NetGraph net = topology.getNetGraph();
+		CSRGraph csr = topology.getGraph().getCSR();
+		Exponential f = new Exponential();
+		double[][] hs = new double[n][n];
+		for (int a = 0; a < csr.getNumberOfArcs(); a++) {
+			int u = csr.getSource(a), v = csr.getTarget(a);
+			if (u == dest || u == v || !net.getEdge(u, v).isUP())
+				continue;
+			double dut = sp.getDist(u, dest), dvt = sp.getDist(v, dest);
+			if (dvt < dut) {
+				double h = dvt + sp.getArcWeight(u, v) - dut;
+				if (h == 0 || net.getNodeAt(u).getNodeType().equals(NodeType.SDN_SR))
+					hs[u][v] = f.f(h, pv[u]);
+			}
+		}
+
+		double[] gs = new double[n];
+		Arrays.fill(gs, 1.0);
+		if (lbo.equals(LoadBalancer.PEFT)) {
+			double[][] m = new double[n][n + 1];
+			for (int u = 0; u < n; u++) {
+				for (int v = 0; v < n; v++)
+					m[u][v] = (u == v ? 1.0 : 0.0) - hs[u][v];
+				m[u][n] = u == dest ? 1.0 : 0.0;
+			}
+			solve(m, gs);
+		}
+
+		boolean threshold = SystemConf.getPropertyBoolean("deft.applythreshold", false);
+		double[] s = new double[csr.getNumberOfArcs()];
+		for (int u = 0; u < n; u++) {
+			int start = csr.getStart(u), end = csr.getEnd(u);
+			double[] values = new double[end - start];
+			double sum = 0.0;
+			for (int a = start; a < end; a++) {
+				int v = csr.getTarget(a);
+				values[a - start] = hs[u][v] * gs[v];
+				sum += values[a - start];
+			}
+			if (sum == 0.0)
+				continue;
+			if (threshold)
+				values = lb.fraction(values, SystemConf.getPropertyDouble("deft.threshold", 0.01));
+			else
+				for (int i = 0; i < values.length; i++)
+					values[i] /= sum;
+			System.arraycopy(values, 0, s, start, values.length);
+		}
+		return s;
+	}
+
+	// Gaussian elimination with partial pivoting on the augmented matrix m
+	private static void solve(double[][] m, double[] x) {
+		int n = x.length;
+		for (int c = 0; c < n; c++) {
+			int p = c;
+			for (int i = c + 1; i < n; i++)
+				if (Math.abs(m[i][c]) > Math.abs(m[p][c]))
+					p = i;
+			double[] t = m[c];
+			m[c] = m[p];
+			m[p] = t;
+			for (int i = c + 1; i < n; i++) {
+				double k = m[i][c] / m[c][c];
+				for (int j = c; j <= n; j++)
+					m[i][j] -= k * m[c][j];
+			}
+		}
+		for (int i = n - 1; i >= 0; i--) {
+			double v = m[i][n];
+			for (int j = i + 1; j < n; j++)
+				v -= m[i][j] * x[j];
+			x[i] = v / m[i][i];
+		}
+	}
+}
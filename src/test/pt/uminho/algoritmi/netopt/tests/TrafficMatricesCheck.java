@@ -0,0 +1,74 @@
+package pt.uminho.algoritmi.netopt.tests;
+
+import java.util.Random;
+
+import pt.uminho.algoritmi.netopt.ospf.simulation.Demands;
+import pt.uminho.algoritmi.netopt.ospf.simulation.NetworkTopology;
+import pt.uminho.algoritmi.netopt.ospf.simulation.OSPFWeights;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul;
+import pt.uminho.algoritmi.netopt.ospf.simulation.Simul.LoadBalancer;
+import pt.uminho.algoritmi.netopt.ospf.simulation.TrafficMatricesEvaluator;
+import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.PDEFTSimul;
+import pt.uminho.algoritmi.netopt.ospf.simulation.simulators.SRSimul;
+
+/**
+ * Checks that the MLU and congestion TrafficMatricesEvaluator computes for a
+ * batch of traffic matrices are those of a computeLoads of each matrix, for
+ * one and several threads.
+ * 
+ * Usage: TrafficMatricesCheck [nodesFile edgesFile]
+ */
+public class TrafficMatricesCheck {
+
+	private static final double TOLERANCE = 1e-9;
+	private static final int MATRICES = 100;
+
+	public static void main(String[] args) throws Exception {
+		Random r = new Random(3);
+		NetworkTopology topology = RandomTopology.create(args, 30, r);
+		Demands[] demands = new Demands[MATRICES];
+		for (int i = 0; i < MATRICES; i++)
+			demands[i] = RandomTopology.demands(topology, 40, r);
+		int failures = 0;
+		for (boolean sr : new boolean[] { false, true })
+			for (LoadBalancer lb : new LoadBalancer[] { LoadBalancer.ECMP, LoadBalancer.DEFT, LoadBalancer.PEFT }) {
+				int[] weights = RandomTopology.weights(topology, r);
+				OSPFWeights w = new OSPFWeights(topology.getDimension());
+				w.setWeights(weights, topology);
+
+				TrafficMatricesEvaluator evaluator = new TrafficMatricesEvaluator(simulator(topology.copy(), lb, sr), w);
+				TrafficMatricesEvaluator.Result batched = evaluator.evaluate(demands, 1);
+				TrafficMatricesEvaluator.Result parallel = evaluator.evaluate(demands, 4);
+
+				Simul simul = simulator(topology.copy(), lb, sr);
+				double[] mlu = new double[MATRICES], congestion = new double[MATRICES];
+				for (int i = 0; i < MATRICES; i++) {
+					simul.computeLoads(weights, demands[i]);
+					mlu[i] = simul.getLoads().getMLU();
+					congestion[i] = simul.getLoads().getCongestion();
+				}
+
+				for (int i = 0; i < MATRICES; i++) {
+					double m = RandomTopology.relative(batched.getMLU(i), mlu[i]);
+					double c = RandomTopology.relative(batched.getCongestion(i), congestion[i]);
+					if (m > TOLERANCE || c > TOLERANCE || parallel.getMLU(i) != batched.getMLU(i)
+							|| parallel.getCongestion(i) != batched.getCongestion(i)) {
+						System.out.println(lb + (sr ? " SR" : "") + " matrix " + i + ": mlu " + m + " congestion " + c
+								+ " parallel mlu " + parallel.getMLU(i) + " congestion " + parallel.getCongestion(i));
+						failures++;
+					}
+				}
+			}
+		System.out.println(failures == 0 ? "traffic matrices OK" : failures + " traffic matrices differences");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private static Simul simulator(NetworkTopology topology, LoadBalancer lb, boolean sr) {
+		if (sr)
+			return new SRSimul(topology, lb);
+		if (lb == LoadBalancer.ECMP)
+			return new Simul(topology);
+		return new PDEFTSimul(topology, lb == LoadBalancer.DEFT);
+	}
+}